@@ -16,7 +16,10 @@
 
 package com.bosscs.spark.commons.entity;
 
-import java.io.Serializable;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.net.InetAddress;
@@ -27,10 +30,12 @@ import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 
+import com.bosscs.spark.commons.serialization.CellsSerializationUtils;
+
 /**
  * Created by Jerry Xiong on 2/11/15.
  */
-public class Cell implements Serializable {
+public class Cell implements Externalizable {
 
     private static final long serialVersionUID = 2298549804049316156L;
 
@@ -44,11 +49,14 @@ public class Cell implements Serializable {
      */
     protected Object cellValue;
 
-    protected Boolean isKey = Boolean.FALSE;
+    protected boolean isKey;
 
-    protected Boolean isClusterKey = Boolean.FALSE;
+    protected boolean isClusterKey;
 
-    protected Cell() {
+    /**
+     * Used by deserialization, use the create methods otherwise.
+     */
+    public Cell() {
         super();
     }
 
@@ -62,15 +70,15 @@ public class Cell implements Serializable {
         super();
         this.cellName = cellName;
         this.cellValue = cellValue;
-        this.isKey = isKey;
+        this.isKey = Boolean.TRUE.equals(isKey);
     }
 
     protected Cell(String cellName, Object cellValue, Boolean isKey, Boolean isClusterKey) {
         super();
         this.cellName = cellName;
         this.cellValue = cellValue;
-        this.isKey = isKey;
-        this.isClusterKey = isClusterKey;
+        this.isKey = Boolean.TRUE.equals(isKey);
+        this.isClusterKey = Boolean.TRUE.equals(isClusterKey);
     }
 
     /**
@@ -110,23 +118,135 @@ public class Cell implements Serializable {
     }
 
     /**
-     * Returns the cell value casted to the specified class.
+     * Returns the cell value casted to the specified class. Numbers are converted to the requested number class,
+     * narrowing conversions truncating as the Java primitive conversions do, and to their decimal representation for
+     * {@code String}.
      *
      * @param clazz the expected class
      * @param <T>   the return type
-     * @return the cell value casted to the specified class
+     * @return the cell value casted to the specified class, null for a number requested as any other class
      */
     public <T> T getValue(Class<T> clazz) {
         if (this.cellValue == null) {
             return null;
+        } else if (cellValue instanceof Number && !clazz.isInstance(cellValue)) {
+            return (T) convertNumber((Number) cellValue, clazz);
         } else {
-            if(Number.class.isAssignableFrom(cellValue.getClass())){
-                return null;
-            }else{
-                return (T) this.cellValue;
-            }
+            return (T) this.cellValue;
+        }
+    }
 
+    /**
+     * Converts a number to another number class or to a String.
+     *
+     * @param number the number
+     * @param clazz  the expected class
+     * @return the converted number, null when the class is neither a number class nor String
+     */
+    private static Object convertNumber(Number number, Class<?> clazz) {
+        if (clazz == Integer.class) {
+            return number.intValue();
+        } else if (clazz == Long.class) {
+            return number.longValue();
+        } else if (clazz == Double.class) {
+            return number.doubleValue();
+        } else if (clazz == Float.class) {
+            return number.floatValue();
+        } else if (clazz == Short.class) {
+            return number.shortValue();
+        } else if (clazz == Byte.class) {
+            return number.byteValue();
+        } else if (clazz == BigInteger.class) {
+            if (number instanceof BigDecimal) {
+                return ((BigDecimal) number).toBigInteger();
+            }
+            return BigInteger.valueOf(number.longValue());
+        } else if (clazz == BigDecimal.class) {
+            if (number instanceof BigInteger) {
+                return new BigDecimal((BigInteger) number);
+            } else if (number instanceof Double || number instanceof Float) {
+                return BigDecimal.valueOf(number.doubleValue());
+            }
+            return BigDecimal.valueOf(number.longValue());
+        } else if (clazz == String.class) {
+            return String.valueOf(number);
         }
+        return null;
+    }
+
+    /**
+     * Returns the cell value as an {@code int}, without boxing.
+     *
+     * @return the cell value as an {@code int}, 0 if it is null.
+     * @throws ClassCastException if the value is not a number.
+     */
+    public int getIntValue() {
+        return toIntValue(cellValue, 0);
+    }
+
+    /**
+     * Returns the cell value as an {@code int}, without boxing.
+     *
+     * @param defaultValue the value returned when the cell value is null.
+     * @return the cell value as an {@code int}.
+     * @throws ClassCastException if the value is not a number.
+     */
+    public int getIntValue(int defaultValue) {
+        return toIntValue(cellValue, defaultValue);
+    }
+
+    /**
+     * Returns the cell value as a {@code long}, without boxing.
+     *
+     * @return the cell value as a {@code long}, 0 if it is null.
+     * @throws ClassCastException if the value is not a number.
+     */
+    public long getLongValue() {
+        return toLongValue(cellValue, 0L);
+    }
+
+    /**
+     * Returns the cell value as a {@code long}, without boxing.
+     *
+     * @param defaultValue the value returned when the cell value is null.
+     * @return the cell value as a {@code long}.
+     * @throws ClassCastException if the value is not a number.
+     */
+    public long getLongValue(long defaultValue) {
+        return toLongValue(cellValue, defaultValue);
+    }
+
+    /**
+     * Returns the cell value as a {@code double}, without boxing.
+     *
+     * @return the cell value as a {@code double}, 0 if it is null.
+     * @throws ClassCastException if the value is not a number.
+     */
+    public double getDoubleValue() {
+        return toDoubleValue(cellValue, 0D);
+    }
+
+    /**
+     * Returns the cell value as a {@code double}, without boxing.
+     *
+     * @param defaultValue the value returned when the cell value is null.
+     * @return the cell value as a {@code double}.
+     * @throws ClassCastException if the value is not a number.
+     */
+    public double getDoubleValue(double defaultValue) {
+        return toDoubleValue(cellValue, defaultValue);
+    }
+
+    static int toIntValue(Object value, int defaultValue) {
+        return value == null ? defaultValue : ((Number) value).intValue();
+    }
+
+    static long toLongValue(Object value, long defaultValue) {
+        return value == null ? defaultValue : ((Number) value).longValue();
+    }
+
+    static double toDoubleValue(Object value, double defaultValue) {
+        return value == null ? defaultValue : ((Number) value).doubleValue();
     }
 
     /**
@@ -338,12 +458,33 @@ public class Cell implements Serializable {
         return sb.toString();
     }
 
+    /**
+     * Writes the key flags, the name and the value of the cell. The name goes through
+     * {@link ObjectOutput#writeObject(Object)}, so that a stream writing many rows sharing their names writes each name
+     * once.
+     */
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        out.writeByte(CellsSerializationUtils.getFlags(isKey, isClusterKey));
+        out.writeObject(cellName);
+        CellsSerializationUtils.writeValue(cellValue, out);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+        int flags = in.readByte();
+        isKey = (flags & CellsSerializationUtils.KEY) != 0;
+        isClusterKey = (flags & CellsSerializationUtils.CLUSTER_KEY) != 0;
+        cellName = (String) in.readObject();
+        cellValue = CellsSerializationUtils.readValue(in);
+    }
+
     public Boolean getIsKey() {
         return isKey;
     }
 
     public void setIsKey(Boolean isKey) {
-        this.isKey = isKey;
+        this.isKey = Boolean.TRUE.equals(isKey);
     }
 
     public Boolean isClusterKey() {
@@ -351,6 +492,6 @@ public class Cell implements Serializable {
     }
 
     public void setIsClusterKey(Boolean isClusterKey) {
-        this.isClusterKey = isClusterKey;
+        this.isClusterKey = Boolean.TRUE.equals(isClusterKey);
     }
 }
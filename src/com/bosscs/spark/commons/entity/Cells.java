@@ -14,7 +14,10 @@
 
 package com.bosscs.spark.commons.entity;
 
-import java.io.Serializable;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.net.InetAddress;
@@ -25,7 +28,9 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -48,10 +53,10 @@ import com.bosscs.spark.commons.exception.GenericException;
  *
  * @author Jerry Xiong
  */
-public class Cells implements Iterable<Cell>, Serializable {
+public class Cells implements Iterable<Cell>, Externalizable {
     private static final long serialVersionUID = 3074521612130550380L;
 
-    private final String nameSpace;
+    private String nameSpace;
 
     /**
      * Internal default table name used when no table name is specified.
@@ -63,6 +68,90 @@ public class Cells implements Iterable<Cell>, Serializable {
      */
     private final Map<String, List<Cell>> cells = new HashMap<>();
 
+    /**
+     * Lists of at most this many cells are searched by name with a plain scan, comparing a few names is cheaper than
+     * hashing one.
+     */
+    private static final int MIN_INDEXED_CELLS = 8;
+
+    /**
+     * Name lookup index of each list of cells, built lazily on the first lookup by name and dropped on every change to
+     * this object. A published map is never modified: a lookup missing an index publishes a copy holding it, so rows
+     * shared by several threads, such as cached or broadcast ones, can be read concurrently.
+     */
+    private transient volatile Map<List<Cell>, NameIndex> nameIndexes;
+
+    /**
+     * Position of the first cell of each name in a list of cells.
+     */
+    private static final class NameIndex {
+
+        private final Map<String, Integer> positions;
+
+        private NameIndex(List<Cell> localCells) {
+            int size = localCells.size();
+            this.positions = new HashMap<>(size * 4 / 3 + 1);
+            for (int i = size - 1; i >= 0; i--) {
+                positions.put(localCells.get(i).getCellName(), i);
+            }
+        }
+    }
+
+    /**
+     * Returns the first Cell of the list whose name is <i>cellName</i>, looking it up in the name index of the list
+     * for long lists. The lists are owned by this object and only changed through methods dropping the indexes.
+     *
+     * @param localCells the list of cells to search.
+     * @param cellName   the cell name.
+     * @return the first Cell named cellName, or null if the list has none.
+     */
+    private Cell findCellByName(List<Cell> localCells, String cellName) {
+        if (localCells.size() <= MIN_INDEXED_CELLS) {
+            for (Cell c : localCells) {
+                if (c.getCellName().equals(cellName)) {
+                    return c;
+                }
+            }
+            return null;
+        }
+
+        Map<List<Cell>, NameIndex> indexes = nameIndexes;
+        NameIndex index = indexes == null ? null : indexes.get(localCells);
+        if (index == null) {
+            index = new NameIndex(localCells);
+            Map<List<Cell>, NameIndex> published = indexes == null ? new IdentityHashMap<List<Cell>, NameIndex>()
+                    : new IdentityHashMap<>(indexes);
+            published.put(localCells, index);
+            nameIndexes = published;
+        }
+
+        Integer position = index.positions.get(cellName);
+        return position == null ? null : localCells.get(position);
+    }
+
+    /**
+     * Drops the name indexes, to be called on every change to the cells.
+     */
+    private void invalidateNameIndexes() {
+        nameIndexes = null;
+    }
+
+    /**
+     * Hook for subclasses keeping their cells in a form of their own, called before every access to the internal map
+     * of cells. Implementations fill the map through the methods of this class, which call this hook again, so they
+     * must mark themselves as done before filling it.
+     */
+    protected void materialize() {
+    }
+
+    /**
+     * @return the internal map of cells, once any subclass has filled it.
+     */
+    private Map<String, List<Cell>> internalCells() {
+        materialize();
+        return cells;
+    }
+
     /**
      * Given the table name, returns the List of Cell object associated to that table.
      *
@@ -72,11 +161,12 @@ public class Cells implements Iterable<Cell>, Serializable {
     private List<Cell> getCellsByTable(String nameSpace) {
         String tName = StringUtils.isEmpty(nameSpace) ? this.nameSpace : nameSpace;
 
-        List<Cell> res = cells.get(tName);
+        Map<String, List<Cell>> tables = internalCells();
+        List<Cell> res = tables.get(tName);
 
         if (res == null) {
             res = new ArrayList<>();
-            cells.put(tName, res);
+            tables.put(tName, res);
         }
 
         return res;
@@ -130,6 +220,7 @@ public class Cells implements Iterable<Cell>, Serializable {
             throw new GenericException(new IllegalArgumentException("cell parameter cannot be null"));
         }
 
+        invalidateNameIndexes();
         return getCellsByTable(nameSpace).add(c);
     }
 
@@ -149,18 +240,22 @@ public class Cells implements Iterable<Cell>, Serializable {
             throw new GenericException(new IllegalArgumentException("cell parameter cannot be null"));
         }
 
+        invalidateNameIndexes();
         return getCellsByTable(table).add(c);
     }
 
     /**
      * Adds a map of tables and cells to the current cells map. If the provided Cell already exists for the table, it
-     * will be overridden.
+     * will be overridden. The lists are copied, later changes to the given ones do not affect this object.
      *
      * @param cells The cells map by table to be added to the current cells collection.
      */
     public void addAll(Map<String, List<Cell>> cells) {
-
-        this.cells.putAll(cells);
+        invalidateNameIndexes();
+        Map<String, List<Cell>> tables = internalCells();
+        for (Map.Entry<String, List<Cell>> entry : cells.entrySet()) {
+            tables.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+        }
     }
 
     /**
@@ -191,6 +286,7 @@ public class Cells implements Iterable<Cell>, Serializable {
         }
 
         if (cellFound) {
+            invalidateNameIndexes();
             localCells.remove(position);
 
             return localCells.add(c);
@@ -227,6 +323,7 @@ public class Cells implements Iterable<Cell>, Serializable {
 
         for (Cell currentCell : localCells) {
             if (currentCell.getCellName().equals(cellName)) {
+                invalidateNameIndexes();
                 return localCells.remove(currentCell);
             }
         }
@@ -260,7 +357,7 @@ public class Cells implements Iterable<Cell>, Serializable {
             return false;
         }
 
-        for (Map.Entry<String, List<Cell>> entry : cells.entrySet()) {
+        for (Map.Entry<String, List<Cell>> entry : internalCells().entrySet()) {
             List<Cell> localCells = entry.getValue();
 
             for (Cell cell : localCells) {
@@ -305,15 +402,11 @@ public class Cells implements Iterable<Cell>, Serializable {
      */
     public Cell getCellByName(String cellName) {
 
-        Set<String> keys = cells.keySet();
-        for (String key : keys) {
-            List<Cell> cellList = cells.get(key);
-            for (Cell c : cellList) {
-                if (c.getCellName().equals(cellName)) {
-                    return c;
-                }
+        for (List<Cell> cellList : internalCells().values()) {
+            Cell c = findCellByName(cellList, cellName);
+            if (c != null) {
+                return c;
             }
-
         }
         return null;
     }
@@ -328,12 +421,7 @@ public class Cells implements Iterable<Cell>, Serializable {
      */
     public Cell getCellByName(String table, String cellName) {
 
-        for (Cell c : getCellsByTable(table)) {
-            if (c.getCellName().equals(cellName)) {
-                return c;
-            }
-        }
-        return null;
+        return findCellByName(getCellsByTable(table), cellName);
     }
 
     /**
@@ -346,7 +434,7 @@ public class Cells implements Iterable<Cell>, Serializable {
     public Collection<Cell> getCells() {
         List<Cell> res = new ArrayList<>();
 
-        for (Map.Entry<String, List<Cell>> entry : cells.entrySet()) {
+        for (Map.Entry<String, List<Cell>> entry : internalCells().entrySet()) {
             res.addAll(entry.getValue());
         }
 
@@ -364,10 +452,15 @@ public class Cells implements Iterable<Cell>, Serializable {
     }
 
     /**
-     * @return an immutable map mirroring the internal representation of this Cells object.
+     * @return an immutable map mirroring the internal representation of this Cells object, lists of cells included.
      */
     public Map<String, List<Cell>> getInternalCells() {
-        return Collections.unmodifiableMap(cells);
+        Map<String, List<Cell>> tables = internalCells();
+        Map<String, List<Cell>> view = new LinkedHashMap<>(tables.size() * 4 / 3 + 1);
+        for (Map.Entry<String, List<Cell>> entry : tables.entrySet()) {
+            view.put(entry.getKey(), Collections.unmodifiableList(entry.getValue()));
+        }
+        return Collections.unmodifiableMap(view);
     }
 
     /**
@@ -453,7 +546,7 @@ public class Cells implements Iterable<Cell>, Serializable {
     public Cells getIndexCells() {
         Cells res = new Cells(this.nameSpace);
 
-        for (Map.Entry<String, List<Cell>> entry : cells.entrySet()) {
+        for (Map.Entry<String, List<Cell>> entry : internalCells().entrySet()) {
             Cells keys = getIndexCells(entry.getKey());
 
             for (Cell c : keys) {
@@ -491,7 +584,7 @@ public class Cells implements Iterable<Cell>, Serializable {
     public Cells getValueCells() {
         Cells res = new Cells(this.nameSpace);
 
-        for (Map.Entry<String, List<Cell>> entry : cells.entrySet()) {
+        for (Map.Entry<String, List<Cell>> entry : internalCells().entrySet()) {
             Cells keys = getValueCells(entry.getKey());
 
             for (Cell c : keys) {
@@ -507,7 +600,7 @@ public class Cells implements Iterable<Cell>, Serializable {
      */
     @Override
     public int hashCode() {
-        return cells.hashCode();
+        return internalCells().hashCode();
     }
 
     /**
@@ -528,7 +621,7 @@ public class Cells implements Iterable<Cell>, Serializable {
 
         int acc = 0;
 
-        for (Map.Entry<String, List<Cell>> entry : cells.entrySet()) {
+        for (Map.Entry<String, List<Cell>> entry : internalCells().entrySet()) {
             acc += entry.getValue().size();
         }
 
@@ -549,11 +642,11 @@ public class Cells implements Iterable<Cell>, Serializable {
      * @return true if this object contains no cells.
      */
     public boolean isEmpty() {
-        if (cells.isEmpty()) {
+        if (internalCells().isEmpty()) {
             return true;
         }
 
-        for (Map.Entry<String, List<Cell>> entry : cells.entrySet()) {
+        for (Map.Entry<String, List<Cell>> entry : internalCells().entrySet()) {
             if (!entry.getValue().isEmpty()) {
                 return false;
             }
@@ -566,7 +659,52 @@ public class Cells implements Iterable<Cell>, Serializable {
      */
     @Override
     public String toString() {
-        return "Cells{" + "cells=" + cells + '}';
+        return "Cells{" + "cells=" + internalCells() + '}';
+    }
+
+    /**
+     * Writes the default table name, then the cells of each table. Table and cell names go through
+     * {@link ObjectOutput#writeObject(Object)}, so that a stream writing many rows sharing their names writes each name
+     * once.
+     */
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        Map<String, List<Cell>> tables = internalCells();
+        out.writeObject(nameSpace);
+        out.writeInt(tables.size());
+        for (Map.Entry<String, List<Cell>> entry : tables.entrySet()) {
+            out.writeObject(entry.getKey());
+            out.writeInt(entry.getValue().size());
+            for (Cell cell : entry.getValue()) {
+                cell.writeExternal(out);
+            }
+        }
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+        nameSpace = (String) in.readObject();
+        int tableCount = in.readInt();
+        for (int i = 0; i < tableCount; i++) {
+            String table = (String) in.readObject();
+            int cellCount = in.readInt();
+            List<Cell> tableCells = new ArrayList<>(cellCount);
+            for (int j = 0; j < cellCount; j++) {
+                Cell cell = new Cell();
+                cell.readExternal(in);
+                tableCells.add(cell);
+            }
+            cells.put(table, tableCells);
+        }
+    }
+
+    /**
+     * Sets the default table name of an object built for deserialization.
+     *
+     * @param nameSpace the default table name.
+     */
+    void initNameSpace(String nameSpace) {
+        this.nameSpace = nameSpace;
     }
 
     /**
@@ -638,6 +776,104 @@ public class Cells implements Iterable<Cell>, Serializable {
         return cell == null ? null : cell.getValue(cellClass);
     }
 
+    /**
+     * Returns the value of the {@link Cell} at position {@code idx} in the list of Cell object. Subclasses override it
+     * to read the value without building the Cell.
+     *
+     * @param idx the index position of the Cell we want to retrieve
+     * @return the value of the Cell at position {@code idx}
+     */
+    protected Object getRawValue(int idx) {
+        return getCellByIdx(idx).getCellValue();
+    }
+
+    /**
+     * Returns the value of the {@link Cell} whose name is cellName, or null if this Cells object contains no cell whose
+     * name is cellName. Subclasses override it to read the value without building the Cell.
+     *
+     * @param cellName the name of the Cell we want to retrieve from this Cells object.
+     * @return the value of the Cell whose name is cellName
+     */
+    protected Object getRawValue(String cellName) {
+        Cell cell = getCellByName(cellName);
+        return cell == null ? null : cell.getCellValue();
+    }
+
+    /**
+     * Returns the {@code int} value of the {@link Cell} at position {@code idx} in the list of Cell object, without
+     * boxing.
+     *
+     * @param idx          the index position of the Cell we want to retrieve
+     * @param defaultValue the value returned when the cell value is null
+     * @return the {@code int} value of the Cell at position {@code idx}
+     * @throws ClassCastException if the value is not a number
+     */
+    public int getIntValue(int idx, int defaultValue) {
+        return Cell.toIntValue(getRawValue(idx), defaultValue);
+    }
+
+    /**
+     * Returns the {@code int} value of the {@link Cell} whose name is cellName, without boxing.
+     *
+     * @param cellName     the name of the Cell we want to retrieve from this Cells object.
+     * @param defaultValue the value returned when there is no such cell or its value is null
+     * @return the {@code int} value of the Cell whose name is cellName
+     * @throws ClassCastException if the value is not a number
+     */
+    public int getIntValue(String cellName, int defaultValue) {
+        return Cell.toIntValue(getRawValue(cellName), defaultValue);
+    }
+
+    /**
+     * Returns the {@code long} value of the {@link Cell} at position {@code idx} in the list of Cell object, without
+     * boxing.
+     *
+     * @param idx          the index position of the Cell we want to retrieve
+     * @param defaultValue the value returned when the cell value is null
+     * @return the {@code long} value of the Cell at position {@code idx}
+     * @throws ClassCastException if the value is not a number
+     */
+    public long getLongValue(int idx, long defaultValue) {
+        return Cell.toLongValue(getRawValue(idx), defaultValue);
+    }
+
+    /**
+     * Returns the {@code long} value of the {@link Cell} whose name is cellName, without boxing.
+     *
+     * @param cellName     the name of the Cell we want to retrieve from this Cells object.
+     * @param defaultValue the value returned when there is no such cell or its value is null
+     * @return the {@code long} value of the Cell whose name is cellName
+     * @throws ClassCastException if the value is not a number
+     */
+    public long getLongValue(String cellName, long defaultValue) {
+        return Cell.toLongValue(getRawValue(cellName), defaultValue);
+    }
+
+    /**
+     * Returns the {@code double} value of the {@link Cell} at position {@code idx} in the list of Cell object, without
+     * boxing.
+     *
+     * @param idx          the index position of the Cell we want to retrieve
+     * @param defaultValue the value returned when the cell value is null
+     * @return the {@code double} value of the Cell at position {@code idx}
+     * @throws ClassCastException if the value is not a number
+     */
+    public double getDoubleValue(int idx, double defaultValue) {
+        return Cell.toDoubleValue(getRawValue(idx), defaultValue);
+    }
+
+    /**
+     * Returns the {@code double} value of the {@link Cell} whose name is cellName, without boxing.
+     *
+     * @param cellName     the name of the Cell we want to retrieve from this Cells object.
+     * @param defaultValue the value returned when there is no such cell or its value is null
+     * @return the {@code double} value of the Cell whose name is cellName
+     * @throws ClassCastException if the value is not a number
+     */
+    public double getDoubleValue(String cellName, double defaultValue) {
+        return Cell.toDoubleValue(getRawValue(cellName), defaultValue);
+    }
+
     public <T> List<T> getList(String nameSpace, int idx, Class<T> elementsClass) {
         Cell cell = getCellByIdx(nameSpace, idx);
         return cell == null ? null : cell.getList(elementsClass);
@@ -0,0 +1,986 @@
+/*
+ * Copyright 2016, Jerry Xiong, BOSSCS
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bosscs.spark.commons.entity;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * <p>
+ * Columnar batch of rows of a single table. Where a {@link Cells} object keeps one boxed {@link Cell}, column name
+ * included, per value, a CellsBatch keeps the column names once and the values of each column in a vector: int, long,
+ * double and boolean columns as primitive arrays, string columns dictionary encoded, anything else as plain objects.
+ * Nulls are tracked in a bitmap per column.
+ * </p>
+ * <p>
+ * Rows are written a column at a time with the {@code set} methods and closed with {@link #endRow()}; columns left
+ * unset in a row are null. A value not fitting the type of its column turns the column into an object column, so
+ * readers of schemaless sources may guess the type from the first value. {@link #getRow(int)} gives a view of a row
+ * with the usual Cells getters, and {@link Row#toCells()} turns it into a Cells object.
+ * </p>
+ * <p>
+ * Batches are meant to be reused: {@link #clear()} drops the rows but keeps the columns and their arrays.
+ * </p>
+ */
+public class CellsBatch implements Iterable<CellsBatch.Row>, Serializable {
+
+    private static final long serialVersionUID = -6320414856519366451L;
+
+    /**
+     * Storage type of a column.
+     */
+    public enum ColumnType {
+        INT, LONG, DOUBLE, BOOLEAN, STRING, OBJECT;
+
+        /**
+         * @param value a column value
+         * @return the type of the column best suited for storing the given value
+         */
+        public static ColumnType forValue(Object value) {
+            if (value instanceof Integer) {
+                return INT;
+            } else if (value instanceof Long) {
+                return LONG;
+            } else if (value instanceof Double) {
+                return DOUBLE;
+            } else if (value instanceof Boolean) {
+                return BOOLEAN;
+            } else if (value instanceof String) {
+                return STRING;
+            }
+            return OBJECT;
+        }
+    }
+
+    private final String nameSpace;
+
+    private final List<String> names = new ArrayList<>();
+
+    private final Map<String, Integer> indexes = new HashMap<>();
+
+    private final List<ColumnVector> columns = new ArrayList<>();
+
+    private final int capacity;
+
+    private int size;
+
+    /**
+     * Builds an empty batch.
+     *
+     * @param nameSpace the table the rows belong to
+     * @param capacity  the number of rows the columns are sized for, they grow beyond it when needed
+     */
+    public CellsBatch(String nameSpace, int capacity) {
+        this.nameSpace = nameSpace;
+        this.capacity = Math.max(capacity, 1);
+    }
+
+    /**
+     * Adds a column to the batch. The rows already in the batch get a null value for it.
+     *
+     * @param name the column name
+     * @param type the column type
+     * @return the index of the column, or of the existing one if the batch already has a column with that name
+     */
+    public int addColumn(String name, ColumnType type) {
+        Integer index = indexes.get(name);
+        if (index != null) {
+            return index;
+        }
+
+        ColumnVector vector = newVector(type, Math.max(capacity, size + 1));
+        vector.padNulls(size);
+        names.add(name);
+        columns.add(vector);
+        indexes.put(name, columns.size() - 1);
+        return columns.size() - 1;
+    }
+
+    public int getColumnCount() {
+        return columns.size();
+    }
+
+    public String getColumnName(int column) {
+        return names.get(column);
+    }
+
+    public ColumnType getColumnType(int column) {
+        return columns.get(column).getType();
+    }
+
+    /**
+     * @param name the column name
+     * @return the index of the column, -1 if the batch has no such column
+     */
+    public int getColumnIndex(String name) {
+        Integer index = indexes.get(name);
+        return index == null ? -1 : index;
+    }
+
+    public String getNameSpace() {
+        return nameSpace;
+    }
+
+    /**
+     * @return the number of rows in the batch
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Drops the rows of the batch, keeping its columns and their storage.
+     */
+    public void clear() {
+        for (ColumnVector column : columns) {
+            column.clear();
+        }
+        size = 0;
+    }
+
+    public void setNull(int column) {
+        columns.get(column).setNull(size);
+    }
+
+    public void setInt(int column, int value) {
+        ColumnVector vector = columns.get(column);
+        if (vector instanceof IntVector) {
+            ((IntVector) vector).set(size, value);
+        } else {
+            setValue(column, value);
+        }
+    }
+
+    public void setLong(int column, long value) {
+        ColumnVector vector = columns.get(column);
+        if (vector instanceof LongVector) {
+            ((LongVector) vector).set(size, value);
+        } else {
+            setValue(column, value);
+        }
+    }
+
+    public void setDouble(int column, double value) {
+        ColumnVector vector = columns.get(column);
+        if (vector instanceof DoubleVector) {
+            ((DoubleVector) vector).set(size, value);
+        } else {
+            setValue(column, value);
+        }
+    }
+
+    public void setBoolean(int column, boolean value) {
+        ColumnVector vector = columns.get(column);
+        if (vector instanceof BooleanVector) {
+            ((BooleanVector) vector).set(size, value);
+        } else {
+            setValue(column, value);
+        }
+    }
+
+    public void setString(int column, String value) {
+        setValue(column, value);
+    }
+
+    /**
+     * Sets the value of a column in the row being written. A value the column cannot store turns it into an object
+     * column.
+     *
+     * @param column the column index
+     * @param value  the value, may be null
+     */
+    public void setValue(int column, Object value) {
+        ColumnVector vector = columns.get(column);
+        if (value == null) {
+            vector.setNull(size);
+            return;
+        }
+        if (!vector.accepts(value)) {
+            vector = toObjectVector(vector);
+            columns.set(column, vector);
+        }
+        vector.setValue(size, value);
+    }
+
+    /**
+     * Closes the row being written, the columns it left unset are null.
+     *
+     * @return the index of the row
+     */
+    public int endRow() {
+        for (ColumnVector column : columns) {
+            if (column.getCount() <= size) {
+                column.setNull(size);
+            }
+        }
+        return size++;
+    }
+
+    public boolean isNull(int row, int column) {
+        return columns.get(column).isNull(checkRow(row));
+    }
+
+    /**
+     * @return the value of an int column, 0 when null
+     */
+    public int getInt(int row, int column) {
+        ColumnVector vector = columns.get(column);
+        if (vector instanceof IntVector) {
+            return ((IntVector) vector).get(checkRow(row));
+        }
+        Object value = vector.getValue(checkRow(row));
+        return value == null ? 0 : ((Number) value).intValue();
+    }
+
+    /**
+     * @return the value of a long column, 0 when null
+     */
+    public long getLong(int row, int column) {
+        ColumnVector vector = columns.get(column);
+        if (vector instanceof LongVector) {
+            return ((LongVector) vector).get(checkRow(row));
+        } else if (vector instanceof IntVector) {
+            return ((IntVector) vector).get(checkRow(row));
+        }
+        Object value = vector.getValue(checkRow(row));
+        return value == null ? 0L : ((Number) value).longValue();
+    }
+
+    /**
+     * @return the value of a double column, 0 when null
+     */
+    public double getDouble(int row, int column) {
+        ColumnVector vector = columns.get(column);
+        if (vector instanceof DoubleVector) {
+            return ((DoubleVector) vector).get(checkRow(row));
+        }
+        Object value = vector.getValue(checkRow(row));
+        return value == null ? 0D : ((Number) value).doubleValue();
+    }
+
+    /**
+     * @return the value of a boolean column, false when null
+     */
+    public boolean getBoolean(int row, int column) {
+        ColumnVector vector = columns.get(column);
+        if (vector instanceof BooleanVector) {
+            return ((BooleanVector) vector).get(checkRow(row));
+        }
+        Object value = vector.getValue(checkRow(row));
+        return value != null && (Boolean) value;
+    }
+
+    public String getString(int row, int column) {
+        return (String) columns.get(column).getValue(checkRow(row));
+    }
+
+    /**
+     * @return the value of the column, boxed, null when null
+     */
+    public Object getValue(int row, int column) {
+        return columns.get(column).getValue(checkRow(row));
+    }
+
+    /**
+     * @param row the row index
+     * @return a view of the row, valid until the batch is cleared
+     */
+    public Row getRow(int row) {
+        return new Row(checkRow(row));
+    }
+
+    /**
+     * Iterates over views of the rows of the batch.
+     */
+    @Override
+    public Iterator<Row> iterator() {
+        return new Iterator<Row>() {
+            private int row;
+
+            @Override
+            public boolean hasNext() {
+                return row < size;
+            }
+
+            @Override
+            public Row next() {
+                if (row >= size) {
+                    throw new NoSuchElementException();
+                }
+                return new Row(row++);
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * @return a Cells object for every row in the batch
+     */
+    public List<Cells> toCellsList() {
+        List<Cells> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(new Row(i).toCells());
+        }
+        return list;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuffer sb = new StringBuffer("CellsBatch{");
+        sb.append("nameSpace='").append(nameSpace).append('\'');
+        sb.append(", columns=").append(names);
+        sb.append(", size=").append(size);
+        sb.append('}');
+        return sb.toString();
+    }
+
+    private int checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + ", size " + size);
+        }
+        return row;
+    }
+
+    private int checkColumn(String name) {
+        Integer index = indexes.get(name);
+        if (index == null) {
+            throw new IllegalArgumentException("Unknown column " + name);
+        }
+        return index;
+    }
+
+    private static ColumnVector newVector(ColumnType type, int capacity) {
+        switch (type) {
+        case INT:
+            return new IntVector(capacity);
+        case LONG:
+            return new LongVector(capacity);
+        case DOUBLE:
+            return new DoubleVector(capacity);
+        case BOOLEAN:
+            return new BooleanVector(capacity);
+        case STRING:
+            return new StringVector(capacity);
+        default:
+            return new ObjectVector(capacity);
+        }
+    }
+
+    private ObjectVector toObjectVector(ColumnVector vector) {
+        ObjectVector objects = new ObjectVector(Math.max(capacity, vector.getCount() + 1));
+        for (int i = 0; i < vector.getCount(); i++) {
+            Object value = vector.getValue(i);
+            if (value == null) {
+                objects.setNull(i);
+            } else {
+                objects.setValue(i, value);
+            }
+        }
+        return objects;
+    }
+
+    /**
+     * View of a row of the batch, offering the getters of {@link Cells}. Values are read from the column vectors on
+     * every call, nothing is copied.
+     */
+    public class Row implements Serializable {
+
+        private static final long serialVersionUID = 3548104375329011573L;
+
+        private final int row;
+
+        private Row(int row) {
+            this.row = row;
+        }
+
+        /**
+         * @return the number of cells in the row
+         */
+        public int size() {
+            return columns.size();
+        }
+
+        public String getnameSpace() {
+            return nameSpace;
+        }
+
+        public boolean isNull(int idx) {
+            return CellsBatch.this.isNull(row, idx);
+        }
+
+        public boolean isNull(String cellName) {
+            return CellsBatch.this.isNull(row, checkColumn(cellName));
+        }
+
+        public Cell getCellByIdx(int idx) {
+            return Cell.create(names.get(idx), CellsBatch.this.getValue(row, idx));
+        }
+
+        /**
+         * @return the cell whose name is cellName, null if the batch has no such column
+         */
+        public Cell getCellByName(String cellName) {
+            Integer idx = indexes.get(cellName);
+            return idx == null ? null : getCellByIdx(idx);
+        }
+
+        @SuppressWarnings("unchecked")
+        public <T> T getValue(int idx, Class<T> cellClass) {
+            return (T) CellsBatch.this.getValue(row, idx);
+        }
+
+        /**
+         * @return the value of the cell whose name is cellName, null if the batch has no such column
+         */
+        @SuppressWarnings("unchecked")
+        public <T> T getValue(String cellName, Class<T> cellClass) {
+            Integer idx = indexes.get(cellName);
+            return idx == null ? null : (T) CellsBatch.this.getValue(row, idx);
+        }
+
+        public String getString(int idx) {
+            return getValue(idx, String.class);
+        }
+
+        public String getString(String cellName) {
+            return getValue(cellName, String.class);
+        }
+
+        public Integer getInteger(int idx) {
+            return getValue(idx, Integer.class);
+        }
+
+        public Integer getInteger(String cellName) {
+            return getValue(cellName, Integer.class);
+        }
+
+        public Long getLong(int idx) {
+            return getValue(idx, Long.class);
+        }
+
+        public Long getLong(String cellName) {
+            return getValue(cellName, Long.class);
+        }
+
+        public Double getDouble(int idx) {
+            return getValue(idx, Double.class);
+        }
+
+        public Double getDouble(String cellName) {
+            return getValue(cellName, Double.class);
+        }
+
+        public Boolean getBoolean(int idx) {
+            return getValue(idx, Boolean.class);
+        }
+
+        public Boolean getBoolean(String cellName) {
+            return getValue(cellName, Boolean.class);
+        }
+
+        public Date getDate(int idx) {
+            return getValue(idx, Date.class);
+        }
+
+        public Date getDate(String cellName) {
+            return getValue(cellName, Date.class);
+        }
+
+        /**
+         * Reads an int column without boxing.
+         *
+         * @return the value, 0 when null
+         */
+        public int getIntValue(int idx) {
+            return CellsBatch.this.getInt(row, idx);
+        }
+
+        public int getIntValue(String cellName) {
+            return CellsBatch.this.getInt(row, checkColumn(cellName));
+        }
+
+        /**
+         * Reads a long column without boxing.
+         *
+         * @return the value, 0 when null
+         */
+        public long getLongValue(int idx) {
+            return CellsBatch.this.getLong(row, idx);
+        }
+
+        public long getLongValue(String cellName) {
+            return CellsBatch.this.getLong(row, checkColumn(cellName));
+        }
+
+        /**
+         * Reads a double column without boxing.
+         *
+         * @return the value, 0 when null
+         */
+        public double getDoubleValue(int idx) {
+            return CellsBatch.this.getDouble(row, idx);
+        }
+
+        public double getDoubleValue(String cellName) {
+            return CellsBatch.this.getDouble(row, checkColumn(cellName));
+        }
+
+        /**
+         * Copies the row into a Cells object, null values included.
+         *
+         * @return the row as a Cells object
+         */
+        public Cells toCells() {
+            Cells cells = new Cells(nameSpace);
+            for (int i = 0; i < columns.size(); i++) {
+                cells.add(Cell.create(names.get(i), CellsBatch.this.getValue(row, i)));
+            }
+            return cells;
+        }
+
+        @Override
+        public String toString() {
+            final StringBuffer sb = new StringBuffer("Row{");
+            for (int i = 0; i < columns.size(); i++) {
+                if (i > 0) {
+                    sb.append(", ");
+                }
+                sb.append(names.get(i)).append('=').append(CellsBatch.this.getValue(row, i));
+            }
+            sb.append('}');
+            return sb.toString();
+        }
+    }
+
+    /**
+     * Values of a column, with a bitmap of the rows holding null.
+     */
+    private abstract static class ColumnVector implements Serializable {
+
+        private static final long serialVersionUID = 2937781003218604027L;
+
+        private long[] nulls;
+
+        /**
+         * Number of rows written, the last one possibly still open.
+         */
+        protected int count;
+
+        protected ColumnVector(int capacity) {
+            this.nulls = new long[(capacity + 63) >>> 6];
+        }
+
+        abstract ColumnType getType();
+
+        abstract boolean accepts(Object value);
+
+        abstract void setValue(int row, Object value);
+
+        abstract Object getNonNullValue(int row);
+
+        /**
+         * @return the number of rows the values array holds
+         */
+        abstract int length();
+
+        /**
+         * Resizes the values array to hold {@code capacity} rows.
+         */
+        abstract void grow(int capacity);
+
+        int getCount() {
+            return count;
+        }
+
+        Object getValue(int row) {
+            return isNull(row) ? null : getNonNullValue(row);
+        }
+
+        boolean isNull(int row) {
+            return (nulls[row >>> 6] & (1L << row)) != 0;
+        }
+
+        void setNull(int row) {
+            prepare(row);
+            nulls[row >>> 6] |= 1L << row;
+        }
+
+        void padNulls(int rows) {
+            for (int i = count; i < rows; i++) {
+                setNull(i);
+            }
+        }
+
+        void clear() {
+            Arrays.fill(nulls, 0L);
+            count = 0;
+        }
+
+        /**
+         * Makes room for a value at {@code row} and marks it as not null.
+         */
+        protected void prepare(int row) {
+            if ((row >>> 6) >= nulls.length) {
+                nulls = Arrays.copyOf(nulls, Math.max((row >>> 6) + 1, nulls.length * 2));
+            }
+            if (row >= length()) {
+                grow(Math.max(row + 1, length() * 2));
+            }
+            nulls[row >>> 6] &= ~(1L << row);
+            if (row >= count) {
+                count = row + 1;
+            }
+        }
+    }
+
+    private static final class IntVector extends ColumnVector {
+
+        private static final long serialVersionUID = -1838046237468399361L;
+
+        private int[] values;
+
+        IntVector(int capacity) {
+            super(capacity);
+            values = new int[capacity];
+        }
+
+        @Override
+        ColumnType getType() {
+            return ColumnType.INT;
+        }
+
+        @Override
+        boolean accepts(Object value) {
+            return value instanceof Integer;
+        }
+
+        @Override
+        void setValue(int row, Object value) {
+            set(row, (Integer) value);
+        }
+
+        void set(int row, int value) {
+            prepare(row);
+            values[row] = value;
+        }
+
+        int get(int row) {
+            return isNull(row) ? 0 : values[row];
+        }
+
+        @Override
+        Object getNonNullValue(int row) {
+            return values[row];
+        }
+
+        @Override
+        int length() {
+            return values.length;
+        }
+
+        @Override
+        void grow(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+    }
+
+    private static final class LongVector extends ColumnVector {
+
+        private static final long serialVersionUID = 6414925383370457117L;
+
+        private long[] values;
+
+        LongVector(int capacity) {
+            super(capacity);
+            values = new long[capacity];
+        }
+
+        @Override
+        ColumnType getType() {
+            return ColumnType.LONG;
+        }
+
+        @Override
+        boolean accepts(Object value) {
+            return value instanceof Long;
+        }
+
+        @Override
+        void setValue(int row, Object value) {
+            set(row, (Long) value);
+        }
+
+        void set(int row, long value) {
+            prepare(row);
+            values[row] = value;
+        }
+
+        long get(int row) {
+            return isNull(row) ? 0L : values[row];
+        }
+
+        @Override
+        Object getNonNullValue(int row) {
+            return values[row];
+        }
+
+        @Override
+        int length() {
+            return values.length;
+        }
+
+        @Override
+        void grow(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+    }
+
+    private static final class DoubleVector extends ColumnVector {
+
+        private static final long serialVersionUID = 1473393016547307227L;
+
+        private double[] values;
+
+        DoubleVector(int capacity) {
+            super(capacity);
+            values = new double[capacity];
+        }
+
+        @Override
+        ColumnType getType() {
+            return ColumnType.DOUBLE;
+        }
+
+        @Override
+        boolean accepts(Object value) {
+            return value instanceof Double;
+        }
+
+        @Override
+        void setValue(int row, Object value) {
+            set(row, (Double) value);
+        }
+
+        void set(int row, double value) {
+            prepare(row);
+            values[row] = value;
+        }
+
+        double get(int row) {
+            return isNull(row) ? 0D : values[row];
+        }
+
+        @Override
+        Object getNonNullValue(int row) {
+            return values[row];
+        }
+
+        @Override
+        int length() {
+            return values.length;
+        }
+
+        @Override
+        void grow(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+    }
+
+    private static final class BooleanVector extends ColumnVector {
+
+        private static final long serialVersionUID = -3318405183436213400L;
+
+        private boolean[] values;
+
+        BooleanVector(int capacity) {
+            super(capacity);
+            values = new boolean[capacity];
+        }
+
+        @Override
+        ColumnType getType() {
+            return ColumnType.BOOLEAN;
+        }
+
+        @Override
+        boolean accepts(Object value) {
+            return value instanceof Boolean;
+        }
+
+        @Override
+        void setValue(int row, Object value) {
+            set(row, (Boolean) value);
+        }
+
+        void set(int row, boolean value) {
+            prepare(row);
+            values[row] = value;
+        }
+
+        boolean get(int row) {
+            return !isNull(row) && values[row];
+        }
+
+        @Override
+        Object getNonNullValue(int row) {
+            return values[row];
+        }
+
+        @Override
+        int length() {
+            return values.length;
+        }
+
+        @Override
+        void grow(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+    }
+
+    /**
+     * Dictionary encoded strings: each distinct value is stored once per batch and rows keep its code.
+     */
+    private static final class StringVector extends ColumnVector {
+
+        private static final long serialVersionUID = -2419520734512389876L;
+
+        private int[] codes;
+
+        private final List<String> dictionary = new ArrayList<>();
+
+        private final Map<String, Integer> lookup = new HashMap<>();
+
+        StringVector(int capacity) {
+            super(capacity);
+            codes = new int[capacity];
+        }
+
+        @Override
+        ColumnType getType() {
+            return ColumnType.STRING;
+        }
+
+        @Override
+        boolean accepts(Object value) {
+            return value instanceof String;
+        }
+
+        @Override
+        void setValue(int row, Object value) {
+            Integer code = lookup.get(value);
+            if (code == null) {
+                code = dictionary.size();
+                dictionary.add((String) value);
+                lookup.put((String) value, code);
+            }
+            prepare(row);
+            codes[row] = code;
+        }
+
+        @Override
+        Object getNonNullValue(int row) {
+            return dictionary.get(codes[row]);
+        }
+
+        @Override
+        int length() {
+            return codes.length;
+        }
+
+        @Override
+        void grow(int capacity) {
+            codes = Arrays.copyOf(codes, capacity);
+        }
+
+        @Override
+        void clear() {
+            super.clear();
+            dictionary.clear();
+            lookup.clear();
+        }
+    }
+
+    private static final class ObjectVector extends ColumnVector {
+
+        private static final long serialVersionUID = 8215561432307356624L;
+
+        private Object[] values;
+
+        ObjectVector(int capacity) {
+            super(capacity);
+            values = new Object[capacity];
+        }
+
+        @Override
+        ColumnType getType() {
+            return ColumnType.OBJECT;
+        }
+
+        @Override
+        boolean accepts(Object value) {
+            return true;
+        }
+
+        @Override
+        void setValue(int row, Object value) {
+            prepare(row);
+            values[row] = value;
+        }
+
+        @Override
+        Object getNonNullValue(int row) {
+            return values[row];
+        }
+
+        @Override
+        void setNull(int row) {
+            super.setNull(row);
+            values[row] = null;
+        }
+
+        @Override
+        int length() {
+            return values.length;
+        }
+
+        @Override
+        void grow(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        void clear() {
+            Arrays.fill(values, 0, count, null);
+            super.clear();
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2016, Jerry Xiong, BOSSCS
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bosscs.spark.commons.entity;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Names, positions and key flags of the cells of a row, shared by all the {@link CompactCells} read from the same
+ * table, so that each row only carries its values.
+ */
+public class CellsSchema implements Serializable {
+
+    private static final long serialVersionUID = -4512563212938843107L;
+
+    private final String nameSpace;
+
+    private final String[] names;
+
+    private final boolean[] keys;
+
+    private final boolean[] clusterKeys;
+
+    /**
+     * Position of the first cell of each name, rebuilt after deserialization.
+     */
+    private transient volatile Map<String, Integer> positions;
+
+    /**
+     * Builds a schema of cells which are not part of the key.
+     *
+     * @param nameSpace the table the cells belong to
+     * @param names     the cell names
+     */
+    public CellsSchema(String nameSpace, String[] names) {
+        this(nameSpace, names, new boolean[names.length], new boolean[names.length]);
+    }
+
+    /**
+     * Builds a schema.
+     *
+     * @param nameSpace   the table the cells belong to
+     * @param names       the cell names
+     * @param keys        whether each cell is a key
+     * @param clusterKeys whether each cell is a cluster key
+     */
+    public CellsSchema(String nameSpace, String[] names, boolean[] keys, boolean[] clusterKeys) {
+        if (nameSpace == null || nameSpace.isEmpty()) {
+            throw new IllegalArgumentException("table name cannot be null");
+        }
+        if (keys.length != names.length || clusterKeys.length != names.length) {
+            throw new IllegalArgumentException("key flags must be given for every cell");
+        }
+        this.nameSpace = nameSpace;
+        this.names = names;
+        this.keys = keys;
+        this.clusterKeys = clusterKeys;
+    }
+
+    /**
+     * Builds a schema of cells which are not part of the key.
+     *
+     * @param nameSpace the table the cells belong to
+     * @param names     the cell names, in order
+     * @return the schema
+     */
+    public static CellsSchema of(String nameSpace, Collection<String> names) {
+        return new CellsSchema(nameSpace, names.toArray(new String[names.size()]));
+    }
+
+    public String getNameSpace() {
+        return nameSpace;
+    }
+
+    /**
+     * @return the number of cells of the schema
+     */
+    public int size() {
+        return names.length;
+    }
+
+    public String getName(int idx) {
+        return names[idx];
+    }
+
+    public boolean isKey(int idx) {
+        return keys[idx];
+    }
+
+    public boolean isClusterKey(int idx) {
+        return clusterKeys[idx];
+    }
+
+    /**
+     * @param name the cell name
+     * @return the position of the first cell named {@code name}, -1 if there is none
+     */
+    public int indexOf(String name) {
+        Map<String, Integer> map = positions;
+        if (map == null) {
+            map = new HashMap<>(names.length * 4 / 3 + 1);
+            for (int i = names.length - 1; i >= 0; i--) {
+                map.put(names[i], i);
+            }
+            positions = map;
+        }
+        Integer position = map.get(name);
+        return position == null ? -1 : position;
+    }
+
+    /**
+     * Tells whether the schema describes the given names, which is the case when they are the schema names in the
+     * same order. Lets readers of sources without a fixed schema reuse the schema of the previous row.
+     *
+     * @param cellNames the cell names
+     * @return true if the names are those of this schema
+     */
+    public boolean matches(Collection<String> cellNames) {
+        if (cellNames.size() != names.length) {
+            return false;
+        }
+        Iterator<String> iterator = cellNames.iterator();
+        for (String name : names) {
+            if (!name.equals(iterator.next())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Builds the cell at position {@code idx} for the given value.
+     *
+     * @param idx   the cell position
+     * @param value the cell value
+     * @return the cell
+     */
+    public Cell createCell(int idx, Object value) {
+        return Cell.create(names[idx], value, keys[idx], clusterKeys[idx]);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuffer sb = new StringBuffer("CellsSchema{");
+        sb.append("nameSpace='").append(nameSpace).append('\'');
+        sb.append(", names=").append(Arrays.toString(names));
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * Copyright 2016, Jerry Xiong, BOSSCS
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bosscs.spark.commons.entity;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.lang.StringUtils;
+
+import com.bosscs.spark.commons.serialization.CellsSerializationUtils;
+
+/**
+ * <p>
+ * {@link Cells} of a single table kept as a reference to a {@link CellsSchema}, shared by all the rows read from that
+ * table, plus an array of values. Rows built this way cost one array instead of one {@link Cell} per value and a map
+ * of lists.
+ * </p>
+ * <p>
+ * Reads by position or name are served from the array, building the requested Cell on the fly. Any other operation,
+ * changes included, first turns the object into a regular Cells, after which it behaves exactly like one.
+ * </p>
+ */
+public class CompactCells extends Cells {
+
+    private static final long serialVersionUID = -1995604233146932744L;
+
+    private CellsSchema schema;
+
+    /**
+     * Cell values in schema order, null once materialized.
+     */
+    private Object[] values;
+
+    /**
+     * Used by deserialization.
+     */
+    public CompactCells() {
+        super();
+    }
+
+    /**
+     * Builds a row of the given schema.
+     *
+     * @param schema the schema, shared with the other rows of the table
+     * @param values the cell values, in schema order
+     */
+    public CompactCells(CellsSchema schema, Object[] values) {
+        super(schema.getNameSpace());
+        if (values.length != schema.size()) {
+            throw new IllegalArgumentException("expected " + schema.size() + " values, got " + values.length);
+        }
+        this.schema = schema;
+        this.values = values;
+    }
+
+    public CellsSchema getSchema() {
+        return schema;
+    }
+
+    /**
+     * @return true while the cells are still kept as the schema plus the array of values.
+     */
+    public boolean isCompact() {
+        return values != null;
+    }
+
+    /**
+     * Returns the value of the cell at position {@code idx}, without building the Cell.
+     *
+     * @param idx the cell position
+     * @return the cell value
+     */
+    public Object getCellValue(int idx) {
+        return values == null ? getCellByIdx(idx).getCellValue() : values[idx];
+    }
+
+    @Override
+    protected Object getRawValue(int idx) {
+        return getCellValue(idx);
+    }
+
+    @Override
+    protected Object getRawValue(String cellName) {
+        if (values == null) {
+            return super.getRawValue(cellName);
+        }
+        int idx = schema.indexOf(cellName);
+        return idx < 0 ? null : values[idx];
+    }
+
+    /**
+     * Moves the values into the regular representation of Cells.
+     */
+    @Override
+    protected void materialize() {
+        if (values == null) {
+            return;
+        }
+
+        Object[] localValues = values;
+        values = null;
+        for (int i = 0; i < localValues.length; i++) {
+            add(schema.createCell(i, localValues[i]));
+        }
+    }
+
+    /**
+     * Writes the schema, through {@link ObjectOutput#writeObject(Object)} so that it is written once per stream, and
+     * the values. Cells already materialized are written as regular Cells.
+     */
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        out.writeBoolean(values != null);
+        if (values == null) {
+            super.writeExternal(out);
+            return;
+        }
+
+        out.writeObject(schema);
+        for (Object value : values) {
+            CellsSerializationUtils.writeValue(value, out);
+        }
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+        if (!in.readBoolean()) {
+            super.readExternal(in);
+            return;
+        }
+
+        schema = (CellsSchema) in.readObject();
+        initNameSpace(schema.getNameSpace());
+        Object[] localValues = new Object[schema.size()];
+        for (int i = 0; i < localValues.length; i++) {
+            localValues[i] = CellsSerializationUtils.readValue(in);
+        }
+        values = localValues;
+    }
+
+    /**
+     * @return true if the table name designates the table of the schema.
+     */
+    private boolean isOwnTable(String table) {
+        return StringUtils.isEmpty(table) || table.equals(getnameSpace());
+    }
+
+    @Override
+    public Cell getCellByIdx(int idx) {
+        if (values == null) {
+            return super.getCellByIdx(idx);
+        }
+        return schema.createCell(idx, values[idx]);
+    }
+
+    @Override
+    public Cell getCellByIdx(String table, int idx) {
+        if (values == null || !isOwnTable(table)) {
+            return super.getCellByIdx(table, idx);
+        }
+        return schema.createCell(idx, values[idx]);
+    }
+
+    @Override
+    public Cell getCellByName(String cellName) {
+        if (values == null) {
+            return super.getCellByName(cellName);
+        }
+        int idx = schema.indexOf(cellName);
+        return idx < 0 ? null : schema.createCell(idx, values[idx]);
+    }
+
+    @Override
+    public Cell getCellByName(String table, String cellName) {
+        if (values == null || !isOwnTable(table)) {
+            return super.getCellByName(table, cellName);
+        }
+        int idx = schema.indexOf(cellName);
+        return idx < 0 ? null : schema.createCell(idx, values[idx]);
+    }
+
+    @Override
+    public Collection<Cell> getCells() {
+        if (values == null) {
+            return super.getCells();
+        }
+        List<Cell> res = new ArrayList<>(values.length);
+        for (int i = 0; i < values.length; i++) {
+            res.add(schema.createCell(i, values[i]));
+        }
+        return Collections.unmodifiableList(res);
+    }
+
+    @Override
+    public Collection<Cell> getCells(String nameSpace) {
+        if (values == null || !isOwnTable(nameSpace)) {
+            return super.getCells(nameSpace);
+        }
+        return getCells();
+    }
+
+    @Override
+    public Collection<Object> getCellValues(String table) {
+        if (values == null || !isOwnTable(table)) {
+            return super.getCellValues(table);
+        }
+        return new ArrayList<>(Arrays.asList(values));
+    }
+
+    @Override
+    public int size() {
+        return values == null ? super.size() : values.length;
+    }
+
+    @Override
+    public int size(String table) {
+        if (values == null || !isOwnTable(table)) {
+            return super.size(table);
+        }
+        return values.length;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return values == null ? super.isEmpty() : values.length == 0;
+    }
+}
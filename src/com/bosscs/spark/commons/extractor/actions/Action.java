@@ -14,6 +14,12 @@ public class Action implements Serializable {
 
     protected ActionType type;
 
+    /**
+     * Identifies the session this action belongs to, so several partition reads and saves can be multiplexed over
+     * one connection.
+     */
+    protected int streamId;
+
     protected Action() {
         super();
     }
@@ -26,4 +32,12 @@ public class Action implements Serializable {
     public ActionType getType() {
         return type;
     }
+
+    public int getStreamId() {
+        return streamId;
+    }
+
+    public void setStreamId(int streamId) {
+        this.streamId = streamId;
+    }
 }
@@ -9,7 +9,8 @@ package com.bosscs.spark.commons.extractor.actions;
 public enum ActionType {
 
     CLOSE(1), GET_PARTITIONS(2), GET_PREFERRED(3), SAVE(4), EXTRACTOR_INSTANCE(5), HAS_NEXT(6), NEXT(7), INIT_ITERATOR(
-            8), INIT_SAVE(9);
+            8), INIT_SAVE(9), NEXT_BATCH(10), STREAM_PARTITION(11), HANDSHAKE(12), SAVE_BATCH(13),
+    PLAN_PARTITIONS(14), INVALIDATE_PARTITIONS(15), ERROR(16);
 
     private final int actionId;
 
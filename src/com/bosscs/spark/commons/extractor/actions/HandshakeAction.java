@@ -0,0 +1,37 @@
+/**
+ *
+ */
+package com.bosscs.spark.commons.extractor.actions;
+
+/**
+ * First action of a connection, offering the codecs and compression algorithms the client understands in order of
+ * preference. It is always sent with Java serialization.
+ *
+ * @author Jerry Xiong
+ */
+public class HandshakeAction extends Action {
+
+    private static final long serialVersionUID = -6213741809552301237L;
+
+    private byte[] codecIds;
+
+    private byte[] compressions;
+
+    public HandshakeAction() {
+        super();
+    }
+
+    public HandshakeAction(byte[] codecIds, byte[] compressions) {
+        super(ActionType.HANDSHAKE);
+        this.codecIds = codecIds.clone();
+        this.compressions = compressions.clone();
+    }
+
+    public byte[] getCodecIds() {
+        return codecIds;
+    }
+
+    public byte[] getCompressions() {
+        return compressions;
+    }
+}
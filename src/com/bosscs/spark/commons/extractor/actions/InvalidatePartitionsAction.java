@@ -0,0 +1,31 @@
+/**
+ *
+ */
+package com.bosscs.spark.commons.extractor.actions;
+
+import com.bosscs.spark.commons.config.ExtractorConfig;
+
+/**
+ * Drops the cached partition plan of the given config, or every cached plan when the config is null.
+ *
+ * @author Jerry Xiong
+ */
+public class InvalidatePartitionsAction<T> extends Action {
+
+    private static final long serialVersionUID = -2286645360851739412L;
+
+    private ExtractorConfig<T> config;
+
+    public InvalidatePartitionsAction() {
+        super();
+    }
+
+    public InvalidatePartitionsAction(ExtractorConfig<T> config) {
+        super(ActionType.INVALIDATE_PARTITIONS);
+        this.config = config;
+    }
+
+    public ExtractorConfig<T> getConfig() {
+        return config;
+    }
+}
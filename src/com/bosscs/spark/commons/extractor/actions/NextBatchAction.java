@@ -0,0 +1,29 @@
+/**
+ *
+ */
+package com.bosscs.spark.commons.extractor.actions;
+
+/**
+ * Asks the server for the next page of records of the current iterator.
+ *
+ * @author Jerry Xiong
+ */
+public class NextBatchAction<T> extends Action {
+
+    private static final long serialVersionUID = 4719201355318546052L;
+
+    private int batchSize;
+
+    public NextBatchAction() {
+        super();
+    }
+
+    public NextBatchAction(int batchSize) {
+        super(ActionType.NEXT_BATCH);
+        this.batchSize = batchSize;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+}
@@ -0,0 +1,39 @@
+/**
+ *
+ */
+package com.bosscs.spark.commons.extractor.actions;
+
+import com.bosscs.spark.commons.config.ExtractorConfig;
+
+/**
+ * Asks the server for the partitions of the given config, pushed back in chunks as they are planned so the client
+ * can start scheduling reads before planning is complete.
+ *
+ * @author Jerry Xiong
+ */
+public class PlanPartitionsAction<T> extends Action {
+
+    private static final long serialVersionUID = 4403177920145563581L;
+
+    private ExtractorConfig<T> config;
+
+    private int chunkSize;
+
+    public PlanPartitionsAction() {
+        super();
+    }
+
+    public PlanPartitionsAction(ExtractorConfig<T> config, int chunkSize) {
+        super(ActionType.PLAN_PARTITIONS);
+        this.config = config;
+        this.chunkSize = chunkSize;
+    }
+
+    public ExtractorConfig<T> getConfig() {
+        return config;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+}
@@ -0,0 +1,39 @@
+/**
+ *
+ */
+package com.bosscs.spark.commons.extractor.actions;
+
+import java.util.List;
+
+/**
+ * Carries a batch of records to save. The client may send several batches before the first is acknowledged; the
+ * server saves them in the order they were sent.
+ *
+ * @author Jerry Xiong
+ */
+public class SaveBatchAction<T> extends Action {
+
+    private static final long serialVersionUID = 1652093474839761842L;
+
+    private long batchId;
+
+    private List<T> records;
+
+    public SaveBatchAction() {
+        super();
+    }
+
+    public SaveBatchAction(long batchId, List<T> records) {
+        super(ActionType.SAVE_BATCH);
+        this.batchId = batchId;
+        this.records = records;
+    }
+
+    public long getBatchId() {
+        return batchId;
+    }
+
+    public List<T> getRecords() {
+        return records;
+    }
+}
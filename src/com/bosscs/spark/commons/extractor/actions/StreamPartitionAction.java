@@ -0,0 +1,48 @@
+/**
+ *
+ */
+package com.bosscs.spark.commons.extractor.actions;
+
+import org.apache.spark.Partition;
+
+import com.bosscs.spark.commons.config.ExtractorConfig;
+
+/**
+ * Opens an iterator over the given partition and asks the server to push its records back in chunks until the
+ * partition is exhausted.
+ *
+ * @author Jerry Xiong
+ */
+public class StreamPartitionAction<T> extends Action {
+
+    private static final long serialVersionUID = -3196428745930718216L;
+
+    private ExtractorConfig<T> config;
+
+    private Partition partition;
+
+    private int chunkSize;
+
+    public StreamPartitionAction() {
+        super();
+    }
+
+    public StreamPartitionAction(Partition partition, ExtractorConfig<T> config, int chunkSize) {
+        super(ActionType.STREAM_PARTITION);
+        this.config = config;
+        this.partition = partition;
+        this.chunkSize = chunkSize;
+    }
+
+    public ExtractorConfig<T> getConfig() {
+        return config;
+    }
+
+    public Partition getPartition() {
+        return partition;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * Copyright Jerry Xiong, BOSSCS
+ * 
+ * The Project licenses this file to you under the Apache License, version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at:
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.bosscs.spark.commons.extractor.client;
+
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import javax.net.ssl.SSLException;
+
+import org.apache.spark.Partition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.bosscs.spark.commons.config.ExtractorConfig;
+import com.bosscs.spark.commons.extractor.actions.HandshakeAction;
+import com.bosscs.spark.commons.extractor.client.codecs.ExtractorCodecs;
+import com.bosscs.spark.commons.extractor.client.codecs.FrameCompression;
+import com.bosscs.spark.commons.extractor.response.HandshakeResponse;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+
+/**
+ * Non-blocking client of the extractor server. It keeps a few connections to every server and multiplexes streams
+ * over them; each {@link RemoteExtractor} it opens is one stream, mapped to one extractor session on the server.
+ * Connections are opened on first use, negotiate their codec and compression with a handshake, and are replaced
+ * once they fail.
+ */
+public class ExtractorClient implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ExtractorClient.class);
+
+    private final ExtractorClientConfig config;
+
+    private final EventLoopGroup group;
+
+    private final Bootstrap bootstrap;
+
+    private final SslContext sslCtx;
+
+    private final List<ServerConnections> servers = new ArrayList<>();
+
+    private final AtomicInteger nextServer = new AtomicInteger();
+
+    /**
+     * @param config  the client config
+     * @param servers the servers to spread the streams over
+     * @throws SSLException if the SSL context cannot be built
+     */
+    public ExtractorClient(ExtractorClientConfig config, List<? extends SocketAddress> servers) throws SSLException {
+        if (servers.isEmpty()) {
+            throw new IllegalArgumentException("No extractor server given");
+        }
+
+        this.config = config;
+        this.sslCtx = config.isSsl() ? SslContextBuilder.forClient()
+                .trustManager(InsecureTrustManagerFactory.INSTANCE).build() : null;
+        this.group = new NioEventLoopGroup(config.getIoThreads());
+        this.bootstrap = new Bootstrap()
+                .group(group)
+                .channel(NioSocketChannel.class)
+                .option(ChannelOption.TCP_NODELAY, config.isTcpNoDelay())
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, config.getConnectTimeoutMillis());
+
+        for (SocketAddress address : servers) {
+            this.servers.add(new ServerConnections(address));
+        }
+    }
+
+    /**
+     * Opens a stream on the next server.
+     *
+     * @param <T> the record type
+     * @return completed with the remote extractor once its connection is ready
+     */
+    public <T> CompletableFuture<RemoteExtractor<T>> open() {
+        int index = (nextServer.getAndIncrement() & Integer.MAX_VALUE) % servers.size();
+        return servers.get(index).acquire().thenApply(new Function<ExtractorConnection, RemoteExtractor<T>>() {
+            @Override
+            public RemoteExtractor<T> apply(ExtractorConnection connection) {
+                return new RemoteExtractor<>(connection, config);
+            }
+        });
+    }
+
+    /**
+     * Plans the partitions of a config on one of the servers, on a stream of its own.
+     *
+     * @param extractorConfig the extractor config
+     * @param <T>             the record type
+     * @return completed with the partitions
+     */
+    public <T> CompletableFuture<Partition[]> getPartitions(final ExtractorConfig<T> extractorConfig) {
+        return this.<T>open().thenCompose(new Function<RemoteExtractor<T>, CompletableFuture<Partition[]>>() {
+            @Override
+            public CompletableFuture<Partition[]> apply(final RemoteExtractor<T> extractor) {
+                return extractor.getPartitions(extractorConfig).whenComplete(
+                        new BiConsumer<Partition[], Throwable>() {
+                            @Override
+                            public void accept(Partition[] partitions, Throwable error) {
+                                extractor.closeAsync();
+                            }
+                        });
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        for (ServerConnections server : servers) {
+            server.close();
+        }
+        group.shutdownGracefully();
+    }
+
+    public ExtractorClientConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Connects to the server and runs the handshake.
+     *
+     * @param address the server address
+     * @return completed with the connection once the handshake is answered
+     */
+    private CompletableFuture<ExtractorConnection> connect(final SocketAddress address) {
+        final ExtractorConnection connection = new ExtractorConnection(address);
+        final CompletableFuture<ExtractorConnection> ready = new CompletableFuture<>();
+
+        bootstrap.clone()
+                .handler(new ExtractorClientInitializer(sslCtx, config, connection))
+                .connect(address)
+                .addListener(new ChannelFutureListener() {
+                    @Override
+                    public void operationComplete(ChannelFuture connected) {
+                        if (!connected.isSuccess()) {
+                            LOG.error("Unable to connect to extractor server " + address + " "
+                                    + connected.cause().getMessage());
+                            ready.completeExceptionally(connected.cause());
+                            return;
+                        }
+
+                        connection.setChannel(connected.channel());
+                        byte[] compressions = config.isCompression() ? FrameCompression.SUPPORTED : new byte[0];
+                        CompletableFuture<HandshakeResponse> handshake = connection.send(0,
+                                new HandshakeAction(ExtractorCodecs.SUPPORTED, compressions));
+                        handshake.whenComplete(new BiConsumer<HandshakeResponse, Throwable>() {
+                            @Override
+                            public void accept(HandshakeResponse response, Throwable error) {
+                                if (error != null) {
+                                    ready.completeExceptionally(error);
+                                } else {
+                                    ready.complete(connection);
+                                }
+                            }
+                        });
+                    }
+                });
+        return ready;
+    }
+
+    /**
+     * The connections to one server, handed out round robin.
+     */
+    private final class ServerConnections {
+
+        private final SocketAddress address;
+
+        private final List<CompletableFuture<ExtractorConnection>> slots = new ArrayList<>();
+
+        private int next;
+
+        private ServerConnections(SocketAddress address) {
+            this.address = address;
+            for (int i = 0; i < Math.max(config.getConnectionsPerServer(), 1); i++) {
+                slots.add(null);
+            }
+        }
+
+        private synchronized CompletableFuture<ExtractorConnection> acquire() {
+            int index = next;
+            next = (next + 1) % slots.size();
+
+            CompletableFuture<ExtractorConnection> slot = slots.get(index);
+            if (slot == null || isBroken(slot)) {
+                if (slot != null && !slot.isCompletedExceptionally()) {
+                    slot.join().close();
+                }
+                slot = connect(address);
+                slots.set(index, slot);
+            }
+            return slot;
+        }
+
+        private boolean isBroken(CompletableFuture<ExtractorConnection> slot) {
+            return slot.isCompletedExceptionally() || (slot.isDone() && !slot.join().isActive());
+        }
+
+        private synchronized void close() {
+            for (CompletableFuture<ExtractorConnection> slot : slots) {
+                if (slot != null && slot.isDone() && !slot.isCompletedExceptionally()) {
+                    slot.join().close();
+                }
+            }
+        }
+    }
+}
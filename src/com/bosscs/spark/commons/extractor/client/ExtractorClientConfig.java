@@ -0,0 +1,209 @@
+/*
+ * Copyright Jerry Xiong, BOSSCS
+ * 
+ * The Project licenses this file to you under the Apache License, version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at:
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.bosscs.spark.commons.extractor.client;
+
+import java.io.Serializable;
+
+import com.bosscs.spark.commons.extractor.client.codecs.ExtractorFrameDecoder;
+import com.bosscs.spark.commons.utils.Constants;
+
+/**
+ * Tuning options of the {@link ExtractorClient}.
+ */
+public class ExtractorClientConfig implements Serializable {
+
+    private static final long serialVersionUID = -4409297245190839460L;
+
+    /**
+     * Connect over SSL, trusting the self-signed certificate of the server.
+     */
+    private boolean ssl = false;
+
+    /**
+     * Number of event loop threads doing the channel I/O, 0 lets Netty pick (twice the number of cores).
+     */
+    private int ioThreads = 0;
+
+    /**
+     * Connections opened to each server. Streams are multiplexed over them, the least busy one takes the next stream.
+     */
+    private int connectionsPerServer = 2;
+
+    private int connectTimeoutMillis = 10000;
+
+    private boolean tcpNoDelay = true;
+
+    /**
+     * Number of records fetched per round trip by the record iterator.
+     */
+    private int batchSize = Constants.DEFAULT_PAGE_SIZE;
+
+    /**
+     * Number of batches the record iterator requests ahead of the one being consumed.
+     */
+    private int prefetchBatches = 1;
+
+    /**
+     * Number of records sent per save batch.
+     */
+    private int saveBatchSize = Constants.DEFAULT_PAGE_SIZE;
+
+    /**
+     * Number of save batches that may wait for their acknowledgement.
+     */
+    private int saveWindow = 4;
+
+    /**
+     * Offer frame compression in the handshake.
+     */
+    private boolean compression = true;
+
+    /**
+     * Frame size in bytes from which outgoing frames are compressed.
+     */
+    private int compressionThreshold = 8 * 1024;
+
+    /**
+     * Largest frame accepted from a server, in bytes.
+     */
+    private int maxFrameLength = ExtractorFrameDecoder.DEFAULT_MAX_FRAME_LENGTH;
+
+    public boolean isSsl() {
+        return ssl;
+    }
+
+    public ExtractorClientConfig ssl(boolean ssl) {
+        this.ssl = ssl;
+        return this;
+    }
+
+    public int getIoThreads() {
+        return ioThreads;
+    }
+
+    public ExtractorClientConfig ioThreads(int ioThreads) {
+        this.ioThreads = ioThreads;
+        return this;
+    }
+
+    public int getConnectionsPerServer() {
+        return connectionsPerServer;
+    }
+
+    public ExtractorClientConfig connectionsPerServer(int connectionsPerServer) {
+        this.connectionsPerServer = connectionsPerServer;
+        return this;
+    }
+
+    public int getConnectTimeoutMillis() {
+        return connectTimeoutMillis;
+    }
+
+    public ExtractorClientConfig connectTimeoutMillis(int connectTimeoutMillis) {
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        return this;
+    }
+
+    public boolean isTcpNoDelay() {
+        return tcpNoDelay;
+    }
+
+    public ExtractorClientConfig tcpNoDelay(boolean tcpNoDelay) {
+        this.tcpNoDelay = tcpNoDelay;
+        return this;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public ExtractorClientConfig batchSize(int batchSize) {
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    public int getPrefetchBatches() {
+        return prefetchBatches;
+    }
+
+    public ExtractorClientConfig prefetchBatches(int prefetchBatches) {
+        this.prefetchBatches = prefetchBatches;
+        return this;
+    }
+
+    public int getSaveBatchSize() {
+        return saveBatchSize;
+    }
+
+    public ExtractorClientConfig saveBatchSize(int saveBatchSize) {
+        this.saveBatchSize = saveBatchSize;
+        return this;
+    }
+
+    public int getSaveWindow() {
+        return saveWindow;
+    }
+
+    public ExtractorClientConfig saveWindow(int saveWindow) {
+        this.saveWindow = saveWindow;
+        return this;
+    }
+
+    public boolean isCompression() {
+        return compression;
+    }
+
+    public ExtractorClientConfig compression(boolean compression) {
+        this.compression = compression;
+        return this;
+    }
+
+    public int getCompressionThreshold() {
+        return compressionThreshold;
+    }
+
+    public ExtractorClientConfig compressionThreshold(int compressionThreshold) {
+        this.compressionThreshold = compressionThreshold;
+        return this;
+    }
+
+    public int getMaxFrameLength() {
+        return maxFrameLength;
+    }
+
+    public ExtractorClientConfig maxFrameLength(int maxFrameLength) {
+        this.maxFrameLength = maxFrameLength;
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuffer sb = new StringBuffer("ExtractorClientConfig{");
+        sb.append("ssl=").append(ssl);
+        sb.append(", ioThreads=").append(ioThreads);
+        sb.append(", connectionsPerServer=").append(connectionsPerServer);
+        sb.append(", connectTimeoutMillis=").append(connectTimeoutMillis);
+        sb.append(", tcpNoDelay=").append(tcpNoDelay);
+        sb.append(", batchSize=").append(batchSize);
+        sb.append(", prefetchBatches=").append(prefetchBatches);
+        sb.append(", saveBatchSize=").append(saveBatchSize);
+        sb.append(", saveWindow=").append(saveWindow);
+        sb.append(", compression=").append(compression);
+        sb.append(", compressionThreshold=").append(compressionThreshold);
+        sb.append(", maxFrameLength=").append(maxFrameLength);
+        sb.append('}');
+        return sb.toString();
+    }
+}
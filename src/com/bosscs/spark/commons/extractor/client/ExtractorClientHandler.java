@@ -0,0 +1,57 @@
+/*
+ * Copyright Jerry Xiong, BOSSCS
+ * 
+ * The Project licenses this file to you under the Apache License, version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at:
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.bosscs.spark.commons.extractor.client;
+
+import java.nio.channels.ClosedChannelException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.bosscs.spark.commons.extractor.response.Response;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+
+/**
+ * Hands the responses read from the server to the futures of their connection.
+ */
+public class ExtractorClientHandler extends SimpleChannelInboundHandler<Response> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ExtractorClientHandler.class);
+
+    private final ExtractorConnection connection;
+
+    public ExtractorClientHandler(ExtractorConnection connection) {
+        this.connection = connection;
+    }
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, Response response) throws Exception {
+        connection.complete(response);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        connection.fail(new ClosedChannelException());
+        ctx.fireChannelInactive();
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        LOG.error("Extractor connection to " + connection.getAddress() + " failed " + cause.getMessage());
+        connection.fail(cause);
+        ctx.close();
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright Jerry Xiong, BOSSCS
+ * 
+ * The Project licenses this file to you under the Apache License, version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at:
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.bosscs.spark.commons.extractor.client;
+
+import com.bosscs.spark.commons.extractor.client.codecs.ActionEncoder;
+import com.bosscs.spark.commons.extractor.client.codecs.ExtractorFrameDecoder;
+import com.bosscs.spark.commons.extractor.client.codecs.FrameCompressor;
+import com.bosscs.spark.commons.extractor.client.codecs.FrameDecompressor;
+import com.bosscs.spark.commons.extractor.client.codecs.ResponseDecoder;
+
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.handler.ssl.SslContext;
+
+public class ExtractorClientInitializer extends ChannelInitializer<SocketChannel> {
+
+    private final SslContext sslCtx;
+
+    private final ExtractorClientConfig config;
+
+    private final ExtractorConnection connection;
+
+    public ExtractorClientInitializer(SslContext sslCtx, ExtractorClientConfig config,
+                                      ExtractorConnection connection) {
+        this.sslCtx = sslCtx;
+        this.config = config;
+        this.connection = connection;
+    }
+
+    @Override
+    public void initChannel(SocketChannel ch) throws Exception {
+        ChannelPipeline p = ch.pipeline();
+        if (sslCtx != null) {
+            p.addLast(sslCtx.newHandler(ch.alloc()));
+        }
+
+        p.addLast(new ExtractorFrameDecoder(config.getMaxFrameLength()));
+        p.addLast(new FrameDecompressor(config.getMaxFrameLength()));
+        p.addLast(new FrameCompressor(config.getCompressionThreshold()));
+        p.addLast(new ResponseDecoder());
+        p.addLast(new ActionEncoder());
+
+        p.addLast(new ExtractorClientHandler(connection));
+    }
+}
@@ -0,0 +1,302 @@
+/*
+ * Copyright Jerry Xiong, BOSSCS
+ * 
+ * The Project licenses this file to you under the Apache License, version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at:
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.bosscs.spark.commons.extractor.client;
+
+import java.net.SocketAddress;
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.bosscs.spark.commons.exception.GenericException;
+import com.bosscs.spark.commons.extractor.actions.Action;
+import com.bosscs.spark.commons.extractor.actions.ActionType;
+import com.bosscs.spark.commons.extractor.response.ErrorResponse;
+import com.bosscs.spark.commons.extractor.response.PlanPartitionsResponse;
+import com.bosscs.spark.commons.extractor.response.Response;
+import com.bosscs.spark.commons.extractor.response.StreamPartitionResponse;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+
+/**
+ * One connection to an extractor server, shared by several streams. The server answers the actions of a stream in
+ * the order it received them, so each stream only needs a FIFO of the futures waiting for an answer. Actions answered
+ * with several responses register a listener instead, which receives every response of their type until the last
+ * chunk or an error, while the other responses of the stream keep going to the futures in order. Stream 0 is kept for
+ * the handshake, which is not bound to a session.
+ */
+public class ExtractorConnection {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ExtractorConnection.class);
+
+    private final SocketAddress address;
+
+    private final AtomicInteger nextStreamId = new AtomicInteger(1);
+
+    private final AtomicInteger openStreams = new AtomicInteger();
+
+    /**
+     * Actions waiting for an answer, per stream id.
+     */
+    private final ConcurrentMap<Integer, Queue<Pending>> pending = new ConcurrentHashMap<>();
+
+    private volatile Channel channel;
+
+    private volatile Throwable failure;
+
+    ExtractorConnection(SocketAddress address) {
+        this.address = address;
+    }
+
+    void setChannel(Channel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * @return a stream id not used yet on this connection
+     */
+    public int openStream() {
+        openStreams.incrementAndGet();
+        int streamId;
+        do {
+            // wraps around after 2^31 streams, whose early ids are long released
+            streamId = nextStreamId.getAndIncrement() & Integer.MAX_VALUE;
+        } while (streamId == 0);
+        return streamId;
+    }
+
+    /**
+     * Forgets a stream whose session was closed on the server.
+     *
+     * @param streamId the stream id
+     */
+    public void closeStream(int streamId) {
+        pending.remove(streamId);
+        openStreams.decrementAndGet();
+    }
+
+    /**
+     * Sends an action on the given stream.
+     *
+     * @param streamId the stream id
+     * @param action   the action
+     * @param <R>      the type of the response expected
+     * @return completed with the response of the server, or exceptionally if the connection fails first
+     */
+    public <R extends Response> CompletableFuture<R> send(int streamId, Action action) {
+        return this.<R>send(streamId, action, null);
+    }
+
+    /**
+     * Sends an action the server answers with several responses, a STREAM_PARTITION or an incremental
+     * PLAN_PARTITIONS. The listener stays registered until the last response, flagged as such, or an error.
+     *
+     * @param streamId the stream id
+     * @param action   the action
+     * @param listener receives every response
+     * @param <R>      the type of the responses
+     * @return completed with the last response once the listener has seen it, or exceptionally if the server answers
+     * with an error, the listener throws or the connection fails first
+     */
+    public <R extends Response> CompletableFuture<R> stream(int streamId, Action action, IResponseListener<R> listener) {
+        return send(streamId, action, listener);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <R extends Response> CompletableFuture<R> send(int streamId, Action action,
+                                                          IResponseListener<R> listener) {
+        final Pending entry = new Pending(action.getType(), (IResponseListener<Response>) listener);
+        Channel current = channel;
+        if (current == null || !current.isActive() || failure != null) {
+            entry.future.completeExceptionally(failure != null ? failure : new ClosedChannelException());
+            return (CompletableFuture<R>) (CompletableFuture<?>) entry.future;
+        }
+
+        action.setStreamId(streamId);
+        Queue<Pending> queue = queue(streamId);
+        synchronized (queue) {
+            // enqueued and written under the same lock so the futures keep the order of the actions on the wire
+            queue.add(entry);
+            current.writeAndFlush(action).addListener(new ChannelFutureListener() {
+                @Override
+                public void operationComplete(ChannelFuture written) {
+                    if (!written.isSuccess()) {
+                        fail(written.cause());
+                        written.channel().close();
+                    }
+                }
+            });
+        }
+        return (CompletableFuture<R>) (CompletableFuture<?>) entry.future;
+    }
+
+    /**
+     * Hands a response to the action waiting for it, failing that action if the server answered with an error.
+     * Called from the event loop, so the responses of a listener arrive in order.
+     *
+     * @param response the response
+     */
+    void complete(Response response) {
+        Queue<Pending> queue = pending.get(response.getStreamId());
+        Pending entry = null;
+        boolean last = true;
+        if (queue != null) {
+            synchronized (queue) {
+                entry = select(queue, response);
+                if (entry != null) {
+                    last = entry.listener == null || isLast(response);
+                    if (last) {
+                        queue.remove(entry);
+                    }
+                }
+            }
+        }
+
+        if (entry == null) {
+            LOG.warn("Dropping unexpected " + response.getType() + " response on stream " + response.getStreamId()
+                    + " from " + address);
+            return;
+        }
+        if (response instanceof ErrorResponse) {
+            ErrorResponse error = (ErrorResponse) response;
+            entry.future.completeExceptionally(new GenericException(error.getFailedAction() + " failed on stream "
+                    + response.getStreamId() + " of " + address + ": " + error.getMessage()));
+            return;
+        }
+        if (entry.listener != null) {
+            try {
+                entry.listener.onResponse(response);
+            } catch (RuntimeException e) {
+                synchronized (queue) {
+                    queue.remove(entry);
+                }
+                entry.future.completeExceptionally(e);
+                return;
+            }
+        }
+        if (last) {
+            entry.future.complete(response);
+        }
+    }
+
+    /**
+     * Picks the action a response answers: a listener registered for its type, or else the oldest plain action. An
+     * error goes to the oldest action of the type that failed.
+     */
+    private static Pending select(Queue<Pending> queue, Response response) {
+        boolean error = response instanceof ErrorResponse;
+        ActionType type = error ? ((ErrorResponse) response).getFailedAction() : response.getType();
+        Pending oldestPlain = null;
+        for (Pending entry : queue) {
+            if (entry.type == type && (error || entry.listener != null)) {
+                return entry;
+            }
+            if (oldestPlain == null && entry.listener == null) {
+                oldestPlain = entry;
+            }
+        }
+        return oldestPlain != null || !error ? oldestPlain : queue.peek();
+    }
+
+    /**
+     * @return false for the responses announcing more responses to the same action
+     */
+    private static boolean isLast(Response response) {
+        if (response instanceof StreamPartitionResponse) {
+            return ((StreamPartitionResponse<?>) response).isEndOfStream();
+        } else if (response instanceof PlanPartitionsResponse) {
+            return ((PlanPartitionsResponse) response).isLast();
+        }
+        return true;
+    }
+
+    /**
+     * Fails every future waiting on this connection, which is not usable anymore.
+     *
+     * @param cause the cause
+     */
+    void fail(Throwable cause) {
+        failure = cause;
+        List<Pending> failed = new ArrayList<>();
+        for (Queue<Pending> queue : pending.values()) {
+            synchronized (queue) {
+                failed.addAll(queue);
+                queue.clear();
+            }
+        }
+        for (Pending entry : failed) {
+            entry.future.completeExceptionally(cause);
+        }
+    }
+
+    public boolean isActive() {
+        Channel current = channel;
+        return failure == null && current != null && current.isActive();
+    }
+
+    public int getOpenStreams() {
+        return openStreams.get();
+    }
+
+    public SocketAddress getAddress() {
+        return address;
+    }
+
+    void close() {
+        Channel current = channel;
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    private Queue<Pending> queue(int streamId) {
+        Queue<Pending> queue = pending.get(streamId);
+        if (queue == null) {
+            Queue<Pending> created = new ArrayDeque<>();
+            queue = pending.putIfAbsent(streamId, created);
+            if (queue == null) {
+                queue = created;
+            }
+        }
+        return queue;
+    }
+
+    /**
+     * An action waiting for its response, or for all of them when it has a listener.
+     */
+    private static final class Pending {
+
+        private final ActionType type;
+
+        private final IResponseListener<Response> listener;
+
+        private final CompletableFuture<Response> future = new CompletableFuture<>();
+
+        private Pending(ActionType type, IResponseListener<Response> listener) {
+            this.type = type;
+            this.listener = listener;
+        }
+    }
+}
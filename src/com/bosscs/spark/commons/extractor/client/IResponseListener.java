@@ -0,0 +1,33 @@
+/*
+ * Copyright Jerry Xiong, BOSSCS
+ * 
+ * The Project licenses this file to you under the Apache License, version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at:
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.bosscs.spark.commons.extractor.client;
+
+import com.bosscs.spark.commons.extractor.response.Response;
+
+/**
+ * Receives, in order and on the connection event loop, every response of an action answered with several of them,
+ * such as the chunks of a STREAM_PARTITION or of an incremental PLAN_PARTITIONS.
+ *
+ * @param <R> the type of the responses
+ */
+public interface IResponseListener<R extends Response> {
+
+    /**
+     * Called for each response, the last one included. Must not block.
+     *
+     * @param response the response
+     */
+    void onResponse(R response);
+}
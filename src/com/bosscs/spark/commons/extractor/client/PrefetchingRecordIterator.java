@@ -0,0 +1,89 @@
+/*
+ * Copyright Jerry Xiong, BOSSCS
+ * 
+ * The Project licenses this file to you under the Apache License, version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at:
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.bosscs.spark.commons.extractor.client;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+
+import com.bosscs.spark.commons.extractor.response.NextBatchResponse;
+
+/**
+ * Pull-based iterator over a remote partition. It keeps {@code prefetchBatches} NEXT_BATCH requests in flight ahead
+ * of the page being consumed, so the server reads the next page while the caller processes the current one and the
+ * caller only waits when it is faster than the server.
+ *
+ * @param <T> the record type
+ */
+public class PrefetchingRecordIterator<T> implements Iterator<T> {
+
+    private final RemoteExtractor<T> extractor;
+
+    private final int batchSize;
+
+    private final int prefetchBatches;
+
+    private final Deque<CompletableFuture<NextBatchResponse<T>>> requested = new ArrayDeque<>();
+
+    private Iterator<T> page = Collections.<T>emptyList().iterator();
+
+    private boolean endOfStream;
+
+    PrefetchingRecordIterator(RemoteExtractor<T> extractor, int batchSize, int prefetchBatches) {
+        this.extractor = extractor;
+        this.batchSize = batchSize;
+        this.prefetchBatches = Math.max(prefetchBatches, 0);
+        this.requestAhead();
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!page.hasNext()) {
+            if (endOfStream) {
+                return false;
+            }
+
+            NextBatchResponse<T> batch = RemoteExtractor.join(requested.poll());
+            endOfStream = batch.isEndOfStream();
+            page = batch.getData().iterator();
+            if (!endOfStream) {
+                this.requestAhead();
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!this.hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return page.next();
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    private void requestAhead() {
+        while (requested.size() <= prefetchBatches) {
+            requested.add(extractor.nextBatch(batchSize));
+        }
+    }
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright Jerry Xiong, BOSSCS
+ * 
+ * The Project licenses this file to you under the Apache License, version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at:
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.bosscs.spark.commons.extractor.client;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import org.apache.spark.Partition;
+
+import com.bosscs.spark.commons.config.ExtractorConfig;
+import com.bosscs.spark.commons.exception.GenericException;
+import com.bosscs.spark.commons.extractor.actions.CloseAction;
+import com.bosscs.spark.commons.extractor.actions.GetPartitionsAction;
+import com.bosscs.spark.commons.extractor.actions.InitIteratorAction;
+import com.bosscs.spark.commons.extractor.actions.InitSaveAction;
+import com.bosscs.spark.commons.extractor.actions.NextBatchAction;
+import com.bosscs.spark.commons.extractor.actions.PlanPartitionsAction;
+import com.bosscs.spark.commons.extractor.actions.SaveBatchAction;
+import com.bosscs.spark.commons.extractor.actions.StreamPartitionAction;
+import com.bosscs.spark.commons.extractor.response.CloseResponse;
+import com.bosscs.spark.commons.extractor.response.GetPartitionsResponse;
+import com.bosscs.spark.commons.extractor.response.InitIteratorResponse;
+import com.bosscs.spark.commons.extractor.response.InitSaveResponse;
+import com.bosscs.spark.commons.extractor.response.NextBatchResponse;
+import com.bosscs.spark.commons.extractor.response.PlanPartitionsResponse;
+import com.bosscs.spark.commons.extractor.response.SaveBatchResponse;
+import com.bosscs.spark.commons.extractor.response.StreamPartitionResponse;
+import com.bosscs.spark.commons.querybuilder.UpdateQueryBuilder;
+
+/**
+ * An extractor running on a server, seen through one stream of an {@link ExtractorConnection}. Calls return as soon
+ * as the action is written; the futures complete on the connection event loop, so callbacks must not block. A
+ * stream is meant to be used by one thread at a time, like a local extractor.
+ *
+ * @param <T> the record type
+ */
+public class RemoteExtractor<T> implements AutoCloseable {
+
+    private final ExtractorConnection connection;
+
+    private final ExtractorClientConfig clientConfig;
+
+    private final int streamId;
+
+    private SaveBatchWindow<T> saveWindow;
+
+    private CompletableFuture<SaveBatchResponse> lastBatch;
+
+    private boolean closed;
+
+    RemoteExtractor(ExtractorConnection connection, ExtractorClientConfig clientConfig) {
+        this.connection = connection;
+        this.clientConfig = clientConfig;
+        this.streamId = connection.openStream();
+    }
+
+    public CompletableFuture<Partition[]> getPartitions(ExtractorConfig<T> config) {
+        CompletableFuture<GetPartitionsResponse> response = connection.send(streamId,
+                new GetPartitionsAction<>(config));
+        return response.thenApply(new Function<GetPartitionsResponse, Partition[]>() {
+            @Override
+            public Partition[] apply(GetPartitionsResponse partitions) {
+                return partitions.getPartitions();
+            }
+        });
+    }
+
+    /**
+     * Plans the partitions of a config, the server pushing them in chunks as it computes them.
+     *
+     * @param config    the extractor config
+     * @param chunkSize the number of partitions per chunk
+     * @param listener  receives each chunk, the last one flagged
+     * @return completed with the last chunk once the listener has seen it
+     */
+    public CompletableFuture<PlanPartitionsResponse> planPartitions(ExtractorConfig<T> config, int chunkSize,
+                                                                    IResponseListener<PlanPartitionsResponse> listener) {
+        return connection.stream(streamId, new PlanPartitionsAction<>(config, chunkSize), listener);
+    }
+
+    public CompletableFuture<Void> initIterator(Partition partition, ExtractorConfig<T> config) {
+        CompletableFuture<InitIteratorResponse> response = connection.send(streamId,
+                new InitIteratorAction<>(partition, config));
+        return response.thenApply(RemoteExtractor.<InitIteratorResponse>toVoid());
+    }
+
+    /**
+     * Asks for the next page of the iterator opened with {@link #initIterator}.
+     *
+     * @param batchSize the number of records wanted
+     * @return the page, flagged when the iterator is exhausted
+     */
+    public CompletableFuture<NextBatchResponse<T>> nextBatch(int batchSize) {
+        return connection.send(streamId, new NextBatchAction<T>(batchSize));
+    }
+
+    /**
+     * Iterates the records of the iterator opened with {@link #initIterator}, fetching the next pages while the
+     * current one is consumed.
+     *
+     * @return the iterator
+     */
+    public PrefetchingRecordIterator<T> iterator() {
+        return new PrefetchingRecordIterator<>(this, clientConfig.getBatchSize(), clientConfig.getPrefetchBatches());
+    }
+
+    /**
+     * Has the server push the records of a partition in chunks, for as long as this connection keeps reading them.
+     *
+     * @param partition the partition
+     * @param config    the extractor config
+     * @param chunkSize the number of records per chunk
+     * @param listener  receives each chunk, the last one flagged as the end of the stream
+     * @return completed with the last chunk once the listener has seen it
+     */
+    public CompletableFuture<StreamPartitionResponse<T>> streamPartition(
+            Partition partition, ExtractorConfig<T> config, int chunkSize,
+            IResponseListener<StreamPartitionResponse<T>> listener) {
+        return connection.stream(streamId, new StreamPartitionAction<>(partition, config, chunkSize), listener);
+    }
+
+    public CompletableFuture<Void> initSave(ExtractorConfig<T> config, T first, UpdateQueryBuilder queryBuilder) {
+        CompletableFuture<InitSaveResponse> response = connection.send(streamId,
+                new InitSaveAction<>(config, first, queryBuilder));
+        return response.thenApply(RemoteExtractor.<InitSaveResponse>toVoid());
+    }
+
+    /**
+     * Queues a record to save. Records go out in batches and up to {@code saveWindow} batches may wait for their
+     * acknowledgement; past that this call blocks until the server catches up.
+     *
+     * @param record the record
+     */
+    public void save(T record) {
+        try {
+            this.send(this.getSaveWindow().add(record));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GenericException(e);
+        }
+    }
+
+    /**
+     * Sends the records queued by {@link #save} that did not fill a batch yet.
+     *
+     * @return completed once every batch sent is acknowledged
+     */
+    public CompletableFuture<Void> flush() {
+        if (saveWindow != null) {
+            try {
+                this.send(saveWindow.flush());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new GenericException(e);
+            }
+        }
+        if (lastBatch == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        // batches of a stream are acknowledged in order, the last one comes last
+        return lastBatch.thenApply(RemoteExtractor.<SaveBatchResponse>toVoid());
+    }
+
+    /**
+     * @return the counts of records saved and failed so far
+     */
+    public SaveBatchWindow<T> getSaveWindow() {
+        if (saveWindow == null) {
+            saveWindow = new SaveBatchWindow<>(clientConfig.getSaveBatchSize(), clientConfig.getSaveWindow());
+        }
+        return saveWindow;
+    }
+
+    /**
+     * Closes the session on the server, which gives its extractor back to the server pool.
+     *
+     * @return completed once the server has closed the session
+     */
+    public CompletableFuture<Void> closeAsync() {
+        if (closed) {
+            return CompletableFuture.completedFuture(null);
+        }
+        closed = true;
+        CompletableFuture<CloseResponse> response = connection.send(streamId, new CloseAction());
+        return response.handle(new BiFunction<CloseResponse, Throwable, Void>() {
+            @Override
+            public Void apply(CloseResponse close, Throwable error) {
+                connection.closeStream(streamId);
+                if (error != null) {
+                    throw error instanceof CompletionException ? (CompletionException) error :
+                            new CompletionException(error);
+                }
+                return null;
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        join(this.closeAsync());
+    }
+
+    public int getStreamId() {
+        return streamId;
+    }
+
+    private void send(final SaveBatchAction<T> batch) {
+        if (batch == null) {
+            return;
+        }
+        final SaveBatchWindow<T> window = saveWindow;
+        lastBatch = connection.send(streamId, batch);
+        lastBatch.whenComplete(new BiConsumer<SaveBatchResponse, Throwable>() {
+            @Override
+            public void accept(SaveBatchResponse ack, Throwable error) {
+                if (error != null) {
+                    window.abandon(batch);
+                } else {
+                    window.acknowledge(ack);
+                }
+            }
+        });
+    }
+
+    /**
+     * Waits for a future, rethrowing its failure unwrapped.
+     *
+     * @param future the future
+     * @param <R>    the result type
+     * @return the result
+     */
+    static <R> R join(CompletableFuture<R> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new GenericException(cause);
+        }
+    }
+
+    private static <R> Function<R, Void> toVoid() {
+        return new Function<R, Void>() {
+            @Override
+            public Void apply(R response) {
+                return null;
+            }
+        };
+    }
+}
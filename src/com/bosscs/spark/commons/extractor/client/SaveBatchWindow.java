@@ -0,0 +1,144 @@
+/*
+ * Copyright Jerry Xiong, BOSSCS
+ * 
+ * The Project licenses this file to you under the Apache License, version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at:
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.bosscs.spark.commons.extractor.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import com.bosscs.spark.commons.extractor.actions.SaveBatchAction;
+import com.bosscs.spark.commons.extractor.response.SaveBatchResponse;
+
+/**
+ * Client side of the pipelined save: groups records into {@link SaveBatchAction}s and lets at most {@code window}
+ * batches be in flight, so saving is no longer bounded by one round trip per record. Acknowledgements may arrive on
+ * any thread.
+ *
+ * @param <T> the record type
+ */
+public class SaveBatchWindow<T> {
+
+    private final int batchSize;
+
+    private final int window;
+
+    private final Semaphore inFlight;
+
+    private List<T> pending;
+
+    private long nextBatchId;
+
+    private long saved;
+
+    private long failed;
+
+    private String firstError;
+
+    /**
+     * @param batchSize number of records per batch
+     * @param window    number of batches that may wait for their acknowledgement
+     */
+    public SaveBatchWindow(int batchSize, int window) {
+        this.batchSize = batchSize;
+        this.window = window;
+        this.inFlight = new Semaphore(window);
+        this.pending = new ArrayList<>(batchSize);
+    }
+
+    /**
+     * Adds a record to the current batch.
+     *
+     * @param record the record
+     * @return the batch to send once it is full, after waiting for a free slot in the window; null otherwise
+     * @throws InterruptedException if interrupted while waiting for a slot
+     */
+    public SaveBatchAction<T> add(T record) throws InterruptedException {
+        pending.add(record);
+        return pending.size() >= batchSize ? flush() : null;
+    }
+
+    /**
+     * Closes the current batch, after waiting for a free slot in the window.
+     *
+     * @return the batch to send, null if there is nothing to send
+     * @throws InterruptedException if interrupted while waiting for a slot
+     */
+    public SaveBatchAction<T> flush() throws InterruptedException {
+        if (pending.isEmpty()) {
+            return null;
+        }
+        inFlight.acquire();
+        SaveBatchAction<T> batch = new SaveBatchAction<>(nextBatchId++, pending);
+        pending = new ArrayList<>(batchSize);
+        return batch;
+    }
+
+    /**
+     * Records the acknowledgement of a batch and frees its slot.
+     *
+     * @param response the acknowledgement
+     */
+    public void acknowledge(SaveBatchResponse response) {
+        synchronized (this) {
+            saved += response.getSaved();
+            failed += response.getFailed();
+            if (firstError == null) {
+                firstError = response.getFirstError();
+            }
+        }
+        inFlight.release();
+    }
+
+    /**
+     * Frees the slot of a batch that will never be acknowledged, e.g. because its connection failed.
+     *
+     * @param batch the batch
+     */
+    public void abandon(SaveBatchAction<T> batch) {
+        synchronized (this) {
+            failed += batch.getRecords().size();
+        }
+        inFlight.release();
+    }
+
+    /**
+     * Waits until every batch sent has been acknowledged.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit    the unit of the timeout
+     * @return false if the timeout elapsed first
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitAcknowledgements(long timeout, TimeUnit unit) throws InterruptedException {
+        if (!inFlight.tryAcquire(window, timeout, unit)) {
+            return false;
+        }
+        inFlight.release(window);
+        return true;
+    }
+
+    public synchronized long getSaved() {
+        return saved;
+    }
+
+    public synchronized long getFailed() {
+        return failed;
+    }
+
+    public synchronized String getFirstError() {
+        return firstError;
+    }
+}
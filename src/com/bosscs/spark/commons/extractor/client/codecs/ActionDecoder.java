@@ -14,66 +14,22 @@
  */
 package com.bosscs.spark.commons.extractor.client.codecs;
 
-import java.io.ByteArrayInputStream;
-import java.io.IOException;
-import java.io.ObjectInput;
-import java.io.ObjectInputStream;
 import java.util.List;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-import com.bosscs.spark.commons.extractor.actions.Action;
-
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
-import io.netty.handler.codec.ByteToMessageDecoder;
-
-public class ActionDecoder extends ByteToMessageDecoder {
-
-    private static final Logger LOG = LoggerFactory.getLogger(ActionDecoder.class);
+import io.netty.handler.codec.MessageToMessageDecoder;
 
-    protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) {
-
-        // Wait until the length prefix is available.
-        if (in.readableBytes() < 5) {
-            return;
-        }
-
-        // Wait until the whole data is available.
-        int dataLength = in.readInt();
-        if (in.readableBytes() < dataLength) {
-            in.resetReaderIndex();
-            return;
-        }
-
-        // Convert the received data into a new BigInteger.
-        byte[] decoded = new byte[dataLength];
-        in.readBytes(decoded);
+/**
+ * Decodes the [byte codec id][body] frames produced by {@link ExtractorFrameDecoder} into actions. The codec reads
+ * straight from the frame buffer, and is taken from each frame so the decoder follows a codec switch without any
+ * state.
+ */
+public class ActionDecoder extends MessageToMessageDecoder<ByteBuf> {
 
-        ByteArrayInputStream bis = new ByteArrayInputStream(decoded);
-        ObjectInput inObj = null;
-        Action action = null;
-        try {
-            inObj = new ObjectInputStream(bis);
-            action = (Action) inObj.readObject();
-        } catch (IOException | ClassNotFoundException e) {
-            LOG.error(e.getMessage());
-        } finally {
-            try {
-                bis.close();
-            } catch (IOException ex) {
-                // ignore close exception
-            }
-            try {
-                if (inObj != null) {
-                    inObj.close();
-                }
-            } catch (IOException ex) {
-                // ignore close exception
-            }
-        }
+    protected void decode(ChannelHandlerContext ctx, ByteBuf frame, List<Object> out) throws Exception {
 
-        out.add(action);
+        ExtractorCodec codec = ExtractorCodecs.forId(frame.readByte());
+        out.add(codec.decode(frame));
     }
 }
@@ -14,52 +14,25 @@
  */
 package com.bosscs.spark.commons.extractor.client.codecs;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.io.ObjectOutput;
-import java.io.ObjectOutputStream;
-
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
 import com.bosscs.spark.commons.extractor.actions.Action;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToByteEncoder;
 
+/**
+ * Writes an action as [int length][byte codec id][body] using the codec negotiated for the channel.
+ */
 public class ActionEncoder extends MessageToByteEncoder<Action> {
 
-    private static final Logger LOG = LoggerFactory.getLogger(ActionEncoder.class);
-
-    protected void encode(ChannelHandlerContext ctx, Action action, ByteBuf out) {
-
-        ByteArrayOutputStream bos = new ByteArrayOutputStream();
-        ObjectOutput outObj = null;
+    protected void encode(ChannelHandlerContext ctx, Action action, ByteBuf out) throws Exception {
 
-        try {
-            outObj = new ObjectOutputStream(bos);
-            outObj.writeObject(action);
-        } catch (IOException e) {
-            LOG.error(e.getMessage());
-        } finally {
-            try {
-                if (outObj != null) {
-                    outObj.close();
-                }
-            } catch (IOException ex) {
-                // ignore close exception
-            }
-            try {
-                bos.close();
-            } catch (IOException ex) {
-                // ignore close exception
-            }
-        }
+        ExtractorCodec codec = ExtractorCodecs.get(ctx.channel());
 
-        byte[] encodedObj = bos.toByteArray();
-        int dataLength = encodedObj.length;
-        out.writeInt(dataLength);
-        out.writeBytes(encodedObj);
+        int lengthIndex = out.writerIndex();
+        out.writeInt(0);
+        out.writeByte(codec.getId());
+        codec.encode(action, out);
+        out.setInt(lengthIndex, out.writerIndex() - lengthIndex - 4);
     }
 }
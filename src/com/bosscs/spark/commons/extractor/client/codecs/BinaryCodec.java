@@ -0,0 +1,583 @@
+/*
+ * Copyright Jerry Xiong, BOSSCS
+ * 
+ * The Project licenses this file to you under the Apache License, version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at:
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.bosscs.spark.commons.extractor.client.codecs;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.apache.spark.Partition;
+
+import com.bosscs.spark.commons.config.ExtractorConfig;
+import com.bosscs.spark.commons.entity.Cell;
+import com.bosscs.spark.commons.entity.Cells;
+import com.bosscs.spark.commons.extractor.actions.Action;
+import com.bosscs.spark.commons.extractor.actions.ActionType;
+import com.bosscs.spark.commons.extractor.actions.CloseAction;
+import com.bosscs.spark.commons.extractor.actions.GetPartitionsAction;
+import com.bosscs.spark.commons.extractor.actions.HasNextAction;
+import com.bosscs.spark.commons.extractor.actions.InitIteratorAction;
+import com.bosscs.spark.commons.extractor.actions.InitSaveAction;
+import com.bosscs.spark.commons.extractor.actions.InvalidatePartitionsAction;
+import com.bosscs.spark.commons.extractor.actions.NextAction;
+import com.bosscs.spark.commons.extractor.actions.NextBatchAction;
+import com.bosscs.spark.commons.extractor.actions.PlanPartitionsAction;
+import com.bosscs.spark.commons.extractor.actions.SaveAction;
+import com.bosscs.spark.commons.extractor.actions.SaveBatchAction;
+import com.bosscs.spark.commons.extractor.actions.StreamPartitionAction;
+import com.bosscs.spark.commons.extractor.response.CloseResponse;
+import com.bosscs.spark.commons.extractor.response.ErrorResponse;
+import com.bosscs.spark.commons.extractor.response.GetPartitionsResponse;
+import com.bosscs.spark.commons.extractor.response.HasNextResponse;
+import com.bosscs.spark.commons.extractor.response.InitIteratorResponse;
+import com.bosscs.spark.commons.extractor.response.InitSaveResponse;
+import com.bosscs.spark.commons.extractor.response.InvalidatePartitionsResponse;
+import com.bosscs.spark.commons.extractor.response.NextBatchResponse;
+import com.bosscs.spark.commons.extractor.response.NextResponse;
+import com.bosscs.spark.commons.extractor.response.PlanPartitionsResponse;
+import com.bosscs.spark.commons.extractor.response.Response;
+import com.bosscs.spark.commons.extractor.response.SaveBatchResponse;
+import com.bosscs.spark.commons.extractor.response.SaveResponse;
+import com.bosscs.spark.commons.extractor.response.StreamPartitionResponse;
+import com.bosscs.spark.commons.querybuilder.UpdateQueryBuilder;
+import com.bosscs.spark.commons.serialization.CellsSerializationUtils;
+import com.bosscs.spark.commons.serialization.ValueReader;
+import com.bosscs.spark.commons.serialization.ValueWriter;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+
+/**
+ * Compact binary codec. Every message is a one byte kind, the stream id and the fields of that message; records and
+ * cell values are type tagged so Cells, Cell and the usual column types never go through Java serialization. Values
+ * of other classes (entity beans, configs, partitions) fall back to Java serialization, and so do messages this
+ * codec has no envelope for.
+ */
+public class BinaryCodec implements ExtractorCodec {
+
+    public static final byte ID = 1;
+
+    // message kinds
+    private static final byte MSG_JAVA = 0;
+    private static final byte MSG_CLOSE = 1;
+    private static final byte MSG_GET_PARTITIONS = 2;
+    private static final byte MSG_SAVE = 3;
+    private static final byte MSG_HAS_NEXT = 4;
+    private static final byte MSG_NEXT = 5;
+    private static final byte MSG_INIT_ITERATOR = 6;
+    private static final byte MSG_INIT_SAVE = 7;
+    private static final byte MSG_NEXT_BATCH = 8;
+    private static final byte MSG_STREAM_PARTITION = 9;
+    private static final byte MSG_SAVE_BATCH = 10;
+    private static final byte MSG_PLAN_PARTITIONS = 11;
+    private static final byte MSG_INVALIDATE_PARTITIONS = 12;
+    private static final byte RESP_CLOSE = 33;
+    private static final byte RESP_GET_PARTITIONS = 34;
+    private static final byte RESP_SAVE = 35;
+    private static final byte RESP_HAS_NEXT = 36;
+    private static final byte RESP_NEXT = 37;
+    private static final byte RESP_INIT_ITERATOR = 38;
+    private static final byte RESP_INIT_SAVE = 39;
+    private static final byte RESP_NEXT_BATCH = 40;
+    private static final byte RESP_STREAM_PARTITION = 41;
+    private static final byte RESP_SAVE_BATCH = 42;
+    private static final byte RESP_PLAN_PARTITIONS = 43;
+    private static final byte RESP_INVALIDATE_PARTITIONS = 44;
+    private static final byte RESP_ERROR = 45;
+
+    @Override
+    public byte getId() {
+        return ID;
+    }
+
+    @Override
+    public void encode(Object message, ByteBuf out) throws Exception {
+        if (message instanceof Action) {
+            writeAction((Action) message, out);
+        } else if (message instanceof Response) {
+            writeResponse((Response) message, out);
+        } else {
+            throw new IllegalArgumentException("Not an extractor message: " + message);
+        }
+    }
+
+    @Override
+    public Object decode(ByteBuf in) throws Exception {
+        byte kind = in.readByte();
+        if (kind == MSG_JAVA) {
+            return JavaSerializationCodec.readObject(in);
+        }
+
+        int streamId = readVarInt(in);
+        Object message;
+        switch (kind) {
+        case MSG_CLOSE:
+            message = new CloseAction();
+            break;
+        case MSG_GET_PARTITIONS:
+            message = new GetPartitionsAction<>(readConfig(in));
+            break;
+        case MSG_SAVE:
+            message = new SaveAction<>(readValue(in));
+            break;
+        case MSG_HAS_NEXT:
+            message = new HasNextAction<>();
+            break;
+        case MSG_NEXT:
+            message = new NextAction<>();
+            break;
+        case MSG_INIT_ITERATOR:
+            Partition iteratorPartition = (Partition) readValue(in);
+            message = new InitIteratorAction<>(iteratorPartition, readConfig(in));
+            break;
+        case MSG_INIT_SAVE:
+            ExtractorConfig<Object> saveConfig = readConfig(in);
+            Object first = readValue(in);
+            message = new InitSaveAction<>(saveConfig, first, (UpdateQueryBuilder) readValue(in));
+            break;
+        case MSG_NEXT_BATCH:
+            message = new NextBatchAction<>(readVarInt(in));
+            break;
+        case MSG_STREAM_PARTITION:
+            Partition streamPartition = (Partition) readValue(in);
+            ExtractorConfig<Object> streamConfig = readConfig(in);
+            message = new StreamPartitionAction<>(streamPartition, streamConfig, readVarInt(in));
+            break;
+        case MSG_SAVE_BATCH:
+            long batchId = in.readLong();
+            message = new SaveBatchAction<>(batchId, readRecords(in));
+            break;
+        case MSG_PLAN_PARTITIONS:
+            ExtractorConfig<Object> planConfig = readConfig(in);
+            message = new PlanPartitionsAction<>(planConfig, readVarInt(in));
+            break;
+        case MSG_INVALIDATE_PARTITIONS:
+            message = new InvalidatePartitionsAction<>(readConfig(in));
+            break;
+        case RESP_CLOSE:
+            message = new CloseResponse();
+            break;
+        case RESP_GET_PARTITIONS:
+            message = new GetPartitionsResponse((Partition[]) readValue(in));
+            break;
+        case RESP_SAVE:
+            message = new SaveResponse();
+            break;
+        case RESP_HAS_NEXT:
+            message = new HasNextResponse(in.readBoolean());
+            break;
+        case RESP_NEXT:
+            message = new NextResponse<>(readValue(in));
+            break;
+        case RESP_INIT_ITERATOR:
+            message = new InitIteratorResponse<>();
+            break;
+        case RESP_INIT_SAVE:
+            message = new InitSaveResponse();
+            break;
+        case RESP_NEXT_BATCH:
+            boolean batchEnd = in.readBoolean();
+            message = new NextBatchResponse<>(readRecords(in), batchEnd);
+            break;
+        case RESP_STREAM_PARTITION:
+            boolean streamEnd = in.readBoolean();
+            message = new StreamPartitionResponse<>(readRecords(in), streamEnd);
+            break;
+        case RESP_SAVE_BATCH:
+            long ackId = in.readLong();
+            int saved = readVarInt(in);
+            int failed = readVarInt(in);
+            message = new SaveBatchResponse(ackId, saved, failed, readString(in));
+            break;
+        case RESP_PLAN_PARTITIONS:
+            boolean planEnd = in.readBoolean();
+            message = new PlanPartitionsResponse((Partition[]) readValue(in), planEnd);
+            break;
+        case RESP_INVALIDATE_PARTITIONS:
+            message = new InvalidatePartitionsResponse(readVarInt(in));
+            break;
+        case RESP_ERROR:
+            ActionType failedAction = ActionType.values()[readVarInt(in)];
+            message = new ErrorResponse(failedAction, readString(in));
+            break;
+        default:
+            throw new IllegalArgumentException("Unknown message kind " + kind);
+        }
+
+        if (message instanceof Action) {
+            ((Action) message).setStreamId(streamId);
+        } else {
+            ((Response) message).setStreamId(streamId);
+        }
+        return message;
+    }
+
+    private void writeAction(Action action, ByteBuf out) throws Exception {
+        if (action instanceof CloseAction) {
+            writeHeader(MSG_CLOSE, action.getStreamId(), out);
+        } else if (action instanceof GetPartitionsAction) {
+            writeHeader(MSG_GET_PARTITIONS, action.getStreamId(), out);
+            writeValue(((GetPartitionsAction<?>) action).getConfig(), out);
+        } else if (action instanceof SaveAction) {
+            writeHeader(MSG_SAVE, action.getStreamId(), out);
+            writeValue(((SaveAction<?>) action).getRecord(), out);
+        } else if (action instanceof HasNextAction) {
+            writeHeader(MSG_HAS_NEXT, action.getStreamId(), out);
+        } else if (action instanceof NextAction) {
+            writeHeader(MSG_NEXT, action.getStreamId(), out);
+        } else if (action instanceof InitIteratorAction) {
+            InitIteratorAction<?> initIterator = (InitIteratorAction<?>) action;
+            writeHeader(MSG_INIT_ITERATOR, action.getStreamId(), out);
+            writeValue(initIterator.getPartition(), out);
+            writeValue(initIterator.getConfig(), out);
+        } else if (action instanceof InitSaveAction) {
+            InitSaveAction<?> initSave = (InitSaveAction<?>) action;
+            writeHeader(MSG_INIT_SAVE, action.getStreamId(), out);
+            writeValue(initSave.getConfig(), out);
+            writeValue(initSave.getFirst(), out);
+            writeValue(initSave.getQueryBuilder(), out);
+        } else if (action instanceof NextBatchAction) {
+            writeHeader(MSG_NEXT_BATCH, action.getStreamId(), out);
+            writeVarInt(((NextBatchAction<?>) action).getBatchSize(), out);
+        } else if (action instanceof StreamPartitionAction) {
+            StreamPartitionAction<?> stream = (StreamPartitionAction<?>) action;
+            writeHeader(MSG_STREAM_PARTITION, action.getStreamId(), out);
+            writeValue(stream.getPartition(), out);
+            writeValue(stream.getConfig(), out);
+            writeVarInt(stream.getChunkSize(), out);
+        } else if (action instanceof SaveBatchAction) {
+            SaveBatchAction<?> batch = (SaveBatchAction<?>) action;
+            writeHeader(MSG_SAVE_BATCH, action.getStreamId(), out);
+            out.writeLong(batch.getBatchId());
+            writeRecords(batch.getRecords(), out);
+        } else if (action instanceof PlanPartitionsAction) {
+            PlanPartitionsAction<?> plan = (PlanPartitionsAction<?>) action;
+            writeHeader(MSG_PLAN_PARTITIONS, action.getStreamId(), out);
+            writeValue(plan.getConfig(), out);
+            writeVarInt(plan.getChunkSize(), out);
+        } else if (action instanceof InvalidatePartitionsAction) {
+            writeHeader(MSG_INVALIDATE_PARTITIONS, action.getStreamId(), out);
+            writeValue(((InvalidatePartitionsAction<?>) action).getConfig(), out);
+        } else {
+            out.writeByte(MSG_JAVA);
+            JavaSerializationCodec.writeObject(action, out);
+        }
+    }
+
+    private void writeResponse(Response response, ByteBuf out) throws Exception {
+        if (response instanceof CloseResponse) {
+            writeHeader(RESP_CLOSE, response.getStreamId(), out);
+        } else if (response instanceof GetPartitionsResponse) {
+            writeHeader(RESP_GET_PARTITIONS, response.getStreamId(), out);
+            writeValue(((GetPartitionsResponse) response).getPartitions(), out);
+        } else if (response instanceof SaveResponse) {
+            writeHeader(RESP_SAVE, response.getStreamId(), out);
+        } else if (response instanceof HasNextResponse) {
+            writeHeader(RESP_HAS_NEXT, response.getStreamId(), out);
+            out.writeBoolean(((HasNextResponse) response).getData());
+        } else if (response instanceof NextResponse) {
+            writeHeader(RESP_NEXT, response.getStreamId(), out);
+            writeValue(((NextResponse<?>) response).getData(), out);
+        } else if (response instanceof InitIteratorResponse) {
+            writeHeader(RESP_INIT_ITERATOR, response.getStreamId(), out);
+        } else if (response instanceof InitSaveResponse) {
+            writeHeader(RESP_INIT_SAVE, response.getStreamId(), out);
+        } else if (response instanceof NextBatchResponse) {
+            NextBatchResponse<?> batch = (NextBatchResponse<?>) response;
+            writeHeader(RESP_NEXT_BATCH, response.getStreamId(), out);
+            out.writeBoolean(batch.isEndOfStream());
+            writeRecords(batch.getData(), out);
+        } else if (response instanceof StreamPartitionResponse) {
+            StreamPartitionResponse<?> chunk = (StreamPartitionResponse<?>) response;
+            writeHeader(RESP_STREAM_PARTITION, response.getStreamId(), out);
+            out.writeBoolean(chunk.isEndOfStream());
+            writeRecords(chunk.getData(), out);
+        } else if (response instanceof SaveBatchResponse) {
+            SaveBatchResponse ack = (SaveBatchResponse) response;
+            writeHeader(RESP_SAVE_BATCH, response.getStreamId(), out);
+            out.writeLong(ack.getBatchId());
+            writeVarInt(ack.getSaved(), out);
+            writeVarInt(ack.getFailed(), out);
+            writeString(ack.getFirstError(), out);
+        } else if (response instanceof PlanPartitionsResponse) {
+            PlanPartitionsResponse plan = (PlanPartitionsResponse) response;
+            writeHeader(RESP_PLAN_PARTITIONS, response.getStreamId(), out);
+            out.writeBoolean(plan.isLast());
+            writeValue(plan.getPartitions(), out);
+        } else if (response instanceof InvalidatePartitionsResponse) {
+            writeHeader(RESP_INVALIDATE_PARTITIONS, response.getStreamId(), out);
+            writeVarInt(((InvalidatePartitionsResponse) response).getInvalidated(), out);
+        } else if (response instanceof ErrorResponse) {
+            ErrorResponse error = (ErrorResponse) response;
+            writeHeader(RESP_ERROR, response.getStreamId(), out);
+            writeVarInt(error.getFailedAction().ordinal(), out);
+            writeString(error.getMessage(), out);
+        } else {
+            out.writeByte(MSG_JAVA);
+            JavaSerializationCodec.writeObject(response, out);
+        }
+    }
+
+    private static void writeHeader(byte kind, int streamId, ByteBuf out) {
+        out.writeByte(kind);
+        writeVarInt(streamId, out);
+    }
+
+    /**
+     * Writes a page of records. Pages of entity beans are serialized as a whole, so their class descriptors are sent
+     * once per page rather than once per record.
+     */
+    private static void writeRecords(List<?> records, ByteBuf out) throws Exception {
+        if (records == null) {
+            out.writeByte(CellsSerializationUtils.NULL);
+        } else if (!records.isEmpty() && !isTagged(records.get(0))) {
+            out.writeByte(CellsSerializationUtils.OBJECT);
+            writeJava(records, out);
+        } else {
+            // laid out as a LIST whatever the list class, records may come in a view of the extractor batch
+            ByteBufValueWriter writer = new ByteBufValueWriter(out);
+            out.writeByte(CellsSerializationUtils.LIST);
+            writeVarInt(records.size(), out);
+            for (Object record : records) {
+                writer.writeValue(record);
+            }
+        }
+    }
+
+    /**
+     * The records of a message are whatever the extractor returned, their element type is not on the wire.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> List<T> readRecords(ByteBuf in) throws Exception {
+        return (List<T>) readValue(in);
+    }
+
+    /**
+     * Configs are read untyped, the entity type of a config is not on the wire either.
+     */
+    @SuppressWarnings("unchecked")
+    private static ExtractorConfig<Object> readConfig(ByteBuf in) throws Exception {
+        return (ExtractorConfig<Object>) readValue(in);
+    }
+
+    /**
+     * @return true if the value is written with its own tag rather than with Java serialization.
+     */
+    private static boolean isTagged(Object value) {
+        return value == null || value instanceof String || value instanceof Cells
+                || value.getClass() == Cell.class || value instanceof Number || value instanceof Boolean;
+    }
+
+    static void writeValue(Object value, ByteBuf out) throws IOException {
+        new ByteBufValueWriter(out).writeValue(value);
+    }
+
+    static Object readValue(ByteBuf in) throws IOException, ClassNotFoundException {
+        return new ByteBufValueReader(in).readValue();
+    }
+
+    private static void writeJava(Object value, ByteBuf out) throws IOException {
+        int lengthIndex = out.writerIndex();
+        out.writeInt(0);
+        JavaSerializationCodec.writeObject(value, out);
+        out.setInt(lengthIndex, out.writerIndex() - lengthIndex - 4);
+    }
+
+    /**
+     * Writes a nullable string as a varint of its UTF-8 byte length plus one (0 for null) followed by the bytes.
+     * Short strings are encoded in place, their length fitting the single byte reserved up front.
+     */
+    private static void writeString(String value, ByteBuf out) {
+        if (value == null) {
+            out.writeByte(0);
+        } else if (value.length() * 3 < 0x7F) {
+            int lengthIndex = out.writerIndex();
+            out.writeByte(0);
+            int length = ByteBufUtil.writeUtf8(out, value);
+            out.setByte(lengthIndex, length + 1);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(bytes.length + 1, out);
+            out.writeBytes(bytes);
+        }
+    }
+
+    private static String readString(ByteBuf in) {
+        int length = readVarInt(in) - 1;
+        if (length < 0) {
+            return null;
+        }
+        String value = in.toString(in.readerIndex(), length, StandardCharsets.UTF_8);
+        in.skipBytes(length);
+        return value;
+    }
+
+    /**
+     * Writes an int using 1 to 5 bytes, 7 bits per byte, small non negative values taking a single byte.
+     */
+    static void writeVarInt(int value, ByteBuf out) {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    static int readVarInt(ByteBuf in) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = in.readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    /**
+     * Writes straight into the buffer. Untagged values are written with Java serialization, after their length.
+     */
+    private static final class ByteBufValueWriter extends ValueWriter {
+
+        private final ByteBuf out;
+
+        private ByteBufValueWriter(ByteBuf out) {
+            this.out = out;
+        }
+
+        @Override
+        protected void writeString(String value) {
+            BinaryCodec.writeString(value, out);
+        }
+
+        @Override
+        protected void writeVarInt(int value) {
+            BinaryCodec.writeVarInt(value, out);
+        }
+
+        @Override
+        protected void writeByte(int value) {
+            out.writeByte(value);
+        }
+
+        @Override
+        protected void writeShort(int value) {
+            out.writeShort(value);
+        }
+
+        @Override
+        protected void writeChar(int value) {
+            out.writeChar(value);
+        }
+
+        @Override
+        protected void writeInt(int value) {
+            out.writeInt(value);
+        }
+
+        @Override
+        protected void writeLong(long value) {
+            out.writeLong(value);
+        }
+
+        @Override
+        protected void writeFloat(float value) {
+            out.writeFloat(value);
+        }
+
+        @Override
+        protected void writeDouble(double value) {
+            out.writeDouble(value);
+        }
+
+        @Override
+        protected void writeRaw(byte[] bytes) {
+            out.writeBytes(bytes);
+        }
+
+        @Override
+        protected void writeObject(Object value) throws IOException {
+            writeJava(value, out);
+        }
+    }
+
+    private static final class ByteBufValueReader extends ValueReader {
+
+        private final ByteBuf in;
+
+        private ByteBufValueReader(ByteBuf in) {
+            this.in = in;
+        }
+
+        @Override
+        protected String readString() {
+            return BinaryCodec.readString(in);
+        }
+
+        @Override
+        protected int readVarInt() {
+            return BinaryCodec.readVarInt(in);
+        }
+
+        @Override
+        protected byte readByte() {
+            return in.readByte();
+        }
+
+        @Override
+        protected short readShort() {
+            return in.readShort();
+        }
+
+        @Override
+        protected char readChar() {
+            return in.readChar();
+        }
+
+        @Override
+        protected int readInt() {
+            return in.readInt();
+        }
+
+        @Override
+        protected long readLong() {
+            return in.readLong();
+        }
+
+        @Override
+        protected float readFloat() {
+            return in.readFloat();
+        }
+
+        @Override
+        protected double readDouble() {
+            return in.readDouble();
+        }
+
+        @Override
+        protected byte[] readRaw(int length) {
+            byte[] bytes = new byte[length];
+            in.readBytes(bytes);
+            return bytes;
+        }
+
+        @Override
+        protected Object readObject() throws IOException, ClassNotFoundException {
+            int length = in.readInt();
+            return JavaSerializationCodec.readObject(in.readSlice(length));
+        }
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright Jerry Xiong, BOSSCS
+ * 
+ * The Project licenses this file to you under the Apache License, version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at:
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.bosscs.spark.commons.extractor.client.codecs;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Turns extractor actions and responses into bytes and back. The frame length and the codec id are written by the
+ * Netty encoders, a codec only deals with the message body.
+ */
+public interface ExtractorCodec {
+
+    /**
+     * @return the id written in every frame produced by this codec.
+     */
+    byte getId();
+
+    /**
+     * Writes the given action or response into the buffer.
+     *
+     * @param message the action or response
+     * @param out     the buffer to write to
+     * @throws Exception if the message cannot be encoded
+     */
+    void encode(Object message, ByteBuf out) throws Exception;
+
+    /**
+     * Reads one action or response. The buffer holds exactly one message.
+     *
+     * @param in the message bytes
+     * @return the action or response
+     * @throws Exception if the message cannot be decoded
+     */
+    Object decode(ByteBuf in) throws Exception;
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright Jerry Xiong, BOSSCS
+ * 
+ * The Project licenses this file to you under the Apache License, version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at:
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.bosscs.spark.commons.extractor.client.codecs;
+
+import io.netty.channel.Channel;
+import io.netty.util.Attribute;
+import io.netty.util.AttributeKey;
+
+/**
+ * Registry of the known codecs and of the codec each channel encodes with.
+ */
+public final class ExtractorCodecs {
+
+    public static final ExtractorCodec JAVA = new JavaSerializationCodec();
+
+    public static final ExtractorCodec BINARY = new BinaryCodec();
+
+    /**
+     * Codecs offered in a handshake, most preferred first.
+     */
+    public static final byte[] SUPPORTED = new byte[] { BinaryCodec.ID, JavaSerializationCodec.ID };
+
+    private static final AttributeKey<ExtractorCodec> CODEC = AttributeKey.valueOf("extractor.codec");
+
+    private ExtractorCodecs() {
+    }
+
+    /**
+     * Returns the codec with the given id.
+     *
+     * @param id the codec id
+     * @return the codec
+     * @throws IllegalArgumentException if the id is unknown
+     */
+    public static ExtractorCodec forId(byte id) {
+        switch (id) {
+        case JavaSerializationCodec.ID:
+            return JAVA;
+        case BinaryCodec.ID:
+            return BINARY;
+        default:
+            throw new IllegalArgumentException("Unknown extractor codec " + id);
+        }
+    }
+
+    /**
+     * Picks the first offered codec this side understands.
+     *
+     * @param offered the codec ids offered by the peer, most preferred first
+     * @return the chosen codec, Java serialization if none is known
+     */
+    public static ExtractorCodec negotiate(byte[] offered) {
+        if (offered != null) {
+            for (byte id : offered) {
+                if (id == BinaryCodec.ID || id == JavaSerializationCodec.ID) {
+                    return forId(id);
+                }
+            }
+        }
+        return JAVA;
+    }
+
+    /**
+     * @param channel the channel
+     * @return the codec outgoing messages of the channel are encoded with, Java serialization until a handshake
+     * completes.
+     */
+    public static ExtractorCodec get(Channel channel) {
+        ExtractorCodec codec = channel.attr(CODEC).get();
+        return codec == null ? JAVA : codec;
+    }
+
+    /**
+     * Switches the codec outgoing messages of the channel are encoded with.
+     *
+     * @param channel the channel
+     * @param codec   the codec
+     */
+    public static void set(Channel channel, ExtractorCodec codec) {
+        Attribute<ExtractorCodec> attr = channel.attr(CODEC);
+        attr.set(codec);
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright Jerry Xiong, BOSSCS
+ * 
+ * The Project licenses this file to you under the Apache License, version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at:
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.bosscs.spark.commons.extractor.client.codecs;
+
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.handler.codec.compression.DecompressionException;
+import io.netty.util.AttributeKey;
+
+/**
+ * Compression algorithms of the extractor frames and the algorithm each channel compresses with. A compressed frame
+ * has the high bit of its codec id set and its body is [byte algorithm][int raw length][compressed bytes].
+ */
+public final class FrameCompression {
+
+    public static final byte NONE = 0;
+
+    /**
+     * Fast LZ77 compression, see {@link LzCompressor}.
+     */
+    public static final byte LZ = 1;
+
+    /**
+     * java.util.zip deflate: slower but smaller than {@link #LZ}.
+     */
+    public static final byte DEFLATE = 2;
+
+    /**
+     * Algorithms offered in a handshake, most preferred first.
+     */
+    public static final byte[] SUPPORTED = new byte[] { LZ, DEFLATE };
+
+    /**
+     * Set on the codec id of a compressed frame.
+     */
+    public static final int COMPRESSED_FLAG = 0x80;
+
+    private static final AttributeKey<Byte> ALGORITHM = AttributeKey.valueOf("extractor.compression");
+
+    private FrameCompression() {
+    }
+
+    /**
+     * Picks the first offered algorithm this side understands.
+     *
+     * @param offered the algorithms offered by the peer, most preferred first
+     * @return the chosen algorithm, {@link #NONE} if none is known
+     */
+    public static byte negotiate(byte[] offered) {
+        if (offered != null) {
+            for (byte algorithm : offered) {
+                if (algorithm == LZ || algorithm == DEFLATE) {
+                    return algorithm;
+                }
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * @param channel the channel
+     * @return the algorithm outgoing frames of the channel are compressed with, {@link #NONE} until a handshake
+     * enables compression.
+     */
+    public static byte get(Channel channel) {
+        Byte algorithm = channel.attr(ALGORITHM).get();
+        return algorithm == null ? NONE : algorithm;
+    }
+
+    /**
+     * Switches the algorithm outgoing frames of the channel are compressed with.
+     *
+     * @param channel   the channel
+     * @param algorithm the algorithm
+     */
+    public static void set(Channel channel, byte algorithm) {
+        channel.attr(ALGORITHM).set(algorithm);
+    }
+
+    /**
+     * Compresses {@code length} bytes of {@code raw} from {@code offset} into {@code out}.
+     */
+    static void compress(byte algorithm, byte[] raw, int offset, int length, ByteBuf out) {
+        switch (algorithm) {
+        case LZ:
+            LzCompressor.compress(raw, offset, length, out);
+            break;
+        case DEFLATE:
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            try {
+                deflater.setInput(raw, offset, length);
+                deflater.finish();
+                // java.util.zip only writes to arrays, and out is usually a direct buffer
+                byte[] chunk = new byte[8192];
+                while (!deflater.finished()) {
+                    int n = deflater.deflate(chunk);
+                    out.writeBytes(chunk, 0, n);
+                }
+            } finally {
+                deflater.end();
+            }
+            break;
+        default:
+            throw new IllegalArgumentException("Unknown compression algorithm " + algorithm);
+        }
+    }
+
+    /**
+     * Decompresses a whole compressed body into {@code out}, which must be a heap buffer: the raw bytes are written
+     * straight to its backing array.
+     *
+     * @param algorithm the algorithm
+     * @param in        the compressed bytes, fully consumed
+     * @param rawLength the length of the raw bytes, already checked against the frame length limit
+     * @param out       the heap buffer to append the raw bytes to
+     */
+    static void decompress(byte algorithm, ByteBuf in, int rawLength, ByteBuf out) {
+        out.ensureWritable(rawLength);
+        byte[] raw = out.array();
+        int offset = out.arrayOffset() + out.writerIndex();
+        switch (algorithm) {
+        case LZ:
+            LzCompressor.decompress(in, raw, offset, rawLength);
+            break;
+        case DEFLATE:
+            Inflater inflater = new Inflater();
+            try {
+                if (in.hasArray()) {
+                    inflater.setInput(in.array(), in.arrayOffset() + in.readerIndex(), in.readableBytes());
+                } else {
+                    byte[] compressed = new byte[in.readableBytes()];
+                    in.getBytes(in.readerIndex(), compressed);
+                    inflater.setInput(compressed);
+                }
+                in.skipBytes(in.readableBytes());
+                int n = inflater.inflate(raw, offset, rawLength);
+                if (n != rawLength || !inflater.finished()) {
+                    throw new DecompressionException("Inflated " + n + " bytes, expected " + rawLength);
+                }
+            } catch (DataFormatException e) {
+                throw new DecompressionException(e);
+            } finally {
+                inflater.end();
+            }
+            break;
+        default:
+            throw new DecompressionException("Unknown compression algorithm " + algorithm);
+        }
+        out.writerIndex(out.writerIndex() + rawLength);
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright Jerry Xiong, BOSSCS
+ * 
+ * The Project licenses this file to you under the Apache License, version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at:
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.bosscs.spark.commons.extractor.client.codecs;
+
+import java.util.List;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.MessageToMessageEncoder;
+
+/**
+ * Compresses the encoded frames bigger than a threshold with the algorithm negotiated for the channel. Small frames,
+ * and frames that do not shrink, are sent as they are.
+ */
+public class FrameCompressor extends MessageToMessageEncoder<ByteBuf> {
+
+    private final int threshold;
+
+    /**
+     * @param threshold frame size in bytes from which frames are compressed
+     */
+    public FrameCompressor(int threshold) {
+        this.threshold = threshold;
+    }
+
+    @Override
+    protected void encode(ChannelHandlerContext ctx, ByteBuf frame, List<Object> out) throws Exception {
+
+        byte algorithm = FrameCompression.get(ctx.channel());
+        int bodyLength = frame.readableBytes() - 5;
+
+        if (algorithm == FrameCompression.NONE || bodyLength < threshold) {
+            out.add(frame.retain());
+            return;
+        }
+
+        int start = frame.readerIndex();
+        byte codecId = frame.getByte(start + 4);
+
+        // the compressors read arrays: heap frames are read in place, direct ones through a pooled heap copy
+        ByteBuf heapFrame = null;
+        byte[] raw;
+        int rawOffset;
+        if (frame.hasArray()) {
+            raw = frame.array();
+            rawOffset = frame.arrayOffset() + start + 5;
+        } else {
+            heapFrame = ctx.alloc().heapBuffer(bodyLength);
+            frame.getBytes(start + 5, heapFrame, bodyLength);
+            raw = heapFrame.array();
+            rawOffset = heapFrame.arrayOffset();
+        }
+
+        ByteBuf compressed = ctx.alloc().buffer(bodyLength / 2 + 16);
+        try {
+            compressed.writeInt(0);
+            compressed.writeByte(codecId | FrameCompression.COMPRESSED_FLAG);
+            compressed.writeByte(algorithm);
+            compressed.writeInt(bodyLength);
+            FrameCompression.compress(algorithm, raw, rawOffset, bodyLength, compressed);
+        } catch (RuntimeException e) {
+            compressed.release();
+            throw e;
+        } finally {
+            if (heapFrame != null) {
+                heapFrame.release();
+            }
+        }
+
+        if (compressed.readableBytes() >= frame.readableBytes()) {
+            compressed.release();
+            out.add(frame.retain());
+            return;
+        }
+
+        compressed.setInt(0, compressed.readableBytes() - 4);
+        out.add(compressed);
+    }
+}
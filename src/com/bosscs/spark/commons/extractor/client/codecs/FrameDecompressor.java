@@ -0,0 +1,72 @@
+/*
+ * Copyright Jerry Xiong, BOSSCS
+ * 
+ * The Project licenses this file to you under the Apache License, version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at:
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.bosscs.spark.commons.extractor.client.codecs;
+
+import java.util.List;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.MessageToMessageDecoder;
+import io.netty.handler.codec.TooLongFrameException;
+
+/**
+ * Inflates the compressed frames coming out of {@link ExtractorFrameDecoder} back to plain [byte codec id][body]
+ * frames for the action and response decoders, in pooled heap buffers. Plain frames go through untouched.
+ */
+public class FrameDecompressor extends MessageToMessageDecoder<ByteBuf> {
+
+    private final int maxFrameLength;
+
+    public FrameDecompressor() {
+        this(ExtractorFrameDecoder.DEFAULT_MAX_FRAME_LENGTH);
+    }
+
+    /**
+     * @param maxFrameLength the frame length limit of the {@link ExtractorFrameDecoder}, which decompressed frames are
+     *                       held to as well
+     */
+    public FrameDecompressor(int maxFrameLength) {
+        this.maxFrameLength = maxFrameLength;
+    }
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, ByteBuf frame, List<Object> out) throws Exception {
+
+        byte codecId = frame.getByte(frame.readerIndex());
+        if ((codecId & FrameCompression.COMPRESSED_FLAG) == 0) {
+            out.add(frame.retain());
+            return;
+        }
+
+        frame.skipBytes(1);
+        byte algorithm = frame.readByte();
+        int rawLength = frame.readInt();
+        // checked before allocating anything: the length comes straight from the peer
+        if (rawLength < 0 || rawLength > maxFrameLength) {
+            throw new TooLongFrameException("Decompressed frame length " + rawLength + " out of range, limit "
+                    + maxFrameLength);
+        }
+
+        ByteBuf decompressed = ctx.alloc().heapBuffer(rawLength + 1);
+        try {
+            decompressed.writeByte(codecId & ~FrameCompression.COMPRESSED_FLAG);
+            FrameCompression.decompress(algorithm, frame, rawLength, decompressed);
+        } catch (RuntimeException e) {
+            decompressed.release();
+            throw e;
+        }
+        out.add(decompressed);
+    }
+}
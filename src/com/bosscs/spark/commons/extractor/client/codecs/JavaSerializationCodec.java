@@ -0,0 +1,80 @@
+/*
+ * Copyright Jerry Xiong, BOSSCS
+ * 
+ * The Project licenses this file to you under the Apache License, version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at:
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.bosscs.spark.commons.extractor.client.codecs;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+
+/**
+ * Java serialization, the original wire format. Used for the handshake and by peers that do not understand any
+ * other codec.
+ */
+public class JavaSerializationCodec implements ExtractorCodec {
+
+    public static final byte ID = 0;
+
+    @Override
+    public byte getId() {
+        return ID;
+    }
+
+    @Override
+    public void encode(Object message, ByteBuf out) throws IOException {
+        writeObject(message, out);
+    }
+
+    @Override
+    public Object decode(ByteBuf in) throws IOException, ClassNotFoundException {
+        return readObject(in);
+    }
+
+    /**
+     * Serializes an object straight into the buffer, without an intermediate byte array.
+     *
+     * @param object the object
+     * @param out    the buffer to write to
+     * @throws IOException if the object is not serializable
+     */
+    static void writeObject(Object object, ByteBuf out) throws IOException {
+        ObjectOutputStream outObj = new ObjectOutputStream(new ByteBufOutputStream(out));
+        try {
+            outObj.writeObject(object);
+        } finally {
+            outObj.close();
+        }
+    }
+
+    /**
+     * Deserializes an object from the readable bytes of the buffer.
+     *
+     * @param in the buffer
+     * @return the object
+     * @throws IOException            if the bytes are not a serialized object
+     * @throws ClassNotFoundException if the class of the object is unknown
+     */
+    static Object readObject(ByteBuf in) throws IOException, ClassNotFoundException {
+        ObjectInputStream inObj = new ObjectInputStream(new ByteBufInputStream(in));
+        try {
+            return inObj.readObject();
+        } finally {
+            inObj.close();
+        }
+    }
+}
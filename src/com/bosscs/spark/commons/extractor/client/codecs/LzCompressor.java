@@ -0,0 +1,170 @@
+/*
+ * Copyright Jerry Xiong, BOSSCS
+ * 
+ * The Project licenses this file to you under the Apache License, version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at:
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.bosscs.spark.commons.extractor.client.codecs;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.compression.DecompressionException;
+
+/**
+ * Pure Java LZ77 block compressor in the spirit of LZ4: a single pass with a hash table of 4 byte sequences,
+ * emitting [token][literals][2 byte offset][match length] sequences. It trades ratio for speed, which suits the
+ * repeated field names and values of record batches.
+ */
+final class LzCompressor {
+
+    private static final int MIN_MATCH = 4;
+
+    /**
+     * The last bytes of a block are always literals, so a match never runs past the end of the input.
+     */
+    private static final int LAST_LITERALS = 5;
+
+    private static final int MAX_OFFSET = 0xFFFF;
+
+    private static final int HASH_LOG = 12;
+
+    private LzCompressor() {
+    }
+
+    /**
+     * Compresses {@code length} bytes of {@code src} from {@code offset} into {@code out}.
+     *
+     * @param src    the raw bytes
+     * @param offset index of the first byte to compress
+     * @param length number of bytes to compress
+     * @param out    the buffer to write to
+     */
+    static void compress(byte[] src, int offset, int length, ByteBuf out) {
+        int[] table = new int[1 << HASH_LOG];
+        int limit = offset + length - LAST_LITERALS;
+        int anchor = offset;
+        int i = offset;
+
+        while (i + MIN_MATCH <= limit) {
+            int sequence = readInt(src, i);
+            int hash = (sequence * -1640531535) >>> (32 - HASH_LOG);
+            // positions are stored plus one so the zeroed table means "empty"
+            int ref = table[hash] - 1;
+            table[hash] = i + 1;
+
+            if (ref < offset || i - ref > MAX_OFFSET || readInt(src, ref) != sequence) {
+                i++;
+                continue;
+            }
+
+            int matchLength = MIN_MATCH;
+            while (i + matchLength < limit && src[ref + matchLength] == src[i + matchLength]) {
+                matchLength++;
+            }
+
+            writeLiterals(src, anchor, i - anchor, Math.min(matchLength - MIN_MATCH, 15), out);
+            out.writeByte(i - ref);
+            out.writeByte((i - ref) >>> 8);
+            if (matchLength - MIN_MATCH >= 15) {
+                writeLength(matchLength - MIN_MATCH - 15, out);
+            }
+
+            i += matchLength;
+            anchor = i;
+        }
+
+        // last sequence: literals only
+        writeLiterals(src, anchor, offset + length - anchor, 0, out);
+    }
+
+    /**
+     * Decompresses a whole block.
+     *
+     * @param in        the compressed block, fully consumed
+     * @param dst       the array to write the raw bytes to
+     * @param offset    index of {@code dst} the raw bytes start at
+     * @param rawLength the length of the raw bytes
+     */
+    static void decompress(ByteBuf in, byte[] dst, int offset, int rawLength) {
+        int end = offset + rawLength;
+        int pos = offset;
+
+        while (true) {
+            int token = in.readUnsignedByte();
+
+            int literals = token >>> 4;
+            if (literals == 15) {
+                literals += readLength(in);
+            }
+            if (pos + literals > end) {
+                throw new DecompressionException("Compressed block larger than announced " + rawLength + " bytes");
+            }
+            in.readBytes(dst, pos, literals);
+            pos += literals;
+
+            if (!in.isReadable()) {
+                break;
+            }
+
+            int distance = in.readUnsignedByte() | (in.readUnsignedByte() << 8);
+            int matchLength = token & 0x0F;
+            if (matchLength == 15) {
+                matchLength += readLength(in);
+            }
+            matchLength += MIN_MATCH;
+
+            int ref = pos - distance;
+            if (distance == 0 || ref < offset || pos + matchLength > end) {
+                throw new DecompressionException("Corrupt compressed block at offset " + (pos - offset));
+            }
+            // byte by byte: the match may overlap the bytes it produces
+            for (int i = 0; i < matchLength; i++) {
+                dst[pos++] = dst[ref++];
+            }
+        }
+
+        if (pos != end) {
+            throw new DecompressionException("Decompressed " + (pos - offset) + " bytes, expected " + rawLength);
+        }
+    }
+
+    /**
+     * Writes the token of a sequence followed by its literals.
+     */
+    private static void writeLiterals(byte[] src, int start, int literals, int matchNibble, ByteBuf out) {
+        out.writeByte(Math.min(literals, 15) << 4 | matchNibble);
+        if (literals >= 15) {
+            writeLength(literals - 15, out);
+        }
+        out.writeBytes(src, start, literals);
+    }
+
+    private static void writeLength(int length, ByteBuf out) {
+        while (length >= 255) {
+            out.writeByte(255);
+            length -= 255;
+        }
+        out.writeByte(length);
+    }
+
+    private static int readLength(ByteBuf in) {
+        int length = 0;
+        int b;
+        do {
+            b = in.readUnsignedByte();
+            length += b;
+        } while (b == 255);
+        return length;
+    }
+
+    private static int readInt(byte[] src, int i) {
+        return (src[i] & 0xFF) | (src[i + 1] & 0xFF) << 8 | (src[i + 2] & 0xFF) << 16 | (src[i + 3] & 0xFF) << 24;
+    }
+}
@@ -14,59 +14,29 @@
  */
 package com.bosscs.spark.commons.extractor.client.codecs;
 
-import java.io.ByteArrayInputStream;
-import java.io.IOException;
-import java.io.ObjectInput;
-import java.io.ObjectInputStream;
 import java.util.List;
 
-import com.bosscs.spark.commons.extractor.response.Response;
+import com.bosscs.spark.commons.extractor.response.HandshakeResponse;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
-import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.handler.codec.MessageToMessageDecoder;
 
-public class ResponseDecoder extends ByteToMessageDecoder {
-
-    protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) {
-
-        // Wait until the length prefix is available.
-        if (in.readableBytes() < 5) {
-            return;
-        }
+/**
+ * Decodes the [byte codec id][body] frames produced by {@link ExtractorFrameDecoder} into responses. A handshake
+ * response switches the codec and compression the client encodes its next actions with.
+ */
+public class ResponseDecoder extends MessageToMessageDecoder<ByteBuf> {
 
-        // Wait until the whole data is available.
-        int dataLength = in.readInt();
-        if (in.readableBytes() < dataLength) {
-            in.resetReaderIndex();
-            return;
-        }
+    protected void decode(ChannelHandlerContext ctx, ByteBuf frame, List<Object> out) throws Exception {
 
-        // Convert the received data into a new BigInteger.
-        byte[] decoded = new byte[dataLength];
-        in.readBytes(decoded);
+        ExtractorCodec codec = ExtractorCodecs.forId(frame.readByte());
+        Object response = codec.decode(frame);
 
-        ByteArrayInputStream bis = new ByteArrayInputStream(decoded);
-        ObjectInput inObj = null;
-        Response response = null;
-        try {
-            inObj = new ObjectInputStream(bis);
-            response = (Response) inObj.readObject();
-        } catch (IOException | ClassNotFoundException e) {
-            e.printStackTrace();
-        } finally {
-            try {
-                bis.close();
-            } catch (IOException ex) {
-                // ignore close exception
-            }
-            try {
-                if (inObj != null) {
-                    inObj.close();
-                }
-            } catch (IOException ex) {
-                // ignore close exception
-            }
+        if (response instanceof HandshakeResponse) {
+            HandshakeResponse handshake = (HandshakeResponse) response;
+            ExtractorCodecs.set(ctx.channel(), ExtractorCodecs.forId(handshake.getCodecId()));
+            FrameCompression.set(ctx.channel(), handshake.getCompression());
         }
 
         out.add(response);
@@ -14,52 +14,47 @@
  */
 package com.bosscs.spark.commons.extractor.client.codecs;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.io.ObjectOutput;
-import java.io.ObjectOutputStream;
-
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
+import com.bosscs.spark.commons.extractor.response.HandshakeResponse;
 import com.bosscs.spark.commons.extractor.response.Response;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToByteEncoder;
 
+/**
+ * Writes a response as [int length][byte codec id][body] using the codec negotiated for the channel. The handshake
+ * response itself still goes out with the previous codec; the channel switches right after it.
+ */
 public class ResponseEncoder extends MessageToByteEncoder<Response> {
 
-    private static final Logger LOG = LoggerFactory.getLogger(ResponseEncoder.class);
+    protected void encode(ChannelHandlerContext ctx, Response response, ByteBuf out) throws Exception {
 
-    protected void encode(ChannelHandlerContext ctx, Response response, ByteBuf out) {
+        encodeFrame(ctx.channel(), response, out);
 
-        ByteArrayOutputStream bos = new ByteArrayOutputStream();
-        ObjectOutput outObj = null;
-
-        try {
-            outObj = new ObjectOutputStream(bos);
-            outObj.writeObject(response);
-        } catch (IOException e) {
-            LOG.error(e.getMessage());
-        } finally {
-            try {
-                if (outObj != null) {
-                    outObj.close();
-                }
-            } catch (IOException ex) {
-                // ignore close exception
-            }
-            try {
-                bos.close();
-            } catch (IOException ex) {
-                // ignore close exception
-            }
+        if (response instanceof HandshakeResponse) {
+            HandshakeResponse handshake = (HandshakeResponse) response;
+            ExtractorCodecs.set(ctx.channel(), ExtractorCodecs.forId(handshake.getCodecId()));
+            FrameCompression.set(ctx.channel(), handshake.getCompression());
         }
+    }
 
-        byte[] encodedObj = bos.toByteArray();
-        int dataLength = encodedObj.length;
-        out.writeInt(dataLength);
-        out.writeBytes(encodedObj);
+    /**
+     * Writes the frame of a response with the codec of the channel. Also called outside of the pipeline, by handlers
+     * encoding a response before they write it.
+     *
+     * @param channel  the channel the response is for
+     * @param response the response
+     * @param out      the buffer to write to
+     * @throws Exception if the codec fails
+     */
+    public static void encodeFrame(Channel channel, Response response, ByteBuf out) throws Exception {
+        ExtractorCodec codec = ExtractorCodecs.get(channel);
+
+        int lengthIndex = out.writerIndex();
+        out.writeInt(0);
+        out.writeByte(codec.getId());
+        codec.encode(response, out);
+        out.setInt(lengthIndex, out.writerIndex() - lengthIndex - 4);
     }
 }
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2016, Jerry Xiong, BOSSCS
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bosscs.spark.commons.extractor.impl;
+
+import com.bosscs.spark.commons.rdd.IBatchExtractor;
+import com.bosscs.spark.commons.rdd.IExtractor;
+import com.bosscs.spark.commons.rdd.RecordBatch;
+
+/**
+ * Gives the batch API to extractors that only iterate record by record.
+ *
+ * @param <T> the record type
+ */
+public class BatchExtractorAdapter<T> implements IBatchExtractor<T> {
+
+    private final IExtractor<T, ?> extractor;
+
+    private final RecordBatch<T> batch = new RecordBatch<>(64);
+
+    public BatchExtractorAdapter(IExtractor<T, ?> extractor) {
+        this.extractor = extractor;
+    }
+
+    /**
+     * @param extractor the extractor
+     * @return the extractor itself if it reads batches natively, an adapter otherwise
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> IBatchExtractor<T> of(IExtractor<T, ?> extractor) {
+        if (extractor instanceof IBatchExtractor) {
+            return (IBatchExtractor<T>) extractor;
+        }
+        return new BatchExtractorAdapter<>(extractor);
+    }
+
+    @Override
+    public RecordBatch<T> nextBatch(int max) {
+        batch.clear();
+        while (batch.size() < max && extractor.hasNext()) {
+            batch.add(extractor.next());
+        }
+        return batch;
+    }
+}
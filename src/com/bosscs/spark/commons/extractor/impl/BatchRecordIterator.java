@@ -0,0 +1,81 @@
+/*
+ * Copyright 2016, Jerry Xiong, BOSSCS
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bosscs.spark.commons.extractor.impl;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.bosscs.spark.commons.rdd.IBatchExtractor;
+import com.bosscs.spark.commons.rdd.IExtractor;
+import com.bosscs.spark.commons.rdd.RecordBatch;
+import com.bosscs.spark.commons.utils.Constants;
+
+/**
+ * Iterator over the partition opened on an extractor, for the compute of an RDD reading its extractor in process.
+ * Records are read a batch at a time, through {@link IBatchExtractor#nextBatch(int)} for extractors reading batches
+ * natively, so a page costs one call into the extractor rather than a hasNext/next pair per record. Records are
+ * handed out straight from the extractor batch, which is only refilled once they have all been returned.
+ *
+ * @param <T> the record type
+ */
+public class BatchRecordIterator<T> implements Iterator<T> {
+
+    private final IBatchExtractor<T> source;
+
+    private final int batchSize;
+
+    private RecordBatch<T> batch;
+
+    private int index;
+
+    private boolean exhausted;
+
+    /**
+     * @param extractor the extractor, its iterator already opened
+     * @param batchSize the number of records read per call, the default page size if 0 or less
+     */
+    public BatchRecordIterator(IExtractor<T, ?> extractor, int batchSize) {
+        this.source = BatchExtractorAdapter.of(extractor);
+        this.batchSize = batchSize > 0 ? batchSize : Constants.DEFAULT_PAGE_SIZE;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (batch == null || index >= batch.size()) {
+            if (exhausted) {
+                return false;
+            }
+            batch = source.nextBatch(batchSize);
+            index = 0;
+            exhausted = batch.isEmpty();
+        }
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!this.hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return batch.get(index++);
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,339 @@
+/*
+ * Copyright 2016, Jerry Xiong, BOSSCS
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bosscs.spark.commons.extractor.impl;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.spark.Partition;
+
+import com.bosscs.spark.commons.config.BaseConfig;
+import com.bosscs.spark.commons.config.ExtractorConfig;
+import com.bosscs.spark.commons.exception.GenericException;
+import com.bosscs.spark.commons.extractor.utils.ExtractorConstants;
+import com.bosscs.spark.commons.querybuilder.UpdateQueryBuilder;
+import com.bosscs.spark.commons.rdd.IBatchExtractor;
+import com.bosscs.spark.commons.rdd.ICellsBatchExtractor;
+import com.bosscs.spark.commons.rdd.IExtractor;
+import com.bosscs.spark.commons.rdd.IIncrementalPartitioner;
+import com.bosscs.spark.commons.rdd.RecordBatch;
+import com.bosscs.spark.commons.utils.Constants;
+
+/**
+ * Decorator running the iteration of another extractor on a background thread. Batches of records are read ahead
+ * into a bounded buffer, so the database round trips and the conversion of the records (BSON to Cells, result set
+ * to entity) of the next batch overlap with the caller processing the current one. The wrapped extractor is only
+ * touched by one thread at a time: the reader while iterating, the caller otherwise.
+ * <p>
+ * Only the iteration is decorated. Checks for the optional capabilities of the wrapped extractor that do not read
+ * from its iterator, such as {@link IIncrementalPartitioner}, go through {@link #unwrap}. {@link ICellsBatchExtractor}
+ * is deliberately not forwarded: while prefetching, the iterator belongs to the reader thread.
+ * <p>
+ * Enabled by setting {@link ExtractorConstants#PREFETCH_DEPTH} in the extractor config.
+ *
+ * @param <T> the record type
+ * @param <S> the config type
+ */
+public class PrefetchingExtractor<T, S extends BaseConfig<?, ?>> implements IExtractor<T, S>, IBatchExtractor<T> {
+
+    private static final long serialVersionUID = -1306645474214406329L;
+
+    /**
+     * Runs the readers of every prefetching extractor, on daemon threads created on demand.
+     */
+    private static final ExecutorService READERS = Executors.newCachedThreadPool(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "extractor-prefetch");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    /**
+     * Queued after the last batch.
+     */
+    private static final Object END = new Object();
+
+    private final IExtractor<T, S> delegate;
+
+    private final int depth;
+
+    private final int batchSize;
+
+    private transient BlockingQueue<Object> buffer;
+
+    private transient Iterator<T> current;
+
+    private transient boolean finished;
+
+    private transient volatile boolean cancelled;
+
+    private transient Future<?> reader;
+
+    private transient CountDownLatch readerDone;
+
+    private transient RecordBatch<T> batch;
+
+    /**
+     * @param delegate  the extractor to read ahead from
+     * @param depth     number of batches buffered ahead of the caller
+     * @param batchSize number of records per batch
+     */
+    public PrefetchingExtractor(IExtractor<T, S> delegate, int depth, int batchSize) {
+        this.delegate = delegate;
+        this.depth = Math.max(depth, 1);
+        this.batchSize = Math.max(batchSize, 1);
+    }
+
+    /**
+     * Wraps the extractor if the config asks for prefetching.
+     *
+     * @param extractor the extractor
+     * @param config    its config
+     * @return the extractor itself, or its prefetching decorator
+     */
+    public static <T, S extends BaseConfig<?, ?>> IExtractor<T, S> wrap(IExtractor<T, S> extractor, S config) {
+        if (!(config instanceof ExtractorConfig) || extractor instanceof PrefetchingExtractor) {
+            return extractor;
+        }
+
+        ExtractorConfig<?> extractorConfig = (ExtractorConfig<?>) config;
+        Integer depth = extractorConfig.getInteger(ExtractorConstants.PREFETCH_DEPTH);
+        if (depth == null || depth <= 0) {
+            return extractor;
+        }
+        Integer batchSize = extractorConfig.getInteger(ExtractorConstants.PREFETCH_BATCH_SIZE);
+        return new PrefetchingExtractor<>(extractor, depth,
+                batchSize != null ? batchSize : Constants.DEFAULT_PAGE_SIZE);
+    }
+
+    /**
+     * Returns the wrapped extractor of a prefetching decorator, or the extractor itself.
+     *
+     * @param extractor the extractor, maybe wrapped by {@link #wrap}
+     * @return the extractor doing the work
+     */
+    public static <T, S extends BaseConfig<?, ?>> IExtractor<T, S> unwrap(IExtractor<T, S> extractor) {
+        if (extractor instanceof PrefetchingExtractor) {
+            return ((PrefetchingExtractor<T, S>) extractor).getDelegate();
+        }
+        return extractor;
+    }
+
+    @Override
+    public Partition[] getPartitions(S config) {
+        return delegate.getPartitions(config);
+    }
+
+    /**
+     * Opens the iterator of the wrapped extractor in the caller thread, so opening errors surface here, and starts
+     * reading ahead.
+     */
+    @Override
+    public void initIterator(Partition dp, S config) {
+        this.stopReader();
+        delegate.initIterator(dp, config);
+
+        final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(depth);
+        final CountDownLatch done = new CountDownLatch(1);
+        buffer = queue;
+        readerDone = done;
+        current = Collections.<T>emptyList().iterator();
+        finished = false;
+        cancelled = false;
+
+        reader = READERS.submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    readAhead(queue);
+                } finally {
+                    done.countDown();
+                }
+            }
+        });
+    }
+
+    private void readAhead(BlockingQueue<Object> queue) {
+        try {
+            IBatchExtractor<T> source = BatchExtractorAdapter.of(delegate);
+            RecordBatch<T> read = source.nextBatch(batchSize);
+            while (!read.isEmpty()) {
+                if (!publish(queue, read.toList())) {
+                    return;
+                }
+                read = source.nextBatch(batchSize);
+            }
+            publish(queue, END);
+        } catch (Throwable t) {
+            publish(queue, new Failure(t));
+        }
+    }
+
+    /**
+     * Waits for room in the buffer. The reader is never interrupted: the JDBC and Mongo drivers drop their connection
+     * when a thread is interrupted in the middle of a read, so it polls the cancel flag instead.
+     *
+     * @return false if the caller stopped reading
+     */
+    private boolean publish(BlockingQueue<Object> queue, Object item) {
+        try {
+            while (!cancelled) {
+                if (queue.offer(item, 100, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean hasNext() {
+        if (buffer == null) {
+            return false;
+        }
+
+        while (!current.hasNext()) {
+            if (finished) {
+                return false;
+            }
+
+            Object next;
+            try {
+                next = buffer.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new GenericException(e);
+            }
+
+            if (next == END) {
+                finished = true;
+            } else if (next instanceof Failure) {
+                finished = true;
+                Throwable cause = ((Failure) next).cause;
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new GenericException(cause);
+            } else {
+                current = ((List<T>) next).iterator();
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!this.hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return current.next();
+    }
+
+    @Override
+    public RecordBatch<T> nextBatch(int max) {
+        if (batch == null) {
+            batch = new RecordBatch<>(max);
+        }
+        batch.clear();
+        while (batch.size() < max && this.hasNext()) {
+            batch.add(current.next());
+        }
+        return batch;
+    }
+
+    /**
+     * Stops reading ahead, waiting for the batch being fetched to end, then closes the wrapped extractor.
+     */
+    @Override
+    public void close() {
+        this.stopReader();
+        delegate.close();
+    }
+
+    private void stopReader() {
+        if (reader == null) {
+            return;
+        }
+
+        cancelled = true;
+        buffer.clear();
+        boolean interrupted = false;
+        while (true) {
+            try {
+                readerDone.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        reader = null;
+        buffer = null;
+        current = null;
+    }
+
+    @Override
+    public void saveRDD(T t) {
+        delegate.saveRDD(t);
+    }
+
+    @Override
+    public List<String> getPreferredLocations(Partition split) {
+        return delegate.getPreferredLocations(split);
+    }
+
+    @Override
+    public void initSave(S config, T first, UpdateQueryBuilder queryBuilder) {
+        delegate.initSave(config, first, queryBuilder);
+    }
+
+    public IExtractor<T, S> getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * Queued by the reader when the wrapped extractor fails.
+     */
+    private static final class Failure {
+
+        private final Throwable cause;
+
+        private Failure(Throwable cause) {
+            this.cause = cause;
+        }
+    }
+}
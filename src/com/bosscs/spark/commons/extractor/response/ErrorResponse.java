@@ -0,0 +1,42 @@
+/**
+ *
+ */
+package com.bosscs.spark.commons.extractor.response;
+
+import com.bosscs.spark.commons.extractor.actions.ActionType;
+
+/**
+ * Answers an action that failed on the server. Only the stream of the action is affected: its session is closed and
+ * the other streams of the connection carry on.
+ *
+ * @author Jerry Xiong
+ */
+public class ErrorResponse extends Response {
+
+    private static final long serialVersionUID = 3877036151726342291L;
+
+    /**
+     * The type of the action that failed.
+     */
+    private ActionType failedAction;
+
+    private String message;
+
+    public ErrorResponse() {
+        super();
+    }
+
+    public ErrorResponse(ActionType failedAction, String message) {
+        super(ActionType.ERROR);
+        this.failedAction = failedAction;
+        this.message = message;
+    }
+
+    public ActionType getFailedAction() {
+        return failedAction;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,39 @@
+/**
+ *
+ */
+package com.bosscs.spark.commons.extractor.response;
+
+import com.bosscs.spark.commons.extractor.actions.ActionType;
+
+/**
+ * Tells the client which codec and compression algorithm the server picked. Every frame after this one uses them in
+ * both directions.
+ *
+ * @author Jerry Xiong
+ */
+public class HandshakeResponse extends Response {
+
+    private static final long serialVersionUID = 3300126398176409573L;
+
+    private byte codecId;
+
+    private byte compression;
+
+    public HandshakeResponse() {
+        super();
+    }
+
+    public HandshakeResponse(byte codecId, byte compression) {
+        super(ActionType.HANDSHAKE);
+        this.codecId = codecId;
+        this.compression = compression;
+    }
+
+    public byte getCodecId() {
+        return codecId;
+    }
+
+    public byte getCompression() {
+        return compression;
+    }
+}
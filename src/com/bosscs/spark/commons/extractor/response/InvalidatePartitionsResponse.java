@@ -0,0 +1,31 @@
+/**
+ *
+ */
+package com.bosscs.spark.commons.extractor.response;
+
+import com.bosscs.spark.commons.extractor.actions.ActionType;
+
+/**
+ * Acknowledges an invalidation with the number of cached plans dropped.
+ *
+ * @author Jerry Xiong
+ */
+public class InvalidatePartitionsResponse extends Response {
+
+    private static final long serialVersionUID = -5061583472094315187L;
+
+    private int invalidated;
+
+    public InvalidatePartitionsResponse() {
+        super();
+    }
+
+    public InvalidatePartitionsResponse(int invalidated) {
+        super(ActionType.INVALIDATE_PARTITIONS);
+        this.invalidated = invalidated;
+    }
+
+    public int getInvalidated() {
+        return invalidated;
+    }
+}
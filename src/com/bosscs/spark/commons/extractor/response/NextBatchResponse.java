@@ -0,0 +1,40 @@
+/**
+ *
+ */
+package com.bosscs.spark.commons.extractor.response;
+
+import java.util.List;
+
+import com.bosscs.spark.commons.extractor.actions.ActionType;
+
+/**
+ * A page of records plus a flag telling whether the iterator is exhausted.
+ *
+ * @author Jerry Xiong
+ */
+public class NextBatchResponse<T> extends Response {
+
+    private static final long serialVersionUID = -5014870126946359124L;
+
+    private List<T> data;
+
+    private boolean endOfStream;
+
+    public NextBatchResponse() {
+        super();
+    }
+
+    public NextBatchResponse(List<T> data, boolean endOfStream) {
+        super(ActionType.NEXT_BATCH);
+        this.data = data;
+        this.endOfStream = endOfStream;
+    }
+
+    public List<T> getData() {
+        return data;
+    }
+
+    public boolean isEndOfStream() {
+        return endOfStream;
+    }
+}
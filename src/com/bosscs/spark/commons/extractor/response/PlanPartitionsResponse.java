@@ -0,0 +1,41 @@
+/**
+ *
+ */
+package com.bosscs.spark.commons.extractor.response;
+
+import org.apache.spark.Partition;
+
+import com.bosscs.spark.commons.extractor.actions.ActionType;
+
+/**
+ * A chunk of partitions pushed by the server while planning. The last chunk of the plan has {@code last} set and
+ * may be empty.
+ *
+ * @author Jerry Xiong
+ */
+public class PlanPartitionsResponse extends Response {
+
+    private static final long serialVersionUID = 1865021587349126604L;
+
+    private Partition[] partitions;
+
+    private boolean last;
+
+    public PlanPartitionsResponse() {
+        super();
+    }
+
+    public PlanPartitionsResponse(Partition[] partitions, boolean last) {
+        super(ActionType.PLAN_PARTITIONS);
+        this.partitions = partitions;
+        this.last = last;
+    }
+
+    public Partition[] getPartitions() {
+        return partitions;
+    }
+
+    public boolean isLast() {
+        return last;
+    }
+}
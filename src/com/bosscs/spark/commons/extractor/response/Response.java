@@ -16,6 +16,11 @@ public abstract class Response implements Serializable {
 
     protected ActionType type;
 
+    /**
+     * The session of the action this response answers.
+     */
+    protected int streamId;
+
     protected Response() {
         super();
     }
@@ -28,4 +33,12 @@ public abstract class Response implements Serializable {
     public ActionType getType() {
         return type;
     }
+
+    public int getStreamId() {
+        return streamId;
+    }
+
+    public void setStreamId(int streamId) {
+        this.streamId = streamId;
+    }
 }
@@ -0,0 +1,55 @@
+/**
+ *
+ */
+package com.bosscs.spark.commons.extractor.response;
+
+import com.bosscs.spark.commons.extractor.actions.ActionType;
+
+/**
+ * Acknowledges a saved batch with the number of records saved and failed.
+ *
+ * @author Jerry Xiong
+ */
+public class SaveBatchResponse extends Response {
+
+    private static final long serialVersionUID = -7520951617240186713L;
+
+    private long batchId;
+
+    private int saved;
+
+    private int failed;
+
+    /**
+     * Message of the first record that failed, null if none did.
+     */
+    private String firstError;
+
+    public SaveBatchResponse() {
+        super();
+    }
+
+    public SaveBatchResponse(long batchId, int saved, int failed, String firstError) {
+        super(ActionType.SAVE_BATCH);
+        this.batchId = batchId;
+        this.saved = saved;
+        this.failed = failed;
+        this.firstError = firstError;
+    }
+
+    public long getBatchId() {
+        return batchId;
+    }
+
+    public int getSaved() {
+        return saved;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public String getFirstError() {
+        return firstError;
+    }
+}
@@ -0,0 +1,41 @@
+/**
+ *
+ */
+package com.bosscs.spark.commons.extractor.response;
+
+import java.util.List;
+
+import com.bosscs.spark.commons.extractor.actions.ActionType;
+
+/**
+ * A chunk of records pushed by the server while streaming a partition. The last chunk of the partition has
+ * {@code endOfStream} set.
+ *
+ * @author Jerry Xiong
+ */
+public class StreamPartitionResponse<T> extends Response {
+
+    private static final long serialVersionUID = 6160452875017734389L;
+
+    private List<T> data;
+
+    private boolean endOfStream;
+
+    public StreamPartitionResponse() {
+        super();
+    }
+
+    public StreamPartitionResponse(List<T> data, boolean endOfStream) {
+        super(ActionType.STREAM_PARTITION);
+        this.data = data;
+        this.endOfStream = endOfStream;
+    }
+
+    public List<T> getData() {
+        return data;
+    }
+
+    public boolean isEndOfStream() {
+        return endOfStream;
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright Jerry Xiong, BOSSCS
+ *
+ * The Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.bosscs.spark.commons.extractor.server;
+
+import java.io.Serializable;
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.bosscs.spark.commons.config.ExtractorConfig;
+import com.bosscs.spark.commons.rdd.IExtractor;
+import com.bosscs.spark.commons.utils.KeyedObjectPool;
+import com.bosscs.spark.commons.utils.Utils;
+
+/**
+ * Extractor instances kept warm between sessions. Every partition of an RDD is read with the same config, so they
+ * reuse the instances (and the classes and constructors already resolved) left by the previous partitions. The key
+ * holds the whole config: extractors copy their settings in initialize() without clearing the old ones, so an
+ * instance is only reused for an identical config. Array values, such as the hosts, the input columns or the filters,
+ * are compared by content. Connections are shared one level down, by the JDBC and Mongo
+ * connection caches.
+ */
+public class ExtractorPool extends KeyedObjectPool<ExtractorPool.Key, IExtractor<?, ?>> {
+
+    public ExtractorPool(int maxIdlePerKey, long idleTimeoutMillis) {
+        super(maxIdlePerKey, idleTimeoutMillis);
+    }
+
+    /**
+     * Builds the pool key of a config.
+     *
+     * @param config the extractor config
+     * @return the key
+     */
+    public static Key keyOf(ExtractorConfig<?> config) {
+        return new Key(config);
+    }
+
+    @Override
+    protected IExtractor<?, ?> create(Key key) {
+        return Utils.getExtractorInstance(key.config);
+    }
+
+    /**
+     * Extractors are closed when their session ends, before coming back to the pool.
+     */
+    @Override
+    protected void destroy(IExtractor<?, ?> extractor) {
+    }
+
+    /**
+     * Extractor class, entity class and config values, arrays turned into lists so that two configs built the same way
+     * give equal keys.
+     */
+    public static final class Key {
+
+        private final String extractorClassName;
+
+        private final Class<?> entityClass;
+
+        private final Map<String, Object> values;
+
+        private final ExtractorConfig<?> config;
+
+        private Key(ExtractorConfig<?> config) {
+            this.extractorClassName = config.getExtractorImplClass() != null ?
+                    config.getExtractorImplClass().getName() : config.getExtractorImplClassName();
+            this.entityClass = config.getEntityClass();
+            this.values = new HashMap<>(config.getValues().size() * 4 / 3 + 1);
+            for (Map.Entry<String, Serializable> entry : config.getValues().entrySet()) {
+                this.values.put(entry.getKey(), normalize(entry.getValue()));
+            }
+            this.config = config;
+        }
+
+        /**
+         * Turns arrays, nested ones included, into lists, which compare and hash by content.
+         */
+        private static Object normalize(Object value) {
+            if (value == null || !value.getClass().isArray()) {
+                return value;
+            }
+            int length = Array.getLength(value);
+            List<Object> list = new ArrayList<>(length);
+            for (int i = 0; i < length; i++) {
+                list.add(normalize(Array.get(value, i)));
+            }
+            return list;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return (extractorClassName == null ? key.extractorClassName == null :
+                    extractorClassName.equals(key.extractorClassName))
+                    && (entityClass == null ? key.entityClass == null : entityClass.equals(key.entityClass))
+                    && values.equals(key.values);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = extractorClassName != null ? extractorClassName.hashCode() : 0;
+            result = 31 * result + (entityClass != null ? entityClass.hashCode() : 0);
+            result = 31 * result + values.hashCode();
+            return result;
+        }
+    }
+}
@@ -15,6 +15,7 @@
  */
 package com.bosscs.spark.commons.extractor.server;
 
+import java.io.IOException;
 import java.security.cert.CertificateException;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
@@ -23,8 +24,18 @@ import java.util.concurrent.Future;
 
 import javax.net.ssl.SSLException;
 
+import org.apache.log4j.Logger;
+
 import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.handler.logging.LogLevel;
@@ -37,11 +48,15 @@ import io.netty.handler.ssl.util.SelfSignedCertificate;
  */
 public final class ExtractorServer {
 
-    static final boolean SSL = System.getProperty("ssl") != null;
-    static final int PORT = Integer.parseInt(System.getProperty("port", "8463"));
+    private static final Logger LOG = Logger.getLogger(ExtractorServer.class);
 
     private static EventLoopGroup workerGroup;
     private static EventLoopGroup bossGroup;
+    private static ExtractorWorkerPool extractorWorkerPool;
+    private static ExtractorPool extractorPool;
+    private static PartitionPlanCache partitionPlanCache;
+    private static ExtractorServerMetrics metrics;
+    private static MetricsHttpServer metricsHttpServer;
 
     public static void main(String[] args) throws Exception {
 
@@ -54,30 +69,106 @@ public final class ExtractorServer {
     }
 
     public static void start() throws CertificateException, SSLException, InterruptedException {
+        start(ExtractorServerConfig.fromSystemProperties());
+    }
+
+    public static void start(ExtractorServerConfig config)
+            throws CertificateException, SSLException, InterruptedException {
+        config.validate();
+
         // Configure SSL.
         final SslContext sslCtx;
-        if (SSL) {
+        if (config.isSsl()) {
             SelfSignedCertificate ssc = new SelfSignedCertificate();
             sslCtx = SslContext.newServerContext(ssc.certificate(), ssc.privateKey());
         } else {
             sslCtx = null;
         }
 
-        bossGroup = new NioEventLoopGroup(1);
-        workerGroup = new NioEventLoopGroup();
+        Class<? extends ServerChannel> channelClass;
+        if (config.isUseEpoll() && Epoll.isAvailable()) {
+            bossGroup = new EpollEventLoopGroup(config.getBossThreads());
+            workerGroup = new EpollEventLoopGroup(config.getWorkerThreads());
+            channelClass = EpollServerSocketChannel.class;
+        } else {
+            if (config.isUseEpoll()) {
+                LOG.warn("Epoll transport not available, falling back to NIO: " + Epoll.unavailabilityCause());
+            }
+            bossGroup = new NioEventLoopGroup(config.getBossThreads());
+            workerGroup = new NioEventLoopGroup(config.getWorkerThreads());
+            channelClass = NioServerSocketChannel.class;
+        }
+        extractorWorkerPool = new ExtractorWorkerPool(config);
+        extractorPool = new ExtractorPool(config.getExtractorPoolMaxIdle(), config.getExtractorPoolIdleTimeout());
+        partitionPlanCache = new PartitionPlanCache(config.getPartitionPlanTtl());
+        metrics = new ExtractorServerMetrics();
+        if (config.getMetricsPort() > 0) {
+            metricsHttpServer = new MetricsHttpServer(metrics, extractorWorkerPool, extractorPool, partitionPlanCache);
+            try {
+                metricsHttpServer.start(config.getMetricsPort());
+            } catch (IOException e) {
+                LOG.error("Unable to serve metrics on port " + config.getMetricsPort() + " " + e.getMessage());
+                metricsHttpServer = null;
+            }
+        }
+
+        ByteBufAllocator allocator = config.isPooledAllocator() ?
+                new PooledByteBufAllocator(config.isPreferDirectBuffers()) :
+                new UnpooledByteBufAllocator(config.isPreferDirectBuffers());
 
         ServerBootstrap b = new ServerBootstrap();
         b.group(bossGroup, workerGroup)
-                .channel(NioServerSocketChannel.class)
+                .channel(channelClass)
+                .option(ChannelOption.ALLOCATOR, allocator)
                 .handler(new LoggingHandler(LogLevel.INFO))
-                .childHandler(new ExtractorServerInitializer(sslCtx));
+                .childOption(ChannelOption.ALLOCATOR, allocator)
+                .childOption(ChannelOption.TCP_NODELAY, config.isTcpNoDelay())
+                .childHandler(new ExtractorServerInitializer(sslCtx, extractorWorkerPool, extractorPool,
+                        partitionPlanCache, metrics, config));
 
-        b.bind(PORT).sync().channel().closeFuture().sync();
+        if (config.getSendBufferSize() > 0) {
+            b.childOption(ChannelOption.SO_SNDBUF, config.getSendBufferSize());
+        }
+        if (config.getReceiveBufferSize() > 0) {
+            // set on the listening socket so accepted connections get it before the TCP window is negotiated
+            b.option(ChannelOption.SO_RCVBUF, config.getReceiveBufferSize());
+            b.childOption(ChannelOption.SO_RCVBUF, config.getReceiveBufferSize());
+        }
+
+        LOG.info("Starting extractor server with " + config);
+
+        b.bind(config.getPort()).sync().channel().closeFuture().sync();
     }
 
     public static void close() {
         bossGroup.shutdownGracefully();
         workerGroup.shutdownGracefully();
+        extractorWorkerPool.shutdown();
+        extractorPool.close();
+        if (metricsHttpServer != null) {
+            metricsHttpServer.stop();
+        }
+    }
+
+    /**
+     * @return the pool running the blocking extractor calls, to monitor its queue depth.
+     */
+    public static ExtractorWorkerPool getExtractorWorkerPool() {
+        return extractorWorkerPool;
+    }
+
+    /**
+     * @return the cache of partition plans, to invalidate plans of sources that changed.
+     */
+    public static PartitionPlanCache getPartitionPlanCache() {
+        return partitionPlanCache;
+    }
+
+    /**
+     * @return the throughput and latency metrics of the server.
+     */
+    public static ExtractorServerMetrics getMetrics() {
+        return metrics;
     }
 
     public static void initExtractorServer() {
@@ -0,0 +1,417 @@
+/*
+ * Copyright Jerry Xiong, BOSSCS
+ *
+ * The Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.bosscs.spark.commons.extractor.server;
+
+import java.io.Serializable;
+
+import com.bosscs.spark.commons.extractor.client.codecs.ExtractorFrameDecoder;
+import com.bosscs.spark.commons.utils.Constants;
+
+/**
+ * Tuning options of the extractor server.
+ */
+public class ExtractorServerConfig implements Serializable {
+
+    private static final long serialVersionUID = 2651468843052925711L;
+
+    /**
+     * Port the server listens on.
+     */
+    private int port = 8463;
+
+    /**
+     * Port of the HTTP metrics endpoint, 0 disables it. The endpoint has no authentication, so it is off unless
+     * configured.
+     */
+    private int metricsPort = 0;
+
+    /**
+     * Serve over SSL with a self-signed certificate.
+     */
+    private boolean ssl = false;
+
+    /**
+     * Use the native epoll transport when it is available (Linux only), NIO otherwise.
+     */
+    private boolean useEpoll = false;
+
+    /**
+     * Number of event loop threads accepting connections.
+     */
+    private int bossThreads = 1;
+
+    /**
+     * Number of event loop threads doing the channel I/O, 0 lets Netty pick (twice the number of cores).
+     */
+    private int workerThreads = 0;
+
+    /**
+     * Allocate channel buffers from Netty's pooled allocator instead of the unpooled one.
+     */
+    private boolean pooledAllocator = true;
+
+    /**
+     * Prefer direct (off-heap) buffers.
+     */
+    private boolean preferDirectBuffers = true;
+
+    private boolean tcpNoDelay = true;
+
+    /**
+     * SO_SNDBUF in bytes, 0 keeps the OS default.
+     */
+    private int sendBufferSize = 0;
+
+    /**
+     * SO_RCVBUF in bytes, 0 keeps the OS default.
+     */
+    private int receiveBufferSize = 0;
+
+    /**
+     * Pending outbound bytes above which a channel becomes unwritable and streaming pauses.
+     */
+    private int writeBufferHighWaterMark = 64 * 1024;
+
+    /**
+     * Pending outbound bytes below which an unwritable channel becomes writable again.
+     */
+    private int writeBufferLowWaterMark = 32 * 1024;
+
+    /**
+     * Largest frame accepted from a client, in bytes.
+     */
+    private int maxFrameLength = ExtractorFrameDecoder.DEFAULT_MAX_FRAME_LENGTH;
+
+    /**
+     * Accept compressing frames when the client offers it in its handshake.
+     */
+    private boolean compression = true;
+
+    /**
+     * Frame size in bytes from which outgoing frames are compressed.
+     */
+    private int compressionThreshold = 8 * 1024;
+
+    /**
+     * Number of threads running blocking extractor calls.
+     */
+    private int extractorThreads = Runtime.getRuntime().availableProcessors() * 2;
+
+    /**
+     * Maximum number of extractor tasks waiting for a free thread.
+     */
+    private int extractorQueueSize = 1024;
+
+    /**
+     * Run extractor calls on virtual threads when the JVM supports them.
+     */
+    private boolean useVirtualThreads = false;
+
+    /**
+     * Maximum number of idle extractors kept per extractor class and config.
+     */
+    private int extractorPoolMaxIdle = Constants.DEFAULT_POOL_MAX_IDLE;
+
+    /**
+     * Milliseconds after which an idle extractor is dropped from the pool.
+     */
+    private long extractorPoolIdleTimeout = Constants.DEFAULT_POOL_IDLE_TIMEOUT_MILLIS;
+
+    /**
+     * Milliseconds a computed partition plan is reused for the same config, 0 disables the plan cache.
+     */
+    private long partitionPlanTtl = 5 * 60 * 1000;
+
+    /**
+     * Number of partitions per chunk when pushing a plan incrementally.
+     */
+    private int partitionPlanChunkSize = 64;
+
+    /**
+     * Number of actions of one channel waiting to be processed above which the server stops reading from it.
+     */
+    private int maxPendingActions = 256;
+
+    /**
+     * Builds a configuration from the legacy "port" and "ssl" system properties.
+     *
+     * @return the configuration
+     */
+    public static ExtractorServerConfig fromSystemProperties() {
+        return new ExtractorServerConfig()
+                .port(Integer.parseInt(System.getProperty("port", "8463")))
+                .ssl(System.getProperty("ssl") != null);
+    }
+
+    /**
+     * Checks the settings which depend on each other, since the fluent setters can be called in any order.
+     *
+     * @throws IllegalArgumentException if the low write water mark is negative or above the high one
+     */
+    public void validate() {
+        if (writeBufferLowWaterMark < 0 || writeBufferLowWaterMark > writeBufferHighWaterMark) {
+            throw new IllegalArgumentException("writeBufferLowWaterMark (" + writeBufferLowWaterMark
+                    + ") must be between 0 and writeBufferHighWaterMark (" + writeBufferHighWaterMark + ")");
+        }
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public ExtractorServerConfig port(int port) {
+        this.port = port;
+        return this;
+    }
+
+    public int getMetricsPort() {
+        return metricsPort;
+    }
+
+    public ExtractorServerConfig metricsPort(int metricsPort) {
+        this.metricsPort = metricsPort;
+        return this;
+    }
+
+    public boolean isSsl() {
+        return ssl;
+    }
+
+    public ExtractorServerConfig ssl(boolean ssl) {
+        this.ssl = ssl;
+        return this;
+    }
+
+    public boolean isUseEpoll() {
+        return useEpoll;
+    }
+
+    public ExtractorServerConfig useEpoll(boolean useEpoll) {
+        this.useEpoll = useEpoll;
+        return this;
+    }
+
+    public int getBossThreads() {
+        return bossThreads;
+    }
+
+    public ExtractorServerConfig bossThreads(int bossThreads) {
+        this.bossThreads = bossThreads;
+        return this;
+    }
+
+    public int getWorkerThreads() {
+        return workerThreads;
+    }
+
+    public ExtractorServerConfig workerThreads(int workerThreads) {
+        this.workerThreads = workerThreads;
+        return this;
+    }
+
+    public boolean isPooledAllocator() {
+        return pooledAllocator;
+    }
+
+    public ExtractorServerConfig pooledAllocator(boolean pooledAllocator) {
+        this.pooledAllocator = pooledAllocator;
+        return this;
+    }
+
+    public boolean isPreferDirectBuffers() {
+        return preferDirectBuffers;
+    }
+
+    public ExtractorServerConfig preferDirectBuffers(boolean preferDirectBuffers) {
+        this.preferDirectBuffers = preferDirectBuffers;
+        return this;
+    }
+
+    public boolean isTcpNoDelay() {
+        return tcpNoDelay;
+    }
+
+    public ExtractorServerConfig tcpNoDelay(boolean tcpNoDelay) {
+        this.tcpNoDelay = tcpNoDelay;
+        return this;
+    }
+
+    public int getSendBufferSize() {
+        return sendBufferSize;
+    }
+
+    public ExtractorServerConfig sendBufferSize(int sendBufferSize) {
+        this.sendBufferSize = sendBufferSize;
+        return this;
+    }
+
+    public int getReceiveBufferSize() {
+        return receiveBufferSize;
+    }
+
+    public ExtractorServerConfig receiveBufferSize(int receiveBufferSize) {
+        this.receiveBufferSize = receiveBufferSize;
+        return this;
+    }
+
+    public int getWriteBufferHighWaterMark() {
+        return writeBufferHighWaterMark;
+    }
+
+    public ExtractorServerConfig writeBufferHighWaterMark(int writeBufferHighWaterMark) {
+        this.writeBufferHighWaterMark = writeBufferHighWaterMark;
+        return this;
+    }
+
+    public int getWriteBufferLowWaterMark() {
+        return writeBufferLowWaterMark;
+    }
+
+    public ExtractorServerConfig writeBufferLowWaterMark(int writeBufferLowWaterMark) {
+        this.writeBufferLowWaterMark = writeBufferLowWaterMark;
+        return this;
+    }
+
+    public int getMaxFrameLength() {
+        return maxFrameLength;
+    }
+
+    public ExtractorServerConfig maxFrameLength(int maxFrameLength) {
+        this.maxFrameLength = maxFrameLength;
+        return this;
+    }
+
+    public boolean isCompression() {
+        return compression;
+    }
+
+    public ExtractorServerConfig compression(boolean compression) {
+        this.compression = compression;
+        return this;
+    }
+
+    public int getCompressionThreshold() {
+        return compressionThreshold;
+    }
+
+    public ExtractorServerConfig compressionThreshold(int compressionThreshold) {
+        this.compressionThreshold = compressionThreshold;
+        return this;
+    }
+
+    public int getExtractorThreads() {
+        return extractorThreads;
+    }
+
+    public ExtractorServerConfig extractorThreads(int extractorThreads) {
+        this.extractorThreads = extractorThreads;
+        return this;
+    }
+
+    public int getExtractorQueueSize() {
+        return extractorQueueSize;
+    }
+
+    public ExtractorServerConfig extractorQueueSize(int extractorQueueSize) {
+        this.extractorQueueSize = extractorQueueSize;
+        return this;
+    }
+
+    public boolean isUseVirtualThreads() {
+        return useVirtualThreads;
+    }
+
+    public ExtractorServerConfig useVirtualThreads(boolean useVirtualThreads) {
+        this.useVirtualThreads = useVirtualThreads;
+        return this;
+    }
+
+    public int getExtractorPoolMaxIdle() {
+        return extractorPoolMaxIdle;
+    }
+
+    public ExtractorServerConfig extractorPoolMaxIdle(int extractorPoolMaxIdle) {
+        this.extractorPoolMaxIdle = extractorPoolMaxIdle;
+        return this;
+    }
+
+    public long getExtractorPoolIdleTimeout() {
+        return extractorPoolIdleTimeout;
+    }
+
+    public ExtractorServerConfig extractorPoolIdleTimeout(long extractorPoolIdleTimeout) {
+        this.extractorPoolIdleTimeout = extractorPoolIdleTimeout;
+        return this;
+    }
+
+    public long getPartitionPlanTtl() {
+        return partitionPlanTtl;
+    }
+
+    public ExtractorServerConfig partitionPlanTtl(long partitionPlanTtl) {
+        this.partitionPlanTtl = partitionPlanTtl;
+        return this;
+    }
+
+    public int getPartitionPlanChunkSize() {
+        return partitionPlanChunkSize;
+    }
+
+    public ExtractorServerConfig partitionPlanChunkSize(int partitionPlanChunkSize) {
+        this.partitionPlanChunkSize = partitionPlanChunkSize;
+        return this;
+    }
+
+    public int getMaxPendingActions() {
+        return maxPendingActions;
+    }
+
+    public ExtractorServerConfig maxPendingActions(int maxPendingActions) {
+        this.maxPendingActions = maxPendingActions;
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuffer sb = new StringBuffer("ExtractorServerConfig{");
+        sb.append("port=").append(port);
+        sb.append(", metricsPort=").append(metricsPort);
+        sb.append(", ssl=").append(ssl);
+        sb.append(", useEpoll=").append(useEpoll);
+        sb.append(", bossThreads=").append(bossThreads);
+        sb.append(", workerThreads=").append(workerThreads);
+        sb.append(", pooledAllocator=").append(pooledAllocator);
+        sb.append(", preferDirectBuffers=").append(preferDirectBuffers);
+        sb.append(", tcpNoDelay=").append(tcpNoDelay);
+        sb.append(", sendBufferSize=").append(sendBufferSize);
+        sb.append(", receiveBufferSize=").append(receiveBufferSize);
+        sb.append(", writeBufferHighWaterMark=").append(writeBufferHighWaterMark);
+        sb.append(", writeBufferLowWaterMark=").append(writeBufferLowWaterMark);
+        sb.append(", maxFrameLength=").append(maxFrameLength);
+        sb.append(", compression=").append(compression);
+        sb.append(", compressionThreshold=").append(compressionThreshold);
+        sb.append(", extractorThreads=").append(extractorThreads);
+        sb.append(", extractorQueueSize=").append(extractorQueueSize);
+        sb.append(", useVirtualThreads=").append(useVirtualThreads);
+        sb.append(", extractorPoolMaxIdle=").append(extractorPoolMaxIdle);
+        sb.append(", extractorPoolIdleTimeout=").append(extractorPoolIdleTimeout);
+        sb.append(", partitionPlanTtl=").append(partitionPlanTtl);
+        sb.append(", partitionPlanChunkSize=").append(partitionPlanChunkSize);
+        sb.append(", maxPendingActions=").append(maxPendingActions);
+        sb.append('}');
+        return sb.toString();
+    }
+}
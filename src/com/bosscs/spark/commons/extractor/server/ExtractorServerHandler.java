@@ -14,178 +14,781 @@
  */
 package com.bosscs.spark.commons.extractor.server;
 
-import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.log4j.Logger;
 import org.apache.spark.Partition;
 
 import com.bosscs.spark.commons.config.ExtractorConfig;
-import com.bosscs.spark.commons.entity.Cells;
 import com.bosscs.spark.commons.exception.HadoopInstantiationException;
+import com.bosscs.spark.commons.extractor.client.codecs.ExtractorCodec;
+import com.bosscs.spark.commons.extractor.client.codecs.ExtractorCodecs;
+import com.bosscs.spark.commons.extractor.client.codecs.FrameCompression;
+import com.bosscs.spark.commons.extractor.client.codecs.ResponseEncoder;
 import com.bosscs.spark.commons.extractor.actions.Action;
+import com.bosscs.spark.commons.extractor.actions.ActionType;
 import com.bosscs.spark.commons.extractor.actions.GetPartitionsAction;
+import com.bosscs.spark.commons.extractor.actions.HandshakeAction;
 import com.bosscs.spark.commons.extractor.actions.HasNextAction;
 import com.bosscs.spark.commons.extractor.actions.InitIteratorAction;
 import com.bosscs.spark.commons.extractor.actions.InitSaveAction;
+import com.bosscs.spark.commons.extractor.actions.InvalidatePartitionsAction;
 import com.bosscs.spark.commons.extractor.actions.NextAction;
+import com.bosscs.spark.commons.extractor.actions.NextBatchAction;
+import com.bosscs.spark.commons.extractor.actions.PlanPartitionsAction;
 import com.bosscs.spark.commons.extractor.actions.SaveAction;
+import com.bosscs.spark.commons.extractor.actions.SaveBatchAction;
+import com.bosscs.spark.commons.extractor.actions.StreamPartitionAction;
+import com.bosscs.spark.commons.extractor.impl.PrefetchingExtractor;
 import com.bosscs.spark.commons.extractor.response.CloseResponse;
+import com.bosscs.spark.commons.extractor.response.ErrorResponse;
 import com.bosscs.spark.commons.extractor.response.GetPartitionsResponse;
+import com.bosscs.spark.commons.extractor.response.HandshakeResponse;
 import com.bosscs.spark.commons.extractor.response.HasNextResponse;
 import com.bosscs.spark.commons.extractor.response.InitIteratorResponse;
 import com.bosscs.spark.commons.extractor.response.InitSaveResponse;
+import com.bosscs.spark.commons.extractor.response.InvalidatePartitionsResponse;
+import com.bosscs.spark.commons.extractor.response.NextBatchResponse;
 import com.bosscs.spark.commons.extractor.response.NextResponse;
+import com.bosscs.spark.commons.extractor.response.PlanPartitionsResponse;
 import com.bosscs.spark.commons.extractor.response.Response;
+import com.bosscs.spark.commons.extractor.response.SaveBatchResponse;
 import com.bosscs.spark.commons.extractor.response.SaveResponse;
+import com.bosscs.spark.commons.extractor.response.StreamPartitionResponse;
+import com.bosscs.spark.commons.rdd.IBatchExtractor;
 import com.bosscs.spark.commons.rdd.IExtractor;
+import com.bosscs.spark.commons.rdd.IIncrementalPartitioner;
+import com.bosscs.spark.commons.rdd.IPartitionListener;
+import com.bosscs.spark.commons.utils.Constants;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
-import java.util.logging.Level;
 
 public class ExtractorServerHandler<T> extends SimpleChannelInboundHandler<Action> {
 
     private static final Logger LOG = Logger.getLogger(ExtractorServerHandler.class);
 
-    private IExtractor<T, ExtractorConfig<T>> extractor;
+    /**
+     * Delay before handing the tasks rejected by a saturated worker pool to it again.
+     */
+    private static final long SATURATION_RETRY_MILLIS = 10;
+
+    private final ExtractorWorkerPool workerPool;
+
+    private final ExtractorPool extractorPool;
+
+    private final PartitionPlanCache partitionPlanCache;
+
+    private final ExtractorServerMetrics metrics;
+
+    private final int maxPendingActions;
+
+    private final int partitionPlanChunkSize;
+
+    private final boolean compressionEnabled;
+
+    /**
+     * Live sessions of this channel keyed by stream id. Only touched from the channel event loop.
+     */
+    private final Map<Integer, ExtractorSession<T>> sessions = new HashMap<>();
+
+    /**
+     * Actions read from the channel and not processed yet.
+     */
+    private final AtomicInteger pendingActions = new AtomicInteger();
 
+    /**
+     * Tasks the saturated worker pool rejected, waiting to be handed to it again in order. Only touched from the
+     * channel event loop.
+     */
+    private final Queue<DeferredTask<T>> deferred = new ArrayDeque<>();
+
+    public ExtractorServerHandler(ExtractorWorkerPool workerPool, ExtractorPool extractorPool,
+                                  PartitionPlanCache partitionPlanCache, ExtractorServerMetrics metrics,
+                                  ExtractorServerConfig config) {
+        this.workerPool = workerPool;
+        this.extractorPool = extractorPool;
+        this.partitionPlanCache = partitionPlanCache;
+        this.metrics = metrics;
+        this.maxPendingActions = config.getMaxPendingActions();
+        this.partitionPlanChunkSize = config.getPartitionPlanChunkSize();
+        this.compressionEnabled = config.isCompression();
+    }
+
+    /**
+     * Hands the action to the worker pool: extractor calls block on JDBC result sets and Mongo cursors and must not
+     * run on the event loop. Actions of one session are processed in order.
+     */
     @Override
     public void channelRead0(ChannelHandlerContext ctx, Action action) throws Exception {
 
+        if (action.getType() == ActionType.HANDSHAKE) {
+            // answered on the event loop so no other response can be encoded before the codec switch
+            long start = System.nanoTime();
+            HandshakeAction handshake = (HandshakeAction) action;
+            ExtractorCodec codec = ExtractorCodecs.negotiate(handshake.getCodecIds());
+            byte compression = compressionEnabled ?
+                    FrameCompression.negotiate(handshake.getCompressions()) : FrameCompression.NONE;
+            ctx.writeAndFlush(new HandshakeResponse(codec.getId(), compression));
+            metrics.recordAction(ActionType.HANDSHAKE, System.nanoTime() - start, false);
+            return;
+        }
+
+        ExtractorSession<T> session = this.getSession(action.getStreamId());
+
+        if (action.getType() == ActionType.CLOSE) {
+            // stop a running stream right away and let a new session reuse the id
+            session.setStreaming(false);
+            sessions.remove(session.getStreamId());
+        }
+
+        this.dispatch(ctx, session, action);
+    }
+
+    /**
+     * Runs one action of the given session on the worker pool and writes its response back to the channel. Once
+     * too many actions are waiting we stop reading from the channel until the backlog is halved. Called from the
+     * channel event loop.
+     *
+     * @param ctx     the channel context
+     * @param session the session the action belongs to
+     * @param action  the action
+     */
+    protected void dispatch(final ChannelHandlerContext ctx, final ExtractorSession<T> session, final Action action) {
+        final Channel channel = ctx.channel();
+
+        if (pendingActions.incrementAndGet() > maxPendingActions) {
+            channel.config().setAutoRead(false);
+        }
+
+        this.submit(ctx, session, new Runnable() {
+            @Override
+            public void run() {
+                long start = System.nanoTime();
+                boolean failed = false;
+                try {
+                    Response response = process(ctx, session, action);
+                    if (response != null) {
+                        response.setStreamId(session.getStreamId());
+                        write(ctx, response);
+                    }
+                } catch (Exception e) {
+                    failed = true;
+                    failStream(ctx, session, action.getType(), e);
+                } finally {
+                    metrics.recordAction(action.getType(), System.nanoTime() - start, failed);
+                    if (pendingActions.decrementAndGet() == maxPendingActions / 2) {
+                        channel.eventLoop().execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                if (pendingActions.get() <= maxPendingActions / 2 && deferred.isEmpty()) {
+                                    channel.config().setAutoRead(true);
+                                }
+                            }
+                        });
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Queues a task of the session on the worker pool. When the pool rejects it, the task and every task submitted
+     * after it wait in {@link #deferred}, in order, and the channel stops reading until the pool takes them.
+     * Called from the channel event loop.
+     *
+     * @param ctx     the channel context
+     * @param session the session
+     * @param task    the task
+     */
+    private void submit(ChannelHandlerContext ctx, ExtractorSession<T> session, Runnable task) {
+        if (deferred.isEmpty()) {
+            try {
+                session.execute(task);
+                return;
+            } catch (RejectedExecutionException e) {
+                LOG.warn("Extractor workers saturated, pausing reads of " + ctx.channel());
+                ctx.channel().config().setAutoRead(false);
+                this.scheduleRetry(ctx);
+            }
+        }
+        deferred.add(new DeferredTask<>(session, task));
+    }
+
+    private void scheduleRetry(final ChannelHandlerContext ctx) {
+        ctx.executor().schedule(new Runnable() {
+            @Override
+            public void run() {
+                retryDeferred(ctx);
+            }
+        }, SATURATION_RETRY_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Hands the deferred tasks to the worker pool, in order, and resumes reading once they are all taken.
+     */
+    private void retryDeferred(ChannelHandlerContext ctx) {
+        while (!deferred.isEmpty()) {
+            DeferredTask<T> next = deferred.peek();
+            try {
+                next.session.execute(next.task);
+            } catch (RejectedExecutionException e) {
+                this.scheduleRetry(ctx);
+                return;
+            }
+            deferred.poll();
+        }
+        if (pendingActions.get() <= maxPendingActions / 2 && ctx.channel().isActive()) {
+            ctx.channel().config().setAutoRead(true);
+        }
+    }
+
+    /**
+     * Processes one action. Called from a worker thread.
+     *
+     * @param ctx     the channel context
+     * @param session the session the action belongs to
+     * @param action  the action
+     * @return the response to send back, or null if the action does not answer directly
+     * @throws Exception if the action fails
+     */
+    protected Response process(ChannelHandlerContext ctx, ExtractorSession<T> session, Action action) throws Exception {
+
         Response response = null;
 
         switch (action.getType()) {
         case GET_PARTITIONS:
             GetPartitionsAction<T> partitionsAction = (GetPartitionsAction<T>) action;
-            response = new GetPartitionsResponse(this.getPartitions(partitionsAction));
+            response = new GetPartitionsResponse(this.getPartitions(session, partitionsAction));
+            break;
+        case PLAN_PARTITIONS:
+            PlanPartitionsAction<T> planAction = (PlanPartitionsAction<T>) action;
+            this.planPartitions(ctx, session, planAction);
+            break;
+        case INVALIDATE_PARTITIONS:
+            InvalidatePartitionsAction<T> invalidateAction = (InvalidatePartitionsAction<T>) action;
+            response = new InvalidatePartitionsResponse(this.invalidatePartitions(invalidateAction));
             break;
         case CLOSE:
-            this.close();
+            this.close(session);
             response = new CloseResponse();
             break;
         case HAS_NEXT:
             HasNextAction<T> hasNextAction = (HasNextAction<T>) action;
-            response = new HasNextResponse(this.hastNext(hasNextAction));
+            response = new HasNextResponse(this.hastNext(session, hasNextAction));
             break;
         case NEXT:
             NextAction<T> nextAction = (NextAction<T>) action;
-            response = new NextResponse<T>(this.next(nextAction));
+            response = new NextResponse<T>(this.next(session, nextAction));
+            break;
+        case NEXT_BATCH:
+            NextBatchAction<T> nextBatchAction = (NextBatchAction<T>) action;
+            response = this.nextBatch(session, nextBatchAction);
+            break;
+        case STREAM_PARTITION:
+            StreamPartitionAction<T> streamAction = (StreamPartitionAction<T>) action;
+            this.initStream(session, streamAction);
+            this.streamPartition(ctx, session);
             break;
         case INIT_ITERATOR:
             InitIteratorAction<T> initIteratorAction = (InitIteratorAction<T>) action;
-            this.initIterator(initIteratorAction);
+            this.initIterator(session, initIteratorAction);
             response = new InitIteratorResponse();
             break;
         case SAVE:
             SaveAction<T> SaveAction = (SaveAction<T>) action;
-            this.save(SaveAction);
+            this.save(session, SaveAction);
             response = new SaveResponse();
             break;
+        case SAVE_BATCH:
+            SaveBatchAction<T> saveBatchAction = (SaveBatchAction<T>) action;
+            response = this.saveBatch(session, saveBatchAction);
+            break;
         case INIT_SAVE:
             InitSaveAction<T> initSave = (InitSaveAction<T>) action;
-            this.initSave(initSave);
+            this.initSave(session, initSave);
             response = new InitSaveResponse();
             break;
         default:
             break;
         }
 
-        ctx.write(response);
+        return response;
+    }
+
+    /**
+     * Resumes every session that was streaming when the channel stopped being writable.
+     */
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        if (ctx.channel().isWritable()) {
+            for (ExtractorSession<T> session : sessions.values()) {
+                if (session.isStreaming()) {
+                    this.resumeStream(ctx, session);
+                }
+            }
+        }
+        ctx.fireChannelWritabilityChanged();
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        metrics.channelOpened();
+        ctx.fireChannelActive();
     }
 
     @Override
-    public void channelReadComplete(ChannelHandlerContext ctx) {
-        ctx.flush();
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        metrics.channelClosed();
+        for (final ExtractorSession<T> session : sessions.values()) {
+            session.setStreaming(false);
+            try {
+                session.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        close(session);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                LOG.warn("Extractor workers saturated, closing stream " + session.getStreamId() + " on the event loop");
+                close(session);
+            }
+        }
+        sessions.clear();
+        deferred.clear();
+        ctx.fireChannelInactive();
     }
 
+    /**
+     * Failures of the channel itself, such as undecodable frames, which leave no way to tell the streams apart.
+     * Failures of an action only affect its stream, see {@link #failStream}.
+     */
     @Override
     public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
-        LOG.error(cause.getMessage());
+        LOG.error("Extractor channel " + ctx.channel() + " failed, closing it", cause);
         ctx.close();
     }
 
-    protected boolean hastNext(HasNextAction hasNextAction) {
+    /**
+     * Answers a failed action with an error on its own stream and closes that session alone, giving its extractor
+     * back to the pool, so the other sessions of the channel carry on. Called from the worker running the session.
+     *
+     * @param ctx        the channel context
+     * @param session    the session whose action failed
+     * @param actionType the type of the action that failed
+     * @param cause      the failure
+     */
+    private void failStream(ChannelHandlerContext ctx, ExtractorSession<T> session, ActionType actionType,
+                            Throwable cause) {
+        LOG.error("Action " + actionType + " failed on stream " + session.getStreamId(), cause);
+        try {
+            this.close(session);
+        } catch (RuntimeException e) {
+            LOG.warn("Unable to close stream " + session.getStreamId() + " after a failure", e);
+        }
+
+        String message = cause.getMessage() != null ? cause.getMessage() : cause.toString();
+        ErrorResponse response = new ErrorResponse(actionType, message);
+        response.setStreamId(session.getStreamId());
+        ctx.writeAndFlush(response);
+    }
+
+    /**
+     * Returns the session for the given stream id, opening it on first use.
+     *
+     * @param streamId the stream id carried by the action
+     * @return the session
+     */
+    protected ExtractorSession<T> getSession(int streamId) {
+        ExtractorSession<T> session = sessions.get(streamId);
+        if (session == null) {
+            session = new ExtractorSession<>(streamId, workerPool, extractorPool);
+            sessions.put(streamId, session);
+        }
+        return session;
+    }
+
+    protected boolean hastNext(ExtractorSession<T> session, HasNextAction hasNextAction) {
+
+        return session.getExtractor().hasNext();
+
+    }
+
+    protected T next(ExtractorSession<T> session, NextAction<T> nextAction) {
+
+        T record = session.getExtractor().next();
+        metrics.recordsRead(session.getExtractor().getClass(), 1);
+        return record;
+
+    }
+
+    /**
+     * Drains up to {@code batchSize} records from the current iterator so the client pays one round trip per page
+     * instead of a HAS_NEXT/NEXT pair per record.
+     *
+     * @param session         the session owning the iterator
+     * @param nextBatchAction the action carrying the requested page size
+     * @return the page of records and whether the iterator has been exhausted
+     */
+    protected NextBatchResponse<T> nextBatch(ExtractorSession<T> session, NextBatchAction<T> nextBatchAction) {
+
+        List<T> records = this.readPage(session, nextBatchAction.getBatchSize());
+
+        return new NextBatchResponse<>(records, !session.getExtractor().hasNext());
+    }
+
+    protected void initStream(ExtractorSession<T> session, StreamPartitionAction<T> streamAction) {
+        if (session.getExtractor() == null) {
+            this.initExtractor(session, streamAction.getConfig());
+        }
+
+        session.getExtractor().initIterator(streamAction.getPartition(), streamAction.getConfig());
+        this.iteratorOpened(session);
+        session.setStreamChunkSize(streamAction.getChunkSize());
+        session.setStreaming(true);
+    }
+
+    /**
+     * Pushes one chunk of the session partition and queues the next one behind any pending action of the session, for
+     * as long as the channel stays writable. Once the outbound buffer goes over the high water mark we stop pulling
+     * from the extractor and resume from {@link #channelWritabilityChanged(ChannelHandlerContext)}, so a slow
+     * consumer never makes us buffer the whole partition in memory.
+     *
+     * @param ctx     the channel context
+     * @param session the streaming session
+     */
+    protected void streamPartition(ChannelHandlerContext ctx, ExtractorSession<T> session) throws Exception {
+        if (session.isStreaming() && ctx.channel().isWritable()) {
+            this.pushChunk(ctx, session);
+
+            if (session.isStreaming()) {
+                this.resumeStream(ctx, session);
+            }
+        }
+    }
+
+    /**
+     * Queues the next chunk of the stream, unless a chunk task is already queued. The flag is cleared when the task
+     * starts, before it checks the channel writability, so a writability change is never missed.
+     */
+    private void resumeStream(final ChannelHandlerContext ctx, final ExtractorSession<T> session) {
+        if (!session.scheduleStreamTask()) {
+            return;
+        }
+        final Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                session.streamTaskStarted();
+                try {
+                    streamPartition(ctx, session);
+                } catch (Exception e) {
+                    failStream(ctx, session, ActionType.STREAM_PARTITION, e);
+                }
+            }
+        };
+
+        try {
+            if (ctx.executor().inEventLoop()) {
+                this.submit(ctx, session, task);
+            } else {
+                // from a task of the session, which is still scheduled: the pool cannot reject it
+                session.execute(task);
+            }
+        } catch (RuntimeException e) {
+            session.streamTaskStarted();
+            throw e;
+        }
+    }
 
-        return extractor.hasNext();
+    private void pushChunk(ChannelHandlerContext ctx, ExtractorSession<T> session) throws Exception {
+        List<T> records = this.readPage(session, session.getStreamChunkSize());
+        boolean endOfStream = !session.getExtractor().hasNext();
+        if (endOfStream) {
+            session.setStreaming(false);
+        }
 
+        StreamPartitionResponse<T> response = new StreamPartitionResponse<>(records, endOfStream);
+        response.setStreamId(session.getStreamId());
+        this.write(ctx, response);
     }
 
-    protected T next(NextAction<T> nextAction) {
+    /**
+     * Writes a response of a worker. Pages of records are encoded right away, on the worker: their records may be a
+     * view of the batch the extractor fills again on its next read, which can run before the event loop gets to the
+     * response. Once encoded, the batch is free to be reused.
+     *
+     * @param ctx      the channel context
+     * @param response the response
+     * @throws Exception if the response cannot be encoded
+     */
+    private void write(ChannelHandlerContext ctx, Response response) throws Exception {
+        if (!(response instanceof NextBatchResponse) && !(response instanceof StreamPartitionResponse)) {
+            ctx.writeAndFlush(response);
+            return;
+        }
 
-        return extractor.next();
+        ByteBuf frame = ctx.alloc().buffer();
+        try {
+            ResponseEncoder.encodeFrame(ctx.channel(), response, frame);
+        } catch (Exception e) {
+            frame.release();
+            throw e;
+        }
+        ctx.writeAndFlush(frame);
+    }
+
+    /**
+     * Reads at most {@code pageSize} records from the session iterator, in one call for extractors that read batches
+     * natively.
+     *
+     * @param session  the session owning the iterator
+     * @param pageSize the requested page size, normalized against the server defaults
+     * @return the records read, empty if the iterator is exhausted. For batch extractors this is a view of their
+     * batch, valid until the next read of the session: see {@link #write}
+     */
+    @SuppressWarnings("unchecked")
+    private List<T> readPage(ExtractorSession<T> session, int pageSize) {
+        if (pageSize <= 0) {
+            pageSize = Constants.DEFAULT_PAGE_SIZE;
+        } else if (pageSize > Constants.DEFAULT_MAX_PAGE_SIZE) {
+            pageSize = Constants.DEFAULT_MAX_PAGE_SIZE;
+        }
 
+        IExtractor<T, ExtractorConfig<T>> extractor = session.getExtractor();
+        List<T> records;
+        if (extractor instanceof IBatchExtractor) {
+            records = ((IBatchExtractor<T>) extractor).nextBatch(pageSize).asList();
+        } else {
+            records = new ArrayList<>(pageSize);
+            while (records.size() < pageSize && extractor.hasNext()) {
+                records.add(extractor.next());
+            }
+        }
+        metrics.recordsRead(extractor.getClass(), records.size());
+        return records;
     }
 
-    protected void close() {
-        extractor.close();
+    protected void close(ExtractorSession<T> session) {
+        if (session.isIterating()) {
+            session.setIterating(false);
+            metrics.iteratorClosed();
+        }
+        session.close();
         return;
 
     }
 
-    protected void initIterator(InitIteratorAction<T> initIteratorAction) {
-        if (extractor == null) {
-            this.initExtractor(initIteratorAction.getConfig());
+    private void iteratorOpened(ExtractorSession<T> session) {
+        if (!session.isIterating()) {
+            session.setIterating(true);
+            metrics.iteratorOpened();
         }
+    }
 
-        extractor.initIterator(initIteratorAction.getPartition(), initIteratorAction.getConfig());
+    protected void initIterator(ExtractorSession<T> session, InitIteratorAction<T> initIteratorAction) {
+        if (session.getExtractor() == null) {
+            this.initExtractor(session, initIteratorAction.getConfig());
+        }
+
+        session.getExtractor().initIterator(initIteratorAction.getPartition(), initIteratorAction.getConfig());
+        this.iteratorOpened(session);
         return;
 
     }
 
-    protected Partition[] getPartitions(GetPartitionsAction<T> getPartitionsAction) {
+    protected Partition[] getPartitions(ExtractorSession<T> session, GetPartitionsAction<T> getPartitionsAction) {
+
+        return this.getPartitions(session, getPartitionsAction.getConfig());
+    }
+
+    /**
+     * Returns the cached plan of the config, planning it with the session extractor on a miss.
+     *
+     * @param session the session
+     * @param config  the config
+     * @return the plan, shared with the cache
+     */
+    private Partition[] getPartitions(final ExtractorSession<T> session, final ExtractorConfig<T> config) {
+
+        return partitionPlanCache.get(ExtractorPool.keyOf(config), config.getRddId(), new Callable<Partition[]>() {
+            @Override
+            public Partition[] call() {
+                if (session.getExtractor() == null) {
+                    initExtractor(session, config);
+                }
+                return session.getExtractor().getPartitions(config);
+            }
+        });
+    }
 
-        if (extractor == null) {
-            this.initExtractor(getPartitionsAction.getConfig());
+    /**
+     * Pushes the plan of the config back in chunks of partitions. Extractors implementing
+     * {@link IIncrementalPartitioner} send each chunk as soon as it is planned; for the others, for cached plans and
+     * for sessions which waited on another session planning the same config, the finished plan is chunked. Either way
+     * the plan is computed once per config through the plan cache. The last chunk is flagged so the client knows the
+     * plan is complete.
+     *
+     * @param ctx        the channel context
+     * @param session    the session
+     * @param planAction the action carrying the config and the chunk size
+     */
+    @SuppressWarnings("unchecked")
+    protected void planPartitions(final ChannelHandlerContext ctx, final ExtractorSession<T> session,
+                                  PlanPartitionsAction<T> planAction) {
+        final ExtractorConfig<T> config = planAction.getConfig();
+        final int chunkSize = planAction.getChunkSize() > 0 ? planAction.getChunkSize() : partitionPlanChunkSize;
+        final boolean[] streamed = new boolean[1];
+
+        Partition[] partitions = partitionPlanCache.get(ExtractorPool.keyOf(config), config.getRddId(),
+                new Callable<Partition[]>() {
+            @Override
+            public Partition[] call() {
+                if (session.getExtractor() == null) {
+                    initExtractor(session, config);
+                }
+                IExtractor<T, ExtractorConfig<T>> planner = PrefetchingExtractor.unwrap(session.getExtractor());
+                if (!(planner instanceof IIncrementalPartitioner)) {
+                    return planner.getPartitions(config);
+                }
+
+                final List<Partition> plan = new ArrayList<>();
+                ((IIncrementalPartitioner<ExtractorConfig<T>>) planner).getPartitions(config,
+                        new IPartitionListener() {
+                            @Override
+                            public void onPartition(Partition partition) {
+                                plan.add(partition);
+                                if (plan.size() % chunkSize == 0) {
+                                    sendPlanChunk(ctx, session, plan.subList(plan.size() - chunkSize, plan.size()),
+                                            false);
+                                }
+                            }
+                        });
+                sendPlanChunk(ctx, session, plan.subList(plan.size() - plan.size() % chunkSize, plan.size()), true);
+                streamed[0] = true;
+                return plan.toArray(new Partition[plan.size()]);
+            }
+        });
+        if (streamed[0]) {
+            return;
         }
 
-        return extractor.getPartitions(getPartitionsAction.getConfig());
+        int from = 0;
+        do {
+            int to = Math.min(from + chunkSize, partitions.length);
+            sendPlanChunk(ctx, session, Arrays.asList(partitions).subList(from, to), to == partitions.length);
+            from = to;
+        } while (from < partitions.length);
+    }
+
+    private void sendPlanChunk(ChannelHandlerContext ctx, ExtractorSession<T> session, List<Partition> partitions,
+                               boolean last) {
+        PlanPartitionsResponse response = new PlanPartitionsResponse(
+                partitions.toArray(new Partition[partitions.size()]), last);
+        response.setStreamId(session.getStreamId());
+        ctx.writeAndFlush(response);
+    }
+
+    /**
+     * @param invalidateAction the action carrying the config whose plan is dropped, null to drop every plan
+     * @return the number of plans dropped
+     */
+    protected int invalidatePartitions(InvalidatePartitionsAction<T> invalidateAction) {
+        if (invalidateAction.getConfig() == null) {
+            return partitionPlanCache.invalidateAll();
+        }
+        return partitionPlanCache.invalidate(ExtractorPool.keyOf(invalidateAction.getConfig()));
     }
 
     /**
+     * @param session
      * @param config
      */
     @SuppressWarnings("unchecked")
-    private void initExtractor(ExtractorConfig<T> config) {
+    private void initExtractor(ExtractorSession<T> session, ExtractorConfig<T> config) {
 
+        ExtractorPool.Key key = ExtractorPool.keyOf(config);
         try {
-            Class<T> rdd = config.getExtractorImplClass();
-            if (rdd == null) {
-                rdd = (Class<T>) Class.forName(config.getExtractorImplClassName());
-            }
-            Constructor<T> c = null;
-            if (config.getEntityClass().isAssignableFrom(Cells.class)) {
-                c = rdd.getConstructor();
-                this.extractor = (IExtractor<T, ExtractorConfig<T>>) c.newInstance();
-            } else {
-                c = rdd.getConstructor(Class.class);
-                this.extractor = (IExtractor<T, ExtractorConfig<T>>) c.newInstance(config.getEntityClass());
-            }
-
-            
-        } catch (ClassNotFoundException | HadoopInstantiationException | IllegalAccessException | IllegalArgumentException
-                | InvocationTargetException | NoSuchMethodException | SecurityException e) {
+            session.setExtractor((IExtractor<T, ExtractorConfig<T>>) extractorPool.borrow(key), key);
+        } catch (Exception e) {
             LOG.error("Impossible to make an extractor instance, check classpath " + e.getMessage());
             throw new HadoopInstantiationException(
                     "Impossible to make an extractor instance, check classpath " + e.getMessage());
-        } catch (java.lang.InstantiationException ex) {
-            java.util.logging.Logger.getLogger(ExtractorServerHandler.class.getName()).log(Level.SEVERE, null, ex);
         }
     }
 
-    protected void initSave(InitSaveAction<T> initSaveAction) {
-        if (extractor == null) {
-            this.initExtractor(initSaveAction.getConfig());
+    protected void initSave(ExtractorSession<T> session, InitSaveAction<T> initSaveAction) {
+        if (session.getExtractor() == null) {
+            this.initExtractor(session, initSaveAction.getConfig());
         }
 
-        extractor.initSave(initSaveAction.getConfig(), initSaveAction.getFirst(), initSaveAction.getQueryBuilder());
+        session.getExtractor().initSave(initSaveAction.getConfig(), initSaveAction.getFirst(),
+                initSaveAction.getQueryBuilder());
         return;
 
     }
 
-    protected void save(SaveAction<T> saveAction) {
-        extractor.saveRDD(saveAction.getRecord());
+    protected void save(ExtractorSession<T> session, SaveAction<T> saveAction) {
+        session.getExtractor().saveRDD(saveAction.getRecord());
+        metrics.recordsWritten(session.getExtractor().getClass(), 1);
         return;
 
     }
+
+    /**
+     * Saves a batch of records, one by one so a bad record does not fail the whole batch. Batches of a session run
+     * in the order they were received.
+     *
+     * @param session         the session
+     * @param saveBatchAction the batch
+     * @return the acknowledgement with the number of records saved and failed
+     */
+    protected SaveBatchResponse saveBatch(ExtractorSession<T> session, SaveBatchAction<T> saveBatchAction) {
+        IExtractor<T, ExtractorConfig<T>> extractor = session.getExtractor();
+        int saved = 0;
+        int failed = 0;
+        String firstError = null;
+
+        for (T record : saveBatchAction.getRecords()) {
+            try {
+                extractor.saveRDD(record);
+                saved++;
+            } catch (RuntimeException e) {
+                if (failed == 0) {
+                    firstError = e.getMessage() != null ? e.getMessage() : e.toString();
+                    LOG.error("Save failed in batch " + saveBatchAction.getBatchId() + " " + firstError);
+                }
+                failed++;
+            }
+        }
+
+        metrics.recordsWritten(extractor.getClass(), saved);
+        return new SaveBatchResponse(saveBatchAction.getBatchId(), saved, failed, firstError);
+    }
+
+    /**
+     * A task of a session waiting for the worker pool.
+     */
+    private static final class DeferredTask<T> {
+
+        private final ExtractorSession<T> session;
+
+        private final Runnable task;
+
+        private DeferredTask(ExtractorSession<T> session, Runnable task) {
+            this.session = session;
+            this.task = task;
+        }
+    }
 }
@@ -15,8 +15,12 @@
 package com.bosscs.spark.commons.extractor.server;
 
 import com.bosscs.spark.commons.extractor.client.codecs.ActionDecoder;
+import com.bosscs.spark.commons.extractor.client.codecs.ExtractorFrameDecoder;
+import com.bosscs.spark.commons.extractor.client.codecs.FrameCompressor;
+import com.bosscs.spark.commons.extractor.client.codecs.FrameDecompressor;
 import com.bosscs.spark.commons.extractor.client.codecs.ResponseEncoder;
 
+import io.netty.channel.ChannelConfig;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.socket.SocketChannel;
@@ -26,20 +30,63 @@ public class ExtractorServerInitializer<T> extends ChannelInitializer<SocketChan
 
     private final SslContext sslCtx;
 
-    public ExtractorServerInitializer(SslContext sslCtx) {
+    private final ExtractorWorkerPool workerPool;
+
+    private final ExtractorPool extractorPool;
+
+    private final PartitionPlanCache partitionPlanCache;
+
+    private final ExtractorServerMetrics metrics;
+
+    private final TrafficMetricsHandler trafficMetrics;
+
+    private final ExtractorServerConfig config;
+
+    public ExtractorServerInitializer(SslContext sslCtx, ExtractorWorkerPool workerPool, ExtractorPool extractorPool,
+                                      PartitionPlanCache partitionPlanCache, ExtractorServerMetrics metrics,
+                                      ExtractorServerConfig config) {
         this.sslCtx = sslCtx;
+        this.workerPool = workerPool;
+        this.extractorPool = extractorPool;
+        this.partitionPlanCache = partitionPlanCache;
+        this.metrics = metrics;
+        this.trafficMetrics = new TrafficMetricsHandler(metrics);
+        this.config = config;
     }
 
     @Override
     public void initChannel(SocketChannel ch) throws Exception {
+        setWriteBufferWaterMarks(ch.config());
+
         ChannelPipeline p = ch.pipeline();
         if (sslCtx != null) {
             p.addLast(sslCtx.newHandler(ch.alloc()));
         }
 
+        p.addLast(new ExtractorFrameDecoder(config.getMaxFrameLength()));
+        p.addLast(trafficMetrics);
+        p.addLast(new FrameDecompressor(config.getMaxFrameLength()));
+        p.addLast(new FrameCompressor(config.getCompressionThreshold()));
         p.addLast(new ActionDecoder());
         p.addLast(new ResponseEncoder());
 
-        p.addLast(new ExtractorServerHandler<T>());
+        p.addLast(new ExtractorServerHandler<T>(workerPool, extractorPool, partitionPlanCache, metrics, config));
+    }
+
+    /**
+     * Sets both write water marks of a channel. Netty rejects a high mark below the current low one and a low mark
+     * above the current high one, so when the new high mark is below the current low one the low mark goes first.
+     * The config checked that the new low mark is not above the new high one.
+     */
+    private void setWriteBufferWaterMarks(ChannelConfig channelConfig) {
+        int high = config.getWriteBufferHighWaterMark();
+        int low = config.getWriteBufferLowWaterMark();
+        if (high < channelConfig.getWriteBufferLowWaterMark()) {
+            channelConfig.setWriteBufferLowWaterMark(low);
+            channelConfig.setWriteBufferHighWaterMark(high);
+        } else {
+            channelConfig.setWriteBufferHighWaterMark(high);
+            channelConfig.setWriteBufferLowWaterMark(low);
+        }
     }
 }
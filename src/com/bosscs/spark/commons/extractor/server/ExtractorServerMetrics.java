@@ -0,0 +1,227 @@
+/*
+ * Copyright Jerry Xiong, BOSSCS
+ *
+ * The Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.bosscs.spark.commons.extractor.server;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.bosscs.spark.commons.extractor.actions.ActionType;
+import com.bosscs.spark.commons.extractor.client.codecs.ExtractorCodecs;
+
+/**
+ * Throughput and latency of the extractor server: per action counters and latency histograms, bytes per codec,
+ * records read and written per extractor class, open channels and iterators. Every update is a striped add on a
+ * structure built up front (or once per extractor class), so recording never takes a lock. Rates, such as records
+ * per second, are left to the scraper.
+ */
+public class ExtractorServerMetrics {
+
+    private static final int CODECS = 128;
+
+    private final Map<ActionType, LongAdder> actionErrors = new EnumMap<>(ActionType.class);
+
+    private final Map<ActionType, LatencyHistogram> actionLatencies = new EnumMap<>(ActionType.class);
+
+    private final LongAdder[] bytesIn = new LongAdder[CODECS];
+
+    private final LongAdder[] bytesOut = new LongAdder[CODECS];
+
+    private final ConcurrentMap<Class<?>, LongAdder> recordsRead = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<Class<?>, LongAdder> recordsWritten = new ConcurrentHashMap<>();
+
+    private final LongAdder openChannels = new LongAdder();
+
+    private final LongAdder activeIterators = new LongAdder();
+
+    public ExtractorServerMetrics() {
+        // filled once, the maps are only read afterwards
+        for (ActionType type : ActionType.values()) {
+            actionErrors.put(type, new LongAdder());
+            actionLatencies.put(type, new LatencyHistogram());
+        }
+        for (int i = 0; i < CODECS; i++) {
+            bytesIn[i] = new LongAdder();
+            bytesOut[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * @param type  the action processed
+     * @param nanos the time it took
+     * @param error whether it failed
+     */
+    public void recordAction(ActionType type, long nanos, boolean error) {
+        actionLatencies.get(type).record(nanos);
+        if (error) {
+            actionErrors.get(type).increment();
+        }
+    }
+
+    public void bytesIn(byte codecId, int bytes) {
+        bytesIn[codecId & (CODECS - 1)].add(bytes);
+    }
+
+    public void bytesOut(byte codecId, int bytes) {
+        bytesOut[codecId & (CODECS - 1)].add(bytes);
+    }
+
+    public void recordsRead(Class<?> extractorClass, int records) {
+        if (records > 0) {
+            counter(recordsRead, extractorClass).add(records);
+        }
+    }
+
+    public void recordsWritten(Class<?> extractorClass, int records) {
+        if (records > 0) {
+            counter(recordsWritten, extractorClass).add(records);
+        }
+    }
+
+    public void channelOpened() {
+        openChannels.increment();
+    }
+
+    public void channelClosed() {
+        openChannels.decrement();
+    }
+
+    public void iteratorOpened() {
+        activeIterators.increment();
+    }
+
+    public void iteratorClosed() {
+        activeIterators.decrement();
+    }
+
+    public LatencyHistogram getActionLatency(ActionType type) {
+        return actionLatencies.get(type);
+    }
+
+    public long getActionErrors(ActionType type) {
+        return actionErrors.get(type).sum();
+    }
+
+    public long getOpenChannels() {
+        return openChannels.sum();
+    }
+
+    public long getActiveIterators() {
+        return activeIterators.sum();
+    }
+
+    /**
+     * Appends the metrics in the Prometheus text exposition format.
+     *
+     * @param sb the buffer
+     */
+    public void writeTo(StringBuilder sb) {
+        header(sb, "extractor_action_duration_seconds", "histogram", "Time spent processing actions.");
+        for (Map.Entry<ActionType, LatencyHistogram> entry : actionLatencies.entrySet()) {
+            LatencyHistogram histogram = entry.getValue();
+            if (histogram.getCount() == 0) {
+                continue;
+            }
+            String action = entry.getKey().name();
+            long cumulative = 0;
+            for (int i = 0; i < LatencyHistogram.BUCKETS; i++) {
+                cumulative += histogram.getBucketCount(i);
+                sb.append("extractor_action_duration_seconds_bucket{action=\"").append(action).append("\",le=\"")
+                        .append(LatencyHistogram.getUpperBoundSeconds(i)).append("\"} ").append(cumulative)
+                        .append('\n');
+            }
+            cumulative += histogram.getBucketCount(LatencyHistogram.BUCKETS);
+            sb.append("extractor_action_duration_seconds_bucket{action=\"").append(action).append("\",le=\"+Inf\"} ")
+                    .append(cumulative).append('\n');
+            sb.append("extractor_action_duration_seconds_sum{action=\"").append(action).append("\"} ")
+                    .append(histogram.getSumNanos() / 1e9).append('\n');
+            sb.append("extractor_action_duration_seconds_count{action=\"").append(action).append("\"} ")
+                    .append(cumulative).append('\n');
+        }
+
+        header(sb, "extractor_action_errors_total", "counter", "Actions that failed.");
+        for (Map.Entry<ActionType, LongAdder> entry : actionErrors.entrySet()) {
+            long errors = entry.getValue().sum();
+            if (errors > 0) {
+                sb.append("extractor_action_errors_total{action=\"").append(entry.getKey().name()).append("\"} ")
+                        .append(errors).append('\n');
+            }
+        }
+
+        header(sb, "extractor_received_bytes_total", "counter", "Bytes of the frames read, per codec.");
+        writeBytes(sb, "extractor_received_bytes_total", bytesIn);
+        header(sb, "extractor_sent_bytes_total", "counter", "Bytes of the frames written, per codec.");
+        writeBytes(sb, "extractor_sent_bytes_total", bytesOut);
+
+        header(sb, "extractor_records_read_total", "counter", "Records read, per extractor class.");
+        writeRecords(sb, "extractor_records_read_total", recordsRead);
+        header(sb, "extractor_records_written_total", "counter", "Records saved, per extractor class.");
+        writeRecords(sb, "extractor_records_written_total", recordsWritten);
+
+        gauge(sb, "extractor_open_channels", "Client connections currently open.", openChannels.sum());
+        gauge(sb, "extractor_active_iterators", "Partition iterators currently open.", activeIterators.sum());
+    }
+
+    static void header(StringBuilder sb, String name, String type, String help) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    static void gauge(StringBuilder sb, String name, String help, long value) {
+        header(sb, name, "gauge", help);
+        sb.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void writeBytes(StringBuilder sb, String name, LongAdder[] counters) {
+        for (int i = 0; i < counters.length; i++) {
+            long bytes = counters[i].sum();
+            if (bytes > 0) {
+                sb.append(name).append("{codec=\"").append(codecName((byte) i)).append("\"} ").append(bytes)
+                        .append('\n');
+            }
+        }
+    }
+
+    private static void writeRecords(StringBuilder sb, String name, ConcurrentMap<Class<?>, LongAdder> counters) {
+        for (Map.Entry<Class<?>, LongAdder> entry : counters.entrySet()) {
+            sb.append(name).append("{extractor=\"").append(entry.getKey().getName()).append("\"} ")
+                    .append(entry.getValue().sum()).append('\n');
+        }
+    }
+
+    private static String codecName(byte codecId) {
+        try {
+            return ExtractorCodecs.forId(codecId).getClass().getSimpleName();
+        } catch (RuntimeException e) {
+            return String.valueOf(codecId);
+        }
+    }
+
+    private static LongAdder counter(ConcurrentMap<Class<?>, LongAdder> counters, Class<?> extractorClass) {
+        LongAdder counter = counters.get(extractorClass);
+        if (counter == null) {
+            LongAdder created = new LongAdder();
+            counter = counters.putIfAbsent(extractorClass, created);
+            if (counter == null) {
+                counter = created;
+            }
+        }
+        return counter;
+    }
+}
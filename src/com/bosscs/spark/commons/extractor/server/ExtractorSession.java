@@ -0,0 +1,265 @@
+/*
+ * Copyright Jerry Xiong, BOSSCS
+ * 
+ * The Project licenses this file to you under the Apache License, version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at:
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.bosscs.spark.commons.extractor.server;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.log4j.Logger;
+
+import com.bosscs.spark.commons.config.ExtractorConfig;
+import com.bosscs.spark.commons.rdd.IExtractor;
+
+/**
+ * State of one partition read or save multiplexed over an extractor server channel, keyed by the stream id carried
+ * by every action. Tasks of a session run one at a time and in arrival order on the worker pool, while different
+ * sessions run in parallel.
+ */
+public class ExtractorSession<T> {
+
+    private static final Logger LOG = Logger.getLogger(ExtractorSession.class);
+
+    private final int streamId;
+
+    private final ExtractorWorkerPool workerPool;
+
+    private final ExtractorPool extractorPool;
+
+    /**
+     * Tasks waiting to run.
+     */
+    private final Deque<Runnable> tasks = new ArrayDeque<>();
+
+    /**
+     * True while the drainer is queued on or running in the worker pool.
+     */
+    private boolean scheduled;
+
+    private final Runnable drainer = new Runnable() {
+        @Override
+        public void run() {
+            drain();
+        }
+    };
+
+    private IExtractor<T, ExtractorConfig<T>> extractor;
+
+    /**
+     * Key the extractor was borrowed with, to give it back to the pool.
+     */
+    private ExtractorPool.Key extractorKey;
+
+    /**
+     * True while a STREAM_PARTITION is pushing records to the client.
+     */
+    private volatile boolean streaming;
+
+    /**
+     * True while a task pushing the next chunk of the stream is queued and has not started yet. Both a worker that
+     * just pushed a chunk and the event loop seeing the channel writable again resume the stream; only the one that
+     * sets this flag queues the task, so a stream never has two chains of tasks pushing chunks.
+     */
+    private final AtomicBoolean streamTaskScheduled = new AtomicBoolean();
+
+    private int streamChunkSize;
+
+    /**
+     * Whether an iterator was opened on the extractor and not closed yet.
+     */
+    private boolean iterating;
+
+    public ExtractorSession(int streamId, ExtractorWorkerPool workerPool, ExtractorPool extractorPool) {
+        this.streamId = streamId;
+        this.workerPool = workerPool;
+        this.extractorPool = extractorPool;
+    }
+
+    /**
+     * Queues a task behind the previous tasks of this session. When the worker pool rejects the drainer, only this
+     * task is dropped: tasks queued before it stay queued, unscheduled, for the next call to pick up.
+     *
+     * @param task the task
+     * @throws RejectedExecutionException if the worker pool is saturated
+     */
+    public void execute(Runnable task) {
+        synchronized (tasks) {
+            tasks.add(task);
+            if (scheduled) {
+                return;
+            }
+            scheduled = true;
+        }
+
+        try {
+            workerPool.execute(drainer);
+        } catch (RejectedExecutionException e) {
+            synchronized (tasks) {
+                tasks.removeLastOccurrence(task);
+                scheduled = false;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Runs the queued tasks in order. After each task the thread is handed back to the pool so other sessions get
+     * their turn; if the pool is saturated we simply keep draining on the current thread. Should an Error escape a
+     * task, the session is unscheduled on the way out so its remaining tasks still run.
+     */
+    private void drain() {
+        boolean unscheduled = false;
+        try {
+            while (true) {
+                Runnable task;
+                synchronized (tasks) {
+                    task = tasks.poll();
+                    if (task == null) {
+                        scheduled = false;
+                        unscheduled = true;
+                        return;
+                    }
+                }
+
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    LOG.error("Extractor task failed on stream " + streamId, e);
+                }
+
+                synchronized (tasks) {
+                    if (tasks.isEmpty()) {
+                        scheduled = false;
+                        unscheduled = true;
+                        return;
+                    }
+                }
+
+                try {
+                    workerPool.execute(drainer);
+                    unscheduled = true;
+                    return;
+                } catch (RejectedExecutionException e) {
+                    // keep draining on this thread
+                }
+            }
+        } finally {
+            if (!unscheduled) {
+                reschedule();
+            }
+        }
+    }
+
+    /**
+     * Hands the remaining tasks to a new drainer after the current one was aborted, or leaves the session
+     * unscheduled for the next {@link #execute} to pick them up if the pool is saturated.
+     */
+    private void reschedule() {
+        synchronized (tasks) {
+            scheduled = !tasks.isEmpty();
+            if (!scheduled) {
+                return;
+            }
+        }
+        try {
+            workerPool.execute(drainer);
+        } catch (RejectedExecutionException e) {
+            synchronized (tasks) {
+                scheduled = false;
+            }
+        }
+    }
+
+    public int getStreamId() {
+        return streamId;
+    }
+
+    public IExtractor<T, ExtractorConfig<T>> getExtractor() {
+        return extractor;
+    }
+
+    /**
+     * Sets the extractor borrowed from the pool for this session.
+     *
+     * @param extractor    the extractor
+     * @param extractorKey the key it was borrowed with
+     */
+    public void setExtractor(IExtractor<T, ExtractorConfig<T>> extractor, ExtractorPool.Key extractorKey) {
+        this.extractor = extractor;
+        this.extractorKey = extractorKey;
+    }
+
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
+    /**
+     * Claims the right to queue the next chunk task of the stream.
+     *
+     * @return false if a chunk task is already queued
+     */
+    public boolean scheduleStreamTask() {
+        return streamTaskScheduled.compareAndSet(false, true);
+    }
+
+    /**
+     * Called when the queued chunk task starts, or could not be queued, so that the stream can be resumed again.
+     */
+    public void streamTaskStarted() {
+        streamTaskScheduled.set(false);
+    }
+
+    public int getStreamChunkSize() {
+        return streamChunkSize;
+    }
+
+    public void setStreamChunkSize(int streamChunkSize) {
+        this.streamChunkSize = streamChunkSize;
+    }
+
+    public boolean isIterating() {
+        return iterating;
+    }
+
+    public void setIterating(boolean iterating) {
+        this.iterating = iterating;
+    }
+
+    /**
+     * Stops any stream in progress, closes the underlying extractor and gives it back to the pool.
+     */
+    public void close() {
+        streaming = false;
+        if (extractor == null) {
+            return;
+        }
+
+        IExtractor<T, ExtractorConfig<T>> closing = extractor;
+        extractor = null;
+        try {
+            closing.close();
+        } catch (RuntimeException e) {
+            // not reusable
+            LOG.warn("Unable to close extractor of stream " + streamId + " " + e.getMessage());
+            return;
+        }
+        extractorPool.release(extractorKey, closing);
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright Jerry Xiong, BOSSCS
+ *
+ * The Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.bosscs.spark.commons.extractor.server;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Bounded executor running the blocking extractor calls (JDBC result sets, Mongo cursors, writes) of the extractor
+ * server so they never stall a Netty event loop. Its queue depth and counters are published over JMX.
+ */
+public class ExtractorWorkerPool implements ExtractorWorkerPoolMBean {
+
+    private static final Logger LOG = Logger.getLogger(ExtractorWorkerPool.class);
+
+    private static final String OBJECT_NAME = "com.bosscs.spark:type=ExtractorWorkerPool";
+
+    private final ExecutorService executor;
+
+    /**
+     * Maximum number of tasks accepted and not yet finished.
+     */
+    private final int capacity;
+
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private final AtomicInteger active = new AtomicInteger();
+
+    private final AtomicLong completed = new AtomicLong();
+
+    private final AtomicLong rejected = new AtomicLong();
+
+    private ObjectName objectName;
+
+    public ExtractorWorkerPool(ExtractorServerConfig config) {
+        this.capacity = config.getExtractorThreads() + config.getExtractorQueueSize();
+
+        ExecutorService virtualThreads = config.isUseVirtualThreads() ? newVirtualThreadExecutor() : null;
+        if (virtualThreads != null) {
+            this.executor = virtualThreads;
+        } else {
+            this.executor = new ThreadPoolExecutor(config.getExtractorThreads(), config.getExtractorThreads(),
+                    0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(config.getExtractorQueueSize()),
+                    new WorkerThreadFactory());
+        }
+
+        registerMBean();
+    }
+
+    /**
+     * Runs the task on a worker thread.
+     *
+     * @param task the task
+     * @throws RejectedExecutionException if the pool is saturated
+     */
+    public void execute(final Runnable task) {
+        if (queued.incrementAndGet() + active.get() > capacity) {
+            queued.decrementAndGet();
+            rejected.incrementAndGet();
+            throw new RejectedExecutionException("Extractor worker queue is full (" + capacity + " tasks)");
+        }
+
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    queued.decrementAndGet();
+                    active.incrementAndGet();
+                    try {
+                        task.run();
+                    } finally {
+                        active.decrementAndGet();
+                        completed.incrementAndGet();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            queued.decrementAndGet();
+            rejected.incrementAndGet();
+            throw e;
+        }
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return queued.get();
+    }
+
+    @Override
+    public int getActiveCount() {
+        return active.get();
+    }
+
+    @Override
+    public long getCompletedTaskCount() {
+        return completed.get();
+    }
+
+    @Override
+    public long getRejectedTaskCount() {
+        return rejected.get();
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+        unregisterMBean();
+    }
+
+    /**
+     * Looks up {@code Executors.newVirtualThreadPerTaskExecutor()} reflectively so the server still runs on JVMs
+     * without virtual threads.
+     *
+     * @return a virtual thread executor, or null if the JVM does not provide one
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            LOG.warn("Virtual threads are not available on this JVM, using a fixed thread pool instead");
+            return null;
+        }
+    }
+
+    private void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(this, name);
+                this.objectName = name;
+            }
+        } catch (Exception e) {
+            LOG.warn("Impossible to register the extractor worker pool MBean " + e.getMessage());
+        }
+    }
+
+    private void unregisterMBean() {
+        if (objectName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            } catch (Exception e) {
+                LOG.warn("Impossible to unregister the extractor worker pool MBean " + e.getMessage());
+            }
+            objectName = null;
+        }
+    }
+
+    private static class WorkerThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "extractor-worker-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
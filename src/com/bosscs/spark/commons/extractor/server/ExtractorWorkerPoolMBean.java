@@ -0,0 +1,42 @@
+/*
+ * Copyright Jerry Xiong, BOSSCS
+ *
+ * The Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.bosscs.spark.commons.extractor.server;
+
+/**
+ * JMX view of the {@link ExtractorWorkerPool}.
+ */
+public interface ExtractorWorkerPoolMBean {
+
+    /**
+     * @return the number of extractor tasks waiting for a thread.
+     */
+    int getQueueDepth();
+
+    /**
+     * @return the number of extractor tasks currently running.
+     */
+    int getActiveCount();
+
+    /**
+     * @return the number of extractor tasks run since the server started.
+     */
+    long getCompletedTaskCount();
+
+    /**
+     * @return the number of extractor tasks refused because the queue was full.
+     */
+    long getRejectedTaskCount();
+}
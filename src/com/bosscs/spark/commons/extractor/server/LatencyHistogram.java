@@ -0,0 +1,79 @@
+/*
+ * Copyright Jerry Xiong, BOSSCS
+ *
+ * The Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.bosscs.spark.commons.extractor.server;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with power of two buckets, from 1 microsecond to about 35 minutes. Recording is an
+ * index computation and two striped adds, so it can sit on hot paths; reads are only approximately consistent with
+ * each other, which is fine for scraping.
+ */
+public class LatencyHistogram {
+
+    /**
+     * Number of bounded buckets, bucket i holds the values up to 2^i microseconds.
+     */
+    public static final int BUCKETS = 32;
+
+    private final LongAdder[] counts = new LongAdder[BUCKETS + 1];
+
+    private final LongAdder sumNanos = new LongAdder();
+
+    public LatencyHistogram() {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * @param nanos the measured duration, in nanoseconds
+     */
+    public void record(long nanos) {
+        long micros = nanos / 1000;
+        int index = micros <= 1 ? 0 : 64 - Long.numberOfLeadingZeros(micros - 1);
+        counts[Math.min(index, BUCKETS)].increment();
+        sumNanos.add(nanos);
+    }
+
+    /**
+     * @param bucket the bucket index, {@link #BUCKETS} being the overflow bucket
+     * @return the number of values recorded in that bucket alone
+     */
+    public long getBucketCount(int bucket) {
+        return counts[bucket].sum();
+    }
+
+    /**
+     * @param bucket the bucket index, below {@link #BUCKETS}
+     * @return the upper bound of the bucket, in seconds
+     */
+    public static double getUpperBoundSeconds(int bucket) {
+        return (1L << bucket) / 1000000d;
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (LongAdder bucket : counts) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    public long getSumNanos() {
+        return sumNanos.sum();
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright Jerry Xiong, BOSSCS
+ *
+ * The Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.bosscs.spark.commons.extractor.server;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.log4j.Logger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Serves the server metrics as plain text on {@code /metrics}, in the Prometheus exposition format, on a port of its
+ * own so scraping never competes with the extractor protocol. Uses the JDK HTTP server on a single daemon thread.
+ */
+public class MetricsHttpServer {
+
+    private static final Logger LOG = Logger.getLogger(MetricsHttpServer.class);
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final ExtractorServerMetrics metrics;
+
+    private final ExtractorWorkerPool workerPool;
+
+    private final ExtractorPool extractorPool;
+
+    private final PartitionPlanCache partitionPlanCache;
+
+    private HttpServer server;
+
+    private ExecutorService executor;
+
+    public MetricsHttpServer(ExtractorServerMetrics metrics, ExtractorWorkerPool workerPool,
+                             ExtractorPool extractorPool, PartitionPlanCache partitionPlanCache) {
+        this.metrics = metrics;
+        this.workerPool = workerPool;
+        this.extractorPool = extractorPool;
+        this.partitionPlanCache = partitionPlanCache;
+    }
+
+    /**
+     * Starts listening.
+     *
+     * @param port the port
+     * @throws IOException if the port cannot be bound
+     */
+    public void start(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/metrics", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                byte[] body = scrape().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+        });
+        executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "extractor-metrics");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        server.setExecutor(executor);
+        server.start();
+        LOG.info("Serving extractor metrics on port " + port);
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+
+    /**
+     * @return the current metrics, in the Prometheus text format
+     */
+    public String scrape() {
+        StringBuilder sb = new StringBuilder(8 * 1024);
+        metrics.writeTo(sb);
+
+        ExtractorServerMetrics.gauge(sb, "extractor_worker_queue_depth", "Extractor tasks waiting for a thread.",
+                workerPool.getQueueDepth());
+        ExtractorServerMetrics.gauge(sb, "extractor_worker_active", "Extractor tasks running.",
+                workerPool.getActiveCount());
+        ExtractorServerMetrics.header(sb, "extractor_worker_completed_total", "counter", "Extractor tasks run.");
+        sb.append("extractor_worker_completed_total ").append(workerPool.getCompletedTaskCount()).append('\n');
+        ExtractorServerMetrics.header(sb, "extractor_worker_rejected_total", "counter",
+                "Extractor tasks refused because the queue was full.");
+        sb.append("extractor_worker_rejected_total ").append(workerPool.getRejectedTaskCount()).append('\n');
+
+        ExtractorServerMetrics.gauge(sb, "extractor_pool_idle", "Idle extractors kept for reuse.",
+                extractorPool.getIdleCount());
+        ExtractorServerMetrics.gauge(sb, "extractor_partition_plans_cached", "Partition plans in the cache.",
+                partitionPlanCache.getSize());
+        return sb.toString();
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright Jerry Xiong, BOSSCS
+ *
+ * The Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.bosscs.spark.commons.extractor.server;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import org.apache.spark.Partition;
+
+import com.bosscs.spark.commons.exception.GenericException;
+
+/**
+ * Partition plans computed by the server, kept for a while keyed by the normalized config (see
+ * {@link ExtractorPool#keyOf}) and the id of the RDD asking for them. The pool key leaves the RDD id out, but the
+ * partitions carry it and compare by it, so a plan is only handed back to the RDD it was built for. Planning a Mongo collection runs splitVector or reads config.chunks, and planning a
+ * JDBC table counts its rows, so every task of a job reading the same source asks for the plan once. When
+ * several sessions ask for a plan that is not there yet, the first one computes it and the others wait for its
+ * result instead of planning again. Expired plans are dropped by the lookups, at most once every half TTL.
+ */
+public class PartitionPlanCache {
+
+    private final ConcurrentMap<PlanKey, Entry> plans = new ConcurrentHashMap<>();
+
+    private final long ttlMillis;
+
+    /**
+     * Time of the next sweep of the expired plans.
+     */
+    private volatile long nextPurge;
+
+    /**
+     * @param ttlMillis time a plan stays valid after it was computed, 0 or less disables the cache
+     */
+    public PartitionPlanCache(long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+        this.nextPurge = System.currentTimeMillis() + ttlMillis / 2;
+    }
+
+    /**
+     * Returns the cached plan of the given key, computing it with {@code planner} if there is none or it expired.
+     *
+     * @param source  the normalized config
+     * @param rddId   the id of the RDD the partitions belong to
+     * @param planner computes the plan
+     * @return the plan, shared: callers must not modify it
+     */
+    public Partition[] get(ExtractorPool.Key source, int rddId, Callable<Partition[]> planner) {
+        if (!isEnabled()) {
+            return call(planner);
+        }
+        purgeExpired();
+
+        PlanKey key = new PlanKey(source, rddId);
+        while (true) {
+            Entry entry = plans.get(key);
+            if (entry != null && !entry.isExpired()) {
+                return entry.await();
+            }
+
+            Entry planning = new Entry(new FutureTask<>(planner));
+            boolean owner = entry == null ? plans.putIfAbsent(key, planning) == null : plans.replace(key, entry,
+                    planning);
+            if (!owner) {
+                // someone else started planning the same key, wait for it on the next loop
+                continue;
+            }
+
+            planning.task.run();
+            try {
+                Partition[] partitions = planning.await();
+                planning.expiresAt = System.currentTimeMillis() + ttlMillis;
+                return partitions;
+            } catch (RuntimeException e) {
+                plans.remove(key, planning);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Returns the valid plan of the given key without computing it.
+     *
+     * @param source the normalized config
+     * @param rddId  the id of the RDD the partitions belong to
+     * @return the plan, or null if it is not cached, expired or still being computed
+     */
+    public Partition[] getIfPresent(ExtractorPool.Key source, int rddId) {
+        purgeExpired();
+        Entry entry = plans.get(new PlanKey(source, rddId));
+        if (entry == null || entry.isExpired() || !entry.task.isDone()) {
+            return null;
+        }
+        try {
+            return entry.await();
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Drops the plans of the given config, whatever RDD they were built for, for instance after the source was
+     * resharded.
+     *
+     * @param source the normalized config
+     * @return the number of plans dropped
+     */
+    public int invalidate(ExtractorPool.Key source) {
+        int removed = 0;
+        for (Iterator<PlanKey> it = plans.keySet().iterator(); it.hasNext(); ) {
+            if (it.next().source.equals(source)) {
+                it.remove();
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Drops every plan.
+     *
+     * @return the number of plans dropped
+     */
+    public int invalidateAll() {
+        int removed = 0;
+        for (Iterator<PlanKey> it = plans.keySet().iterator(); it.hasNext(); ) {
+            it.next();
+            it.remove();
+            removed++;
+        }
+        return removed;
+    }
+
+    /**
+     * Drops the plans whose TTL elapsed, unless the last sweep is recent. Plans still being computed never expire.
+     */
+    private void purgeExpired() {
+        long now = System.currentTimeMillis();
+        if (now < nextPurge) {
+            return;
+        }
+        nextPurge = now + Math.max(ttlMillis / 2, 1);
+        for (Map.Entry<PlanKey, Entry> plan : plans.entrySet()) {
+            if (plan.getValue().isExpired()) {
+                plans.remove(plan.getKey(), plan.getValue());
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return ttlMillis > 0;
+    }
+
+    public long getTtlMillis() {
+        return ttlMillis;
+    }
+
+    public int getSize() {
+        return plans.size();
+    }
+
+    private static Partition[] call(Callable<Partition[]> planner) {
+        try {
+            return planner.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new GenericException(e);
+        }
+    }
+
+    /**
+     * Normalized config and RDD id.
+     */
+    private static final class PlanKey {
+
+        private final ExtractorPool.Key source;
+
+        private final int rddId;
+
+        private PlanKey(ExtractorPool.Key source, int rddId) {
+            this.source = source;
+            this.rddId = rddId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof PlanKey)) {
+                return false;
+            }
+            PlanKey planKey = (PlanKey) o;
+            return rddId == planKey.rddId && source.equals(planKey.source);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * source.hashCode() + rddId;
+        }
+    }
+
+    private static final class Entry {
+
+        private final FutureTask<Partition[]> task;
+
+        /**
+         * Set once the plan is computed, until then the entry never expires.
+         */
+        private volatile long expiresAt = Long.MAX_VALUE;
+
+        private Entry(FutureTask<Partition[]> task) {
+            this.task = task;
+        }
+
+        private boolean isExpired() {
+            return System.currentTimeMillis() >= expiresAt;
+        }
+
+        private Partition[] await() {
+            boolean interrupted = false;
+            try {
+                while (true) {
+                    try {
+                        return task.get();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new GenericException(cause);
+            } finally {
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright Jerry Xiong, BOSSCS
+ *
+ * The Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.bosscs.spark.commons.extractor.server;
+
+import com.bosscs.spark.commons.extractor.client.codecs.FrameCompression;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+
+/**
+ * Counts the bytes of every frame read and written, per codec, as they go over the wire (compressed frames count
+ * their compressed size). Sits right after the frame decoder: inbound frames have lost their length prefix, outbound
+ * frames still carry it.
+ */
+@Sharable
+public class TrafficMetricsHandler extends ChannelDuplexHandler {
+
+    private final ExtractorServerMetrics metrics;
+
+    public TrafficMetricsHandler(ExtractorServerMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (msg instanceof ByteBuf) {
+            ByteBuf frame = (ByteBuf) msg;
+            if (frame.isReadable()) {
+                byte codecId = (byte) (frame.getByte(frame.readerIndex()) & ~FrameCompression.COMPRESSED_FLAG);
+                metrics.bytesIn(codecId, frame.readableBytes() + 4);
+            }
+        }
+        ctx.fireChannelRead(msg);
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        if (msg instanceof ByteBuf) {
+            ByteBuf frame = (ByteBuf) msg;
+            if (frame.readableBytes() > 4) {
+                byte codecId = (byte) (frame.getByte(frame.readerIndex() + 4) & ~FrameCompression.COMPRESSED_FLAG);
+                metrics.bytesOut(codecId, frame.readableBytes());
+            }
+        }
+        ctx.write(msg, promise);
+    }
+}
@@ -194,6 +194,11 @@ public interface ExtractorConstants {
      */
     String USE_CHUNKS = "useChunk";
 
+    /**
+     * The LAZY _ CELLS.
+     */
+    String LAZY_CELLS = "lazyCells";
+
     /**
      * The SPLIT _ SIZE.
      */
@@ -304,4 +309,14 @@ public interface ExtractorConstants {
 
 
     String WRITE_MODE = "writeMode";
+
+    /**
+     * Number of record batches read ahead on a background thread, 0 or unset reads in the caller thread.
+     */
+    String PREFETCH_DEPTH = "prefetchDepth";
+
+    /**
+     * Number of records per batch read ahead.
+     */
+    String PREFETCH_BATCH_SIZE = "prefetchBatchSize";
 }
@@ -17,6 +17,7 @@
 package com.bosscs.spark.commons.filter;
 
 import java.io.Serializable;
+import java.util.Arrays;
 
 /**
  * Created by Jerry Xiong on 2/02/16.
@@ -102,6 +103,32 @@ public class Filter implements Serializable {
         return value;
     }
 
+    /**
+     * Filters are equal when they apply the same operation to the same field and value, array values being compared
+     * by content.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Filter)) {
+            return false;
+        }
+        Filter filter = (Filter) o;
+        return (field == null ? filter.field == null : field.equals(filter.field))
+                && filterType == filter.filterType
+                && Arrays.deepEquals(new Object[] { value }, new Object[] { filter.value });
+    }
+
+    @Override
+    public int hashCode() {
+        int result = field != null ? field.hashCode() : 0;
+        result = 31 * result + (filterType != null ? filterType.hashCode() : 0);
+        result = 31 * result + Arrays.deepHashCode(new Object[] { value });
+        return result;
+    }
+
     @Override
     public String toString() {
         final StringBuffer sb = new StringBuffer("Filter{");
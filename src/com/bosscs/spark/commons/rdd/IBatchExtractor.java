@@ -0,0 +1,19 @@
+package com.bosscs.spark.commons.rdd;
+
+/**
+ * Implemented by extractors able to hand out their records a batch at a time, paying the per call overhead (virtual
+ * calls, exception translation, cursor checks) once per batch instead of once per record.
+ *
+ * @param <T> the record type
+ */
+public interface IBatchExtractor<T> {
+
+    /**
+     * Reads up to {@code max} records of the iterator opened by {@link IExtractor#initIterator}.
+     *
+     * @param max the maximum number of records to read
+     * @return the records read, empty once the iterator is exhausted. The batch is reused by the next call, callers
+     * keeping the records must copy them out first.
+     */
+    RecordBatch<T> nextBatch(int max);
+}
@@ -0,0 +1,19 @@
+package com.bosscs.spark.commons.rdd;
+
+import com.bosscs.spark.commons.entity.CellsBatch;
+
+/**
+ * Implemented by Cells extractors able to read their rows straight into a columnar {@link CellsBatch}, skipping the
+ * {@link com.bosscs.spark.commons.entity.Cells} object built for every row.
+ */
+public interface ICellsBatchExtractor {
+
+    /**
+     * Reads up to {@code max} rows of the iterator opened by {@link IExtractor#initIterator}.
+     *
+     * @param max the maximum number of rows to read
+     * @return the rows read, empty once the iterator is exhausted. The batch is reused by the next call, callers keeping
+     * the rows must copy them out first.
+     */
+    CellsBatch nextCellsBatch(int max);
+}
@@ -0,0 +1,21 @@
+package com.bosscs.spark.commons.rdd;
+
+import com.bosscs.spark.commons.config.BaseConfig;
+
+/**
+ * Implemented by extractors able to hand out their partitions while the plan is still being computed, so readers
+ * can be scheduled before planning is complete.
+ *
+ * @param <S> the type parameter
+ */
+public interface IIncrementalPartitioner<S extends BaseConfig> {
+
+    /**
+     * Computes the partitions of the given config, passing each one to the listener as soon as it is known. Partition
+     * indexes are the same {@link IExtractor#getPartitions(BaseConfig)} would give, but the order may differ.
+     *
+     * @param config   the config
+     * @param listener the listener
+     */
+    void getPartitions(S config, IPartitionListener listener);
+}
@@ -0,0 +1,16 @@
+package com.bosscs.spark.commons.rdd;
+
+import org.apache.spark.Partition;
+
+/**
+ * Receives the partitions of a plan as the extractor computes them.
+ */
+public interface IPartitionListener {
+
+    /**
+     * Called once per partition, in plan order, from the thread computing the plan.
+     *
+     * @param partition the partition
+     */
+    void onPartition(Partition partition);
+}
@@ -0,0 +1,137 @@
+package com.bosscs.spark.commons.rdd;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+/**
+ * Reusable array of records filled by {@link IBatchExtractor#nextBatch(int)}. Clearing keeps the array, so a batch
+ * read over and over with the same size allocates nothing but the records themselves.
+ *
+ * @param <T> the record type
+ */
+public class RecordBatch<T> implements Iterable<T> {
+
+    private Object[] records;
+
+    private int size;
+
+    private List<T> view;
+
+    public RecordBatch(int capacity) {
+        this.records = new Object[Math.max(capacity, 1)];
+    }
+
+    public void add(T record) {
+        if (size == records.length) {
+            records = Arrays.copyOf(records, size * 2);
+        }
+        records[size++] = record;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+        }
+        return (T) records[index];
+    }
+
+    /**
+     * Empties the batch, dropping the references to its records.
+     */
+    public void clear() {
+        Arrays.fill(records, 0, size, null);
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return a copy of the records, which stays valid once the batch is reused
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> toList() {
+        List<T> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add((T) records[i]);
+        }
+        return list;
+    }
+
+    /**
+     * @return the records, without copying them. The list follows the batch, so it is only valid until the batch is
+     * filled again: callers keeping the records use {@link #toList()}
+     */
+    public List<T> asList() {
+        if (view == null) {
+            view = new View<>(this);
+        }
+        return view;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < size;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public T next() {
+                if (index >= size) {
+                    throw new NoSuchElementException();
+                }
+                return (T) records[index++];
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * List view of a batch. Java serialization writes a copy of the records, the batch itself is not serializable.
+     */
+    private static final class View<T> extends AbstractList<T> implements RandomAccess, Serializable {
+
+        private static final long serialVersionUID = 2164861826523117734L;
+
+        private final transient RecordBatch<T> batch;
+
+        private View(RecordBatch<T> batch) {
+            this.batch = batch;
+        }
+
+        @Override
+        public T get(int index) {
+            return batch.get(index);
+        }
+
+        @Override
+        public int size() {
+            return batch.size();
+        }
+
+        private Object writeReplace() {
+            return new ArrayList<>(this);
+        }
+    }
+}
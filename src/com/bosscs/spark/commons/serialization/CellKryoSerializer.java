@@ -0,0 +1,49 @@
+/*
+ * Copyright 2016, Jerry Xiong, BOSSCS
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bosscs.spark.commons.serialization;
+
+import java.io.IOException;
+
+import com.bosscs.spark.commons.entity.Cell;
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+/**
+ * Kryo serializer of a single {@link Cell}, in the format of the cells written by {@link CellsKryoSerializer}.
+ */
+public class CellKryoSerializer extends Serializer<Cell> {
+
+    @Override
+    public void write(Kryo kryo, Output output, Cell cell) {
+        try {
+            new CellsKryoSerializer.KryoValueWriter(kryo, output).writeCell(cell);
+        } catch (IOException e) {
+            throw new KryoException(e);
+        }
+    }
+
+    @Override
+    public Cell read(Kryo kryo, Input input, Class<Cell> type) {
+        try {
+            return new CellsKryoSerializer.KryoValueReader(kryo, input).readCell();
+        } catch (IOException | ClassNotFoundException e) {
+            throw new KryoException(e);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2016, Jerry Xiong, BOSSCS
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bosscs.spark.commons.serialization;
+
+import org.apache.spark.serializer.KryoRegistrator;
+
+import com.bosscs.spark.commons.entity.Cell;
+import com.bosscs.spark.commons.entity.Cells;
+import com.bosscs.spark.commons.entity.CompactCells;
+import com.esotericsoftware.kryo.Kryo;
+
+/**
+ * Registers the Kryo serializers of {@link Cell} and {@link Cells}, the latter also being the default serializer of
+ * the other subclasses of Cells, which are read back as regular Cells. Enabled with
+ * {@code spark.serializer=org.apache.spark.serializer.KryoSerializer} and
+ * {@code spark.kryo.registrator=com.bosscs.spark.commons.serialization.CellsKryoRegistrator}.
+ */
+public class CellsKryoRegistrator implements KryoRegistrator {
+
+    @Override
+    public void registerClasses(Kryo kryo) {
+        kryo.register(Cell.class, new CellKryoSerializer());
+        kryo.register(Cells.class, new CellsKryoSerializer());
+        kryo.register(CompactCells.class, new CompactCellsKryoSerializer());
+        kryo.addDefaultSerializer(Cells.class, CellsKryoSerializer.class);
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright 2016, Jerry Xiong, BOSSCS
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bosscs.spark.commons.serialization;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.bosscs.spark.commons.entity.Cell;
+import com.bosscs.spark.commons.entity.Cells;
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+/**
+ * Kryo serializer of {@link Cells}, in the layout written by {@link ValueWriter#writeCells(Cells)}. Table and cell
+ * names are written once per serialized object graph, later occurrences, such as the names of the rows of an embedded
+ * list of documents, being written as an index.
+ */
+public class CellsKryoSerializer extends Serializer<Cells> {
+
+    /**
+     * Graph context key of the names written so far.
+     */
+    private static final String WRITTEN_NAMES = CellsKryoSerializer.class.getName() + ".written";
+
+    /**
+     * Graph context key of the names read so far.
+     */
+    private static final String READ_NAMES = CellsKryoSerializer.class.getName() + ".read";
+
+    @Override
+    public void write(Kryo kryo, Output output, Cells cells) {
+        try {
+            new KryoValueWriter(kryo, output).writeCells(cells);
+        } catch (IOException e) {
+            throw new KryoException(e);
+        }
+    }
+
+    @Override
+    public Cells read(Kryo kryo, Input input, Class<Cells> type) {
+        try {
+            return new KryoValueReader(kryo, input).readCells();
+        } catch (IOException | ClassNotFoundException e) {
+            throw new KryoException(e);
+        }
+    }
+
+    /**
+     * Writes a name, or its index when the graph being written already holds it.
+     */
+    @SuppressWarnings("unchecked")
+    static void writeName(Kryo kryo, Output output, String name) {
+        Map<String, Integer> written = (Map<String, Integer>) kryo.getGraphContext().get(WRITTEN_NAMES);
+        if (written == null) {
+            written = new HashMap<>();
+            kryo.getGraphContext().put(WRITTEN_NAMES, written);
+        }
+
+        Integer index = written.get(name);
+        if (index != null) {
+            output.writeInt(index + 1, true);
+        } else {
+            output.writeInt(0, true);
+            output.writeString(name);
+            written.put(name, written.size());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static String readName(Kryo kryo, Input input) {
+        List<String> read = (List<String>) kryo.getGraphContext().get(READ_NAMES);
+        if (read == null) {
+            read = new ArrayList<>();
+            kryo.getGraphContext().put(READ_NAMES, read);
+        }
+
+        int index = input.readInt(true);
+        if (index > 0) {
+            return read.get(index - 1);
+        }
+        String name = input.readString();
+        read.add(name);
+        return name;
+    }
+
+    /**
+     * Writes to a Kryo output. Untagged values go through {@link Kryo#writeClassAndObject(Output, Object)}.
+     */
+    static final class KryoValueWriter extends ValueWriter {
+
+        private final Kryo kryo;
+
+        private final Output output;
+
+        KryoValueWriter(Kryo kryo, Output output) {
+            this.kryo = kryo;
+            this.output = output;
+        }
+
+        @Override
+        protected void writeName(String name) {
+            CellsKryoSerializer.writeName(kryo, output, name);
+        }
+
+        @Override
+        protected void writeString(String value) {
+            output.writeString(value);
+        }
+
+        @Override
+        protected void writeVarInt(int value) {
+            output.writeInt(value, true);
+        }
+
+        @Override
+        protected void writeByte(int value) {
+            output.writeByte(value);
+        }
+
+        @Override
+        protected void writeShort(int value) {
+            output.writeShort(value);
+        }
+
+        @Override
+        protected void writeChar(int value) {
+            output.writeChar((char) value);
+        }
+
+        @Override
+        protected void writeInt(int value) {
+            output.writeInt(value);
+        }
+
+        @Override
+        protected void writeLong(long value) {
+            output.writeLong(value);
+        }
+
+        @Override
+        protected void writeFloat(float value) {
+            output.writeFloat(value);
+        }
+
+        @Override
+        protected void writeDouble(double value) {
+            output.writeDouble(value);
+        }
+
+        @Override
+        protected void writeRaw(byte[] bytes) {
+            output.writeBytes(bytes);
+        }
+
+        @Override
+        protected void writeObject(Object value) {
+            kryo.writeClassAndObject(output, value);
+        }
+    }
+
+    static final class KryoValueReader extends ValueReader {
+
+        private final Kryo kryo;
+
+        private final Input input;
+
+        KryoValueReader(Kryo kryo, Input input) {
+            this.kryo = kryo;
+            this.input = input;
+        }
+
+        @Override
+        protected String readName() {
+            return CellsKryoSerializer.readName(kryo, input);
+        }
+
+        @Override
+        protected String readString() {
+            return input.readString();
+        }
+
+        @Override
+        protected int readVarInt() {
+            return input.readInt(true);
+        }
+
+        @Override
+        protected byte readByte() {
+            return input.readByte();
+        }
+
+        @Override
+        protected short readShort() {
+            return input.readShort();
+        }
+
+        @Override
+        protected char readChar() {
+            return input.readChar();
+        }
+
+        @Override
+        protected int readInt() {
+            return input.readInt();
+        }
+
+        @Override
+        protected long readLong() {
+            return input.readLong();
+        }
+
+        @Override
+        protected float readFloat() {
+            return input.readFloat();
+        }
+
+        @Override
+        protected double readDouble() {
+            return input.readDouble();
+        }
+
+        @Override
+        protected byte[] readRaw(int length) {
+            return input.readBytes(length);
+        }
+
+        @Override
+        protected Object readObject() {
+            return kryo.readClassAndObject(input);
+        }
+    }
+}
@@ -0,0 +1,300 @@
+/*
+ * Copyright 2016, Jerry Xiong, BOSSCS
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bosscs.spark.commons.serialization;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import com.bosscs.spark.commons.entity.Cell;
+import com.bosscs.spark.commons.entity.Cells;
+
+/**
+ * Value encoding shared by the extractor binary codec, the Kryo serializers and the Java serialization of
+ * {@link Cell} and {@link Cells}: a one byte type tag from the table below, followed by the raw value for the usual
+ * column types, cells and plain java.util collections, and by the stream's own serialization for any other type. The
+ * tags are written by {@link ValueWriter} and read by {@link ValueReader}.
+ */
+public final class CellsSerializationUtils {
+
+    public static final byte NULL = 0;
+    public static final byte STRING = 1;
+    public static final byte INT = 2;
+    public static final byte LONG = 3;
+    public static final byte DOUBLE = 4;
+    public static final byte FLOAT = 5;
+    public static final byte TRUE = 6;
+    public static final byte FALSE = 7;
+    public static final byte SHORT = 8;
+    public static final byte BYTE = 9;
+    public static final byte CHAR = 10;
+    public static final byte DATE = 11;
+    public static final byte SQL_DATE = 12;
+    public static final byte TIMESTAMP = 13;
+    public static final byte BIG_DECIMAL = 14;
+    public static final byte BIG_INTEGER = 15;
+    public static final byte BYTES = 16;
+    public static final byte UUID_TAG = 17;
+    public static final byte LIST = 18;
+    public static final byte SET = 19;
+    public static final byte MAP = 20;
+    public static final byte CELL = 21;
+    public static final byte CELLS = 22;
+    public static final byte OBJECT = 127;
+
+    /**
+     * Cell flag marking a key.
+     */
+    public static final int KEY = 1;
+
+    /**
+     * Cell flag marking a cluster key.
+     */
+    public static final int CLUSTER_KEY = 1 << 1;
+
+    private CellsSerializationUtils() {
+    }
+
+    /**
+     * @return the tag of the given value, {@link #OBJECT} for the values written with the stream's own serialization
+     */
+    public static byte getTag(Object value) {
+        if (value == null) {
+            return NULL;
+        }
+        Class<?> valueClass = value.getClass();
+        if (valueClass == String.class) {
+            return STRING;
+        } else if (valueClass == Integer.class) {
+            return INT;
+        } else if (valueClass == Long.class) {
+            return LONG;
+        } else if (valueClass == Double.class) {
+            return DOUBLE;
+        } else if (valueClass == Float.class) {
+            return FLOAT;
+        } else if (valueClass == Boolean.class) {
+            return (Boolean) value ? TRUE : FALSE;
+        } else if (valueClass == Short.class) {
+            return SHORT;
+        } else if (valueClass == Byte.class) {
+            return BYTE;
+        } else if (valueClass == Character.class) {
+            return CHAR;
+        } else if (valueClass == Date.class) {
+            return DATE;
+        } else if (valueClass == java.sql.Date.class) {
+            return SQL_DATE;
+        } else if (valueClass == Timestamp.class) {
+            return TIMESTAMP;
+        } else if (valueClass == BigDecimal.class) {
+            return BIG_DECIMAL;
+        } else if (valueClass == BigInteger.class) {
+            return BIG_INTEGER;
+        } else if (valueClass == byte[].class) {
+            return BYTES;
+        } else if (valueClass == UUID.class) {
+            return UUID_TAG;
+        } else if (value instanceof Cells) {
+            return CELLS;
+        } else if (valueClass == Cell.class) {
+            return CELL;
+        } else if (isJdkCollection(valueClass)) {
+            if (value instanceof List) {
+                return LIST;
+            } else if (value instanceof Set) {
+                return SET;
+            } else if (value instanceof Map) {
+                return MAP;
+            }
+        }
+        return OBJECT;
+    }
+
+    /**
+     * Only plain java.util collections are rebuilt as ArrayList/LinkedHashSet/LinkedHashMap; driver types such as
+     * BasicDBObject keep their class through the stream's own serialization.
+     */
+    private static boolean isJdkCollection(Class<?> clazz) {
+        return clazz.getName().startsWith("java.util.");
+    }
+
+    /**
+     * Packs the key flags of a cell.
+     *
+     * @param isKey        whether the cell is a key
+     * @param isClusterKey whether the cell is a cluster key
+     * @return the flags
+     */
+    public static int getFlags(boolean isKey, boolean isClusterKey) {
+        return (isKey ? KEY : 0) | (isClusterKey ? CLUSTER_KEY : 0);
+    }
+
+    /**
+     * Writes a cell value.
+     *
+     * @param value the value, may be null
+     * @param out   the stream
+     * @throws IOException if the stream fails
+     */
+    public static void writeValue(Object value, ObjectOutput out) throws IOException {
+        new ObjectValueWriter(out).writeValue(value);
+    }
+
+    /**
+     * Reads a cell value written by {@link #writeValue(Object, ObjectOutput)}.
+     *
+     * @param in the stream
+     * @return the value
+     * @throws IOException            if the stream fails
+     * @throws ClassNotFoundException if the class of a value cannot be found
+     */
+    public static Object readValue(ObjectInput in) throws IOException, ClassNotFoundException {
+        return new ObjectValueReader(in).readValue();
+    }
+
+    /**
+     * Writes to a Java serialization stream. Names go through {@link ObjectOutput#writeObject(Object)}, so that a
+     * stream writing many rows sharing their names writes each name once.
+     */
+    private static final class ObjectValueWriter extends ValueWriter {
+
+        private final ObjectOutput out;
+
+        private ObjectValueWriter(ObjectOutput out) {
+            this.out = out;
+        }
+
+        @Override
+        protected void writeName(String name) throws IOException {
+            out.writeObject(name);
+        }
+
+        @Override
+        protected void writeByte(int value) throws IOException {
+            out.writeByte(value);
+        }
+
+        @Override
+        protected void writeShort(int value) throws IOException {
+            out.writeShort(value);
+        }
+
+        @Override
+        protected void writeChar(int value) throws IOException {
+            out.writeChar(value);
+        }
+
+        @Override
+        protected void writeInt(int value) throws IOException {
+            out.writeInt(value);
+        }
+
+        @Override
+        protected void writeLong(long value) throws IOException {
+            out.writeLong(value);
+        }
+
+        @Override
+        protected void writeFloat(float value) throws IOException {
+            out.writeFloat(value);
+        }
+
+        @Override
+        protected void writeDouble(double value) throws IOException {
+            out.writeDouble(value);
+        }
+
+        @Override
+        protected void writeRaw(byte[] bytes) throws IOException {
+            out.write(bytes);
+        }
+
+        @Override
+        protected void writeObject(Object value) throws IOException {
+            out.writeObject(value);
+        }
+    }
+
+    private static final class ObjectValueReader extends ValueReader {
+
+        private final ObjectInput in;
+
+        private ObjectValueReader(ObjectInput in) {
+            this.in = in;
+        }
+
+        @Override
+        protected String readName() throws IOException, ClassNotFoundException {
+            return (String) in.readObject();
+        }
+
+        @Override
+        protected byte readByte() throws IOException {
+            return in.readByte();
+        }
+
+        @Override
+        protected short readShort() throws IOException {
+            return in.readShort();
+        }
+
+        @Override
+        protected char readChar() throws IOException {
+            return in.readChar();
+        }
+
+        @Override
+        protected int readInt() throws IOException {
+            return in.readInt();
+        }
+
+        @Override
+        protected long readLong() throws IOException {
+            return in.readLong();
+        }
+
+        @Override
+        protected float readFloat() throws IOException {
+            return in.readFloat();
+        }
+
+        @Override
+        protected double readDouble() throws IOException {
+            return in.readDouble();
+        }
+
+        @Override
+        protected byte[] readRaw(int length) throws IOException {
+            byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            return bytes;
+        }
+
+        @Override
+        protected Object readObject() throws IOException, ClassNotFoundException {
+            return in.readObject();
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2016, Jerry Xiong, BOSSCS
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bosscs.spark.commons.serialization;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang.ObjectUtils;
+
+import com.bosscs.spark.commons.entity.Cells;
+import com.bosscs.spark.commons.entity.CellsSchema;
+import com.bosscs.spark.commons.entity.CompactCells;
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+/**
+ * Kryo serializer of {@link CompactCells}: the schema, then the values. Cells already materialized are written and
+ * read back as regular {@link Cells}.
+ * <p>
+ * A schema is written in full once per object graph, the other rows of the graph that share it writing its index.
+ * Rows serialized as graphs of their own, one per record of a Spark serialization stream, still carry their schema:
+ * Spark may relocate the records of a stream, so a record cannot refer to an earlier one. On read, consecutive rows
+ * with the same schema share the schema instance read first, and with it its name lookup map.
+ */
+public class CompactCellsKryoSerializer extends Serializer<Cells> {
+
+    /**
+     * Graph context key of the schemas written so far.
+     */
+    private static final String WRITTEN_SCHEMAS = CompactCellsKryoSerializer.class.getName() + ".written";
+
+    /**
+     * Graph context key of the schemas read so far.
+     */
+    private static final String READ_SCHEMAS = CompactCellsKryoSerializer.class.getName() + ".read";
+
+    /**
+     * Context key of the last schema read by a Kryo instance, kept across object graphs.
+     */
+    private static final String LAST_SCHEMA = CompactCellsKryoSerializer.class.getName() + ".last";
+
+    private final CellsKryoSerializer cellsSerializer = new CellsKryoSerializer();
+
+    @Override
+    public void write(Kryo kryo, Output output, Cells cells) {
+        CompactCells compactCells = (CompactCells) cells;
+        output.writeBoolean(compactCells.isCompact());
+        if (!compactCells.isCompact()) {
+            cellsSerializer.write(kryo, output, cells);
+            return;
+        }
+
+        CellsSchema schema = compactCells.getSchema();
+        writeSchema(kryo, output, schema);
+        CellsKryoSerializer.KryoValueWriter writer = new CellsKryoSerializer.KryoValueWriter(kryo, output);
+        try {
+            for (int i = 0; i < schema.size(); i++) {
+                writer.writeValue(compactCells.getCellValue(i));
+            }
+        } catch (IOException e) {
+            throw new KryoException(e);
+        }
+    }
+
+    @Override
+    public Cells read(Kryo kryo, Input input, Class<Cells> type) {
+        if (!input.readBoolean()) {
+            return cellsSerializer.read(kryo, input, Cells.class);
+        }
+
+        CellsSchema schema = readSchema(kryo, input);
+        CellsKryoSerializer.KryoValueReader reader = new CellsKryoSerializer.KryoValueReader(kryo, input);
+        Object[] values = new Object[schema.size()];
+        try {
+            for (int i = 0; i < values.length; i++) {
+                values[i] = reader.readValue();
+            }
+        } catch (IOException | ClassNotFoundException e) {
+            throw new KryoException(e);
+        }
+        return new CompactCells(schema, values);
+    }
+
+    /**
+     * Writes the index of a schema the graph being written already holds, or 0 followed by the schema.
+     */
+    @SuppressWarnings("unchecked")
+    private static void writeSchema(Kryo kryo, Output output, CellsSchema schema) {
+        Map<CellsSchema, Integer> written = (Map<CellsSchema, Integer>) kryo.getGraphContext().get(WRITTEN_SCHEMAS);
+        if (written == null) {
+            written = new IdentityHashMap<>();
+            kryo.getGraphContext().put(WRITTEN_SCHEMAS, written);
+        }
+
+        Integer index = written.get(schema);
+        if (index != null) {
+            output.writeInt(index + 1, true);
+            return;
+        }
+        output.writeInt(0, true);
+        written.put(schema, written.size());
+
+        CellsKryoSerializer.writeName(kryo, output, schema.getNameSpace());
+        output.writeInt(schema.size(), true);
+        for (int i = 0; i < schema.size(); i++) {
+            output.writeByte(CellsSerializationUtils.getFlags(schema.isKey(i), schema.isClusterKey(i)));
+            CellsKryoSerializer.writeName(kryo, output, schema.getName(i));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static CellsSchema readSchema(Kryo kryo, Input input) {
+        List<CellsSchema> read = (List<CellsSchema>) kryo.getGraphContext().get(READ_SCHEMAS);
+        if (read == null) {
+            read = new ArrayList<>();
+            kryo.getGraphContext().put(READ_SCHEMAS, read);
+        }
+
+        int index = input.readInt(true);
+        if (index > 0) {
+            return read.get(index - 1);
+        }
+
+        String nameSpace = CellsKryoSerializer.readName(kryo, input);
+        int size = input.readInt(true);
+        String[] names = new String[size];
+        boolean[] keys = new boolean[size];
+        boolean[] clusterKeys = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            int flags = input.readByte();
+            keys[i] = (flags & CellsSerializationUtils.KEY) != 0;
+            clusterKeys[i] = (flags & CellsSerializationUtils.CLUSTER_KEY) != 0;
+            names[i] = CellsKryoSerializer.readName(kryo, input);
+        }
+
+        CellsSchema schema = (CellsSchema) kryo.getContext().get(LAST_SCHEMA);
+        if (!isSchema(schema, nameSpace, names, keys, clusterKeys)) {
+            schema = new CellsSchema(nameSpace, names, keys, clusterKeys);
+            kryo.getContext().put(LAST_SCHEMA, schema);
+        }
+        read.add(schema);
+        return schema;
+    }
+
+    /**
+     * @return true if the schema has the given namespace, names and key flags.
+     */
+    private static boolean isSchema(CellsSchema schema, String nameSpace, String[] names, boolean[] keys,
+                                    boolean[] clusterKeys) {
+        if (schema == null || schema.size() != names.length || !ObjectUtils.equals(schema.getNameSpace(), nameSpace)) {
+            return false;
+        }
+        for (int i = 0; i < names.length; i++) {
+            if (!ObjectUtils.equals(names[i], schema.getName(i)) || keys[i] != schema.isKey(i)
+                    || clusterKeys[i] != schema.isClusterKey(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2016, Jerry Xiong, BOSSCS
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bosscs.spark.commons.serialization;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import com.bosscs.spark.commons.entity.Cell;
+import com.bosscs.spark.commons.entity.Cells;
+
+/**
+ * Reads the values written by a {@link ValueWriter} over the same kind of stream.
+ */
+public abstract class ValueReader {
+
+    /**
+     * Reads a value written by {@link ValueWriter#writeValue(Object)}.
+     *
+     * @return the value
+     * @throws IOException            if the stream fails or holds an unknown tag
+     * @throws ClassNotFoundException if the class of an untagged value cannot be found
+     */
+    public Object readValue() throws IOException, ClassNotFoundException {
+        byte tag = readByte();
+        switch (tag) {
+        case CellsSerializationUtils.NULL:
+            return null;
+        case CellsSerializationUtils.STRING:
+            return readString();
+        case CellsSerializationUtils.INT:
+            return readInt();
+        case CellsSerializationUtils.LONG:
+            return readLong();
+        case CellsSerializationUtils.DOUBLE:
+            return readDouble();
+        case CellsSerializationUtils.FLOAT:
+            return readFloat();
+        case CellsSerializationUtils.TRUE:
+            return Boolean.TRUE;
+        case CellsSerializationUtils.FALSE:
+            return Boolean.FALSE;
+        case CellsSerializationUtils.SHORT:
+            return readShort();
+        case CellsSerializationUtils.BYTE:
+            return readByte();
+        case CellsSerializationUtils.CHAR:
+            return readChar();
+        case CellsSerializationUtils.DATE:
+            return new Date(readLong());
+        case CellsSerializationUtils.SQL_DATE:
+            return new java.sql.Date(readLong());
+        case CellsSerializationUtils.TIMESTAMP:
+            Timestamp timestamp = new Timestamp(readLong());
+            timestamp.setNanos(readInt());
+            return timestamp;
+        case CellsSerializationUtils.BIG_DECIMAL:
+            int scale = readVarInt();
+            return new BigDecimal(new BigInteger(readBytes()), scale);
+        case CellsSerializationUtils.BIG_INTEGER:
+            return new BigInteger(readBytes());
+        case CellsSerializationUtils.BYTES:
+            return readBytes();
+        case CellsSerializationUtils.UUID_TAG:
+            return new UUID(readLong(), readLong());
+        case CellsSerializationUtils.CELLS:
+            return readCells();
+        case CellsSerializationUtils.CELL:
+            return readCell();
+        case CellsSerializationUtils.LIST:
+            int listSize = readVarInt();
+            List<Object> list = new ArrayList<>(listSize);
+            for (int i = 0; i < listSize; i++) {
+                list.add(readValue());
+            }
+            return list;
+        case CellsSerializationUtils.SET:
+            int setSize = readVarInt();
+            Set<Object> set = new LinkedHashSet<>(setSize * 2);
+            for (int i = 0; i < setSize; i++) {
+                set.add(readValue());
+            }
+            return set;
+        case CellsSerializationUtils.MAP:
+            int mapSize = readVarInt();
+            Map<Object, Object> map = new LinkedHashMap<>(mapSize * 2);
+            for (int i = 0; i < mapSize; i++) {
+                Object key = readValue();
+                map.put(key, readValue());
+            }
+            return map;
+        case CellsSerializationUtils.OBJECT:
+            return readObject();
+        default:
+            throw new IOException("Unknown value tag " + tag);
+        }
+    }
+
+    /**
+     * Reads Cells written by {@link ValueWriter#writeCells(Cells)}.
+     *
+     * @return the cells
+     * @throws IOException            if the stream fails
+     * @throws ClassNotFoundException if the class of a cell value cannot be found
+     */
+    public Cells readCells() throws IOException, ClassNotFoundException {
+        Cells cells = new Cells(readName());
+        int tableCount = readVarInt();
+        Map<String, List<Cell>> tables = new LinkedHashMap<>(tableCount * 2);
+        for (int i = 0; i < tableCount; i++) {
+            String table = readName();
+            int cellCount = readVarInt();
+            List<Cell> tableCells = new ArrayList<>(cellCount);
+            for (int j = 0; j < cellCount; j++) {
+                tableCells.add(readCell());
+            }
+            tables.put(table, tableCells);
+        }
+        cells.addAll(tables);
+        return cells;
+    }
+
+    /**
+     * Reads a Cell written by {@link ValueWriter#writeCell(Cell)}.
+     *
+     * @return the cell
+     * @throws IOException            if the stream fails
+     * @throws ClassNotFoundException if the class of the value cannot be found
+     */
+    public Cell readCell() throws IOException, ClassNotFoundException {
+        int flags = readByte();
+        String name = readName();
+        Object value = readValue();
+        // bits 2 and 3, set by older peers for null key flags, are read as false
+        return Cell.create(name, value, (flags & CellsSerializationUtils.KEY) != 0,
+                (flags & CellsSerializationUtils.CLUSTER_KEY) != 0);
+    }
+
+    protected String readName() throws IOException, ClassNotFoundException {
+        return readString();
+    }
+
+    protected String readString() throws IOException {
+        int length = readVarInt() - 1;
+        if (length < 0) {
+            return null;
+        }
+        return new String(readRaw(length), StandardCharsets.UTF_8);
+    }
+
+    protected byte[] readBytes() throws IOException {
+        return readRaw(readVarInt());
+    }
+
+    protected int readVarInt() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    protected abstract byte readByte() throws IOException;
+
+    protected abstract short readShort() throws IOException;
+
+    protected abstract char readChar() throws IOException;
+
+    protected abstract int readInt() throws IOException;
+
+    protected abstract long readLong() throws IOException;
+
+    protected abstract float readFloat() throws IOException;
+
+    protected abstract double readDouble() throws IOException;
+
+    /**
+     * Reads that many bytes, written without a length.
+     */
+    protected abstract byte[] readRaw(int length) throws IOException;
+
+    /**
+     * Reads a value written by {@link ValueWriter#writeObject(Object)}.
+     */
+    protected abstract Object readObject() throws IOException, ClassNotFoundException;
+}
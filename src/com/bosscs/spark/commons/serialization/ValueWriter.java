@@ -0,0 +1,216 @@
+/*
+ * Copyright 2016, Jerry Xiong, BOSSCS
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bosscs.spark.commons.serialization;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import com.bosscs.spark.commons.entity.Cell;
+import com.bosscs.spark.commons.entity.Cells;
+
+/**
+ * Writes values with the type tags of {@link CellsSerializationUtils}. The tag dispatch and the layout of Cells and
+ * Cell are shared by the extractor binary codec, the Kryo serializers and the Java serialization of cells; each
+ * subclass only supplies the primitive writes of its stream and the fallback used for untagged values.
+ */
+public abstract class ValueWriter {
+
+    /**
+     * Writes a value, its tag first.
+     *
+     * @param value the value, may be null
+     * @throws IOException if the stream fails
+     */
+    public void writeValue(Object value) throws IOException {
+        byte tag = CellsSerializationUtils.getTag(value);
+        writeByte(tag);
+        switch (tag) {
+        case CellsSerializationUtils.STRING:
+            writeString((String) value);
+            break;
+        case CellsSerializationUtils.INT:
+            writeInt((Integer) value);
+            break;
+        case CellsSerializationUtils.LONG:
+            writeLong((Long) value);
+            break;
+        case CellsSerializationUtils.DOUBLE:
+            writeDouble((Double) value);
+            break;
+        case CellsSerializationUtils.FLOAT:
+            writeFloat((Float) value);
+            break;
+        case CellsSerializationUtils.SHORT:
+            writeShort((Short) value);
+            break;
+        case CellsSerializationUtils.BYTE:
+            writeByte((Byte) value);
+            break;
+        case CellsSerializationUtils.CHAR:
+            writeChar((Character) value);
+            break;
+        case CellsSerializationUtils.DATE:
+        case CellsSerializationUtils.SQL_DATE:
+            writeLong(((Date) value).getTime());
+            break;
+        case CellsSerializationUtils.TIMESTAMP:
+            writeLong(((Timestamp) value).getTime());
+            writeInt(((Timestamp) value).getNanos());
+            break;
+        case CellsSerializationUtils.BIG_DECIMAL:
+            writeVarInt(((BigDecimal) value).scale());
+            writeBytes(((BigDecimal) value).unscaledValue().toByteArray());
+            break;
+        case CellsSerializationUtils.BIG_INTEGER:
+            writeBytes(((BigInteger) value).toByteArray());
+            break;
+        case CellsSerializationUtils.BYTES:
+            writeBytes((byte[]) value);
+            break;
+        case CellsSerializationUtils.UUID_TAG:
+            writeLong(((UUID) value).getMostSignificantBits());
+            writeLong(((UUID) value).getLeastSignificantBits());
+            break;
+        case CellsSerializationUtils.CELLS:
+            writeCells((Cells) value);
+            break;
+        case CellsSerializationUtils.CELL:
+            writeCell((Cell) value);
+            break;
+        case CellsSerializationUtils.LIST:
+        case CellsSerializationUtils.SET:
+            Collection<?> collection = (Collection<?>) value;
+            writeVarInt(collection.size());
+            for (Object element : collection) {
+                writeValue(element);
+            }
+            break;
+        case CellsSerializationUtils.MAP:
+            Map<?, ?> map = (Map<?, ?>) value;
+            writeVarInt(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                writeValue(entry.getKey());
+                writeValue(entry.getValue());
+            }
+            break;
+        case CellsSerializationUtils.OBJECT:
+            writeObject(value);
+            break;
+        default:
+            // null and booleans are in the tag
+        }
+    }
+
+    /**
+     * Writes any Cells, subclasses such as compact or lazy rows included, through its public view of the cells of each
+     * table; they are read back as regular Cells.
+     *
+     * @param cells the cells
+     * @throws IOException if the stream fails
+     */
+    public void writeCells(Cells cells) throws IOException {
+        Map<String, List<Cell>> tables = cells.getInternalCells();
+        writeName(cells.getnameSpace());
+        writeVarInt(tables.size());
+        for (Map.Entry<String, List<Cell>> table : tables.entrySet()) {
+            writeName(table.getKey());
+            writeVarInt(table.getValue().size());
+            for (Cell cell : table.getValue()) {
+                writeCell(cell);
+            }
+        }
+    }
+
+    /**
+     * Writes the key flags, the name and the value of a cell.
+     *
+     * @param cell the cell
+     * @throws IOException if the stream fails
+     */
+    public void writeCell(Cell cell) throws IOException {
+        writeByte(CellsSerializationUtils.getFlags(cell.getIsKey(), cell.isClusterKey()));
+        writeName(cell.getCellName());
+        writeValue(cell.getCellValue());
+    }
+
+    /**
+     * Writes a table or cell name. Streams able to share repeated names override this.
+     */
+    protected void writeName(String name) throws IOException {
+        writeString(name);
+    }
+
+    /**
+     * Writes a nullable string as a varint of its UTF-8 byte length plus one (0 for null) followed by the bytes.
+     */
+    protected void writeString(String value) throws IOException {
+        if (value == null) {
+            writeVarInt(0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(bytes.length + 1);
+        writeRaw(bytes);
+    }
+
+    protected void writeBytes(byte[] value) throws IOException {
+        writeVarInt(value.length);
+        writeRaw(value);
+    }
+
+    /**
+     * Writes an int using 1 to 5 bytes, 7 bits per byte, small non negative values taking a single byte.
+     */
+    protected void writeVarInt(int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        writeByte(value);
+    }
+
+    protected abstract void writeByte(int value) throws IOException;
+
+    protected abstract void writeShort(int value) throws IOException;
+
+    protected abstract void writeChar(int value) throws IOException;
+
+    protected abstract void writeInt(int value) throws IOException;
+
+    protected abstract void writeLong(long value) throws IOException;
+
+    protected abstract void writeFloat(float value) throws IOException;
+
+    protected abstract void writeDouble(double value) throws IOException;
+
+    /**
+     * Writes the bytes as they are, without a length.
+     */
+    protected abstract void writeRaw(byte[] bytes) throws IOException;
+
+    /**
+     * Writes a value of a class without a tag of its own, read back by {@link ValueReader#readObject()}.
+     */
+    protected abstract void writeObject(Object value) throws IOException;
+}
@@ -21,11 +21,8 @@ import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
-import java.util.ArrayList;
-import java.util.List;
 
 import org.apache.commons.beanutils.PropertyUtils;
-import org.apache.commons.lang.StringUtils;
 
 import com.bosscs.spark.commons.annotations.HadoopField;
 import com.bosscs.spark.commons.entity.IType;
@@ -45,13 +42,12 @@ public final class AnnotationUtils {
      * @return the field name.
      */
     public static String deepFieldName(Field field) {
-
-        HadoopField annotation = field.getAnnotation(HadoopField.class);
-        if (StringUtils.isNotEmpty(annotation.fieldName())) {
-            return annotation.fieldName();
-        } else {
-            return field.getName();
+        EntityMetadata metadata = EntityMetadata.forClass(field.getDeclaringClass());
+        int idx = metadata.indexOf(field);
+        if (idx >= 0) {
+            return metadata.getName(idx);
         }
+        return EntityMetadata.fieldName(field, field.getAnnotation(HadoopField.class));
     }
 
     /**
@@ -62,14 +58,7 @@ public final class AnnotationUtils {
      * @return an array of deep Field(s).
      */
     public static Field[] filterDeepFields(Class clazz) {
-        Field[] fields = Utils.getAllFields(clazz);
-        List<Field> filtered = new ArrayList<>();
-        for (Field f : fields) {
-            if (f.isAnnotationPresent(HadoopField.class)) {
-                filtered.add(f);
-            }
-        }
-        return filtered.toArray(new Field[filtered.size()]);
+        return EntityMetadata.forClass(clazz).getFields();
     }
 
     /**
@@ -81,19 +70,8 @@ public final class AnnotationUtils {
      * @return a pair object whose first element contains key fields, and whose second element contains all other columns.
      */
     public static Pair<Field[], Field[]> filterKeyFields(Class clazz) {
-        Field[] filtered = filterDeepFields(clazz);
-        List<Field> keys = new ArrayList<>();
-        List<Field> others = new ArrayList<>();
-
-        for (Field field : filtered) {
-            if (isKey(field.getAnnotation(HadoopField.class))) {
-                keys.add(field);
-            } else {
-                others.add(field);
-            }
-        }
-
-        return Pair.create(keys.toArray(new Field[keys.size()]), others.toArray(new Field[others.size()]));
+        EntityMetadata metadata = EntityMetadata.forClass(clazz);
+        return Pair.create(metadata.getKeyFields(), metadata.getOtherFields());
     }
 
     /**
@@ -130,6 +108,13 @@ public final class AnnotationUtils {
      * @return the list of generic types associated to the provided field (if any).
      */
     public static Class[] getGenericTypes(Field field) {
+        EntityMetadata metadata = EntityMetadata.forClass(field.getDeclaringClass());
+        int idx = metadata.indexOf(field);
+        Class<?>[] resolved = idx >= 0 ? metadata.getGenericTypes(idx) : null;
+        if (resolved != null) {
+            return resolved;
+        }
+
         try {
             ParameterizedType type = (ParameterizedType) field.getGenericType();
             Type[] types = type.getActualTypeArguments();
@@ -16,11 +16,7 @@
 
 package com.bosscs.spark.commons.utils;
 
-import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.lang.reflect.ParameterizedType;
-import java.lang.reflect.Type;
 import java.math.BigDecimal;
 import java.sql.Timestamp;
 import java.util.*;
@@ -187,44 +183,22 @@ public class CellsUtils {
      */
     public static <T> T getObjectFromJson(Class<T> classEntity, JSONObject bsonObject)
             throws IllegalAccessException, InstantiationException, InvocationTargetException {
-        T t = classEntity.newInstance();
-
-        Field[] fields = AnnotationUtils.filterDeepFields(classEntity);
-
-        Object insert = null;
-
-        for (Field field : fields) {
-            Object currentBson = null;
-            Method method = null;
-            try {
-                method = Utils.findSetter(field.getName(), classEntity, field.getType());
-
-                Class<?> classField = field.getType();
-
-                currentBson = bsonObject.get(AnnotationUtils.deepFieldName(field));
-                if (currentBson != null) {
-
-                    if (Iterable.class.isAssignableFrom(classField)) {
-                        Type type = field.getGenericType();
-
-                        insert = subDocumentListCase(type, (List) bsonObject.get(AnnotationUtils.deepFieldName(field)));
-
-                    } else if (IType.class.isAssignableFrom(classField)) {
-                        insert = getObjectFromJson(classField, (JSONObject) bsonObject.get(AnnotationUtils.deepFieldName
-                                (field)));
-                    } else {
-                        insert = currentBson;
-                    }
-                    method.invoke(t, insert);
+        EntityMapper<T> mapper = EntityMapper.forClass(classEntity);
+        T t = mapper.newInstance();
+
+        for (EntityMapper.Property property : mapper.getProperties()) {
+            Object currentBson = bsonObject.get(property.getName());
+            if (currentBson != null) {
+                Object insert;
+                if (property.isIterable()) {
+                    insert = subDocumentListCase(property.getElementType(), (List) currentBson);
+                } else if (property.isEntity()) {
+                    insert = getObjectFromJson(property.getType(), (JSONObject) currentBson);
+                } else {
+                    insert = currentBson;
                 }
-            } catch (IllegalAccessException | InstantiationException | InvocationTargetException | IllegalArgumentException e) {
-                                LOG.error("impossible to create a java object from Bson field:" + field.getName() + " and type:" + field
-                                        .getType() + " and value:" + t + "; bsonReceived:" + currentBson + ", bsonClassReceived:"
-                                        + currentBson.getClass());
-
-                method.invoke(t, Utils.castNumberType(insert, t.getClass()));
+                property.set(t, insert);
             }
-
         }
 
         return t;
@@ -232,49 +206,26 @@ public class CellsUtils {
 
     public static <T> T getObjectWithMapFromJson(Class<T> classEntity, JSONObject bsonObject)
             throws IllegalAccessException, InstantiationException, InvocationTargetException {
-        T t = classEntity.newInstance();
-
-        Field[] fields = AnnotationUtils.filterDeepFields(classEntity);
-
-        Object insert = null;
-
-        for (Field field : fields) {
-            Object currentBson = null;
-            Method method = null;
-            try {
-                method = Utils.findSetter(field.getName(), classEntity, field.getType());
-
-                Class<?> classField = field.getType();
-
-                currentBson = bsonObject.get(AnnotationUtils.deepFieldName(field));
-                if (currentBson != null) {
-
-                    if (Collection.class.isAssignableFrom(classField)) {
-                        Type type = field.getGenericType();
-                        List list = new ArrayList();
-                        for (Object o : (List) bsonObject.get(AnnotationUtils.deepFieldName(field))) {
-                            list.add((String) o);
-                        }
-                        insert = list;
-
-                    } else if (IType.class.isAssignableFrom(classField)) {
-                        insert = getObjectFromJson(classField, (JSONObject) bsonObject.get(AnnotationUtils.deepFieldName
-                                (field)));
-                    } else {
-                        insert = currentBson;
-                    }
-                    if (insert != null) {
-                        method.invoke(t, insert);
+        EntityMapper<T> mapper = EntityMapper.forClass(classEntity);
+        T t = mapper.newInstance();
+
+        for (EntityMapper.Property property : mapper.getProperties()) {
+            Object currentBson = bsonObject.get(property.getName());
+            if (currentBson != null) {
+                Object insert;
+                if (Collection.class.isAssignableFrom(property.getType())) {
+                    List list = new ArrayList();
+                    for (Object o : (List) currentBson) {
+                        list.add((String) o);
                     }
-
+                    insert = list;
+                } else if (property.isEntity()) {
+                    insert = getObjectFromJson(property.getType(), (JSONObject) currentBson);
+                } else {
+                    insert = currentBson;
                 }
-            } catch (IllegalAccessException | InstantiationException | InvocationTargetException | IllegalArgumentException e) {
-                                LOG.error("impossible to create a java object from Bson field:" + field.getName() + " and type:" + field
-                                        .getType() + " and value:" + t + "; bsonReceived:" + currentBson + ", bsonClassReceived:"
-                                        + currentBson.getClass());
-                                method.invoke(t, Utils.castNumberType(insert, t.getClass()));
+                property.set(t, insert);
             }
-
         }
 
         return t;
@@ -369,19 +320,15 @@ public class CellsUtils {
      * Sub document list case.
      *
      * @param <T>        the type parameter
-     * @param type       the type
+     * @param listClass  the class of the list elements
      * @param jsonObject the json object
      * @return the object
      * @throws IllegalAccessException    the illegal access exception
      * @throws InstantiationException    the instantiation exception
      * @throws InvocationTargetException the invocation target exception
      */
-    private static <T> Object subDocumentListCase(Type type, List<T> jsonObject)
+    private static <T> Object subDocumentListCase(Class<?> listClass, List<T> jsonObject)
             throws IllegalAccessException, InstantiationException, InvocationTargetException {
-        ParameterizedType listType = (ParameterizedType) type;
-
-        Class<?> listClass = (Class<?>) listType.getActualTypeArguments()[0];
-
         List list = new ArrayList();
         for (T t : jsonObject) {
             list.add(getObjectFromJson(listClass, (JSONObject) t));
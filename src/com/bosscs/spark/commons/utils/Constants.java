@@ -39,6 +39,9 @@ public final class Constants {
 
     public static final int DEFAULT_SPLIT_SIZE = 100000;
 
+    public static final int DEFAULT_POOL_MAX_IDLE = 8;
+    public static final long DEFAULT_POOL_IDLE_TIMEOUT_MILLIS = 60000;
+
     public static final String SPARK_PARTITION_ID = "spark.partition.id";
 
     public static final String SPARK_RDD_ID = "spark.rdd.id";
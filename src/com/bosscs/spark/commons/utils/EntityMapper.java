@@ -0,0 +1,335 @@
+/*
+ * Copyright 2016, Jerry Xiong, BOSSCS
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bosscs.spark.commons.utils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.bosscs.spark.commons.entity.IType;
+import com.bosscs.spark.commons.exception.HadoopIOException;
+
+/**
+ * <p>
+ * Reads and writes the properties of an entity class annotated with
+ * {@link com.bosscs.spark.commons.annotations.HadoopField}.
+ * </p>
+ * <p>
+ * The accessors of the fields described by the {@link EntityMetadata} of the class are resolved once, as
+ * method handles adapted to take and return Object, so that mapping a record costs one handle call per property
+ * instead of a scan of the class hierarchy, two method lookups and a reflective call.
+ * </p>
+ *
+ * @param <T> the entity type
+ */
+public final class EntityMapper<T> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EntityMapper.class);
+
+    private static final ClassValue<EntityMapper<?>> MAPPERS = new ClassValue<EntityMapper<?>>() {
+        @Override
+        protected EntityMapper<?> computeValue(Class<?> type) {
+            return new EntityMapper<>(type);
+        }
+    };
+
+    private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class);
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private final Class<T> entityClass;
+
+    /**
+     * The no-arg constructor, null when the class has none.
+     */
+    private final MethodHandle constructor;
+
+    private final EntityMetadata metadata;
+
+    private final List<Property> properties;
+
+    private EntityMapper(Class<T> entityClass) {
+        this.entityClass = entityClass;
+        this.constructor = findConstructor(entityClass);
+        this.metadata = EntityMetadata.forClass(entityClass);
+
+        Property[] resolved = new Property[metadata.size()];
+        for (int i = 0; i < resolved.length; i++) {
+            resolved[i] = new Property(entityClass, metadata, i);
+        }
+        this.properties = Collections.unmodifiableList(Arrays.asList(resolved));
+    }
+
+    /**
+     * Returns the mapper of the given entity class, building it on first use.
+     *
+     * @param entityClass the entity class
+     * @param <T>         the entity type
+     * @return the mapper of the class
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> EntityMapper<T> forClass(Class<T> entityClass) {
+        return (EntityMapper<T>) MAPPERS.get(entityClass);
+    }
+
+    /**
+     * Returns the mapper of the class of the given entity.
+     *
+     * @param entity the entity
+     * @param <T>    the entity type
+     * @return the mapper of the entity class
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> EntityMapper<T> forEntity(T entity) {
+        return (EntityMapper<T>) MAPPERS.get(entity.getClass());
+    }
+
+    public Class<T> getEntityClass() {
+        return entityClass;
+    }
+
+    /**
+     * @return the annotation metadata the mapper was built from
+     */
+    public EntityMetadata getMetadata() {
+        return metadata;
+    }
+
+    /**
+     * @return the annotated properties, in field declaration order
+     */
+    public List<Property> getProperties() {
+        return properties;
+    }
+
+    /**
+     * @param name the datastore name of the property
+     * @return the property stored under {@code name}, null if there is none
+     */
+    public Property getProperty(String name) {
+        int idx = metadata.indexOf(name);
+        return idx < 0 ? null : properties.get(idx);
+    }
+
+    /**
+     * Creates an empty entity through the no-arg constructor.
+     *
+     * @return the new entity
+     * @throws InstantiationException if the class has no usable no-arg constructor or the constructor fails
+     */
+    @SuppressWarnings("unchecked")
+    public T newInstance() throws InstantiationException {
+        if (constructor == null) {
+            throw new InstantiationException(entityClass.getName() + " has no accessible no-arg constructor");
+        }
+        try {
+            return (T) constructor.invokeExact();
+        } catch (Throwable e) {
+            InstantiationException exception = new InstantiationException(
+                    "cannot create an instance of " + entityClass.getName());
+            exception.initCause(e);
+            throw exception;
+        }
+    }
+
+    private static MethodHandle findConstructor(Class<?> entityClass) {
+        try {
+            Constructor<?> constructor = entityClass.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return MethodHandles.lookup().unreflectConstructor(constructor).asType(CONSTRUCTOR_TYPE);
+        } catch (NoSuchMethodException | IllegalAccessException | SecurityException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        final StringBuffer sb = new StringBuffer("EntityMapper{");
+        sb.append("entityClass=").append(entityClass.getName());
+        sb.append(", properties=").append(properties);
+        sb.append('}');
+        return sb.toString();
+    }
+
+    /**
+     * A property of the entity: an annotated field, the name it is stored under and its accessors.
+     */
+    public static final class Property {
+
+        private final Field field;
+
+        private final String name;
+
+        private final Class<?> type;
+
+        /**
+         * The type of the values accepted by the setter, boxed for primitive fields.
+         */
+        private final Class<?> valueType;
+
+        /**
+         * The first type argument of a parameterized field type, null if there is none.
+         */
+        private final Class<?> elementType;
+
+        private final boolean iterable;
+
+        private final boolean entity;
+
+        private final MethodHandle getter;
+
+        private final MethodHandle setter;
+
+        private Property(Class<?> entityClass, EntityMetadata metadata, int idx) {
+            this.field = metadata.getField(idx);
+            this.name = metadata.getName(idx);
+            this.type = field.getType();
+            this.valueType = MethodType.methodType(type).wrap().returnType();
+            this.elementType = metadata.getElementType(idx);
+            this.iterable = Iterable.class.isAssignableFrom(type);
+            this.entity = IType.class.isAssignableFrom(type);
+            this.getter = findGetter(entityClass, field);
+            this.setter = findSetter(entityClass, field);
+        }
+
+        /**
+         * @return the name of the property in the datastore
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return the java field backing the property
+         */
+        public Field getField() {
+            return field;
+        }
+
+        public Class<?> getType() {
+            return type;
+        }
+
+        /**
+         * @return the element class of a parameterized collection property, null if there is none
+         */
+        public Class<?> getElementType() {
+            return elementType;
+        }
+
+        /**
+         * @return true if the property holds an {@link Iterable}
+         */
+        public boolean isIterable() {
+            return iterable;
+        }
+
+        /**
+         * @return true if the property holds a nested entity
+         */
+        public boolean isEntity() {
+            return entity;
+        }
+
+        /**
+         * Reads the property of the given entity.
+         *
+         * @param target the entity
+         * @return the property value
+         * @throws InvocationTargetException if the getter fails
+         */
+        public Object get(Object target) throws InvocationTargetException {
+            if (getter == null) {
+                throw new HadoopIOException("no getter for field " + field.getName() + " of " + field
+                        .getDeclaringClass().getName());
+            }
+            try {
+                return getter.invokeExact(target);
+            } catch (Throwable e) {
+                throw new InvocationTargetException(e);
+            }
+        }
+
+        /**
+         * Sets the property of the given entity. Numbers not of the property type are converted to it.
+         *
+         * @param target the entity
+         * @param value  the value
+         * @throws InvocationTargetException if the setter fails
+         */
+        public void set(Object target, Object value) throws InvocationTargetException {
+            if (setter == null) {
+                throw new HadoopIOException("no setter for field " + field.getName() + " of " + field
+                        .getDeclaringClass().getName());
+            }
+            Object converted = value;
+            if (value != null && !valueType.isInstance(value)) {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("converting value " + value + " of " + value.getClass() + " for field " + field.getName()
+                            + " of type " + type);
+                }
+                converted = Utils.castNumberType(value, valueType);
+            }
+            try {
+                setter.invokeExact(target, converted);
+            } catch (Throwable e) {
+                throw new InvocationTargetException(e);
+            }
+        }
+
+        private static MethodHandle findGetter(Class<?> entityClass, Field field) {
+            try {
+                Method method = Utils.findGetter(field.getName(), entityClass);
+                method.setAccessible(true);
+                return MethodHandles.lookup().unreflect(method).asType(GETTER_TYPE);
+            } catch (HadoopIOException | IllegalAccessException | SecurityException e) {
+                return null;
+            }
+        }
+
+        private static MethodHandle findSetter(Class<?> entityClass, Field field) {
+            try {
+                Method method = Utils.findSetter(field.getName(), entityClass, field.getType());
+                method.setAccessible(true);
+                return MethodHandles.lookup().unreflect(method).asType(SETTER_TYPE);
+            } catch (HadoopIOException | IllegalAccessException | SecurityException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public String toString() {
+            final StringBuffer sb = new StringBuffer("Property{");
+            sb.append("name='").append(name).append('\'');
+            sb.append(", type=").append(type.getName());
+            sb.append('}');
+            return sb.toString();
+        }
+    }
+}
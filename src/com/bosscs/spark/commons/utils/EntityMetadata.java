@@ -0,0 +1,278 @@
+/*
+ * Copyright 2016, Jerry Xiong, BOSSCS
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bosscs.spark.commons.utils;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang.StringUtils;
+
+import com.bosscs.spark.commons.annotations.HadoopField;
+
+/**
+ * <p>
+ * What the {@link HadoopField} annotations of an entity class declare: the annotated fields of the class and its
+ * superclasses, in declaration order, with their datastore names, key flags and generic types.
+ * </p>
+ * <p>
+ * Each class is resolved once, on first use, and kept in a registry shared by all threads. Instances are immutable;
+ * the arrays they return are copies.
+ * </p>
+ */
+public final class EntityMetadata {
+
+    private static final ClassValue<EntityMetadata> REGISTRY = new ClassValue<EntityMetadata>() {
+        @Override
+        protected EntityMetadata computeValue(Class<?> type) {
+            return new EntityMetadata(type);
+        }
+    };
+
+    private final Class<?> entityClass;
+
+    private final Field[] fields;
+
+    private final String[] names;
+
+    private final boolean[] partitionKeys;
+
+    private final boolean[] clusterKeys;
+
+    /**
+     * The type arguments of each field, null when they are not all classes.
+     */
+    private final Class<?>[][] genericTypes;
+
+    /**
+     * The first type argument of each field, null when there is none or it is not a class.
+     */
+    private final Class<?>[] elementTypes;
+
+    private final Field[] keyFields;
+
+    private final Field[] otherFields;
+
+    private final Map<Field, Integer> fieldPositions;
+
+    private final Map<String, Integer> namePositions;
+
+    private EntityMetadata(Class<?> entityClass) {
+        this.entityClass = entityClass;
+
+        List<Field> annotated = new ArrayList<>();
+        for (Field field : Utils.getAllFields(entityClass)) {
+            if (field.isAnnotationPresent(HadoopField.class)) {
+                annotated.add(field);
+            }
+        }
+
+        int size = annotated.size();
+        fields = annotated.toArray(new Field[size]);
+        names = new String[size];
+        partitionKeys = new boolean[size];
+        clusterKeys = new boolean[size];
+        genericTypes = new Class<?>[size][];
+        elementTypes = new Class<?>[size];
+        fieldPositions = new HashMap<>(size * 4 / 3 + 1);
+        namePositions = new HashMap<>(size * 4 / 3 + 1);
+
+        List<Field> keys = new ArrayList<>();
+        List<Field> others = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            Field field = fields[i];
+            HadoopField annotation = field.getAnnotation(HadoopField.class);
+            names[i] = fieldName(field, annotation);
+            partitionKeys[i] = annotation.isPartOfPartitionKey();
+            clusterKeys[i] = annotation.isPartOfClusterKey();
+            genericTypes[i] = resolveGenericTypes(field);
+            elementTypes[i] = resolveElementType(field.getGenericType());
+
+            fieldPositions.put(field, i);
+            if (!namePositions.containsKey(names[i])) {
+                namePositions.put(names[i], i);
+            }
+            if (AnnotationUtils.isKey(annotation)) {
+                keys.add(field);
+            } else {
+                others.add(field);
+            }
+        }
+        keyFields = keys.toArray(new Field[keys.size()]);
+        otherFields = others.toArray(new Field[others.size()]);
+    }
+
+    /**
+     * Returns the metadata of the given class, resolving it on first use.
+     *
+     * @param entityClass the entity class
+     * @return the metadata of the class
+     */
+    public static EntityMetadata forClass(Class<?> entityClass) {
+        return REGISTRY.get(entityClass);
+    }
+
+    public Class<?> getEntityClass() {
+        return entityClass;
+    }
+
+    /**
+     * @return the number of annotated fields
+     */
+    public int size() {
+        return fields.length;
+    }
+
+    /**
+     * @return the annotated fields, superclass fields first
+     */
+    public Field[] getFields() {
+        return fields.clone();
+    }
+
+    public Field getField(int idx) {
+        return fields[idx];
+    }
+
+    /**
+     * @param idx the field position
+     * @return the datastore name of the field
+     */
+    public String getName(int idx) {
+        return names[idx];
+    }
+
+    public boolean isPartitionKey(int idx) {
+        return partitionKeys[idx];
+    }
+
+    public boolean isClusterKey(int idx) {
+        return clusterKeys[idx];
+    }
+
+    /**
+     * @param idx the field position
+     * @return true if the field is part of the partition key or the cluster key
+     */
+    public boolean isKey(int idx) {
+        return partitionKeys[idx] || clusterKeys[idx];
+    }
+
+    /**
+     * @param idx the field position
+     * @return the type arguments of the field, or the field class if it has none; null when they are not classes
+     */
+    public Class<?>[] getGenericTypes(int idx) {
+        return genericTypes[idx] == null ? null : genericTypes[idx].clone();
+    }
+
+    /**
+     * @param idx the field position
+     * @return the first type argument of a parameterized field, null if there is none or it is not a class
+     */
+    public Class<?> getElementType(int idx) {
+        return elementTypes[idx];
+    }
+
+    /**
+     * @return the fields which are part of the partition key or the cluster key
+     */
+    public Field[] getKeyFields() {
+        return keyFields.clone();
+    }
+
+    /**
+     * @return the fields which are not part of the key
+     */
+    public Field[] getOtherFields() {
+        return otherFields.clone();
+    }
+
+    /**
+     * @param field a field of the class or of one of its superclasses
+     * @return the position of the field, -1 if it is not an annotated field of the class
+     */
+    public int indexOf(Field field) {
+        Integer position = fieldPositions.get(field);
+        return position == null ? -1 : position;
+    }
+
+    /**
+     * @param name a datastore name
+     * @return the position of the first field stored under {@code name}, -1 if there is none
+     */
+    public int indexOf(String name) {
+        Integer position = namePositions.get(name);
+        return position == null ? -1 : position;
+    }
+
+    /**
+     * Returns the datastore name of the field: the fieldName property of its annotation if given, the java field
+     * name otherwise.
+     */
+    static String fieldName(Field field, HadoopField annotation) {
+        if (StringUtils.isNotEmpty(annotation.fieldName())) {
+            return annotation.fieldName();
+        } else {
+            return field.getName();
+        }
+    }
+
+    /**
+     * Returns the type arguments of the field, or its class if it is not parameterized, null if they are not classes.
+     */
+    private static Class<?>[] resolveGenericTypes(Field field) {
+        Type genericType = field.getGenericType();
+        if (!(genericType instanceof ParameterizedType)) {
+            return genericType instanceof Class ? new Class<?>[] { (Class<?>) genericType } : null;
+        }
+
+        Type[] types = ((ParameterizedType) genericType).getActualTypeArguments();
+        Class<?>[] res = new Class<?>[types.length];
+        for (int i = 0; i < types.length; i++) {
+            if (!(types[i] instanceof Class)) {
+                return null;
+            }
+            res[i] = (Class<?>) types[i];
+        }
+        return res;
+    }
+
+    private static Class<?> resolveElementType(Type genericType) {
+        if (genericType instanceof ParameterizedType) {
+            Type[] arguments = ((ParameterizedType) genericType).getActualTypeArguments();
+            if (arguments.length > 0 && arguments[0] instanceof Class) {
+                return (Class<?>) arguments[0];
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuffer sb = new StringBuffer("EntityMetadata{");
+        sb.append("entityClass=").append(entityClass.getName());
+        sb.append(", names=").append(Arrays.toString(names));
+        sb.append('}');
+        return sb.toString();
+    }
+}
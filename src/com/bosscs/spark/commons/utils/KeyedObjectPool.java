@@ -0,0 +1,240 @@
+/*
+ * Copyright 2016, Jerry Xiong, BOSSCS
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bosscs.spark.commons.utils;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Keeps idle objects (extractors, connections) per key so they can be reused instead of being created again. Idle
+ * objects are destroyed once they exceed {@code maxIdlePerKey} or stay unused longer than the idle timeout.
+ *
+ * @param <K> the key type
+ * @param <V> the pooled object type
+ * @author Jerry Xiong
+ */
+public abstract class KeyedObjectPool<K, V> implements AutoCloseable {
+
+    private static final Logger LOG = Logger.getLogger(KeyedObjectPool.class);
+
+    /**
+     * Evicts the idle objects of every pool, on a single daemon thread.
+     */
+    private static final ScheduledExecutorService EVICTOR = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "object-pool-evictor");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    private final Map<K, Deque<Idle<V>>> idle = new HashMap<>();
+
+    private final int maxIdlePerKey;
+
+    private final long idleTimeoutMillis;
+
+    private final ScheduledFuture<?> eviction;
+
+    private boolean closed;
+
+    /**
+     * @param maxIdlePerKey     maximum number of idle objects kept per key
+     * @param idleTimeoutMillis time after which an idle object is destroyed
+     */
+    protected KeyedObjectPool(int maxIdlePerKey, long idleTimeoutMillis) {
+        this.maxIdlePerKey = maxIdlePerKey;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        long period = Math.max(idleTimeoutMillis / 2, 1000);
+        this.eviction = EVICTOR.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                evictIdle();
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates a new object for the key.
+     *
+     * @param key the key
+     * @return the object
+     * @throws Exception if the object cannot be created
+     */
+    protected abstract V create(K key) throws Exception;
+
+    /**
+     * Releases the resources of an object leaving the pool.
+     *
+     * @param value the object
+     */
+    protected abstract void destroy(V value);
+
+    /**
+     * Checks an idle object is still usable before handing it out again.
+     *
+     * @param value the object
+     * @return false to destroy it and try the next one
+     */
+    protected boolean validate(V value) {
+        return true;
+    }
+
+    /**
+     * Returns an idle object of the key, or a new one if there is none.
+     *
+     * @param key the key
+     * @return the object
+     * @throws Exception if a new object cannot be created
+     */
+    public V borrow(K key) throws Exception {
+        while (true) {
+            V value = pollIdle(key);
+            if (value == null) {
+                return create(key);
+            }
+            if (validate(value)) {
+                return value;
+            }
+            destroyQuietly(value);
+        }
+    }
+
+    /**
+     * Gives back an object borrowed for the key. It is destroyed if the key already has enough idle objects.
+     *
+     * @param key   the key
+     * @param value the object
+     */
+    public void release(K key, V value) {
+        synchronized (idle) {
+            if (!closed) {
+                Deque<Idle<V>> queue = idle.get(key);
+                if (queue == null) {
+                    queue = new ArrayDeque<>();
+                    idle.put(key, queue);
+                }
+                if (queue.size() < maxIdlePerKey) {
+                    queue.push(new Idle<>(value, System.currentTimeMillis()));
+                    return;
+                }
+            }
+        }
+        destroyQuietly(value);
+    }
+
+    /**
+     * Destroys the objects unused for longer than the idle timeout.
+     */
+    public void evictIdle() {
+        long deadline = System.currentTimeMillis() - idleTimeoutMillis;
+        Deque<V> expired = new ArrayDeque<>();
+
+        synchronized (idle) {
+            for (Iterator<Deque<Idle<V>>> it = idle.values().iterator(); it.hasNext(); ) {
+                Deque<Idle<V>> queue = it.next();
+                // most recently released first, so the expired ones are at the tail
+                while (!queue.isEmpty() && queue.peekLast().since < deadline) {
+                    expired.add(queue.pollLast().value);
+                }
+                if (queue.isEmpty()) {
+                    it.remove();
+                }
+            }
+        }
+
+        for (V value : expired) {
+            destroyQuietly(value);
+        }
+    }
+
+    /**
+     * @return the number of idle objects over all keys.
+     */
+    public int getIdleCount() {
+        synchronized (idle) {
+            int count = 0;
+            for (Deque<Idle<V>> queue : idle.values()) {
+                count += queue.size();
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Destroys every idle object and stops pooling; objects released afterwards are destroyed.
+     */
+    @Override
+    public void close() {
+        eviction.cancel(false);
+        Deque<V> all = new ArrayDeque<>();
+        synchronized (idle) {
+            closed = true;
+            for (Deque<Idle<V>> queue : idle.values()) {
+                for (Idle<V> entry : queue) {
+                    all.add(entry.value);
+                }
+            }
+            idle.clear();
+        }
+        for (V value : all) {
+            destroyQuietly(value);
+        }
+    }
+
+    private V pollIdle(K key) {
+        synchronized (idle) {
+            Deque<Idle<V>> queue = idle.get(key);
+            if (queue == null || queue.isEmpty()) {
+                return null;
+            }
+            return queue.pop().value;
+        }
+    }
+
+    private void destroyQuietly(V value) {
+        try {
+            destroy(value);
+        } catch (RuntimeException e) {
+            LOG.warn("Unable to destroy pooled object " + e.getMessage());
+        }
+    }
+
+    private static final class Idle<V> {
+
+        private final V value;
+
+        private final long since;
+
+        private Idle(V value, long since) {
+            this.value = value;
+            this.since = since;
+        }
+    }
+}
@@ -33,6 +33,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
@@ -49,6 +51,7 @@ import com.bosscs.spark.commons.entity.Cells;
 import com.bosscs.spark.commons.entity.IType;
 import com.bosscs.spark.commons.exception.ExtractorInitializationException;
 import com.bosscs.spark.commons.exception.GenericException;
+import com.bosscs.spark.commons.extractor.impl.PrefetchingExtractor;
 import com.bosscs.spark.commons.exception.HadoopIOException;
 import com.bosscs.spark.commons.rdd.IExtractor;
 
@@ -373,7 +376,17 @@ public final class Utils {
     }
 
     /**
-     * Gets extractor instance.
+     * Extractor constructors already resolved, keyed by extractor class. Cells extractors are built with their no-arg
+     * constructor, entity extractors with the one taking the entity class.
+     */
+    private static final ConcurrentMap<Class<?>, Constructor<?>> CELLS_EXTRACTOR_CONSTRUCTORS =
+            new ConcurrentHashMap<>();
+
+    private static final ConcurrentMap<Class<?>, Constructor<?>> ENTITY_EXTRACTOR_CONSTRUCTORS =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Gets extractor instance, wrapped in a {@link PrefetchingExtractor} when the config asks for read-ahead.
      *
      * @param config the config
      * @return the extractor instance
@@ -385,13 +398,21 @@ public final class Utils {
             if (rdd == null) {
                 rdd = (Class<T>) Class.forName(config.getExtractorImplClassName());
             }
-            Constructor<T> c;
+            Constructor<?> c;
             if (config.getEntityClass().isAssignableFrom(Cells.class)) {
-                c = rdd.getConstructor();
-                return (IExtractor<T, S>) c.newInstance();
+                c = CELLS_EXTRACTOR_CONSTRUCTORS.get(rdd);
+                if (c == null) {
+                    c = rdd.getConstructor();
+                    CELLS_EXTRACTOR_CONSTRUCTORS.put(rdd, c);
+                }
+                return PrefetchingExtractor.wrap((IExtractor<T, S>) c.newInstance(), config);
             } else {
-                c = rdd.getConstructor(Class.class);
-                return (IExtractor<T, S>) c.newInstance(config.getEntityClass());
+                c = ENTITY_EXTRACTOR_CONSTRUCTORS.get(rdd);
+                if (c == null) {
+                    c = rdd.getConstructor(Class.class);
+                    ENTITY_EXTRACTOR_CONSTRUCTORS.put(rdd, c);
+                }
+                return PrefetchingExtractor.wrap((IExtractor<T, S>) c.newInstance(config.getEntityClass()), config);
             }
         } catch (ClassNotFoundException | InstantiationException | IllegalAccessException | IllegalArgumentException
                 | InvocationTargetException | NoSuchMethodException | SecurityException e) {
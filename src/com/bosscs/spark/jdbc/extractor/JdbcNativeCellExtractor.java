@@ -17,18 +17,30 @@
 package com.bosscs.spark.jdbc.extractor;
 
 import com.bosscs.spark.commons.entity.Cells;
+import com.bosscs.spark.commons.entity.CellsBatch;
+import com.bosscs.spark.commons.entity.CellsSchema;
+import com.bosscs.spark.commons.entity.CompactCells;
+import com.bosscs.spark.commons.exception.GenericException;
+import com.bosscs.spark.commons.rdd.ICellsBatchExtractor;
 import com.bosscs.spark.jdbc.config.JdbcDeepJobConfig;
 import com.bosscs.spark.jdbc.utils.UtilJdbc;
 
+import java.sql.SQLException;
 import java.util.Map;
 
 /**
  * Implementation of JdbcExtractor for Cells objects.
  */
-public class JdbcNativeCellExtractor extends JdbcNativeExtractor<Cells, JdbcDeepJobConfig<Cells>> {
+public class JdbcNativeCellExtractor extends JdbcNativeExtractor<Cells, JdbcDeepJobConfig<Cells>>
+        implements ICellsBatchExtractor {
 
     private static final long serialVersionUID = 5796562363902015583L;
 
+    /**
+     * Schema of the last row read, shared with the next rows of the query.
+     */
+    private transient CellsSchema schema;
+
     /**
      * Default constructor.
      */
@@ -40,6 +52,20 @@ public class JdbcNativeCellExtractor extends JdbcNativeExtractor<Cells, JdbcDeep
         this.jdbcDeepJobConfig = new JdbcDeepJobConfig<>(Cells.class);
     }
 
+    /**
+     * Reads the next rows straight from the result set into a columnar batch.
+     * @param max Maximum number of rows to read.
+     * @return Batch holding the rows read, reused by the next call.
+     */
+    @Override
+    public CellsBatch nextCellsBatch(int max) {
+        try {
+            return jdbcReader.nextCellsBatch(max);
+        } catch (SQLException e) {
+            throw new GenericException(e);
+        }
+    }
+
     /**
      * Transforms a database row represented as a Map into a Cells object.
      * @param entity Database row represented as a Map of column name:column value.
@@ -47,7 +73,9 @@ public class JdbcNativeCellExtractor extends JdbcNativeExtractor<Cells, JdbcDeep
      */
     @Override
     protected Cells transformElement(Map<String, Object> entity) {
-        return UtilJdbc.getCellsFromObject(entity, jdbcDeepJobConfig);
+        CompactCells cells = UtilJdbc.getCellsFromObject(entity, jdbcDeepJobConfig, schema);
+        schema = cells.getSchema();
+        return cells;
     }
 
     /**
@@ -21,7 +21,9 @@ import static com.bosscs.spark.commons.utils.Utils.initConfig;
 import com.bosscs.spark.commons.config.BaseConfig;
 import com.bosscs.spark.commons.exception.GenericException;
 import com.bosscs.spark.commons.querybuilder.UpdateQueryBuilder;
+import com.bosscs.spark.commons.rdd.IBatchExtractor;
 import com.bosscs.spark.commons.rdd.IExtractor;
+import com.bosscs.spark.commons.rdd.RecordBatch;
 import com.bosscs.spark.jdbc.config.JdbcDeepJobConfig;
 import com.bosscs.spark.jdbc.reader.IJdbcReader;
 import com.bosscs.spark.jdbc.reader.JdbcReader;
@@ -38,7 +40,7 @@ import java.util.Map;
 /**
  * Abstract class of Jdbc native extractor.
  */
-public abstract class JdbcNativeExtractor<T, S extends BaseConfig> implements IExtractor<T, S> {
+public abstract class JdbcNativeExtractor<T, S extends BaseConfig> implements IExtractor<T, S>, IBatchExtractor<T> {
 
     private static final long serialVersionUID = -298383130965427783L;
 
@@ -59,6 +61,11 @@ public abstract class JdbcNativeExtractor<T, S extends BaseConfig> implements IE
      */
     protected JdbcWriter<T> jdbcWriter;
 
+    /**
+     * Batch reused by {@link #nextBatch(int)}.
+     */
+    private transient RecordBatch<T> batch;
+
     /**
      * {@inheritDoc}
      */
@@ -103,6 +110,25 @@ public abstract class JdbcNativeExtractor<T, S extends BaseConfig> implements IE
         }
     }
 
+    /**
+     * Reads the rows of a batch in one loop, under a single exception translation.
+     */
+    @Override
+    public RecordBatch<T> nextBatch(int max) {
+        if (batch == null) {
+            batch = new RecordBatch<>(max);
+        }
+        batch.clear();
+        try {
+            while (batch.size() < max && jdbcReader.hasNext()) {
+                batch.add(transformElement(jdbcReader.next()));
+            }
+        } catch (SQLException e) {
+            throw new GenericException(e);
+        }
+        return batch;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -15,6 +15,7 @@
  */
 package com.bosscs.spark.jdbc.reader;
 
+import com.bosscs.spark.commons.entity.CellsBatch;
 import org.apache.spark.Partition;
 
 import java.sql.SQLException;
@@ -46,4 +47,12 @@ public interface IJdbcReader extends AutoCloseable {
      */
     Map<String, Object> next() throws SQLException;
 
+    /**
+     * Reads the next rows into a columnar batch.
+     * @param max Maximum number of rows to read.
+     * @return Batch holding the rows read, reused by the next call.
+     * @throws SQLException
+     */
+    CellsBatch nextCellsBatch(int max) throws SQLException;
+
 }
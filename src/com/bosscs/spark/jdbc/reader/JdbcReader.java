@@ -17,18 +17,21 @@
 package com.bosscs.spark.jdbc.reader;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Types;
 import java.util.HashMap;
 import java.util.Map;
 
+import com.bosscs.spark.commons.entity.CellsBatch;
+import com.bosscs.spark.commons.entity.CellsBatch.ColumnType;
 import com.healthmarketscience.sqlbuilder.BinaryCondition;
 import com.healthmarketscience.sqlbuilder.SelectQuery;
 import com.healthmarketscience.sqlbuilder.dbspec.Column;
 import com.bosscs.spark.jdbc.config.JdbcDeepJobConfig;
+import com.bosscs.spark.jdbc.utils.JdbcConnectionPool;
 import org.apache.spark.Partition;
 import org.apache.spark.rdd.JdbcPartition;
 
@@ -47,6 +50,11 @@ public class JdbcReader implements IJdbcReader {
      */
     protected Connection conn;
 
+    /**
+     * JDBC Statement.
+     */
+    protected Statement statement;
+
     /**
      * JDBC ResultSet.
      */
@@ -57,6 +65,21 @@ public class JdbcReader implements IJdbcReader {
      */
     protected boolean hasNext = false;
 
+    /**
+     * Column names of the result set, read once from its metadata.
+     */
+    protected String[] columnNames;
+
+    /**
+     * Storage type in a {@link CellsBatch} of each column of the result set.
+     */
+    protected ColumnType[] columnTypes;
+
+    /**
+     * Batch reused by {@link #nextCellsBatch(int)}.
+     */
+    protected CellsBatch cellsBatch;
+
     /**
      * Default constructor
      */
@@ -82,11 +105,8 @@ public class JdbcReader implements IJdbcReader {
      * @throws Exception
      */
     public void init(Partition p) throws Exception {
-        Class.forName(jdbcDeepJobConfig.getDriverClass());
-        conn = DriverManager.getConnection(jdbcDeepJobConfig.getConnectionUrl(),
-                jdbcDeepJobConfig.getUsername(),
-                jdbcDeepJobConfig.getPassword());
-        Statement statement = conn.createStatement();
+        conn = JdbcConnectionPool.getConnection(jdbcDeepJobConfig);
+        statement = conn.createStatement();
         SelectQuery query = jdbcDeepJobConfig.getQuery();
         JdbcPartition jdbcPartition = (JdbcPartition)p;
         if(jdbcDeepJobConfig.getNumPartitions() > 1) {
@@ -94,7 +114,14 @@ public class JdbcReader implements IJdbcReader {
             query.getWhereClause().addCondition(BinaryCondition.lessThan(partitionKey, jdbcPartition.upper(), true))
                     .addCondition(BinaryCondition.greaterThan(partitionKey, jdbcPartition.lower(), true));
         }
-        resultSet = statement.executeQuery(query);
+        resultSet = statement.executeQuery(query.toString());
+        ResultSetMetaData metadata = resultSet.getMetaData();
+        columnNames = new String[metadata.getColumnCount()];
+        columnTypes = new ColumnType[columnNames.length];
+        for (int i = 0; i < columnNames.length; i++) {
+            columnNames[i] = metadata.getColumnName(i + 1);
+            columnTypes[i] = getColumnType(metadata.getColumnType(i + 1), metadata.isSigned(i + 1));
+        }
         // Fetches first element
         this.hasNext = resultSet.next();
     }
@@ -116,12 +143,9 @@ public class JdbcReader implements IJdbcReader {
      * @throws SQLException
      */
     public Map<String, Object> next() throws SQLException {
-        Map<String, Object> row = new HashMap<>();
-        ResultSetMetaData metadata = resultSet.getMetaData();
-        int columnsNumber = metadata.getColumnCount();
-        for (int i = 1; i <= columnsNumber; i++) {
-            String columnName = metadata.getColumnName(i);
-            row.put(columnName, resultSet.getObject(i));
+        Map<String, Object> row = new HashMap<>(columnNames.length * 4 / 3 + 1);
+        for (int i = 0; i < columnNames.length; i++) {
+            row.put(columnNames[i], resultSet.getObject(i + 1));
         }
 
         this.hasNext = resultSet.next();
@@ -130,7 +154,108 @@ public class JdbcReader implements IJdbcReader {
     }
 
     /**
-     * closes the resultset and the jdbc connection.
+     * Reads the next rows into a columnar batch, primitive columns being read without boxing.
+     *
+     * @param max
+     *            Maximum number of rows to read.
+     * @return Batch holding the rows read, reused by the next call.
+     * @throws SQLException
+     */
+    public CellsBatch nextCellsBatch(int max) throws SQLException {
+        if (cellsBatch == null) {
+            cellsBatch = new CellsBatch(jdbcDeepJobConfig.getCatalog() + "." + jdbcDeepJobConfig.getTable(), max);
+            for (int i = 0; i < columnNames.length; i++) {
+                cellsBatch.addColumn(columnNames[i], columnTypes[i]);
+            }
+        }
+        cellsBatch.clear();
+
+        while (hasNext && cellsBatch.size() < max) {
+            for (int i = 0; i < columnTypes.length; i++) {
+                int column = i + 1;
+                switch (columnTypes[i]) {
+                case INT:
+                    int intValue = resultSet.getInt(column);
+                    if (resultSet.wasNull()) {
+                        cellsBatch.setNull(i);
+                    } else {
+                        cellsBatch.setInt(i, intValue);
+                    }
+                    break;
+                case LONG:
+                    long longValue = resultSet.getLong(column);
+                    if (resultSet.wasNull()) {
+                        cellsBatch.setNull(i);
+                    } else {
+                        cellsBatch.setLong(i, longValue);
+                    }
+                    break;
+                case DOUBLE:
+                    double doubleValue = resultSet.getDouble(column);
+                    if (resultSet.wasNull()) {
+                        cellsBatch.setNull(i);
+                    } else {
+                        cellsBatch.setDouble(i, doubleValue);
+                    }
+                    break;
+                case BOOLEAN:
+                    boolean booleanValue = resultSet.getBoolean(column);
+                    if (resultSet.wasNull()) {
+                        cellsBatch.setNull(i);
+                    } else {
+                        cellsBatch.setBoolean(i, booleanValue);
+                    }
+                    break;
+                case STRING:
+                    cellsBatch.setString(i, resultSet.getString(column));
+                    break;
+                default:
+                    cellsBatch.setValue(i, resultSet.getObject(column));
+                }
+            }
+            cellsBatch.endRow();
+            this.hasNext = resultSet.next();
+        }
+
+        return cellsBatch;
+    }
+
+    /**
+     * Maps a JDBC column type to the storage type of its values in a {@link CellsBatch}. Only the types whose
+     * {@code getObject} value is the boxed primitive are stored as primitives, so the batch hands out the same values
+     * as {@link #next()}.
+     *
+     * @param sqlType
+     *            Column type, from {@link java.sql.Types}.
+     * @param signed
+     *            Whether the column holds signed numbers.
+     * @return Column storage type.
+     */
+    private static ColumnType getColumnType(int sqlType, boolean signed) {
+        switch (sqlType) {
+        case Types.INTEGER:
+            return signed ? ColumnType.INT : ColumnType.LONG;
+        case Types.BIGINT:
+            return signed ? ColumnType.LONG : ColumnType.OBJECT;
+        case Types.DOUBLE:
+        case Types.FLOAT:
+            return ColumnType.DOUBLE;
+        case Types.BOOLEAN:
+            return ColumnType.BOOLEAN;
+        case Types.CHAR:
+        case Types.VARCHAR:
+        case Types.LONGVARCHAR:
+        case Types.NCHAR:
+        case Types.NVARCHAR:
+        case Types.LONGNVARCHAR:
+            return ColumnType.STRING;
+        default:
+            return ColumnType.OBJECT;
+        }
+    }
+
+    /**
+     * closes the resultset and gives the jdbc connection back to the pool.
      *
      * @throws java.lang.Exception
      */
@@ -139,9 +264,13 @@ public class JdbcReader implements IJdbcReader {
             if (resultSet != null) {
                 resultSet.close();
             }
+            if (statement != null) {
+                statement.close();
+            }
         } finally {
             if (conn != null) {
-                conn.close();
+                JdbcConnectionPool.releaseConnection(jdbcDeepJobConfig, conn);
+                conn = null;
             }
         }
     }
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2016, Jerry Xiong, BOSSCS
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bosscs.spark.jdbc.utils;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.bosscs.spark.commons.utils.Constants;
+import com.bosscs.spark.commons.utils.KeyedObjectPool;
+import com.bosscs.spark.jdbc.config.JdbcDeepJobConfig;
+
+/**
+ * JDBC connections kept open between partition reads and writes, keyed by driver, url and credentials.
+ */
+public final class JdbcConnectionPool extends KeyedObjectPool<JdbcConnectionPool.Key, Connection> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JdbcConnectionPool.class);
+
+    private static final JdbcConnectionPool INSTANCE = new JdbcConnectionPool();
+
+    private JdbcConnectionPool() {
+        super(Constants.DEFAULT_POOL_MAX_IDLE, Constants.DEFAULT_POOL_IDLE_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Returns an open connection for the given config, reusing an idle one if possible.
+     *
+     * @param config the JDBC config
+     * @return the connection
+     * @throws Exception if the driver cannot be loaded or the connection fails
+     */
+    public static Connection getConnection(JdbcDeepJobConfig<?> config) throws Exception {
+        return INSTANCE.borrow(new Key(config));
+    }
+
+    /**
+     * Gives a connection back for reuse. Pending work of a connection left out of auto-commit is rolled back.
+     *
+     * @param config     the JDBC config the connection was obtained with
+     * @param connection the connection
+     */
+    public static void releaseConnection(JdbcDeepJobConfig<?> config, Connection connection) {
+        try {
+            if (connection.isClosed()) {
+                return;
+            }
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            INSTANCE.destroy(connection);
+            return;
+        }
+        INSTANCE.release(new Key(config), connection);
+    }
+
+    @Override
+    protected Connection create(Key key) throws Exception {
+        Class.forName(key.driverClass);
+        return DriverManager.getConnection(key.url, key.username, key.password);
+    }
+
+    @Override
+    protected boolean validate(Connection connection) {
+        try {
+            return !connection.isClosed() && connection.isValid(1);
+        } catch (SQLException e) {
+            return false;
+        } catch (AbstractMethodError e) {
+            // pre JDBC 4 driver
+            return true;
+        }
+    }
+
+    @Override
+    protected void destroy(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            LOG.warn("Unable to close JDBC connection", e);
+        }
+    }
+
+    static final class Key {
+
+        private final String driverClass;
+
+        private final String url;
+
+        private final String username;
+
+        private final String password;
+
+        private Key(JdbcDeepJobConfig<?> config) {
+            this.driverClass = config.getDriverClass();
+            this.url = config.getConnectionUrl();
+            this.username = config.getUsername();
+            this.password = config.getPassword();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return equal(driverClass, key.driverClass) && equal(url, key.url) && equal(username, key.username)
+                    && equal(password, key.password);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = driverClass != null ? driverClass.hashCode() : 0;
+            result = 31 * result + (url != null ? url.hashCode() : 0);
+            result = 31 * result + (username != null ? username.hashCode() : 0);
+            result = 31 * result + (password != null ? password.hashCode() : 0);
+            return result;
+        }
+
+        private static boolean equal(String a, String b) {
+            return a == null ? b == null : a.equals(b);
+        }
+    }
+}
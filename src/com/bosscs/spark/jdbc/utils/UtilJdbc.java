@@ -19,17 +19,17 @@ package com.bosscs.spark.jdbc.utils;
 import com.bosscs.spark.commons.config.JobConfig;
 import com.bosscs.spark.commons.entity.Cell;
 import com.bosscs.spark.commons.entity.Cells;
-import com.bosscs.spark.commons.utils.AnnotationUtils;
-import com.bosscs.spark.commons.utils.Utils;
+import com.bosscs.spark.commons.entity.CellsSchema;
+import com.bosscs.spark.commons.entity.CompactCells;
+import com.bosscs.spark.commons.utils.EntityMapper;
 import com.bosscs.spark.jdbc.config.IJdbcDeepJobConfig;
 import com.bosscs.spark.jdbc.config.JdbcDeepJobConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -51,25 +51,12 @@ public class UtilJdbc {
      * @throws InvocationTargetException
      */
     public static <T, S extends JobConfig> T getObjectFromRow(Class<T> classEntity, Map<String, Object> row, JobConfig<T, S> config) throws IllegalAccessException, InstantiationException, InvocationTargetException {
-        T t = classEntity.newInstance();
-        Field[] fields = AnnotationUtils.filterDeepFields(classEntity);
-        for (Field field : fields) {
-            Object currentRow = null;
-            Method method = null;
-            Class<?> classField = field.getType();
-            try {
-                method = Utils.findSetter(field.getName(), classEntity, field.getType());
-
-                currentRow = row.get(AnnotationUtils.deepFieldName(field));
-
-                if (currentRow != null) {
-                    method.invoke(t, currentRow);
-                }
-            } catch (IllegalAccessException | InvocationTargetException | IllegalArgumentException e) {
-                LOG.error("impossible to create a java object from column:" + field.getName() + " and type:"
-                        + field.getType() + " and value:" + t + "; recordReceived:" + currentRow);
-
-                method.invoke(t, Utils.castNumberType(currentRow, classField));
+        EntityMapper<T> mapper = EntityMapper.forClass(classEntity);
+        T t = mapper.newInstance();
+        for (EntityMapper.Property property : mapper.getProperties()) {
+            Object currentRow = row.get(property.getName());
+            if (currentRow != null) {
+                property.set(t, currentRow);
             }
         }
         return t;
@@ -86,15 +73,14 @@ public class UtilJdbc {
      */
     public static <T> Map<String, Object> getRowFromObject(T entity) throws IllegalAccessException, InstantiationException,
             InvocationTargetException {
-        Field[] fields = AnnotationUtils.filterDeepFields(entity.getClass());
+        List<EntityMapper.Property> properties = EntityMapper.forEntity(entity).getProperties();
 
-        Map<String, Object> row = new HashMap<>();
+        Map<String, Object> row = new HashMap<>(properties.size() * 4 / 3 + 1);
 
-        for (Field field : fields) {
-            Method method = Utils.findGetter(field.getName(), entity.getClass());
-            Object object = method.invoke(entity);
+        for (EntityMapper.Property property : properties) {
+            Object object = property.get(entity);
             if (object != null) {
-                row.put(AnnotationUtils.deepFieldName(field), object);
+                row.put(property.getName(), object);
             }
         }
         return row;
@@ -115,6 +101,23 @@ public class UtilJdbc {
         return result;
     }
 
+    /**
+     * Returns a compact Cells object from a JDBC row data structure, sharing the schema of the previous row when both
+     * rows have the same columns.
+     * @param row JDBC row data structure as a Map.
+     * @param config JDBC Deep Job config.
+     * @param schema Schema of the previous row, null for the first row.
+     * @return Cells object from a JDBC row data structure, its schema to be given back for the next row.
+     */
+    public static<T extends JobConfig> CompactCells getCellsFromObject(Map<String, Object> row,
+                                                                       JobConfig<Cells, T> config,
+                                                                       CellsSchema schema) {
+        if (schema == null || !schema.matches(row.keySet())) {
+            schema = CellsSchema.of(config.getCatalog() + "." + config.getTable(), row.keySet());
+        }
+        return new CompactCells(schema, row.values().toArray());
+    }
+
     /**
      * Returns a JDBC row data structure from a Cells object.
      * @param cells Cells object carrying information.
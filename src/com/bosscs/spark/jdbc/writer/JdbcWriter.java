@@ -17,6 +17,7 @@
 package com.bosscs.spark.jdbc.writer;
 
 import com.bosscs.spark.jdbc.config.JdbcDeepJobConfig;
+import com.bosscs.spark.jdbc.utils.JdbcConnectionPool;
 import org.apache.commons.lang3.StringUtils;
 import scala.Tuple2;
 
@@ -52,10 +53,7 @@ public class JdbcWriter<T> implements IJdbcWriter {
      */
     public JdbcWriter(JdbcDeepJobConfig jdbcDeepJobConfig) throws Exception {
         this.jdbcDeepJobConfig = jdbcDeepJobConfig;
-        Class.forName(jdbcDeepJobConfig.getDriverClass());
-        this.conn = DriverManager.getConnection(jdbcDeepJobConfig.getConnectionUrl(),
-                jdbcDeepJobConfig.getUsername(),
-                jdbcDeepJobConfig.getPassword());
+        this.conn = JdbcConnectionPool.getConnection(jdbcDeepJobConfig);
     }
 
     /**
@@ -66,20 +64,24 @@ public class JdbcWriter<T> implements IJdbcWriter {
     public void save(Map<String, Object> row) throws Exception {
         Tuple2<List<String>, String> data = sqlFromRow(row);
         PreparedStatement statement = conn.prepareStatement(data._2());
-        int i = 1;
-        for(String columnName:data._1()) {
-            statement.setObject(i, row.get(columnName));
-            i++;
+        try {
+            int i = 1;
+            for(String columnName:data._1()) {
+                statement.setObject(i, row.get(columnName));
+                i++;
+            }
+            statement.executeUpdate();
+        } finally {
+            statement.close();
         }
-        statement.executeUpdate();
     }
 
     /**
-     * Closes the JDBC Connection.
+     * Gives the JDBC Connection back to the pool.
      * @throws SQLException
      */
     public void close() throws SQLException {
-        conn.close();
+        JdbcConnectionPool.releaseConnection(jdbcDeepJobConfig, conn);
     }
 
     private Tuple2<List<String>, String> sqlFromRow(Map<String, Object> row) {
@@ -119,6 +119,15 @@ public interface IMongoDeepJobConfig<T, S extends JobConfig> {
      */
     S splitsUseChunks(boolean splitsUseChunks);
 
+    /**
+     * If {@code true} the documents are read into Cells which convert each field the first time it is read, instead
+     * of converting every field of every document up front. Defaults to {@code false}
+     *
+     * @param lazyCells
+     * @return this object.
+     */
+    S lazyCells(boolean lazyCells);
+
     /**
      * @param inputKey
      * @return this object.
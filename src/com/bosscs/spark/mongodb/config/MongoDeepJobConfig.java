@@ -19,6 +19,7 @@ package com.bosscs.spark.mongodb.config;
 import static com.bosscs.spark.commons.extractor.utils.ExtractorConstants.FILTER_QUERY;
 import static com.bosscs.spark.commons.extractor.utils.ExtractorConstants.IGNORE_ID_FIELD;
 import static com.bosscs.spark.commons.extractor.utils.ExtractorConstants.INPUT_KEY;
+import static com.bosscs.spark.commons.extractor.utils.ExtractorConstants.LAZY_CELLS;
 import static com.bosscs.spark.commons.extractor.utils.ExtractorConstants.READ_PREFERENCE;
 import static com.bosscs.spark.commons.extractor.utils.ExtractorConstants.REPLICA_SET;
 import static com.bosscs.spark.commons.extractor.utils.ExtractorConstants.SORT;
@@ -37,6 +38,7 @@ import java.util.Set;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.mapred.JobConf;
+import org.bson.RawBsonDocument;
 
 import com.mongodb.BasicDBObject;
 import com.mongodb.DBObject;
@@ -51,6 +53,7 @@ import com.bosscs.spark.commons.filter.Filter;
 import com.bosscs.spark.commons.filter.FilterType;
 import com.bosscs.spark.mongodb.extractor.MongoNativeCellExtractor;
 import com.bosscs.spark.mongodb.extractor.MongoNativeEntityExtractor;
+import com.bosscs.spark.mongodb.extractor.MongoNativeRawExtractor;
 
 /**
  * The type Mongo deep job config.
@@ -116,6 +119,11 @@ public class MongoDeepJobConfig<T> extends HadoopConfig<T, MongoDeepJobConfig<T>
      */
     private boolean splitsUseChunks = true;
 
+    /**
+     * The Lazy cells.
+     */
+    private boolean lazyCells = false;
+
     /**
      * The Split size.
      */
@@ -142,6 +150,8 @@ public class MongoDeepJobConfig<T> extends HadoopConfig<T, MongoDeepJobConfig<T>
         super(entityClass);
         if (Cells.class.isAssignableFrom(entityClass)) {
             extractorImplClass = MongoNativeCellExtractor.class;
+        } else if (RawBsonDocument.class.isAssignableFrom(entityClass)) {
+            extractorImplClass = MongoNativeRawExtractor.class;
         } else {
             extractorImplClass = MongoNativeEntityExtractor.class;
         }
@@ -279,6 +289,15 @@ public class MongoDeepJobConfig<T> extends HadoopConfig<T, MongoDeepJobConfig<T>
         return this;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MongoDeepJobConfig<T> lazyCells(boolean lazyCells) {
+        this.lazyCells = lazyCells;
+        return this;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -517,6 +536,10 @@ public class MongoDeepJobConfig<T> extends HadoopConfig<T, MongoDeepJobConfig<T>
         if (values.get(USE_CHUNKS) != null) {
             splitsUseChunks(extractorConfig.getBoolean(USE_CHUNKS));
         }
+
+        if (values.get(LAZY_CELLS) != null) {
+            lazyCells(extractorConfig.getBoolean(LAZY_CELLS));
+        }
         if (values.get(SPLIT_SIZE) != null) {
             pageSize(extractorConfig.getInteger(SPLIT_SIZE));
         }
@@ -637,6 +660,15 @@ public class MongoDeepJobConfig<T> extends HadoopConfig<T, MongoDeepJobConfig<T>
         this.splitsUseChunks = splitsUseChunks;
     }
 
+    /**
+     * Is lazy cells.
+     *
+     * @return the boolean
+     */
+    public boolean isLazyCells() {
+        return lazyCells;
+    }
+
     /**
      * Gets split size.
      *
@@ -707,6 +739,7 @@ public class MongoDeepJobConfig<T> extends HadoopConfig<T, MongoDeepJobConfig<T>
         sb.append(", createInputSplit=").append(createInputSplit);
         sb.append(", useShards=").append(useShards);
         sb.append(", splitsUseChunks=").append(splitsUseChunks);
+        sb.append(", lazyCells=").append(lazyCells);
         sb.append(", splitSize=").append(splitSize);
         sb.append(", writeConcern=").append(writeConcern);
         sb.append(", customConfiguration=").append(customConfiguration);
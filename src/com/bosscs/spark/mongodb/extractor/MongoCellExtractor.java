@@ -24,8 +24,11 @@ import org.slf4j.LoggerFactory;
 
 import com.bosscs.spark.commons.config.JobConfig;
 import com.bosscs.spark.commons.entity.Cells;
+import com.bosscs.spark.commons.entity.CellsSchema;
+import com.bosscs.spark.commons.entity.CompactCells;
 import com.bosscs.spark.commons.exception.TransformException;
 import com.bosscs.spark.mongodb.config.MongoDeepJobConfig;
+import com.bosscs.spark.mongodb.reader.LazyBsonCells;
 import com.bosscs.spark.mongodb.utils.UtilMongoDB;
 
 import scala.Tuple2;
@@ -44,6 +47,11 @@ public final class MongoCellExtractor extends MongoExtractor<Cells> {
      */
     private static final long serialVersionUID = -3208994171892747470L;
 
+    /**
+     * Schema of the last document read, shared with the next documents having the same fields.
+     */
+    private transient CellsSchema schema;
+
     /**
      * Instantiates a new Mongo cell extractor.
      */
@@ -70,7 +78,12 @@ public final class MongoCellExtractor extends MongoExtractor<Cells> {
                                   JobConfig<Cells, ? extends JobConfig> config) {
 
         try {
-            return UtilMongoDB.getCellFromBson(tuple._2(), deepJobConfig.getNameSpace());
+            if (((MongoDeepJobConfig) deepJobConfig).isLazyCells()) {
+                return new LazyBsonCells(deepJobConfig.getNameSpace(), tuple._2());
+            }
+            CompactCells cells = UtilMongoDB.getCellFromBson(tuple._2(), deepJobConfig.getNameSpace(), schema);
+            schema = cells.getSchema();
+            return cells;
         } catch (Exception e) {
             LOG.error("Cannot convert BSON: ", e);
             throw new TransformException("Could not transform from Bson to Cell " + e.getMessage(), e);
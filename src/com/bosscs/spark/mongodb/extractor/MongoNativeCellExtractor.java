@@ -21,15 +21,26 @@ import java.lang.reflect.InvocationTargetException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.bson.codecs.Codec;
+
 import com.mongodb.DBObject;
+import com.mongodb.MongoClient;
 import com.bosscs.spark.commons.entity.Cells;
+import com.bosscs.spark.commons.entity.CellsBatch;
+import com.bosscs.spark.commons.entity.CellsSchema;
+import com.bosscs.spark.commons.entity.CompactCells;
+import com.bosscs.spark.commons.rdd.ICellsBatchExtractor;
 import com.bosscs.spark.mongodb.config.MongoDeepJobConfig;
+import com.bosscs.spark.mongodb.reader.CellsCodec;
+import com.bosscs.spark.mongodb.reader.LazyBsonCells;
+import com.bosscs.spark.mongodb.reader.LazyCellsCodec;
 import com.bosscs.spark.mongodb.utils.UtilMongoDB;
 
 /**
  * Created by Jerry Xiong on 29/02/16.
  */
-public class MongoNativeCellExtractor extends MongoNativeExtractor<Cells, MongoDeepJobConfig<Cells>> {
+public class MongoNativeCellExtractor extends MongoNativeExtractor<Cells, MongoDeepJobConfig<Cells>>
+        implements ICellsBatchExtractor {
 
     private static final Logger LOG = LoggerFactory.getLogger(MongoNativeCellExtractor.class);
     /**
@@ -37,6 +48,11 @@ public class MongoNativeCellExtractor extends MongoNativeExtractor<Cells, MongoD
      */
     private static final long serialVersionUID = 7584233937780968953L;
 
+    /**
+     * Schema of the last document read, shared with the next documents having the same fields.
+     */
+    private transient CellsSchema schema;
+
     /**
      * Instantiates a new Mongo native cell extractor.
      */
@@ -48,9 +64,35 @@ public class MongoNativeCellExtractor extends MongoNativeExtractor<Cells, MongoD
         this.mongoDeepJobConfig = new MongoDeepJobConfig<>(Cells.class);
     }
 
+    /**
+     * Reads the next documents straight from the cursor into a columnar batch.
+     */
+    @Override
+    public CellsBatch nextCellsBatch(int max) {
+        return getBatchReader(max).nextCellsBatch(max);
+    }
+
+    /**
+     * Decodes the documents straight into compact cells, skipping the fields outside of the projection, or into lazy
+     * cells when the configuration asks for them.
+     */
+    @Override
+    protected Codec<Cells> createDocumentCodec() {
+        if (mongoDeepJobConfig.isLazyCells()) {
+            return new LazyCellsCodec(MongoClient.getDefaultCodecRegistry(), mongoDeepJobConfig.getNameSpace());
+        }
+        return new CellsCodec(MongoClient.getDefaultCodecRegistry(), mongoDeepJobConfig.getNameSpace(),
+                UtilMongoDB.getProjectedFields(mongoDeepJobConfig.getDBFields()));
+    }
+
     @Override
     protected Cells transformElement(DBObject dbObject) {
-            return UtilMongoDB.getCellFromBson(dbObject, mongoDeepJobConfig.getNameSpace());
+        if (mongoDeepJobConfig.isLazyCells()) {
+            return new LazyBsonCells(mongoDeepJobConfig.getNameSpace(), dbObject);
+        }
+        CompactCells cells = UtilMongoDB.getCellFromBson(dbObject, mongoDeepJobConfig.getNameSpace(), schema);
+        schema = cells.getSchema();
+        return cells;
     }
 
     @Override
@@ -18,9 +18,13 @@ package com.bosscs.spark.mongodb.extractor;
 
 import java.lang.reflect.InvocationTargetException;
 
+import org.bson.codecs.Codec;
+
 import com.mongodb.DBObject;
+import com.mongodb.MongoClient;
 import com.bosscs.spark.commons.exception.TransformException;
 import com.bosscs.spark.mongodb.config.MongoDeepJobConfig;
+import com.bosscs.spark.mongodb.reader.EntityCodec;
 import com.bosscs.spark.mongodb.utils.UtilMongoDB;
 
 /**
@@ -34,6 +38,11 @@ public final class MongoNativeEntityExtractor<T> extends MongoNativeExtractor<T,
      */
     private static final long serialVersionUID = -1073974965338697939L;
 
+    /**
+     * The entity class, typed: the config only gives it back as a raw class.
+     */
+    private final Class<T> entityClass;
+
     /**
      * Instantiates a new Mongo native entity extractor.
      *
@@ -41,12 +50,21 @@ public final class MongoNativeEntityExtractor<T> extends MongoNativeExtractor<T,
      */
     public MongoNativeEntityExtractor(Class<T> t) {
         this.mongoDeepJobConfig = new MongoDeepJobConfig<>(t);
+        this.entityClass = t;
+    }
+
+    /**
+     * Decodes the documents straight into entities, skipping the fields the entity does not map.
+     */
+    @Override
+    protected Codec<T> createDocumentCodec() {
+        return new EntityCodec<>(MongoClient.getDefaultCodecRegistry(), entityClass);
     }
 
     @Override
     protected T transformElement(DBObject dbObject) {
         try {
-            return (T) UtilMongoDB.getObjectFromBson(mongoDeepJobConfig.getEntityClass(), dbObject);
+            return UtilMongoDB.getObjectFromBson(entityClass, dbObject);
         } catch (IllegalAccessException | InstantiationException | InvocationTargetException e) {
             e.printStackTrace();
         }
@@ -29,6 +29,7 @@ import java.util.Map;
 import java.util.Set;
 
 import org.apache.spark.Partition;
+import org.bson.codecs.Codec;
 
 import com.mongodb.BasicDBList;
 import com.mongodb.BasicDBObject;
@@ -49,11 +50,16 @@ import com.bosscs.spark.commons.exception.GenericException;
 import com.bosscs.spark.commons.impl.HadoopPartition;
 import com.bosscs.spark.commons.querybuilder.UpdateQueryBuilder;
 import com.bosscs.spark.commons.rdd.TokenRange;
+import com.bosscs.spark.commons.rdd.IBatchExtractor;
 import com.bosscs.spark.commons.rdd.IExtractor;
+import com.bosscs.spark.commons.rdd.IIncrementalPartitioner;
+import com.bosscs.spark.commons.rdd.IPartitionListener;
+import com.bosscs.spark.commons.rdd.RecordBatch;
 import com.bosscs.spark.commons.utils.Pair;
 import com.bosscs.spark.mongodb.config.MongoDeepJobConfig;
 import com.bosscs.spark.mongodb.partition.MongoPartition;
 import com.bosscs.spark.mongodb.reader.MongoReader;
+import com.bosscs.spark.mongodb.utils.MongoClientPool;
 import com.bosscs.spark.mongodb.writer.MongoWriter;
 
 /**
@@ -62,7 +68,8 @@ import com.bosscs.spark.mongodb.writer.MongoWriter;
  * @param <T> the type parameter
  * @param <S> the type parameter
  */
-public abstract class MongoNativeExtractor<T, S extends BaseConfig> implements IExtractor<T, S> {
+public abstract class MongoNativeExtractor<T, S extends BaseConfig> implements IExtractor<T, S>,
+        IIncrementalPartitioner<S>, IBatchExtractor<T> {
 
     /**
      * The constant SPLIT_KEYS.
@@ -83,9 +90,19 @@ public abstract class MongoNativeExtractor<T, S extends BaseConfig> implements I
      * The constant MONGO_DEFAULT_ID.
      */
     /**
-     * The Reader.
+     * The Reader, either {@link #documentReader} or {@link #dbObjectReader}.
      */
-    private MongoReader reader;
+    private MongoReader<?> reader;
+
+    /**
+     * The reader decoding the documents into T itself, when the extractor has a codec.
+     */
+    private transient MongoReader<T> documentReader;
+
+    /**
+     * The reader of DBObject documents, converted by {@link #transformElement(DBObject)}.
+     */
+    private transient MongoReader<DBObject> dbObjectReader;
 
     /**
      * The Writer.
@@ -97,8 +114,49 @@ public abstract class MongoNativeExtractor<T, S extends BaseConfig> implements I
      */
     protected MongoDeepJobConfig<T> mongoDeepJobConfig;
 
+    /**
+     * Batch reused by {@link #nextBatch(int)}.
+     */
+    private transient RecordBatch<T> batch;
+
+    /**
+     * Batch size last given to the cursor, 0 if it keeps the driver default.
+     */
+    private transient int cursorBatchSize;
+
     @Override
     public Partition[] getPartitions(S config) {
+        final List<Partition> partitions = new ArrayList<>();
+        boolean sharded = planPartitions(config, new IPartitionListener() {
+            @Override
+            public void onPartition(Partition partition) {
+                partitions.add(partition);
+            }
+        });
+
+        if (sharded) {
+            Collections.shuffle(partitions);
+        }
+        return partitions.toArray(new MongoPartition[partitions.size()]);
+    }
+
+    /**
+     * Hands out the chunks of a sharded collection while config.chunks is being read. They come in the chunk order
+     * rather than shuffled, which is fine for a client scheduling them as they arrive.
+     */
+    @Override
+    public void getPartitions(S config, IPartitionListener listener) {
+        planPartitions(config, listener);
+    }
+
+    /**
+     * Plans the partitions of the collection.
+     *
+     * @param config   the config
+     * @param listener receives the partitions
+     * @return true if the collection is sharded
+     */
+    private boolean planPartitions(S config, IPartitionListener listener) {
         MongoClient mongoClient = null;
 
         try {
@@ -110,18 +168,23 @@ public abstract class MongoNativeExtractor<T, S extends BaseConfig> implements I
 
             List<ServerAddress> addressList = new ArrayList<>();
             addressList.add(address);
-            mongoClient = new MongoClient(addressList);
+            mongoClient = MongoClientPool.getClient(addressList);
 
             //mongoClient.setReadPreference(ReadPreference.nearest());
             DB db = mongoClient.getDB(mongoDeepJobConfig.getDatabase());
             collection = db.getCollection(mongoDeepJobConfig.getCollection());
-            return isShardedCollection(collection) ? calculateShardChunks(collection) : calculateSplits(collection);
+            if (isShardedCollection(collection)) {
+                calculateShardChunks(collection, listener);
+                return true;
+            }
+            calculateSplits(collection, listener);
+            return false;
         } catch (UnknownHostException e) {
 
             throw new GenericException(e);
         } finally {
             if (mongoClient != null) {
-                mongoClient.close();
+                MongoClientPool.releaseClient(mongoClient);
             }
 
         }
@@ -184,9 +247,9 @@ public abstract class MongoNativeExtractor<T, S extends BaseConfig> implements I
      * Calculate splits.
      *
      * @param collection the collection
-     * @return the deep partition [ ]
+     * @param listener   receives the partitions
      */
-    private HadoopPartition[] calculateSplits(DBCollection collection) {
+    private void calculateSplits(DBCollection collection, IPartitionListener listener) {
 
         BasicDBList splitData = getSplitData(collection);
         List<ServerAddress> serverAddressList = collection.getDB().getMongo().getServerAddressList();
@@ -208,24 +271,21 @@ public abstract class MongoNativeExtractor<T, S extends BaseConfig> implements I
         }
         int i = 0;
 
-        MongoPartition[] partitions = new MongoPartition[splitData.size() + 1];
-
         for (Object aSplitData : splitData) {
 
             BasicDBObject currentKey = (BasicDBObject) aSplitData;
 
             Object currentO = currentKey.get(MONGO_DEFAULT_ID);
 
-            partitions[i] = new MongoPartition(mongoDeepJobConfig.getRddId(), i, new TokenRange(lastKey,
-                    currentO, stringHosts), MONGO_DEFAULT_ID);
+            listener.onPartition(new MongoPartition(mongoDeepJobConfig.getRddId(), i, new TokenRange(lastKey,
+                    currentO, stringHosts), MONGO_DEFAULT_ID));
 
             lastKey = currentO;
             i++;
         }
         QueryBuilder queryBuilder = QueryBuilder.start(MONGO_DEFAULT_ID);
         queryBuilder.greaterThanEquals(lastKey);
-        partitions[i] = new MongoPartition(0, i, new TokenRange(lastKey, null, stringHosts), MONGO_DEFAULT_ID);
-        return partitions;
+        listener.onPartition(new MongoPartition(0, i, new TokenRange(lastKey, null, stringHosts), MONGO_DEFAULT_ID));
     }
 
     /**
@@ -258,7 +318,6 @@ public abstract class MongoNativeExtractor<T, S extends BaseConfig> implements I
     private Pair<BasicDBList, List<ServerAddress>> getSplitDataCollectionShardEnviroment(Map<String, String[]> shards,
                                                                                          String dbName,
                                                                                          String collectionName) {
-        MongoClient mongoClient = null;
         try {
             Set<String> keys = shards.keySet();
 
@@ -266,21 +325,19 @@ public abstract class MongoNativeExtractor<T, S extends BaseConfig> implements I
 
                 List<ServerAddress> addressList = getServerAddressList(Arrays.asList(shards.get(key)));
 
-                mongoClient = new MongoClient(addressList);
-
-                BasicDBList dbList = getSplitData(mongoClient.getDB(dbName).getCollection(collectionName));
+                MongoClient mongoClient = MongoClientPool.getClient(addressList);
+                try {
+                    BasicDBList dbList = getSplitData(mongoClient.getDB(dbName).getCollection(collectionName));
 
-                if (dbList != null) {
-                    return Pair.create(dbList, addressList);
+                    if (dbList != null) {
+                        return Pair.create(dbList, addressList);
+                    }
+                } finally {
+                    MongoClientPool.releaseClient(mongoClient);
                 }
             }
         } catch (UnknownHostException e) {
             throw new GenericException(e);
-        } finally {
-            if (mongoClient != null) {
-                mongoClient.close();
-            }
-
         }
 
         return null;
@@ -296,15 +353,14 @@ public abstract class MongoNativeExtractor<T, S extends BaseConfig> implements I
      * Calculates shard chunks.
      *
      * @param collection the collection
-     * @return the deep partition [ ]
+     * @param listener   receives the partitions
      */
-    private HadoopPartition[] calculateShardChunks(DBCollection collection) {
+    private void calculateShardChunks(DBCollection collection, IPartitionListener listener) {
 
         DBCursor chuncks = getChunks(collection);
 
         Map<String, String[]> shards = getShards(collection);
 
-        MongoPartition[] deepPartitions = new MongoPartition[chuncks.count()];
         int i = 0;
         boolean keyAssigned = false;
         String key = null;
@@ -318,18 +374,14 @@ public abstract class MongoNativeExtractor<T, S extends BaseConfig> implements I
                     keyAssigned = true;
                 }
             }
-            deepPartitions[i] = new MongoPartition(mongoDeepJobConfig.getRddId(), i,
+            listener.onPartition(new MongoPartition(mongoDeepJobConfig.getRddId(), i,
                     new TokenRange(shards.get(dbObject.get
                             ("shard")),
                             ((DBObject) dbObject.get
                                     ("min")).get(key),
-                            ((DBObject) dbObject.get("max")).get(key)), key);
+                            ((DBObject) dbObject.get("max")).get(key)), key));
             i++;
         }
-        List<MongoPartition> mongoPartitions = Arrays.asList(deepPartitions);
-
-        Collections.shuffle(mongoPartitions);
-        return mongoPartitions.toArray(new MongoPartition[mongoPartitions.size()]);
     }
 
     /**
@@ -356,7 +408,50 @@ public abstract class MongoNativeExtractor<T, S extends BaseConfig> implements I
 
     @Override
     public T next() {
-        return transformElement(reader.next());
+        return readElement();
+    }
+
+    /**
+     * Reads the next element, converting the document read unless the reader decoded it already.
+     *
+     * @return the element
+     */
+    private T readElement() {
+        if (documentReader != null) {
+            return documentReader.next();
+        }
+        return transformElement(dbObjectReader.next());
+    }
+
+    /**
+     * Reads a batch straight from the cursor, which is told to fetch as many documents per round trip.
+     */
+    @Override
+    public RecordBatch<T> nextBatch(int max) {
+        if (batch == null) {
+            batch = new RecordBatch<>(max);
+        }
+        MongoReader<?> batchReader = getBatchReader(max);
+
+        batch.clear();
+        while (batch.size() < max && batchReader.hasNext()) {
+            batch.add(readElement());
+        }
+        return batch;
+    }
+
+    /**
+     * Returns the reader of the current iterator, its cursor told to fetch {@code max} documents per round trip.
+     *
+     * @param max the number of documents read per batch
+     * @return the reader
+     */
+    protected MongoReader<?> getBatchReader(int max) {
+        if (max != cursorBatchSize) {
+            reader.setBatchSize(max);
+            cursorBatchSize = max;
+        }
+        return reader;
     }
 
     @Override
@@ -376,15 +471,45 @@ public abstract class MongoNativeExtractor<T, S extends BaseConfig> implements I
 
         mongoDeepJobConfig = initConfig(config, mongoDeepJobConfig);
 
-        reader = new MongoReader(mongoDeepJobConfig);
+        Codec<T> codec = createDocumentCodec();
+        if (codec != null) {
+            documentReader = new MongoReader<>(mongoDeepJobConfig, codec);
+            dbObjectReader = null;
+            reader = documentReader;
+        } else {
+            dbObjectReader = new MongoReader<>(mongoDeepJobConfig, DBObject.class);
+            documentReader = null;
+            reader = dbObjectReader;
+        }
         reader.init(dp);
+        cursorBatchSize = 0;
+    }
+
+    /**
+     * Returns the codec decoding the documents read straight into T, without going through DBObject and
+     * {@link #transformElement(DBObject)}. Called once per partition read.
+     *
+     * @return the codec, null to read DBObject documents
+     */
+    protected Codec<T> createDocumentCodec() {
+        return null;
     }
 
 
 
     @Override
     public void saveRDD(T entity) {
-        writer.save(transformElement(entity));
+        save(writer, entity);
+    }
+
+    /**
+     * Saves an element, converted into a DBObject.
+     *
+     * @param mongoWriter the writer
+     * @param entity      the element
+     */
+    protected void save(MongoWriter mongoWriter, T entity) {
+        mongoWriter.save(transformElement(entity));
     }
 
     @Override
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2016, Jerry Xiong, BOSSCS
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bosscs.spark.mongodb.extractor;
+
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Codec;
+import org.bson.codecs.RawBsonDocumentCodec;
+
+import com.mongodb.DBObject;
+import com.mongodb.MongoClient;
+import com.bosscs.spark.mongodb.config.MongoDeepJobConfig;
+import com.bosscs.spark.mongodb.writer.MongoWriter;
+
+/**
+ * Extractor passing documents through as their raw BSON bytes, for jobs copying collections: documents are read
+ * without being decoded and saved without being encoded again.
+ */
+public class MongoNativeRawExtractor extends MongoNativeExtractor<RawBsonDocument,
+        MongoDeepJobConfig<RawBsonDocument>> {
+
+    /**
+     * The constant serialVersionUID.
+     */
+    private static final long serialVersionUID = -2395215307582467126L;
+
+    public MongoNativeRawExtractor(Class<RawBsonDocument> rawBsonDocument) {
+        this.mongoDeepJobConfig = new MongoDeepJobConfig<>(rawBsonDocument);
+    }
+
+    /**
+     * Instantiates a new Mongo native raw extractor.
+     */
+    public MongoNativeRawExtractor() {
+        this.mongoDeepJobConfig = new MongoDeepJobConfig<>(RawBsonDocument.class);
+    }
+
+    /**
+     * Keeps each document as the bytes read.
+     */
+    @Override
+    protected Codec<RawBsonDocument> createDocumentCodec() {
+        return new RawBsonDocumentCodec();
+    }
+
+    @Override
+    protected void save(MongoWriter mongoWriter, RawBsonDocument document) {
+        mongoWriter.save(document);
+    }
+
+    @Override
+    protected RawBsonDocument transformElement(DBObject dbObject) {
+        return new RawBsonDocument(dbObject, MongoClient.getDefaultCodecRegistry().get(DBObject.class));
+    }
+
+    @Override
+    protected DBObject transformElement(RawBsonDocument document) {
+        return document.decode(MongoClient.getDefaultCodecRegistry().get(DBObject.class));
+    }
+}
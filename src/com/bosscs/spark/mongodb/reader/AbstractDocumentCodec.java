@@ -0,0 +1,160 @@
+/*
+ * Copyright 2016, Jerry Xiong, BOSSCS
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.bosscs.spark.mongodb.reader;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+import org.bson.BsonBinarySubType;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.codecs.BsonTypeClassMap;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.types.BSONTimestamp;
+import org.bson.types.Binary;
+
+import com.mongodb.DBObject;
+
+/**
+ * <p>
+ * Base of the codecs decoding the documents of a cursor straight from the BSON stream, instead of decoding them into a
+ * {@link DBObject} first and converting that.
+ * </p>
+ * <p>
+ * Scalar values are decoded to the same classes as the driver uses for DBObject fields. Documents and arrays are left
+ * to the subclasses. Encoding goes through the DBObject codec of the registry.
+ * </p>
+ *
+ * @param <T> the type of the decoded documents
+ */
+public abstract class AbstractDocumentCodec<T> implements Codec<T> {
+
+    /**
+     * The classes the driver decodes DBObject fields to.
+     */
+    private static final BsonTypeClassMap TYPE_CLASS_MAP;
+
+    static {
+        Map<BsonType, Class<?>> replacements = new HashMap<>();
+        replacements.put(BsonType.REGULAR_EXPRESSION, Pattern.class);
+        replacements.put(BsonType.SYMBOL, String.class);
+        replacements.put(BsonType.TIMESTAMP, BSONTimestamp.class);
+        TYPE_CLASS_MAP = new BsonTypeClassMap(replacements);
+    }
+
+    /**
+     * Registry providing the codecs of scalar values.
+     */
+    protected final CodecRegistry registry;
+
+    private final Class<T> encoderClass;
+
+    protected AbstractDocumentCodec(CodecRegistry registry, Class<T> encoderClass) {
+        this.registry = registry;
+        this.encoderClass = encoderClass;
+    }
+
+    @Override
+    public Class<T> getEncoderClass() {
+        return encoderClass;
+    }
+
+    @Override
+    public void encode(BsonWriter writer, T value, EncoderContext encoderContext) {
+        registry.get(DBObject.class).encode(writer, toDBObject(value), encoderContext);
+    }
+
+    /**
+     * Converts a value of the codec type into a DBObject to encode.
+     *
+     * @param value the value
+     * @return the equivalent DBObject
+     */
+    protected abstract DBObject toDBObject(T value);
+
+    /**
+     * Decodes the embedded document the reader is positioned on.
+     *
+     * @param reader         the reader
+     * @param decoderContext the decoder context
+     * @return the decoded document
+     */
+    protected abstract Object readDocument(BsonReader reader, DecoderContext decoderContext);
+
+    /**
+     * Decodes the value the reader is positioned on, once its type has been read.
+     *
+     * @param reader         the reader
+     * @param decoderContext the decoder context
+     * @return the value
+     */
+    protected Object readValue(BsonReader reader, DecoderContext decoderContext) {
+        BsonType bsonType = reader.getCurrentBsonType();
+        switch (bsonType) {
+        case DOCUMENT:
+            return readDocument(reader, decoderContext);
+        case ARRAY:
+            return readArray(reader, decoderContext);
+        case NULL:
+            reader.readNull();
+            return null;
+        case BINARY:
+            return readBinary(reader, decoderContext);
+        case DB_POINTER:
+            return reader.readDBPointer();
+        default:
+            return registry.get(TYPE_CLASS_MAP.get(bsonType)).decode(reader, decoderContext);
+        }
+    }
+
+    /**
+     * Decodes the array the reader is positioned on, its elements through {@link #readValue}.
+     *
+     * @param reader         the reader
+     * @param decoderContext the decoder context
+     * @return the elements
+     */
+    protected List<Object> readArray(BsonReader reader, DecoderContext decoderContext) {
+        List<Object> list = new ArrayList<>();
+        reader.readStartArray();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            list.add(readValue(reader, decoderContext));
+        }
+        reader.readEndArray();
+        return list;
+    }
+
+    private Object readBinary(BsonReader reader, DecoderContext decoderContext) {
+        byte subType = reader.peekBinarySubType();
+        if (subType == BsonBinarySubType.UUID_STANDARD.getValue() || subType == BsonBinarySubType.UUID_LEGACY
+                .getValue()) {
+            return registry.get(UUID.class).decode(reader, decoderContext);
+        } else if (subType == BsonBinarySubType.BINARY.getValue() || subType == BsonBinarySubType.OLD_BINARY
+                .getValue()) {
+            return registry.get(byte[].class).decode(reader, decoderContext);
+        }
+        return registry.get(Binary.class).decode(reader, decoderContext);
+    }
+}
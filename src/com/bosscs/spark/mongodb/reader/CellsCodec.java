@@ -0,0 +1,118 @@
+/*
+ * Copyright 2016, Jerry Xiong, BOSSCS
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.bosscs.spark.mongodb.reader;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.configuration.CodecRegistry;
+
+import com.mongodb.DBObject;
+import com.bosscs.spark.commons.entity.Cell;
+import com.bosscs.spark.commons.entity.Cells;
+import com.bosscs.spark.commons.entity.CellsSchema;
+import com.bosscs.spark.commons.entity.CompactCells;
+import com.bosscs.spark.mongodb.utils.UtilMongoDB;
+
+/**
+ * <p>
+ * Decodes the documents of a cursor straight into {@link CompactCells}, with the same cells
+ * {@link UtilMongoDB#getCellFromBson(org.bson.BSONObject, String, CellsSchema)} builds from a DBObject: embedded
+ * documents become Cells, and so do the documents inside arrays.
+ * </p>
+ * <p>
+ * Top level fields outside of the requested ones are skipped without being decoded. Consecutive documents with the
+ * same fields share their schema, so a codec is meant to serve a single cursor.
+ * </p>
+ */
+public class CellsCodec extends AbstractDocumentCodec<Cells> {
+
+    private final String nameSpace;
+
+    /**
+     * The top level fields to decode, null for all of them.
+     */
+    private final Set<String> fields;
+
+    /**
+     * Schema of the last document decoded.
+     */
+    private CellsSchema schema;
+
+    private final List<String> names = new ArrayList<>();
+
+    private final List<Object> values = new ArrayList<>();
+
+    /**
+     * Instantiates a new Cells codec.
+     *
+     * @param registry  the registry providing the codecs of scalar values
+     * @param nameSpace the table name of the decoded cells
+     * @param fields    the top level fields to decode, null for all of them
+     */
+    public CellsCodec(CodecRegistry registry, String nameSpace, Set<String> fields) {
+        super(registry, Cells.class);
+        this.nameSpace = nameSpace;
+        this.fields = fields;
+    }
+
+    @Override
+    public Cells decode(BsonReader reader, DecoderContext decoderContext) {
+        names.clear();
+        values.clear();
+
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            String name = reader.readName();
+            if (fields != null && !fields.contains(name)) {
+                reader.skipValue();
+                continue;
+            }
+            names.add(name);
+            values.add(readValue(reader, decoderContext));
+        }
+        reader.readEndDocument();
+
+        if (schema == null || !schema.matches(names)) {
+            schema = CellsSchema.of(nameSpace, names);
+        }
+        return new CompactCells(schema, values.toArray());
+    }
+
+    @Override
+    protected Object readDocument(BsonReader reader, DecoderContext decoderContext) {
+        Cells cells = new Cells();
+
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            String name = reader.readName();
+            cells.add(Cell.create(name, readValue(reader, decoderContext)));
+        }
+        reader.readEndDocument();
+
+        return cells;
+    }
+
+    @Override
+    protected DBObject toDBObject(Cells value) {
+        return UtilMongoDB.getDBObjectFromCell(value);
+    }
+}
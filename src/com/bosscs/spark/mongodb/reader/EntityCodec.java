@@ -0,0 +1,132 @@
+/*
+ * Copyright 2016, Jerry Xiong, BOSSCS
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.bosscs.spark.mongodb.reader;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.configuration.CodecRegistry;
+
+import com.mongodb.DBObject;
+import com.bosscs.spark.commons.entity.IType;
+import com.bosscs.spark.commons.exception.TransformException;
+import com.bosscs.spark.commons.utils.EntityMapper;
+import com.bosscs.spark.mongodb.utils.UtilMongoDB;
+
+/**
+ * <p>
+ * Decodes the documents of a cursor straight into entities, setting each field as it is read. Fields the entity does
+ * not map are skipped without being decoded.
+ * </p>
+ * <p>
+ * Embedded documents become entities when the property holds an {@link IType}, or a collection of them; otherwise
+ * they are decoded as DBObject, as {@link UtilMongoDB#getObjectFromBson(Class, org.bson.BSONObject)} would see them.
+ * </p>
+ *
+ * @param <T> the entity type
+ */
+public class EntityCodec<T> extends AbstractDocumentCodec<T> {
+
+    private final EntityMapper<T> mapper;
+
+    /**
+     * Instantiates a new Entity codec.
+     *
+     * @param registry    the registry providing the codecs of scalar values
+     * @param entityClass the entity class
+     */
+    public EntityCodec(CodecRegistry registry, Class<T> entityClass) {
+        super(registry, entityClass);
+        this.mapper = EntityMapper.forClass(entityClass);
+    }
+
+    @Override
+    public T decode(BsonReader reader, DecoderContext decoderContext) {
+        return readEntity(mapper, reader, decoderContext);
+    }
+
+    private <E> E readEntity(EntityMapper<E> entityMapper, BsonReader reader, DecoderContext decoderContext) {
+        String name = null;
+        try {
+            E entity = entityMapper.newInstance();
+
+            reader.readStartDocument();
+            while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                name = reader.readName();
+                EntityMapper.Property property = entityMapper.getProperty(name);
+                if (property == null) {
+                    reader.skipValue();
+                    continue;
+                }
+
+                BsonType bsonType = reader.getCurrentBsonType();
+                Object value;
+                if (bsonType == BsonType.NULL) {
+                    reader.readNull();
+                    continue;
+                } else if (bsonType == BsonType.DOCUMENT && property.isEntity()) {
+                    value = readEntity(EntityMapper.forClass(property.getType()), reader, decoderContext);
+                } else if (bsonType == BsonType.ARRAY && property.isIterable() && property.getElementType() != null
+                        && IType.class.isAssignableFrom(property.getElementType())) {
+                    value = readEntityList(EntityMapper.forClass(property.getElementType()), reader, decoderContext);
+                } else {
+                    value = readValue(reader, decoderContext);
+                }
+                property.set(entity, value);
+            }
+            reader.readEndDocument();
+
+            return entity;
+        } catch (InstantiationException | InvocationTargetException e) {
+            throw new TransformException("Could not transform from BSON to " + entityMapper.getEntityClass()
+                    .getName() + ", field " + name + ": " + e.getMessage(), e);
+        }
+    }
+
+    private <E> List<Object> readEntityList(EntityMapper<E> entityMapper, BsonReader reader,
+                                            DecoderContext decoderContext) {
+        List<Object> list = new ArrayList<>();
+        reader.readStartArray();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            if (reader.getCurrentBsonType() == BsonType.DOCUMENT) {
+                list.add(readEntity(entityMapper, reader, decoderContext));
+            } else {
+                list.add(readValue(reader, decoderContext));
+            }
+        }
+        reader.readEndArray();
+        return list;
+    }
+
+    @Override
+    protected Object readDocument(BsonReader reader, DecoderContext decoderContext) {
+        return registry.get(DBObject.class).decode(reader, decoderContext);
+    }
+
+    @Override
+    protected DBObject toDBObject(T value) {
+        try {
+            return UtilMongoDB.getBsonFromObject(value);
+        } catch (IllegalAccessException | InstantiationException | InvocationTargetException e) {
+            throw new TransformException("Could not transform from entity to BSON " + e.getMessage(), e);
+        }
+    }
+}
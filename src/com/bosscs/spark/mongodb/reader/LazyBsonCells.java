@@ -0,0 +1,408 @@
+/*
+ * Copyright 2016, Jerry Xiong, BOSSCS
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.bosscs.spark.mongodb.reader;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.lang.StringUtils;
+import org.bson.BSONObject;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonType;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DecoderContext;
+import org.bson.io.BsonInput;
+import org.bson.io.ByteBufferBsonInput;
+
+import com.mongodb.MongoClient;
+import com.bosscs.spark.commons.entity.Cell;
+import com.bosscs.spark.commons.entity.Cells;
+import com.bosscs.spark.mongodb.utils.UtilMongoDB;
+
+/**
+ * <p>
+ * {@link Cells} of a single table kept as the document the driver returned, either a {@link BSONObject} or the raw
+ * bytes of a {@link RawBsonDocument}. The field names are read on first use, and each field is converted to its cell
+ * value, as {@link UtilMongoDB#getCellValueFromBson(Object)} would convert it, the first time it is read. Embedded
+ * documents, alone or inside arrays, become lazy cells of their own.
+ * </p>
+ * <p>
+ * Reads by position or name are served from the document. Any other operation, changes and serialization included,
+ * first converts the remaining fields and turns the object into a regular Cells, after which it behaves exactly like
+ * one.
+ * </p>
+ * <p>
+ * While lazy, even reads convert and cache fields in place without synchronization, so an instance must be used by a
+ * single thread. Materialize it, through {@link #getCells()} for instance, before sharing it between threads or
+ * caching it.
+ * </p>
+ */
+public class LazyBsonCells extends Cells {
+
+    private static final long serialVersionUID = 4321167020451787195L;
+
+    /**
+     * Decodes the values of raw documents, embedded documents included.
+     */
+    private static final LazyCellsCodec CODEC = new LazyCellsCodec(MongoClient.getDefaultCodecRegistry(), null);
+
+    private static final DecoderContext DECODER_CONTEXT = DecoderContext.builder().build();
+
+    /**
+     * The source document, null once materialized.
+     */
+    private transient BSONObject document;
+
+    /**
+     * The source raw document, null once materialized.
+     */
+    private transient RawBsonDocument rawDocument;
+
+    /**
+     * Field names in document order, null until first needed.
+     */
+    private transient String[] names;
+
+    /**
+     * Position of each field in a raw document, recorded while reading the names.
+     */
+    private transient int[] offsets;
+
+    /**
+     * Cell values of the fields converted so far, by position.
+     */
+    private transient Object[] values;
+
+    private transient boolean[] converted;
+
+    /**
+     * Used by deserialization.
+     */
+    public LazyBsonCells() {
+        super();
+    }
+
+    /**
+     * Builds the cells of a document read from the given table.
+     *
+     * @param nameSpace the table name
+     * @param document  the document
+     */
+    public LazyBsonCells(String nameSpace, BSONObject document) {
+        super(nameSpace);
+        this.document = document;
+    }
+
+    /**
+     * Builds the cells of a raw document read from the given table.
+     *
+     * @param nameSpace   the table name
+     * @param rawDocument the raw document
+     */
+    public LazyBsonCells(String nameSpace, RawBsonDocument rawDocument) {
+        super(nameSpace);
+        this.rawDocument = rawDocument;
+    }
+
+    /**
+     * Builds the cells of an embedded document, without a default table name.
+     *
+     * @param document the document
+     */
+    public LazyBsonCells(BSONObject document) {
+        super();
+        this.document = document;
+    }
+
+    /**
+     * Builds the cells of an embedded raw document, without a default table name.
+     *
+     * @param rawDocument the raw document
+     */
+    public LazyBsonCells(RawBsonDocument rawDocument) {
+        super();
+        this.rawDocument = rawDocument;
+    }
+
+    /**
+     * @return true while the cells are still read from the source document.
+     */
+    public boolean isLazy() {
+        return document != null || rawDocument != null;
+    }
+
+    /**
+     * Returns the field names, reading them from the source document on first use.
+     */
+    private String[] names() {
+        if (names != null) {
+            return names;
+        }
+
+        String[] localNames;
+        if (document != null) {
+            Set<String> keys = document.keySet();
+            localNames = keys.toArray(new String[keys.size()]);
+        } else {
+            List<String> keys = new ArrayList<>();
+            int[] localOffsets = new int[16];
+            BsonBinaryReader reader = openRawDocument();
+            try {
+                BsonInput input = reader.getBsonInput();
+                int position = input.getPosition();
+                while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                    if (keys.size() == localOffsets.length) {
+                        localOffsets = Arrays.copyOf(localOffsets, localOffsets.length * 2);
+                    }
+                    localOffsets[keys.size()] = position;
+                    keys.add(reader.readName());
+                    reader.skipValue();
+                    position = input.getPosition();
+                }
+            } finally {
+                reader.close();
+            }
+            localNames = keys.toArray(new String[keys.size()]);
+            offsets = localOffsets;
+        }
+        values = new Object[localNames.length];
+        converted = new boolean[localNames.length];
+        names = localNames;
+        return names;
+    }
+
+    private int indexOf(String cellName) {
+        String[] localNames = names();
+        for (int i = 0; i < localNames.length; i++) {
+            if (localNames[i].equals(cellName)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the cell value of the field at position {@code idx}, converting it on first use.
+     */
+    private Object value(int idx) {
+        names();
+        if (!converted[idx]) {
+            values[idx] = document != null ? convert(document.get(names[idx])) : readRawValue(idx);
+            converted[idx] = true;
+        }
+        return values[idx];
+    }
+
+    /**
+     * Decodes the field at position {@code idx} of the raw document, jumping straight to its recorded offset.
+     */
+    private Object readRawValue(int idx) {
+        BsonBinaryReader reader = openRawDocument();
+        try {
+            BsonInput input = reader.getBsonInput();
+            input.skip(offsets[idx] - input.getPosition());
+            reader.readBsonType();
+            reader.skipName();
+            return CODEC.readValue(reader, DECODER_CONTEXT);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Converts every field not converted yet, in a single pass over a raw document.
+     */
+    private Object[] convertAll() {
+        String[] localNames = names();
+        if (rawDocument == null) {
+            for (int i = 0; i < localNames.length; i++) {
+                value(i);
+            }
+            return values;
+        }
+
+        BsonBinaryReader reader = openRawDocument();
+        try {
+            for (int i = 0; i < localNames.length; i++) {
+                reader.readBsonType();
+                reader.skipName();
+                if (converted[i]) {
+                    reader.skipValue();
+                } else {
+                    values[i] = CODEC.readValue(reader, DECODER_CONTEXT);
+                    converted[i] = true;
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return values;
+    }
+
+    private BsonBinaryReader openRawDocument() {
+        BsonBinaryReader reader = new BsonBinaryReader(new ByteBufferBsonInput(rawDocument.getByteBuffer()));
+        reader.readStartDocument();
+        return reader;
+    }
+
+    /**
+     * Converts a field of a BSONObject the way {@link UtilMongoDB#getCellValueFromBson(Object)} does, embedded
+     * documents becoming lazy cells.
+     */
+    private static Object convert(Object value) {
+        if (value instanceof List) {
+            List<Object> list = new ArrayList<>(((List<?>) value).size());
+            for (Object element : (List<?>) value) {
+                list.add(element instanceof BSONObject ? new LazyBsonCells((BSONObject) element) : element);
+            }
+            return list;
+        } else if (value instanceof BSONObject) {
+            return new LazyBsonCells((BSONObject) value);
+        }
+        return value;
+    }
+
+    /**
+     * Converts the remaining fields and moves them into the regular representation of Cells. The values already
+     * handed out, embedded cells included, are kept as they are.
+     */
+    @Override
+    protected void materialize() {
+        if (!isLazy()) {
+            return;
+        }
+
+        String[] localNames = names();
+        Object[] localValues = convertAll();
+        document = null;
+        rawDocument = null;
+        names = null;
+        offsets = null;
+        values = null;
+        converted = null;
+        for (int i = 0; i < localNames.length; i++) {
+            add(Cell.create(localNames[i], localValues[i]));
+        }
+    }
+
+    /**
+     * @return true if the table name designates the table of the document.
+     */
+    private boolean isOwnTable(String table) {
+        return StringUtils.isEmpty(table) || table.equals(getnameSpace());
+    }
+
+    @Override
+    protected Object getRawValue(int idx) {
+        return isLazy() ? value(idx) : super.getRawValue(idx);
+    }
+
+    @Override
+    protected Object getRawValue(String cellName) {
+        if (!isLazy()) {
+            return super.getRawValue(cellName);
+        }
+        int idx = indexOf(cellName);
+        return idx < 0 ? null : value(idx);
+    }
+
+    @Override
+    public Cell getCellByIdx(int idx) {
+        if (!isLazy()) {
+            return super.getCellByIdx(idx);
+        }
+        return Cell.create(names()[idx], value(idx));
+    }
+
+    @Override
+    public Cell getCellByIdx(String table, int idx) {
+        if (!isLazy() || !isOwnTable(table)) {
+            return super.getCellByIdx(table, idx);
+        }
+        return Cell.create(names()[idx], value(idx));
+    }
+
+    @Override
+    public Cell getCellByName(String cellName) {
+        if (!isLazy()) {
+            return super.getCellByName(cellName);
+        }
+        int idx = indexOf(cellName);
+        return idx < 0 ? null : Cell.create(cellName, value(idx));
+    }
+
+    @Override
+    public Cell getCellByName(String table, String cellName) {
+        if (!isLazy() || !isOwnTable(table)) {
+            return super.getCellByName(table, cellName);
+        }
+        int idx = indexOf(cellName);
+        return idx < 0 ? null : Cell.create(cellName, value(idx));
+    }
+
+    @Override
+    public Collection<Cell> getCells() {
+        if (!isLazy()) {
+            return super.getCells();
+        }
+        String[] localNames = names();
+        Object[] localValues = convertAll();
+        List<Cell> res = new ArrayList<>(localNames.length);
+        for (int i = 0; i < localNames.length; i++) {
+            res.add(Cell.create(localNames[i], localValues[i]));
+        }
+        return Collections.unmodifiableList(res);
+    }
+
+    @Override
+    public Collection<Cell> getCells(String nameSpace) {
+        if (!isLazy() || !isOwnTable(nameSpace)) {
+            return super.getCells(nameSpace);
+        }
+        return getCells();
+    }
+
+    @Override
+    public Collection<Object> getCellValues(String table) {
+        if (!isLazy() || !isOwnTable(table)) {
+            return super.getCellValues(table);
+        }
+        return new ArrayList<>(Arrays.asList(convertAll()));
+    }
+
+    @Override
+    public int size() {
+        return isLazy() ? names().length : super.size();
+    }
+
+    @Override
+    public int size(String table) {
+        if (!isLazy() || !isOwnTable(table)) {
+            return super.size(table);
+        }
+        return names().length;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return isLazy() ? names().length == 0 : super.isEmpty();
+    }
+}
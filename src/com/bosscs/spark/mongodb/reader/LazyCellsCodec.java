@@ -0,0 +1,70 @@
+/*
+ * Copyright 2016, Jerry Xiong, BOSSCS
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.bosscs.spark.mongodb.reader;
+
+import org.bson.BsonReader;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.RawBsonDocumentCodec;
+import org.bson.codecs.configuration.CodecRegistry;
+
+import com.mongodb.DBObject;
+import com.bosscs.spark.commons.entity.Cells;
+import com.bosscs.spark.mongodb.utils.UtilMongoDB;
+
+/**
+ * <p>
+ * Decodes the documents of a cursor into {@link LazyBsonCells}: each document is only copied as raw BSON, its fields
+ * being decoded when first read.
+ * </p>
+ * <p>
+ * Values are decoded to the same cells {@link CellsCodec} builds, embedded documents becoming lazy cells of their own.
+ * </p>
+ */
+public class LazyCellsCodec extends AbstractDocumentCodec<Cells> {
+
+    private final RawBsonDocumentCodec rawCodec = new RawBsonDocumentCodec();
+
+    private final String nameSpace;
+
+    /**
+     * Instantiates a new Lazy cells codec.
+     *
+     * @param registry  the registry providing the codecs of scalar values
+     * @param nameSpace the table name of the decoded cells
+     */
+    public LazyCellsCodec(CodecRegistry registry, String nameSpace) {
+        super(registry, Cells.class);
+        this.nameSpace = nameSpace;
+    }
+
+    @Override
+    public Cells decode(BsonReader reader, DecoderContext decoderContext) {
+        return new LazyBsonCells(nameSpace, rawCodec.decode(reader, decoderContext));
+    }
+
+    @Override
+    protected Object readDocument(BsonReader reader, DecoderContext decoderContext) {
+        RawBsonDocument document = rawCodec.decode(reader, decoderContext);
+        return new LazyBsonCells(document);
+    }
+
+    @Override
+    protected DBObject toDBObject(Cells value) {
+        return UtilMongoDB.getDBObjectFromCell(value);
+    }
+}
@@ -24,27 +24,43 @@ import org.apache.spark.Partition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.mongodb.DB;
-import com.mongodb.DBCollection;
-import com.mongodb.DBCursor;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentWrapper;
+import org.bson.codecs.Codec;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.conversions.Bson;
+
 import com.mongodb.DBObject;
 import com.mongodb.MongoClient;
 import com.mongodb.MongoCredential;
 import com.mongodb.QueryBuilder;
 import com.mongodb.ReadPreference;
 import com.mongodb.ServerAddress;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.bosscs.spark.commons.entity.Cell;
+import com.bosscs.spark.commons.entity.Cells;
+import com.bosscs.spark.commons.entity.CellsBatch;
+import com.bosscs.spark.commons.entity.CellsBatch.ColumnType;
 import com.bosscs.spark.commons.exception.ExtractorInitializationException;
 import com.bosscs.spark.commons.impl.HadoopPartition;
 import com.bosscs.spark.commons.rdd.IHadoopRecordReader;
 import com.bosscs.spark.mongodb.config.MongoDeepJobConfig;
 import com.bosscs.spark.mongodb.partition.MongoPartition;
+import com.bosscs.spark.mongodb.utils.MongoClientPool;
+import com.bosscs.spark.mongodb.utils.UtilMongoDB;
 
 /**
  * Created by Jerry Xiong on 30/02/16.
  *
- * @param <T> the type parameter
+ * Reads the documents of a partition, as DBObject or any class the driver has a codec for or, given a codec, as
+ * whatever the codec decodes them to.
+ *
+ * @param <T> the type of the documents read
  */
-public class MongoReader<T> implements IHadoopRecordReader<DBObject> {
+public class MongoReader<T> implements IHadoopRecordReader<T> {
 
 
     private static final Logger LOG = LoggerFactory.getLogger(MongoReader.class);
@@ -56,15 +72,25 @@ public class MongoReader<T> implements IHadoopRecordReader<DBObject> {
     /**
      * The Collection.
      */
-    private DBCollection collection = null;
+    private MongoCollection<T> collection = null;
     /**
-     * The Db.
+     * The query, until the cursor is opened.
      */
-    private DB db = null;
+    private FindIterable<T> findIterable = null;
     /**
-     * The Db cursor.
+     * The cursor, opened by the first read.
      */
-    private DBCursor dbCursor = null;
+    private MongoCursor<T> cursor = null;
+
+    /**
+     * The class of the documents read.
+     */
+    private final Class<T> documentClass;
+
+    /**
+     * Decodes the documents, null to use the codec the driver registers for the document class.
+     */
+    private final Codec<T> codec;
 
     /**
      * The Mongo deep job config.
@@ -72,24 +98,46 @@ public class MongoReader<T> implements IHadoopRecordReader<DBObject> {
     private MongoDeepJobConfig mongoDeepJobConfig;
 
     /**
-     * Instantiates a new Mongo reader.
+     * The batch reused by nextCellsBatch.
+     */
+    private CellsBatch cellsBatch;
+
+    /**
+     * Instantiates a new Mongo reader of documents the driver has a codec for, such as DBObject.
      *
      * @param mongoDeepJobConfig the mongo deep job config
+     * @param documentClass      the class of the documents read
      */
-    public MongoReader(MongoDeepJobConfig mongoDeepJobConfig) {
+    public MongoReader(MongoDeepJobConfig mongoDeepJobConfig, Class<T> documentClass) {
         this.mongoDeepJobConfig = mongoDeepJobConfig;
+        this.documentClass = documentClass;
+        this.codec = null;
+    }
+
+    /**
+     * Instantiates a new Mongo reader decoding the documents with the given codec, straight from the BSON read.
+     *
+     * @param mongoDeepJobConfig the mongo deep job config
+     * @param codec              the codec
+     */
+    public MongoReader(MongoDeepJobConfig mongoDeepJobConfig, Codec<T> codec) {
+        this.mongoDeepJobConfig = mongoDeepJobConfig;
+        this.documentClass = codec.getEncoderClass();
+        this.codec = codec;
     }
 
     /**
      * Close void.
      */
     public void close() {
-        if (dbCursor != null) {
-            dbCursor.close();
+        if (cursor != null) {
+            cursor.close();
+            cursor = null;
         }
 
         if (mongoClient != null) {
-            mongoClient.close();
+            MongoClientPool.releaseClient(mongoClient);
+            mongoClient = null;
         }
 
     }
@@ -100,16 +148,80 @@ public class MongoReader<T> implements IHadoopRecordReader<DBObject> {
      * @return the boolean
      */
     public boolean hasNext() {
-        return dbCursor.hasNext();
+        return getCursor().hasNext();
+    }
+
+    /**
+     * Sets the number of documents the cursor fetches per round trip. Only taken into account before the first read,
+     * which sends the query.
+     *
+     * @param batchSize the batch size
+     */
+    public void setBatchSize(int batchSize) {
+        if (cursor == null) {
+            findIterable.batchSize(batchSize);
+        }
     }
 
     /**
-     * Next cells.
+     * Next document.
      *
-     * @return the cells
+     * @return the document
      */
-    public DBObject next() {
-        return dbCursor.next();
+    public T next() {
+        return getCursor().next();
+    }
+
+    /**
+     * Opens the cursor on first use.
+     *
+     * @return the cursor
+     */
+    private MongoCursor<T> getCursor() {
+        if (cursor == null) {
+            cursor = findIterable.iterator();
+        }
+        return cursor;
+    }
+
+    /**
+     * Reads the next documents into a columnar batch. Columns are added as fields show up, typed after their first
+     * value; documents lacking a field hold null for it.
+     *
+     * @param max the maximum number of documents to read
+     * @return the batch, reused by the next call
+     */
+    public CellsBatch nextCellsBatch(int max) {
+        if (cellsBatch == null) {
+            cellsBatch = new CellsBatch(mongoDeepJobConfig.getNameSpace(), max);
+        }
+        cellsBatch.clear();
+
+        MongoCursor<T> batchCursor = getCursor();
+        while (cellsBatch.size() < max && batchCursor.hasNext()) {
+            T document = batchCursor.next();
+            if (document instanceof Cells) {
+                for (Cell cell : (Cells) document) {
+                    setBatchValue(cell.getCellName(), cell.getCellValue());
+                }
+            } else {
+                DBObject dbObject = (DBObject) document;
+                for (String key : dbObject.keySet()) {
+                    Object value = dbObject.get(key);
+                    setBatchValue(key, value == null ? null : UtilMongoDB.getCellValueFromBson(value));
+                }
+            }
+            cellsBatch.endRow();
+        }
+        return cellsBatch;
+    }
+
+    private void setBatchValue(String key, Object value) {
+        int column = cellsBatch.getColumnIndex(key);
+        if (column < 0) {
+            column = cellsBatch.addColumn(key, ColumnType.forValue(value));
+        }
+        cellsBatch.setValue(column, value);
     }
 
     /**
@@ -137,19 +249,41 @@ public class MongoReader<T> implements IHadoopRecordReader<DBObject> {
 
             }
 
-            mongoClient = new MongoClient(addressList, mongoCredentials);
+            mongoClient = MongoClientPool.getClient(addressList, mongoCredentials);
             //mongoClient.setReadPreference(ReadPreference.valueOf(mongoDeepJobConfig.getReadPreference()));
-            db = mongoClient.getDB(mongoDeepJobConfig.getDatabase());
-            collection = db.getCollection(mongoDeepJobConfig.getCollection());
+            collection = mongoClient.getDatabase(mongoDeepJobConfig.getDatabase())
+                    .getCollection(mongoDeepJobConfig.getCollection(), documentClass);
+            if (codec != null) {
+                collection = collection.withCodecRegistry(CodecRegistries.fromRegistries(
+                        CodecRegistries.fromCodecs(codec), collection.getCodecRegistry()));
+            }
 
-            dbCursor = collection.find(generateFilterQuery((MongoPartition) partition),
-                    mongoDeepJobConfig.getDBFields());
+            findIterable = collection.find(toBson(generateFilterQuery((MongoPartition) partition)));
+            if (mongoDeepJobConfig.getDBFields() != null) {
+                findIterable.projection(toBson(mongoDeepJobConfig.getDBFields()));
+            }
 
         } catch (UnknownHostException e) {
             throw new ExtractorInitializationException(e);
         }
     }
 
+    /**
+     * Returns the DBObject as a Bson filter or projection, encoded by the DBObject codec of the collection.
+     *
+     * @param dbObject the db object
+     * @return the bson
+     */
+    private static Bson toBson(final DBObject dbObject) {
+        return new Bson() {
+            @Override
+            public <TDocument> BsonDocument toBsonDocument(Class<TDocument> documentClass,
+                                                          CodecRegistry codecRegistry) {
+                return new BsonDocumentWrapper<>(dbObject, codecRegistry.get(DBObject.class));
+            }
+        };
+    }
+
     /**
      * Create query partition.
      *
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2016, Jerry Xiong, BOSSCS
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bosscs.spark.mongodb.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.bosscs.spark.commons.utils.Constants;
+import com.bosscs.spark.commons.utils.KeyedObjectPool;
+import com.mongodb.MongoClient;
+import com.mongodb.MongoCredential;
+import com.mongodb.ServerAddress;
+
+/**
+ * Mongo clients kept open between partition reads and writes, keyed by server addresses and credentials, so a short
+ * partition does not pay the connection and server discovery of a new client.
+ */
+public final class MongoClientPool extends KeyedObjectPool<MongoClientPool.Key, MongoClient> {
+
+    private static final MongoClientPool INSTANCE = new MongoClientPool();
+
+    /**
+     * Key each lent client was created for; a client reports the servers it discovered, not its seed list.
+     */
+    private static final Map<MongoClient, Key> LENT = Collections.synchronizedMap(
+            new IdentityHashMap<MongoClient, Key>());
+
+    private MongoClientPool() {
+        super(Constants.DEFAULT_POOL_MAX_IDLE, Constants.DEFAULT_POOL_IDLE_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Returns a client connected to the given servers, reusing an idle one if possible.
+     *
+     * @param addresses   the server addresses
+     * @param credentials the credentials
+     * @return the client
+     */
+    public static MongoClient getClient(List<ServerAddress> addresses, List<MongoCredential> credentials) {
+        Key key = new Key(addresses, credentials);
+        try {
+            MongoClient client = INSTANCE.borrow(key);
+            LENT.put(client, key);
+            return client;
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Returns a client connected to the given servers without credentials.
+     *
+     * @param addresses the server addresses
+     * @return the client
+     */
+    public static MongoClient getClient(List<ServerAddress> addresses) {
+        return getClient(addresses, Collections.<MongoCredential>emptyList());
+    }
+
+    /**
+     * Gives a client back for reuse.
+     *
+     * @param client the client
+     */
+    public static void releaseClient(MongoClient client) {
+        Key key = LENT.remove(client);
+        if (key == null) {
+            client.close();
+        } else {
+            INSTANCE.release(key, client);
+        }
+    }
+
+    @Override
+    protected MongoClient create(Key key) {
+        return new MongoClient(key.addresses, key.credentials);
+    }
+
+    @Override
+    protected void destroy(MongoClient client) {
+        client.close();
+    }
+
+    static final class Key {
+
+        private final List<ServerAddress> addresses;
+
+        private final List<MongoCredential> credentials;
+
+        private Key(List<ServerAddress> addresses, List<MongoCredential> credentials) {
+            this.addresses = new ArrayList<>(addresses);
+            this.credentials = new ArrayList<>(credentials);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return addresses.equals(key.addresses) && credentials.equals(key.credentials);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * addresses.hashCode() + credentials.hashCode();
+        }
+    }
+}
@@ -16,13 +16,10 @@
 
 package com.bosscs.spark.mongodb.utils;
 
-import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.lang.reflect.ParameterizedType;
-import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -37,9 +34,10 @@ import com.mongodb.BasicDBObject;
 import com.mongodb.DBObject;
 import com.bosscs.spark.commons.entity.Cell;
 import com.bosscs.spark.commons.entity.Cells;
+import com.bosscs.spark.commons.entity.CellsSchema;
+import com.bosscs.spark.commons.entity.CompactCells;
 import com.bosscs.spark.commons.entity.IType;
-import com.bosscs.spark.commons.utils.AnnotationUtils;
-import com.bosscs.spark.commons.utils.Utils;
+import com.bosscs.spark.commons.utils.EntityMapper;
 
 /**
  * Several utilities to work used in the Spark <=> MongoDB integration.
@@ -76,44 +74,22 @@ public final class UtilMongoDB {
      */
     public static <T> T getObjectFromBson(Class<T> classEntity, BSONObject bsonObject)
             throws IllegalAccessException, InstantiationException, InvocationTargetException {
-        T t = classEntity.newInstance();
-
-        Field[] fields = AnnotationUtils.filterDeepFields(classEntity);
-
-        Object insert = null;
-
-        for (Field field : fields) {
-            Object currentBson = null;
-            Method method = null;
-            try {
-                method = Utils.findSetter(field.getName(), classEntity, field.getType());
-
-                Class<?> classField = field.getType();
-
-                currentBson = bsonObject.get(AnnotationUtils.deepFieldName(field));
-                if (currentBson != null) {
-
-                    if (Iterable.class.isAssignableFrom(classField)) {
-                        Type type = field.getGenericType();
-
-                        insert = subDocumentListCase(type, (List) bsonObject.get(AnnotationUtils.deepFieldName(field)));
-
-                    } else if (IType.class.isAssignableFrom(classField)) {
-                        insert = getObjectFromBson(classField, (BSONObject) bsonObject.get(AnnotationUtils.deepFieldName
-                                (field)));
-                    } else {
-                        insert = currentBson;
-                    }
-                    method.invoke(t, insert);
+        EntityMapper<T> mapper = EntityMapper.forClass(classEntity);
+        T t = mapper.newInstance();
+
+        for (EntityMapper.Property property : mapper.getProperties()) {
+            Object currentBson = bsonObject.get(property.getName());
+            if (currentBson != null) {
+                Object insert;
+                if (property.isIterable()) {
+                    insert = subDocumentListCase(property.getElementType(), (List) currentBson);
+                } else if (property.isEntity()) {
+                    insert = getObjectFromBson(property.getType(), (BSONObject) currentBson);
+                } else {
+                    insert = currentBson;
                 }
-            } catch (IllegalAccessException | InstantiationException | InvocationTargetException | IllegalArgumentException e) {
-                LOG.error("impossible to create a java object from Bson field:" + field.getName() + " and type:" + field
-                        .getType() + " and value:" + t + "; bsonReceived:" + currentBson + ", bsonClassReceived:"
-                        + currentBson.getClass());
-
-                method.invoke(t, Utils.castNumberType(insert, t.getClass()));
+                property.set(t, insert);
             }
-
         }
 
         return t;
@@ -123,20 +99,16 @@ public final class UtilMongoDB {
      * Sub document list case.
      *
      * @param <T>       the type parameter
-     * @param type      the type
+     * @param listClass the class of the list elements
      * @param bsonOject the bson oject
      * @return the object
      * @throws IllegalAccessException    the illegal access exception
      * @throws InstantiationException    the instantiation exception
      * @throws InvocationTargetException the invocation target exception
      */
-    private static <T> Object subDocumentListCase(Type type, List<T> bsonOject)
+    private static <T> Object subDocumentListCase(Class<?> listClass, List<T> bsonOject)
             throws IllegalAccessException, InstantiationException, InvocationTargetException {
-        ParameterizedType listType = (ParameterizedType) type;
-
-        Class<?> listClass = (Class<?>) listType.getActualTypeArguments()[0];
-
-        List list = new ArrayList();
+        List list = new ArrayList(bsonOject.size());
         for (T t : bsonOject) {
             list.add(getObjectFromBson(listClass, (BSONObject) t));
         }
@@ -155,27 +127,24 @@ public final class UtilMongoDB {
      */
     public static <T> DBObject getBsonFromObject(T t)
             throws IllegalAccessException, InstantiationException, InvocationTargetException {
-        Field[] fields = AnnotationUtils.filterDeepFields(t.getClass());
-
         DBObject bson = new BasicDBObject();
 
-        for (Field field : fields) {
-            Method method = Utils.findGetter(field.getName(), t.getClass());
-            Object object = method.invoke(t);
+        for (EntityMapper.Property property : EntityMapper.forEntity(t).getProperties()) {
+            Object object = property.get(t);
             if (object != null) {
-                if (Collection.class.isAssignableFrom(field.getType())) {
+                if (Collection.class.isAssignableFrom(property.getType())) {
                     Collection c = (Collection) object;
                     Iterator iterator = c.iterator();
-                    List innerBsonList = new ArrayList<>();
+                    List innerBsonList = new ArrayList<>(c.size());
 
                     while (iterator.hasNext()) {
                         innerBsonList.add(getBsonFromObject(iterator.next()));
                     }
-                    bson.put(AnnotationUtils.deepFieldName(field), innerBsonList);
-                } else if (IType.class.isAssignableFrom(field.getType())) {
-                    bson.put(AnnotationUtils.deepFieldName(field), getBsonFromObject((IType) object));
+                    bson.put(property.getName(), innerBsonList);
+                } else if (property.isEntity()) {
+                    bson.put(property.getName(), getBsonFromObject((IType) object));
                 } else {
-                    bson.put(AnnotationUtils.deepFieldName(field), object);
+                    bson.put(property.getName(), object);
                 }
             }
         }
@@ -194,16 +163,9 @@ public final class UtilMongoDB {
      */
     public static <T extends IType> Object getId(T t)
             throws IllegalAccessException, InstantiationException, InvocationTargetException {
-        Field[] fields = AnnotationUtils.filterDeepFields(t.getClass());
-
-        for (Field field : fields) {
-            if (MONGO_DEFAULT_ID.equals(AnnotationUtils.deepFieldName(field))) {
-                return Utils.findGetter(field.getName(), t.getClass()).invoke(t);
-            }
-
-        }
+        EntityMapper.Property property = EntityMapper.forEntity(t).getProperty(MONGO_DEFAULT_ID);
 
-        return null;
+        return property == null ? null : property.get(t);
     }
 
     /**
@@ -226,24 +188,7 @@ public final class UtilMongoDB {
 
         for (Map.Entry<String, Object> entry : entryBson) {
             try {
-
-                if (List.class.isAssignableFrom(entry.getValue().getClass())) {
-                    List innerCell = new ArrayList<>();
-                    for (Object innerBson : (List)entry.getValue()) {
-                        if(innerBson instanceof DBObject){
-                            innerCell.add(getCellFromBson((DBObject)innerBson, null));
-                        }else{
-                            innerCell.add(innerBson);
-                        }
-
-                    }
-                    cells.add(Cell.create(entry.getKey(), innerCell));
-                } else if (BSONObject.class.isAssignableFrom(entry.getValue().getClass())) {
-                    Cells innerCells = getCellFromBson((BSONObject) entry.getValue(), null);
-                    cells.add(Cell.create(entry.getKey(), innerCells));
-                } else {
-                    cells.add(Cell.create(entry.getKey(), entry.getValue()));
-                }
+                cells.add(Cell.create(entry.getKey(), getCellValueFromBson(entry.getValue())));
             } catch (IllegalArgumentException e) {
                 LOG.error("impossible to create a java cell from Bson field:" + entry.getKey() + ", type:" + entry
                         .getValue().getClass() + ", value:" + entry.getValue());
@@ -254,6 +199,92 @@ public final class UtilMongoDB {
     }
 
 
+    /**
+     * converts from BsonObject to a compact cells object, sharing the schema of the previous document when both
+     * documents have the same fields in the same order
+     *
+     * @param bsonObject the bson object
+     * @param tableName  the table name
+     * @param schema     the schema of the previous document, null for the first one
+     * @return cell from bson, its schema to be given back for the next document
+     */
+    public static CompactCells getCellFromBson(BSONObject bsonObject, String tableName, CellsSchema schema) {
+
+        Set<String> keys = bsonObject.keySet();
+        if (schema == null || !schema.matches(keys) || !schema.getNameSpace().equals(tableName)) {
+            schema = CellsSchema.of(tableName, keys);
+        }
+
+        Object[] values = new Object[keys.size()];
+        int i = 0;
+        for (String key : keys) {
+            Object value = bsonObject.get(key);
+            values[i++] = value == null ? null : getCellValueFromBson(value);
+        }
+        return new CompactCells(schema, values);
+    }
+
+    /**
+     * converts a Bson field value to the value of its cell: embedded documents become Cells, and so do the documents
+     * inside arrays.
+     *
+     * @param value the Bson field value
+     * @return the cell value
+     */
+    public static Object getCellValueFromBson(Object value) {
+        if (List.class.isAssignableFrom(value.getClass())) {
+            List innerCell = new ArrayList<>();
+            for (Object innerBson : (List) value) {
+                if (innerBson instanceof DBObject) {
+                    innerCell.add(getCellFromBson((DBObject) innerBson, null));
+                } else {
+                    innerCell.add(innerBson);
+                }
+            }
+            return innerCell;
+        } else if (BSONObject.class.isAssignableFrom(value.getClass())) {
+            return getCellFromBson((BSONObject) value, null);
+        }
+        return value;
+    }
+
+    /**
+     * Returns the top level fields an inclusion projection asks for, including _id unless it is excluded.
+     *
+     * @param fields the projection, as given to the cursor
+     * @return the requested fields, null if the projection does not restrict the fields returned
+     */
+    public static Set<String> getProjectedFields(DBObject fields) {
+        if (fields == null) {
+            return null;
+        }
+
+        Set<String> projected = new HashSet<>();
+        boolean idExcluded = false;
+        for (String key : fields.keySet()) {
+            Object value = fields.get(key);
+            boolean excluded = Boolean.FALSE.equals(value) || (value instanceof Number
+                    && ((Number) value).intValue() == 0);
+            if (excluded && MONGO_DEFAULT_ID.equals(key)) {
+                idExcluded = true;
+            } else if (excluded) {
+                // exclusion projection, every other field is returned
+                return null;
+            } else {
+                int dot = key.indexOf('.');
+                projected.add(dot < 0 ? key : key.substring(0, dot));
+            }
+        }
+
+        if (projected.isEmpty()) {
+            return null;
+        }
+        if (!idExcluded) {
+            projected.add(MONGO_DEFAULT_ID);
+        }
+        return projected;
+    }
+
     /**
      * converts from and entity class with deep's anotations to BsonObject
      *
@@ -16,13 +16,22 @@
 
 package com.bosscs.spark.mongodb.writer;
 
+import static com.bosscs.spark.mongodb.utils.UtilMongoDB.MONGO_DEFAULT_ID;
+
 import java.util.List;
 
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.RawBsonDocument;
+
 import com.mongodb.DBCollection;
 import com.mongodb.DBObject;
 import com.mongodb.MongoClient;
 import com.mongodb.ServerAddress;
 import com.mongodb.WriteConcern;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.UpdateOptions;
+import com.bosscs.spark.mongodb.utils.MongoClientPool;
 
 /**
  * Created by Jerry Xiong on 5/02/16.
@@ -40,6 +49,13 @@ public class MongoWriter implements AutoCloseable {
 
     protected WriteConcern writeConcern = null;
 
+    /**
+     * The collection raw documents are written to, opened by the first of them.
+     */
+    private MongoCollection<RawBsonDocument> rawCollection = null;
+
+    private final UpdateOptions upsert = new UpdateOptions().upsert(true);
+
 
     /**
      * Instantiates a new Mongo writer.
@@ -53,7 +69,7 @@ public class MongoWriter implements AutoCloseable {
      */
     public MongoWriter(List<ServerAddress> serverAddresses, String databaseName, String collectionName,
             WriteConcern writeConcern) {
-        mongoClient = new MongoClient(serverAddresses);
+        mongoClient = MongoClientPool.getClient(serverAddresses);
         dbCollection = mongoClient.getDB(databaseName).getCollection(collectionName);
         this.writeConcern = writeConcern;
     }
@@ -68,12 +84,39 @@ public class MongoWriter implements AutoCloseable {
         dbCollection.save(dbObject, writeConcern);
     }
 
+    /**
+     * Saves a raw document as it was read, without decoding and encoding it again: replaces the document with the
+     * same _id, inserting it if there is none.
+     *
+     * @param document the raw document
+     */
+    public void save(RawBsonDocument document) {
+        BsonValue id = document.get(MONGO_DEFAULT_ID);
+        if (id == null) {
+            getRawCollection().insertOne(document);
+        } else {
+            getRawCollection().replaceOne(new BsonDocument(MONGO_DEFAULT_ID, id), document, upsert);
+        }
+    }
+
+    private MongoCollection<RawBsonDocument> getRawCollection() {
+        if (rawCollection == null) {
+            rawCollection = mongoClient.getDatabase(dbCollection.getDB().getName())
+                    .getCollection(dbCollection.getName(), RawBsonDocument.class);
+            if (writeConcern != null) {
+                rawCollection = rawCollection.withWriteConcern(writeConcern);
+            }
+        }
+        return rawCollection;
+    }
+
     /**
      * Close void.
      */
     public void close() {
         if (mongoClient != null) {
-            mongoClient.close();
+            MongoClientPool.releaseClient(mongoClient);
+            mongoClient = null;
         }
     }
 
@@ -0,0 +1,92 @@
+/*
+ * Copyright Jerry Xiong, BOSSCS
+ *
+ * The Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.bosscs.spark.commons.benchmark;
+
+import java.util.List;
+
+import com.bosscs.spark.commons.benchmark.MicroBenchmark.IOperation;
+import com.bosscs.spark.commons.entity.Cell;
+import com.bosscs.spark.commons.entity.Cells;
+
+/**
+ * Reads every field of a row by name, through {@link Cells#getCellByName(String)} and through the linear scan it
+ * replaced, for rows of 10, 100 and 1000 fields. The scan grows with the width of the row, the indexed lookup does
+ * not.
+ * <p>
+ * Run with {@code java -cp <test classes>:<classes>:<libs> com.bosscs.spark.commons.benchmark.CellsLookupBenchmark}
+ * and optionally {@code -Dbenchmark.rounds=N} (see {@link MicroBenchmark#fromSystemProperties}).
+ */
+public class CellsLookupBenchmark {
+
+    private static final String NAMESPACE = "benchmark";
+
+    private static final int[] WIDTHS = { 10, 100, 1000 };
+
+    public static void main(String[] args) throws Exception {
+        MicroBenchmark benchmark = MicroBenchmark.fromSystemProperties(10, 20, 200);
+        for (int width : WIDTHS) {
+            final Cells row = row(width);
+            final String[] names = new String[width];
+            for (int i = 0; i < width; i++) {
+                names[i] = "field" + i;
+            }
+
+            double indexed = benchmark.measure("indexed, " + width + " fields, per row", new IOperation() {
+                @Override
+                public long run() {
+                    long hits = 0;
+                    for (String name : names) {
+                        hits += row.getCellByName(name) != null ? 1 : 0;
+                    }
+                    return hits;
+                }
+            });
+            double scan = benchmark.measure("linear scan, " + width + " fields, per row", new IOperation() {
+                @Override
+                public long run() {
+                    long hits = 0;
+                    for (String name : names) {
+                        hits += scan(row, name) != null ? 1 : 0;
+                    }
+                    return hits;
+                }
+            });
+            System.out.println(String.format("%d fields: %.1fx faster", width, scan / indexed));
+        }
+    }
+
+    private static Cells row(int width) {
+        Cells row = new Cells(NAMESPACE);
+        for (int i = 0; i < width; i++) {
+            row.add(Cell.create("field" + i, i % 2 == 0 ? (Object) ("value" + i) : (Object) (long) i));
+        }
+        return row;
+    }
+
+    /**
+     * The lookup Cells did before the index: every list, every cell, compared by name.
+     */
+    private static Cell scan(Cells row, String cellName) {
+        for (List<Cell> cells : row.getInternalCells().values()) {
+            for (Cell cell : cells) {
+                if (cell.getCellName().equals(cellName)) {
+                    return cell;
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright Jerry Xiong, BOSSCS
+ *
+ * The Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.bosscs.spark.commons.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.bosscs.spark.commons.benchmark.MicroBenchmark.IOperation;
+import com.bosscs.spark.commons.entity.Cell;
+import com.bosscs.spark.commons.entity.Cells;
+import com.bosscs.spark.commons.extractor.client.codecs.BinaryCodec;
+import com.bosscs.spark.commons.extractor.response.NextBatchResponse;
+import com.bosscs.spark.commons.serialization.CellsKryoRegistrator;
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+/**
+ * Round trips a batch of rows through each format Cells can travel in, and prints the time per row and the bytes per
+ * row:
+ * <ul>
+ * <li>default Java serialization, on a copy of the rows in {@link LegacyCells}, which has the fields Cells and Cell
+ * had before they became Externalizable;</li>
+ * <li>Java serialization of the Externalizable Cells;</li>
+ * <li>Kryo with the serializers of {@link CellsKryoRegistrator};</li>
+ * <li>{@link BinaryCodec}, the rows being the payload of a {@link NextBatchResponse}.</li>
+ * </ul>
+ * Rows are either Mongo like (nested document, list, dates, object id as a string) or JDBC like (flat columns).
+ * <p>
+ * Run with {@code java -cp <test classes>:<classes>:<libs>
+ * com.bosscs.spark.commons.benchmark.CellsSerializationBenchmark} and optionally {@code -Dbenchmark.rounds=N} (see
+ * {@link MicroBenchmark#fromSystemProperties}).
+ */
+public class CellsSerializationBenchmark {
+
+    private static final int ROWS = 100;
+
+    public static void main(String[] args) throws Exception {
+        MicroBenchmark benchmark = MicroBenchmark.fromSystemProperties(10, 20, 50);
+        run(benchmark, "mongo", mongoRows());
+        run(benchmark, "jdbc", jdbcRows());
+    }
+
+    private static void run(MicroBenchmark benchmark, String shape, final List<Cells> rows) throws Exception {
+        final ArrayList<LegacyCells> legacyRows = new ArrayList<>(rows.size());
+        for (Cells row : rows) {
+            legacyRows.add(LegacyCells.of(row));
+        }
+
+        measure(benchmark, shape + ", java default", new IOperation() {
+            @Override
+            public long run() throws Exception {
+                return javaRoundTrip(legacyRows);
+            }
+        });
+        measure(benchmark, shape + ", java externalizable", new IOperation() {
+            @Override
+            public long run() throws Exception {
+                return javaRoundTrip(new ArrayList<>(rows));
+            }
+        });
+
+        final Kryo kryo = new Kryo();
+        new CellsKryoRegistrator().registerClasses(kryo);
+        final Output output = new Output(64 * 1024, -1);
+        measure(benchmark, shape + ", kryo", new IOperation() {
+            @Override
+            public long run() {
+                output.clear();
+                kryo.writeClassAndObject(output, rows);
+                Input input = new Input(output.getBuffer(), 0, output.position());
+                kryo.readClassAndObject(input);
+                return output.position();
+            }
+        });
+
+        final BinaryCodec codec = new BinaryCodec();
+        final ByteBuf buffer = Unpooled.buffer(64 * 1024);
+        final NextBatchResponse<Cells> response = new NextBatchResponse<>(rows, false);
+        measure(benchmark, shape + ", binary codec", new IOperation() {
+            @Override
+            public long run() throws Exception {
+                buffer.clear();
+                codec.encode(response, buffer);
+                int size = buffer.readableBytes();
+                codec.decode(buffer);
+                return size;
+            }
+        });
+    }
+
+    /**
+     * Measures a round trip of the batch, printing the time and the size per row.
+     */
+    private static void measure(MicroBenchmark benchmark, String name, final IOperation roundTrip) throws Exception {
+        long size = roundTrip.run();
+        double nanos = benchmark.measure(name + ", " + ROWS + " rows", new IOperation() {
+            @Override
+            public long run() throws Exception {
+                return roundTrip.run();
+            }
+        }) / ROWS;
+        System.out.println(String.format("    %.1f ns/row, %d bytes/row", nanos, size / ROWS));
+    }
+
+    private static long javaRoundTrip(Object rows) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * 1024);
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(rows);
+        out.close();
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        in.readObject();
+        in.close();
+        return bytes.size();
+    }
+
+    private static List<Cells> mongoRows() {
+        List<Cells> rows = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            Cells address = new Cells("address");
+            address.add(Cell.create("street", "Calle Mayor " + i));
+            address.add(Cell.create("city", "Madrid"));
+            address.add(Cell.create("zip", 28000 + i));
+
+            Cells row = new Cells("people");
+            row.add(Cell.create("_id", String.format("5a0b1c2d3e4f5a6b7c%06x", i), true));
+            row.add(Cell.create("name", "person " + i));
+            row.add(Cell.create("age", 20 + i % 50));
+            row.add(Cell.create("score", i * 0.25d));
+            row.add(Cell.create("active", i % 3 == 0));
+            row.add(Cell.create("created", new Date(1500000000000L + i)));
+            row.add(Cell.create("tags", new ArrayList<>(Arrays.asList("a" + i % 5, "b" + i % 7, "c"))));
+            row.add(Cell.create("address", address));
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private static List<Cells> jdbcRows() {
+        List<Cells> rows = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            Cells row = new Cells("orders");
+            row.add(Cell.create("id", (long) i, true));
+            row.add(Cell.create("customer_id", i % 97));
+            row.add(Cell.create("status", i % 2 == 0 ? "SHIPPED" : "PENDING"));
+            row.add(Cell.create("amount", new BigDecimal(i * 13).movePointLeft(2)));
+            row.add(Cell.create("quantity", i % 10));
+            row.add(Cell.create("discount", 0.05d));
+            row.add(Cell.create("created_at", new Timestamp(1500000000000L + i * 1000L)));
+            row.add(Cell.create("comment", null));
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    /**
+     * Same fields as Cells before it became Externalizable, written by default Java serialization.
+     */
+    private static final class LegacyCells implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String nameSpace;
+
+        private final Map<String, List<LegacyCell>> cells = new HashMap<>();
+
+        private LegacyCells(String nameSpace) {
+            this.nameSpace = nameSpace;
+        }
+
+        private static LegacyCells of(Cells row) {
+            LegacyCells legacy = new LegacyCells(row.getnameSpace());
+            for (Map.Entry<String, List<Cell>> table : row.getInternalCells().entrySet()) {
+                List<LegacyCell> cells = new ArrayList<>(table.getValue().size());
+                for (Cell cell : table.getValue()) {
+                    Object value = cell.getCellValue();
+                    cells.add(new LegacyCell(cell.getCellName(), value instanceof Cells ? of((Cells) value) : value,
+                            cell.isKey(), cell.isClusterKey()));
+                }
+                legacy.cells.put(table.getKey(), cells);
+            }
+            return legacy;
+        }
+    }
+
+    /**
+     * Same fields as Cell before it became Externalizable, written by default Java serialization.
+     */
+    private static final class LegacyCell implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String cellName;
+
+        private final Object cellValue;
+
+        private final Boolean isKey;
+
+        private final Boolean isClusterKey;
+
+        private LegacyCell(String cellName, Object cellValue, Boolean isKey, Boolean isClusterKey) {
+            this.cellName = cellName;
+            this.cellValue = cellValue;
+            this.isKey = isKey;
+            this.isClusterKey = isClusterKey;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright Jerry Xiong, BOSSCS
+ *
+ * The Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.bosscs.spark.commons.benchmark;
+
+import java.util.Arrays;
+
+/**
+ * Minimal harness for the benchmarks of this package, run from their main methods. Each operation is called a fixed
+ * number of times per round, the first rounds only warm the JIT up, and the median time per call over the measured
+ * rounds is reported. Operations return a value which is folded into a volatile field, so the JIT cannot drop the
+ * work as dead code.
+ */
+public final class MicroBenchmark {
+
+    /**
+     * Work measured by the harness.
+     */
+    public interface IOperation {
+
+        /**
+         * @return any value depending on the work done
+         */
+        long run() throws Exception;
+    }
+
+    public static volatile long sink;
+
+    private final int warmupRounds;
+
+    private final int rounds;
+
+    private final int callsPerRound;
+
+    /**
+     * @param warmupRounds  rounds run before measuring
+     * @param rounds        measured rounds
+     * @param callsPerRound calls of the operation in each round
+     */
+    public MicroBenchmark(int warmupRounds, int rounds, int callsPerRound) {
+        this.warmupRounds = warmupRounds;
+        this.rounds = rounds;
+        this.callsPerRound = callsPerRound;
+    }
+
+    /**
+     * Builds a harness from the system properties {@code benchmark.warmup}, {@code benchmark.rounds} and
+     * {@code benchmark.calls}, falling back to the given values.
+     */
+    public static MicroBenchmark fromSystemProperties(int warmupRounds, int rounds, int callsPerRound) {
+        return new MicroBenchmark(Integer.getInteger("benchmark.warmup", warmupRounds),
+                Integer.getInteger("benchmark.rounds", rounds), Integer.getInteger("benchmark.calls", callsPerRound));
+    }
+
+    /**
+     * Measures an operation and prints its median time per call.
+     *
+     * @param name      the label printed with the result
+     * @param operation the operation
+     * @return the median time per call, in nanoseconds
+     */
+    public double measure(String name, IOperation operation) throws Exception {
+        for (int i = 0; i < warmupRounds; i++) {
+            round(operation);
+        }
+        double[] times = new double[rounds];
+        for (int i = 0; i < rounds; i++) {
+            times[i] = (double) round(operation) / callsPerRound;
+        }
+        Arrays.sort(times);
+        double median = times[rounds / 2];
+        System.out.println(String.format("%-48s %12.1f ns/op  (min %.1f, max %.1f)", name, median, times[0],
+                times[rounds - 1]));
+        return median;
+    }
+
+    private long round(IOperation operation) throws Exception {
+        long acc = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < callsPerRound; i++) {
+            acc += operation.run();
+        }
+        long elapsed = System.nanoTime() - start;
+        sink += acc;
+        return elapsed;
+    }
+}
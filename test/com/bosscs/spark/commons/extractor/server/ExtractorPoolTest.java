@@ -0,0 +1,57 @@
+/*
+ * Copyright Jerry Xiong, BOSSCS
+ *
+ * The Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.bosscs.spark.commons.extractor.server;
+
+import static com.bosscs.spark.commons.extractor.utils.ExtractorConstants.FILTER_QUERY;
+import static com.bosscs.spark.commons.extractor.utils.ExtractorConstants.HOST;
+import static com.bosscs.spark.commons.extractor.utils.ExtractorConstants.INPUT_COLUMNS;
+import static com.bosscs.spark.commons.extractor.utils.ExtractorConstants.PORT;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import org.junit.Test;
+
+import com.bosscs.spark.commons.config.ExtractorConfig;
+import com.bosscs.spark.commons.entity.Cells;
+import com.bosscs.spark.commons.filter.Filter;
+
+public class ExtractorPoolTest {
+
+    private static ExtractorConfig<Cells> config(String host) {
+        ExtractorConfig<Cells> config = new ExtractorConfig<>(Cells.class);
+        config.setExtractorImplClassName("com.bosscs.spark.jdbc.extractor.JdbcNativeCellExtractor");
+        config.putValue(HOST, new String[] { host });
+        config.putValue(PORT, 3306);
+        config.putValue(INPUT_COLUMNS, new String[] { "id", "name" });
+        config.putValue(FILTER_QUERY, new Filter[] { new Filter("id").greaterThan(10),
+                new Filter("name").in(new String[] { "a", "b" }) });
+        return config;
+    }
+
+    @Test
+    public void configsBuiltTheSameWayGiveEqualKeys() {
+        ExtractorPool.Key first = ExtractorPool.keyOf(config("localhost"));
+        ExtractorPool.Key second = ExtractorPool.keyOf(config("localhost"));
+
+        assertEquals(first, second);
+        assertEquals(first.hashCode(), second.hashCode());
+    }
+
+    @Test
+    public void configsWithDifferentArrayValuesGiveDifferentKeys() {
+        assertFalse(ExtractorPool.keyOf(config("localhost")).equals(ExtractorPool.keyOf(config("otherhost"))));
+    }
+}
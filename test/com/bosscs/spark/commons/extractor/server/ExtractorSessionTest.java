@@ -0,0 +1,143 @@
+/*
+ * Copyright Jerry Xiong, BOSSCS
+ *
+ * The Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.bosscs.spark.commons.extractor.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ExtractorSessionTest {
+
+    /**
+     * One worker thread and one queue slot.
+     */
+    private ExtractorWorkerPool workerPool;
+
+    private final List<String> ran = new CopyOnWriteArrayList<>();
+
+    @Before
+    public void setUp() {
+        workerPool = new ExtractorWorkerPool(new ExtractorServerConfig().extractorThreads(1).extractorQueueSize(1));
+    }
+
+    @After
+    public void tearDown() {
+        workerPool.shutdown();
+    }
+
+    @Test
+    public void rejectionsKeepTheTasksQueuedBefore() throws Exception {
+        ExtractorSession<Object> session = new ExtractorSession<>(1, workerPool, null);
+
+        // an Error escaping a task while the pool is full leaves the next task queued and unscheduled
+        final CountDownLatch failing = new CountDownLatch(1);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        session.execute(new Runnable() {
+            @Override
+            public void run() {
+                await(failing);
+                throw new AssertionError("task failure");
+            }
+        });
+        session.execute(record("earlier"));
+        new ExtractorSession<>(2, workerPool, null).execute(block(started, release));
+        failing.countDown();
+
+        // once that blocking task runs, fill the queue slot again
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        new ExtractorSession<>(3, workerPool, null).execute(block(null, release));
+
+        assertRejected(session, "first");
+        assertRejected(session, "second");
+
+        release.countDown();
+        waitUntilIdle();
+        session.execute(record("next"));
+        waitUntilIdle();
+
+        assertEquals(Arrays.asList("earlier", "next"), ran);
+    }
+
+    private Runnable record(final String name) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                ran.add(name);
+            }
+        };
+    }
+
+    private static Runnable block(final CountDownLatch started, final CountDownLatch release) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                if (started != null) {
+                    started.countDown();
+                }
+                await(release);
+            }
+        };
+    }
+
+    private void assertRejected(ExtractorSession<Object> session, String name) {
+        try {
+            session.execute(record(name));
+            fail("Task " + name + " should have been rejected");
+        } catch (RejectedExecutionException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void onlyOneStreamTaskIsScheduledAtATime() {
+        ExtractorSession<Object> session = new ExtractorSession<>(1, workerPool, null);
+
+        assertTrue(session.scheduleStreamTask());
+        assertFalse(session.scheduleStreamTask());
+
+        session.streamTaskStarted();
+        assertTrue(session.scheduleStreamTask());
+    }
+
+    private void waitUntilIdle() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (workerPool.getActiveCount() + workerPool.getQueueDepth() > 0) {
+            assertTrue("Worker pool never went idle", System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
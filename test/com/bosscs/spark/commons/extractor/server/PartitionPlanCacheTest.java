@@ -0,0 +1,77 @@
+/*
+ * Copyright Jerry Xiong, BOSSCS
+ *
+ * The Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.bosscs.spark.commons.extractor.server;
+
+import static com.bosscs.spark.commons.extractor.utils.ExtractorConstants.HOST;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.spark.Partition;
+import org.junit.Test;
+
+import com.bosscs.spark.commons.config.ExtractorConfig;
+import com.bosscs.spark.commons.entity.Cells;
+import com.bosscs.spark.commons.impl.HadoopPartition;
+
+public class PartitionPlanCacheTest {
+
+    private static ExtractorPool.Key key() {
+        ExtractorConfig<Cells> config = new ExtractorConfig<>(Cells.class);
+        config.setExtractorImplClassName("com.bosscs.spark.jdbc.extractor.JdbcNativeCellExtractor");
+        config.putValue(HOST, new String[] { "localhost" });
+        return ExtractorPool.keyOf(config);
+    }
+
+    private static Callable<Partition[]> planner(final int rddId, final AtomicInteger calls) {
+        return new Callable<Partition[]>() {
+            @Override
+            public Partition[] call() {
+                calls.incrementAndGet();
+                return new Partition[] { new HadoopPartition(rddId, 0, null) };
+            }
+        };
+    }
+
+    @Test
+    public void plansAreNotSharedBetweenRdds() {
+        PartitionPlanCache cache = new PartitionPlanCache(60000);
+        AtomicInteger calls = new AtomicInteger();
+
+        Partition[] first = cache.get(key(), 1, planner(1, calls));
+        Partition[] again = cache.get(key(), 1, planner(1, calls));
+        Partition[] second = cache.get(key(), 2, planner(2, calls));
+
+        assertSame(first, again);
+        assertEquals(2, calls.get());
+        assertEquals(new HadoopPartition(2, 0, null), second[0]);
+    }
+
+    @Test
+    public void invalidatingAConfigDropsThePlansOfEveryRdd() {
+        PartitionPlanCache cache = new PartitionPlanCache(60000);
+        AtomicInteger calls = new AtomicInteger();
+        cache.get(key(), 1, planner(1, calls));
+        cache.get(key(), 2, planner(2, calls));
+
+        assertEquals(2, cache.invalidate(key()));
+        assertNull(cache.getIfPresent(key(), 1));
+        assertNull(cache.getIfPresent(key(), 2));
+    }
+}